@@ -1,16 +1,178 @@
 package com.simplenotes;
 
 import android.content.Context;
+import android.database.Cursor;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import com.simplenotes.utils.RichTextUtils;
+import com.simplenotes.utils.SearchTokenizer;
+import com.simplenotes.utils.StartupTrace;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
-@Database(entities = { Note.class, Verse.class, BibleVersion.class }, version = 3, exportSchema = false)
+@Database(entities = { Note.class, Verse.class, BibleVersion.class, Translation.class,
+        BookName.class, NoteOp.class, NoteFts.class, VerseFts.class }, version = 10, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
     public abstract NoteDao noteDao();
 
     public abstract BibleDao bibleDao();
 
+    /**
+     * Opens a chunked bulk writer for translation downloads. Prefer this over
+     * {@link BibleDao#insertVerses} for anything larger than a handful of rows.
+     */
+    public VerseBulkLoader newVerseBulkLoader(VerseBulkLoader.ProgressListener listener) {
+        return new VerseBulkLoader(this, VerseBulkLoader.DEFAULT_CHUNK_SIZE, listener);
+    }
+
+    /**
+     * Moves verses from (translationId, book, chapter, verse) string keys to the
+     * (translationKey, verseKey) integer primary key. Rows whose book is not in
+     * BibleData.BOOKS (e.g. a translation stored under its localized book names)
+     * cannot be keyed. A translation that loses any rows that way is removed
+     * entirely and marked not downloaded, so the version sheet offers it again
+     * instead of showing it with missing books.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `translations` "
+                    + "(`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `code` TEXT NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_translations_code` ON `translations` (`code`)");
+            db.execSQL("INSERT OR IGNORE INTO translations (code) "
+                    + "SELECT DISTINCT translationId FROM verses WHERE translationId IS NOT NULL");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `verses_new` (`translationKey` INTEGER NOT NULL, "
+                    + "`verseKey` INTEGER NOT NULL, `text` TEXT, PRIMARY KEY(`translationKey`, `verseKey`))");
+
+            StringBuilder bookOrdinal = new StringBuilder("CASE v.book");
+            for (int i = 0; i < BibleData.BOOKS.length; i++) {
+                bookOrdinal.append(" WHEN '").append(BibleData.BOOKS[i].replace("'", "''"))
+                        .append("' THEN ").append(i + 1);
+            }
+            bookOrdinal.append(" END");
+            db.execSQL("INSERT OR REPLACE INTO verses_new (translationKey, verseKey, text) "
+                    + "SELECT t.id, (" + bookOrdinal + ") * " + VerseKey.BOOK_FACTOR
+                    + " + v.chapter * " + VerseKey.CHAPTER_FACTOR + " + v.verse, v.text "
+                    + "FROM verses v JOIN translations t ON t.code = v.translationId "
+                    + "WHERE (" + bookOrdinal + ") IS NOT NULL "
+                    + "AND v.chapter BETWEEN 1 AND " + VerseKey.MAX_NUMBER + " "
+                    + "AND v.verse BETWEEN 1 AND " + VerseKey.MAX_NUMBER);
+
+            List<Object[]> incomplete = new ArrayList<>();
+            try (Cursor cursor = db.query("SELECT t.id, t.code FROM translations t "
+                    + "WHERE (SELECT COUNT(*) FROM verses WHERE translationId = t.code) "
+                    + "> (SELECT COUNT(*) FROM verses_new WHERE translationKey = t.id)")) {
+                while (cursor.moveToNext()) {
+                    incomplete.add(new Object[] { cursor.getInt(0), cursor.getString(1) });
+                }
+            }
+            for (Object[] translation : incomplete) {
+                db.execSQL("DELETE FROM verses_new WHERE translationKey = ?", new Object[] { translation[0] });
+                db.execSQL("DELETE FROM translations WHERE id = ?", new Object[] { translation[0] });
+                db.execSQL("UPDATE bible_versions SET isDownloaded = 0 WHERE id = ?", new Object[] { translation[1] });
+            }
+
+            db.execSQL("DROP TABLE verses");
+            db.execSQL("ALTER TABLE verses_new RENAME TO verses");
+        }
+    };
+
+    /** Adds localized book names used by BookIndex. */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `book_names` (`translationKey` INTEGER NOT NULL, "
+                    + "`book` INTEGER NOT NULL, `name` TEXT NOT NULL, PRIMARY KEY(`translationKey`, `book`))");
+        }
+    };
+
+    /** Adds the per-note op log used by NoteStore. */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `note_ops` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`noteId` INTEGER NOT NULL, `start` INTEGER NOT NULL, `removed` INTEGER NOT NULL, "
+                    + "`inserted` TEXT, `spans` TEXT, `title` TEXT, `timestamp` INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_note_ops_noteId` ON `note_ops` (`noteId`)");
+        }
+    };
+
+    /**
+     * Adds the note list preview and fills it in from each note's snapshot;
+     * NoteStore keeps it current from then on.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `preview` TEXT");
+            try (Cursor cursor = db.query("SELECT id, content FROM notes")) {
+                while (cursor.moveToNext()) {
+                    db.execSQL("UPDATE notes SET preview = ? WHERE id = ?",
+                            new Object[] { RichTextUtils.previewOf(cursor.getString(1)), cursor.getLong(0) });
+                }
+            }
+        }
+    };
+
+    /** Adds the search index (NoteFts) and indexes every note's snapshot. */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notes_fts` USING FTS4(`title` TEXT, `body` TEXT, "
+                    + "tokenize=unicode61, prefix=`2,3`)");
+            try (Cursor cursor = db.query("SELECT id, title, content FROM notes")) {
+                while (cursor.moveToNext()) {
+                    db.execSQL("INSERT INTO notes_fts (rowid, title, body) VALUES (?, ?, ?)", new Object[] {
+                            cursor.getLong(0), cursor.getString(1), RichTextUtils.plainTextOf(cursor.getString(2)) });
+                }
+            }
+        }
+    };
+
+    /**
+     * Adds the verse search index (VerseFts) and indexes translations already
+     * downloaded; new downloads are indexed as they are written.
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `verses_fts` USING FTS4(`text` TEXT, "
+                    + "languageid=`translationKey`)");
+            try (SupportSQLiteStatement insert = db.compileStatement(
+                    "INSERT INTO verses_fts (rowid, translationKey, text) VALUES (?, ?, ?)");
+                    Cursor cursor = db.query("SELECT translationKey, verseKey, text FROM verses")) {
+                while (cursor.moveToNext()) {
+                    int translationKey = cursor.getInt(0);
+                    insert.bindLong(1, VerseFts.rowidOf(translationKey, cursor.getInt(1)));
+                    insert.bindLong(2, translationKey);
+                    insert.bindString(3, SearchTokenizer.normalize(cursor.isNull(2) ? "" : cursor.getString(2)));
+                    insert.executeInsert();
+                }
+            } catch (IOException e) {
+                e.printStackTrace(); // Closing the statement; the rows are in
+            }
+        }
+    };
+
+    /** Indexes the note list's order, so that each page of it is an index range (see NoteDao). */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_isPinned_timestamp` ON `notes` (`isPinned`, `timestamp`)");
+        }
+    };
+
+    /** Every migration from version 3 on, in order. */
+    static final Migration[] MIGRATIONS = { MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7,
+            MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10 };
+
     private static AppDatabase INSTANCE;
 
     public static AppDatabase getDatabase(Context context) {
@@ -19,11 +181,34 @@ public abstract class AppDatabase extends RoomDatabase {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                             AppDatabase.class, "notes-db")
-                            .fallbackToDestructiveMigration()
+                            .addMigrations(MIGRATIONS)
+                            .fallbackToDestructiveMigrationFrom(1, 2)
                             .build();
                 }
             }
         }
         return INSTANCE;
     }
+
+    /**
+     * Opens the database file, running any migrations, on {@code executor} now
+     * rather than on the first query, so that it overlaps the caller's own work
+     * (e.g. inflating the first screen). Queries queued on the same executor
+     * run after it.
+     */
+    public static AppDatabase openEarly(Context context, Executor executor) {
+        AppDatabase db = getDatabase(context);
+        executor.execute(() -> {
+            StartupTrace.beginSection("AppDatabase.open");
+            try {
+                db.getOpenHelper().getWritableDatabase();
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // The first query tries again and reports it
+            } finally {
+                StartupTrace.endSection();
+            }
+            StartupTrace.mark("database open");
+        });
+        return db;
+    }
 }
@@ -8,15 +8,19 @@ import java.util.concurrent.Executors;
 
 public class AppExecutors {
 
+    public static final int NETWORK_THREADS = 3;
+
     private static final Object LOCK = new Object();
     private static AppExecutors sInstance;
     private final Executor diskIO;
     private final Executor mainThread;
     private final Executor networkIO;
+    private final Executor downloadIO;
 
-    private AppExecutors(Executor diskIO, Executor networkIO, Executor mainThread) {
+    private AppExecutors(Executor diskIO, Executor networkIO, Executor downloadIO, Executor mainThread) {
         this.diskIO = diskIO;
         this.networkIO = networkIO;
+        this.downloadIO = downloadIO;
         this.mainThread = mainThread;
     }
 
@@ -24,7 +28,8 @@ public class AppExecutors {
         if (sInstance == null) {
             synchronized (LOCK) {
                 sInstance = new AppExecutors(Executors.newSingleThreadExecutor(),
-                        Executors.newFixedThreadPool(3),
+                        Executors.newFixedThreadPool(NETWORK_THREADS),
+                        Executors.newSingleThreadExecutor(),
                         new MainThreadExecutor());
             }
         }
@@ -43,6 +48,14 @@ public class AppExecutors {
         return networkIO;
     }
 
+    /**
+     * Long-running translation downloads. Kept off {@link #diskIO()} so that a
+     * download never queues note saves behind it.
+     */
+    public Executor downloadIO() {
+        return downloadIO;
+    }
+
     private static class MainThreadExecutor implements Executor {
         private Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
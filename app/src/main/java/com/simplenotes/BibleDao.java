@@ -4,27 +4,146 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
+import com.simplenotes.utils.SearchTokenizer;
 import java.util.List;
 
 @Dao
 public interface BibleDao {
+    /** Every verse of a translation matching an FTS query, with matchinfo for {@link VerseSearch#rank}. */
+    String MATCH_VERSES = "SELECT (rowid & 4294967295) AS verseKey, matchinfo(verses_fts, 'pcnx') AS matchinfo "
+            + "FROM verses_fts WHERE verses_fts MATCH :query AND translationKey = :translationKey";
+
+    // Translation Operations
+    @Query("SELECT id FROM translations WHERE code = :code LIMIT 1")
+    Integer findTranslationKey(String code);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertTranslation(Translation translation);
+
+    /** Looks up the integer key for a translation code, creating the row on first use. */
+    @Transaction
+    default int getOrCreateTranslationKey(String code) {
+        if (code == null)
+            throw new IllegalArgumentException("No translation code");
+        Integer key = findTranslationKey(code);
+        if (key != null)
+            return key;
+        long id = insertTranslation(new Translation(code));
+        if (id != -1)
+            return (int) id; // The id is the rowid
+        key = findTranslationKey(code); // Ignored, e.g. added by another connection since
+        if (key == null)
+            throw new IllegalStateException("Could not create translation " + code);
+        return key;
+    }
+
     // Verse Operations
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertVerse(Verse verse);
+    void insertVerseRows(List<Verse> verses);
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertVerses(List<Verse> verses);
+    void insertVerseFtsRows(List<VerseFts> rows);
+
+    /** Resolves translation keys and skips verses whose book is not canonical. */
+    @Transaction
+    default void insertVerses(List<Verse> verses) {
+        List<Verse> rows = new java.util.ArrayList<>(verses.size());
+        String lastCode = null;
+        int lastKey = 0;
+        for (Verse v : verses) {
+            if (!VerseKey.isValid(v.getVerseKey()) || v.getTranslationId() == null)
+                continue;
+            if (!v.getTranslationId().equals(lastCode)) {
+                lastCode = v.getTranslationId();
+                lastKey = getOrCreateTranslationKey(lastCode);
+            }
+            v.setTranslationKey(lastKey);
+            rows.add(v);
+        }
+        if (!rows.isEmpty()) {
+            insertVerseRows(rows);
+            List<VerseFts> ftsRows = new java.util.ArrayList<>(rows.size());
+            for (Verse v : rows) {
+                ftsRows.add(new VerseFts(VerseFts.rowidOf(v.getTranslationKey(), v.getVerseKey()),
+                        v.getTranslationKey(), SearchTokenizer.normalize(v.getText() != null ? v.getText() : "")));
+            }
+            insertVerseFtsRows(ftsRows);
+        }
+    }
+
+    default void insertVerse(Verse verse) {
+        insertVerses(java.util.Collections.singletonList(verse));
+    }
+
+    @Query("SELECT v.* FROM verses v JOIN translations t ON t.id = v.translationKey "
+            + "WHERE t.code = :translationId AND v.verseKey = :verseKey LIMIT 1")
+    Verse getVerseByKey(String translationId, int verseKey);
+
+    @Query("SELECT v.* FROM verses v JOIN translations t ON t.id = v.translationKey "
+            + "WHERE t.code = :translationId AND v.verseKey BETWEEN :startKey AND :endKey ORDER BY v.verseKey")
+    List<Verse> getVersesByKeyRange(String translationId, int startKey, int endKey);
 
-    @Query("SELECT * FROM verses WHERE translationId = :translationId AND book = :book AND chapter = :chapter AND verse = :verse LIMIT 1")
-    Verse getVerse(String translationId, String book, int chapter, int verse);
+    @Query("SELECT * FROM verses WHERE translationKey = :translationKey AND verseKey IN (:verseKeys)")
+    List<Verse> getVersesByKeys(int translationKey, List<Integer> verseKeys);
 
-    @Query("SELECT * FROM verses WHERE translationId = :translationId AND book = :book AND chapter = :chapter AND verse BETWEEN :startVerse AND :endVerse")
-    List<Verse> getVersesInRange(String translationId, String book, int chapter, int startVerse, int endVerse);
+    // Search (see VerseSearch)
+    @Query(MATCH_VERSES)
+    List<VerseSearch.Match> matchVerses(int translationKey, String query);
+
+    default Verse getVerse(String translationId, String book, int chapter, int verse) {
+        int key = VerseKey.of(book, chapter, verse);
+        if (!VerseKey.isValid(key))
+            return null;
+        Verse v = getVerseByKey(translationId, key);
+        if (v != null) {
+            v.setTranslationId(translationId);
+        }
+        return v;
+    }
+
+    default List<Verse> getVersesInRange(String translationId, String book, int chapter, int startVerse,
+            int endVerse) {
+        int bookOrdinal = BibleData.indexOf(book);
+        if (bookOrdinal < 0)
+            return java.util.Collections.emptyList();
+        return withTranslationId(translationId, getVersesByKeyRange(translationId,
+                VerseKey.clamped(bookOrdinal, chapter, startVerse),
+                VerseKey.clamped(bookOrdinal, chapter, endVerse)));
+    }
+
+    /** All verses of one book, ordered by chapter and verse. */
+    default List<Verse> getBookVerses(String translationId, String book) {
+        int bookOrdinal = BibleData.indexOf(book);
+        if (bookOrdinal < 0)
+            return java.util.Collections.emptyList();
+        return withTranslationId(translationId, getVersesByKeyRange(translationId,
+                VerseKey.of(bookOrdinal, 0, 0),
+                VerseKey.of(bookOrdinal, VerseKey.MAX_NUMBER, VerseKey.MAX_NUMBER)));
+    }
+
+    default List<Verse> withTranslationId(String translationId, List<Verse> verses) {
+        for (Verse v : verses) {
+            v.setTranslationId(translationId);
+        }
+        return verses;
+    }
+
+    // Book Name Operations
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertBookNames(List<BookName> names);
+
+    @Query("SELECT * FROM book_names")
+    List<BookName> getAllBookNames();
 
     // Version Operations
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertVersion(BibleVersion version);
 
+    /** Adds the versions not there yet, in one transaction; existing rows keep their isDownloaded. */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertVersionsIfMissing(List<BibleVersion> versions);
+
     @Query("SELECT * FROM bible_versions WHERE id = :id LIMIT 1")
     BibleVersion getVersion(String id);
 
@@ -1,5 +1,8 @@
 package com.simplenotes;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class BibleData {
     public static final String[] BOOKS = new String[] {
             // Old Testament
@@ -19,4 +22,88 @@ public class BibleData {
             "1 Peter", "2 Peter", "1 John", "2 John", "3 John",
             "Jude", "Revelation"
     };
+
+    /** Common abbreviations, aligned with {@link #BOOKS}. */
+    public static final String[][] ABBREVIATIONS = new String[][] {
+            { "Gen", "Ge", "Gn" },
+            { "Ex", "Exod", "Exo" },
+            { "Lev", "Le", "Lv" },
+            { "Num", "Nu", "Nm", "Nb" },
+            { "Deut", "De", "Dt" },
+            { "Josh", "Jos", "Jsh" },
+            { "Judg", "Jdg", "Jg", "Jdgs" },
+            { "Rth", "Ru" },
+            { "1 Sam", "1 Sa", "1 Sm", "1 S" },
+            { "2 Sam", "2 Sa", "2 Sm", "2 S" },
+            { "1 Kgs", "1 Ki", "1 Kin" },
+            { "2 Kgs", "2 Ki", "2 Kin" },
+            { "1 Chr", "1 Chron", "1 Ch" },
+            { "2 Chr", "2 Chron", "2 Ch" },
+            { "Ezr", "Ez" },
+            { "Neh", "Ne" },
+            { "Esth", "Est", "Es" },
+            { "Jb" },
+            { "Ps", "Psa", "Psalm", "Pss", "Psm" },
+            { "Prov", "Pro", "Prv", "Pr" },
+            { "Eccl", "Eccles", "Ecc", "Qoh" },
+            { "Song", "Song of Songs", "SOS", "So", "Canticles" },
+            { "Isa", "Is" },
+            { "Jer", "Je", "Jr" },
+            { "Lam", "La" },
+            { "Ezek", "Eze", "Ezk" },
+            { "Dan", "Da", "Dn" },
+            { "Hos", "Ho" },
+            { "Jl" },
+            { "Am" },
+            { "Obad", "Ob" },
+            { "Jon", "Jnh" },
+            { "Mic", "Mc" },
+            { "Nah", "Na" },
+            { "Hab", "Hb" },
+            { "Zeph", "Zep", "Zp" },
+            { "Hag", "Hg" },
+            { "Zech", "Zec", "Zc" },
+            { "Mal", "Ml" },
+            { "Matt", "Mt" },
+            { "Mrk", "Mk", "Mr" },
+            { "Luk", "Lk" },
+            { "Jn", "Jhn" },
+            { "Act", "Ac" },
+            { "Rom", "Ro", "Rm" },
+            { "1 Cor", "1 Co" },
+            { "2 Cor", "2 Co" },
+            { "Gal", "Ga" },
+            { "Eph", "Ephes" },
+            { "Phil", "Php", "Pp" },
+            { "Col", "Co" },
+            { "1 Thess", "1 Thes", "1 Th" },
+            { "2 Thess", "2 Thes", "2 Th" },
+            { "1 Tim", "1 Ti" },
+            { "2 Tim", "2 Ti" },
+            { "Tit", "Ti" },
+            { "Philem", "Phm", "Pm" },
+            { "Heb" },
+            { "Jas", "Jm" },
+            { "1 Pet", "1 Pe", "1 Pt" },
+            { "2 Pet", "2 Pe", "2 Pt" },
+            { "1 Jn", "1 Jhn", "1 Jo" },
+            { "2 Jn", "2 Jhn", "2 Jo" },
+            { "3 Jn", "3 Jhn", "3 Jo" },
+            { "Jud", "Jd" },
+            { "Rev", "Re", "Rv", "Revelations", "Apocalypse" },
+    };
+
+    private static final Map<String, Integer> BOOK_ORDINALS = new HashMap<>();
+
+    static {
+        for (int i = 0; i < BOOKS.length; i++) {
+            BOOK_ORDINALS.put(BOOKS[i], i);
+        }
+    }
+
+    /** @return the book's position in {@link #BOOKS}, or -1 if it is not a canonical name */
+    public static int indexOf(String book) {
+        Integer ordinal = book == null ? null : BOOK_ORDINALS.get(book);
+        return ordinal == null ? -1 : ordinal;
+    }
 }
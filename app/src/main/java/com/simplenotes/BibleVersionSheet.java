@@ -13,6 +13,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 import com.simplenotes.api.BibleDownloader;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -25,6 +26,8 @@ public class BibleVersionSheet extends BottomSheetDialogFragment {
     private RecyclerView recyclerView;
     private VersionAdapter adapter;
     private List<BibleVersion> versions = Collections.emptyList();
+    private final java.util.Map<String, String> downloadProgress = new java.util.HashMap<>();
+    private static volatile boolean seeded;
 
     public void setListener(VersionListener listener) {
         this.listener = listener;
@@ -55,8 +58,8 @@ public class BibleVersionSheet extends BottomSheetDialogFragment {
         android.content.Context appContext = context.getApplicationContext();
 
         AppExecutors.getInstance().diskIO().execute(() -> {
-            // Always try to seed new versions if they don't exist
-            seedVersions(appContext);
+            // Seed versions added since the database was created
+            seedVersions(AppDatabase.getDatabase(appContext).bibleDao());
 
             List<BibleVersion> list = AppDatabase.getDatabase(appContext).bibleDao().getAllVersions();
 
@@ -72,47 +75,51 @@ public class BibleVersionSheet extends BottomSheetDialogFragment {
         });
     }
 
-    private void seedVersions(android.content.Context context) {
-        if (context == null)
+    /**
+     * Adds the versions this app offers that are not in the database yet. Runs
+     * once per process, as one batched transaction rather than a lookup and an
+     * insert per version.
+     */
+    static void seedVersions(BibleDao dao) {
+        if (seeded)
             return;
-        BibleDao dao = AppDatabase.getDatabase(context).bibleDao();
+        dao.insertVersionsIfMissing(knownVersions());
+        seeded = true;
+    }
 
-        // Helper to insert only if missing (to preserve isDownloaded state)
-        safeInsert(dao, new BibleVersion("kjv", "King James Version", false));
-        safeInsert(dao, new BibleVersion("bbe", "Bible in Basic English", false));
-        safeInsert(dao, new BibleVersion("niv", "New International Version", false));
-        safeInsert(dao, new BibleVersion("nlt", "New Living Translation", false));
+    /** The versions offered for download, none downloaded. */
+    static List<BibleVersion> knownVersions() {
+        List<BibleVersion> versions = new ArrayList<>();
+        versions.add(new BibleVersion("kjv", "King James Version", false));
+        versions.add(new BibleVersion("bbe", "Bible in Basic English", false));
+        versions.add(new BibleVersion("niv", "New International Version", false));
+        versions.add(new BibleVersion("nlt", "New Living Translation", false));
 
         // New Languages
-        safeInsert(dao, new BibleVersion("ar_svd", "Arabic (SVD)", false));
-        safeInsert(dao, new BibleVersion("zh_cuv", "Chinese Union Version", false));
-        safeInsert(dao, new BibleVersion("zh_ncv", "Chinese New Version", false));
-        safeInsert(dao, new BibleVersion("eo_esperanto", "Esperanto", false));
-        safeInsert(dao, new BibleVersion("fi_finnish", "Finnish (1938)", false));
-        safeInsert(dao, new BibleVersion("fi_pr", "Finnish (Pyhä Raamattu)", false));
-        safeInsert(dao, new BibleVersion("fr_apee", "French (Bible de l'Épée)", false));
-        safeInsert(dao, new BibleVersion("de_schlachter", "German (Schlachter)", false));
-        safeInsert(dao, new BibleVersion("el_greek", "Greek (Modern)", false));
-        safeInsert(dao, new BibleVersion("ko_ko", "Korean", false));
-        safeInsert(dao, new BibleVersion("pt_aa", "Portuguese (Almeida)", false));
-        safeInsert(dao, new BibleVersion("pt_acf", "Portuguese (Corrigida Fiel)", false));
-        safeInsert(dao, new BibleVersion("pt_nvi", "Portuguese (NVI)", false));
-        safeInsert(dao, new BibleVersion("ro_cornilescu", "Romanian (Cornilescu)", false));
-        safeInsert(dao, new BibleVersion("ru_synodal", "Russian (Synodal)", false));
-        safeInsert(dao, new BibleVersion("es_rvr", "Spanish (Reina Valera)", false));
-        safeInsert(dao, new BibleVersion("vi_vietnamese", "Vietnamese", false));
-        safeInsert(dao, new BibleVersion("tel", "Standard Telugu Bible (Old Version)", false));
+        versions.add(new BibleVersion("ar_svd", "Arabic (SVD)", false));
+        versions.add(new BibleVersion("zh_cuv", "Chinese Union Version", false));
+        versions.add(new BibleVersion("zh_ncv", "Chinese New Version", false));
+        versions.add(new BibleVersion("eo_esperanto", "Esperanto", false));
+        versions.add(new BibleVersion("fi_finnish", "Finnish (1938)", false));
+        versions.add(new BibleVersion("fi_pr", "Finnish (Pyhä Raamattu)", false));
+        versions.add(new BibleVersion("fr_apee", "French (Bible de l'Épée)", false));
+        versions.add(new BibleVersion("de_schlachter", "German (Schlachter)", false));
+        versions.add(new BibleVersion("el_greek", "Greek (Modern)", false));
+        versions.add(new BibleVersion("ko_ko", "Korean", false));
+        versions.add(new BibleVersion("pt_aa", "Portuguese (Almeida)", false));
+        versions.add(new BibleVersion("pt_acf", "Portuguese (Corrigida Fiel)", false));
+        versions.add(new BibleVersion("pt_nvi", "Portuguese (NVI)", false));
+        versions.add(new BibleVersion("ro_cornilescu", "Romanian (Cornilescu)", false));
+        versions.add(new BibleVersion("ru_synodal", "Russian (Synodal)", false));
+        versions.add(new BibleVersion("es_rvr", "Spanish (Reina Valera)", false));
+        versions.add(new BibleVersion("vi_vietnamese", "Vietnamese", false));
+        versions.add(new BibleVersion("tel", "Standard Telugu Bible (Old Version)", false));
 
         // Keep existing ones if they were there
-        safeInsert(dao, new BibleVersion("web", "World English Bible", false));
-        safeInsert(dao, new BibleVersion("asv", "American Standard (1901)", false));
-        safeInsert(dao, new BibleVersion("cherokee", "Cherokee New Testament", false));
-    }
-
-    private void safeInsert(BibleDao dao, BibleVersion version) {
-        if (dao.getVersion(version.getId()) == null) {
-            dao.insertVersion(version);
-        }
+        versions.add(new BibleVersion("web", "World English Bible", false));
+        versions.add(new BibleVersion("asv", "American Standard (1901)", false));
+        versions.add(new BibleVersion("cherokee", "Cherokee New Testament", false));
+        return versions;
     }
 
     private class VersionAdapter extends RecyclerView.Adapter<VersionAdapter.ViewHolder> {
@@ -126,7 +133,8 @@ public class BibleVersionSheet extends BottomSheetDialogFragment {
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
             BibleVersion version = versions.get(position);
-            holder.textName.setText(version.getName());
+            String progress = downloadProgress.get(version.getId());
+            holder.textName.setText(progress == null ? version.getName() : version.getName() + "\n" + progress);
 
             if (version.isDownloaded()) {
                 holder.iconDownloaded.setVisibility(View.VISIBLE);
@@ -204,8 +212,16 @@ public class BibleVersionSheet extends BottomSheetDialogFragment {
         Toast.makeText(getContext(), "Downloading " + version.getName() + "...", Toast.LENGTH_SHORT).show();
 
         BibleDownloader.downloadVersion(getContext(), version.getId(), new BibleDownloader.DownloadCallback() {
+            @Override
+            public void onProgress(int versesInserted, int versesPerSecond) {
+                downloadProgress.put(version.getId(),
+                        versesInserted + " verses saved (" + versesPerSecond + "/s)");
+                notifyVersionChanged(version.getId());
+            }
+
             @Override
             public void onSuccess() {
+                downloadProgress.remove(version.getId());
                 Toast.makeText(getContext(), "Download Complete!", Toast.LENGTH_SHORT).show();
                 loadVersions(); // Refresh list to update icons
 
@@ -220,8 +236,21 @@ public class BibleVersionSheet extends BottomSheetDialogFragment {
 
             @Override
             public void onFailure(String error) {
+                downloadProgress.remove(version.getId());
+                notifyVersionChanged(version.getId());
                 Toast.makeText(getContext(), "Download Failed: " + error, Toast.LENGTH_LONG).show();
             }
         });
     }
+
+    private void notifyVersionChanged(String versionId) {
+        if (adapter == null)
+            return;
+        for (int i = 0; i < versions.size(); i++) {
+            if (versions.get(i).getId().equals(versionId)) {
+                adapter.notifyItemChanged(i);
+                return;
+            }
+        }
+    }
 }
@@ -0,0 +1,270 @@
+package com.simplenotes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable trie that resolves a typed book token ("John", "jn", "1 Cor",
+ * "1cor.", a localized name from a downloaded translation) to its
+ * {@link BibleData#BOOKS} ordinal in O(token length).
+ *
+ * Keys are folded before lookup: case is ignored, and spaces and periods are
+ * skipped, so "1 Cor.", "1cor" and "1 COR" are the same key. Each node also
+ * records which books lie below it, so autocomplete can list candidates for a
+ * prefix without walking the subtree.
+ *
+ * The shared instance starts with canonical names and abbreviations and is
+ * swapped for one that also covers localized names once they are loaded from
+ * the database; readers never see a partially built index.
+ */
+public final class BookIndex {
+    public static final int NOT_FOUND = -1;
+    private static final int AMBIGUOUS = -2;
+
+    private static volatile BookIndex instance = builderWithDefaults().build();
+
+    // Node i's children are edgeChars/edgeTargets[childStart[i], childStart[i] + childCount[i]),
+    // sorted by char
+    private final int[] childStart;
+    private final int[] childCount;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] values; // Ordinal for a complete key, NOT_FOUND or AMBIGUOUS
+    private final long[] reachLow; // Books 0..63 below (or at) each node
+    private final long[] reachHigh; // Books 64.. below (or at) each node
+
+    private BookIndex(int[] childStart, int[] childCount, char[] edgeChars, int[] edgeTargets, int[] values,
+            long[] reachLow, long[] reachHigh) {
+        this.childStart = childStart;
+        this.childCount = childCount;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.values = values;
+        this.reachLow = reachLow;
+        this.reachHigh = reachHigh;
+    }
+
+    public static BookIndex getInstance() {
+        return instance;
+    }
+
+    /** Replaces the shared index, e.g. after localized names were downloaded. */
+    public static void setInstance(BookIndex index) {
+        instance = index;
+    }
+
+    /** Canonical names, their abbreviations and Roman-numeral forms ("II Kings"). */
+    public static Builder builderWithDefaults() {
+        Builder builder = new Builder();
+        for (int i = 0; i < BibleData.BOOKS.length; i++) {
+            builder.add(BibleData.BOOKS[i], i);
+            for (String abbreviation : BibleData.ABBREVIATIONS[i]) {
+                builder.add(abbreviation, i);
+            }
+        }
+        return builder;
+    }
+
+    /** Default index plus localized names loaded from the book_names table. */
+    public static BookIndex load(BibleDao dao) {
+        Builder builder = builderWithDefaults();
+        for (BookName bookName : dao.getAllBookNames()) {
+            builder.add(bookName.getName(), bookName.getBook());
+        }
+        return builder.build();
+    }
+
+    public int resolve(CharSequence token) {
+        return resolve(token, 0, token.length());
+    }
+
+    /** @return the book ordinal, or {@link #NOT_FOUND} for unknown or ambiguous tokens */
+    public int resolve(CharSequence token, int start, int end) {
+        int node = walk(token, start, end);
+        if (node < 0)
+            return NOT_FOUND;
+        int value = values[node];
+        return value >= 0 ? value : NOT_FOUND;
+    }
+
+    /** @return the canonical name for a token, or null if it does not resolve */
+    public String canonicalName(CharSequence token) {
+        int ordinal = resolve(token);
+        return ordinal >= 0 ? BibleData.BOOKS[ordinal] : null;
+    }
+
+    /**
+     * Adds the canonical name of every book with a name or abbreviation starting
+     * with {@code prefix} to {@code out}, in canonical order.
+     */
+    public void complete(CharSequence prefix, List<String> out) {
+        int node = walk(prefix, 0, prefix.length());
+        if (node < 0)
+            return;
+        long low = reachLow[node];
+        long high = reachHigh[node];
+        for (int i = 0; i < BibleData.BOOKS.length; i++) {
+            boolean reachable = i < 64 ? (low & (1L << i)) != 0 : (high & (1L << (i - 64))) != 0;
+            if (reachable) {
+                out.add(BibleData.BOOKS[i]);
+            }
+        }
+    }
+
+    private int walk(CharSequence token, int start, int end) {
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            char c = token.charAt(i);
+            if (isIgnored(c))
+                continue;
+            node = child(node, Character.toLowerCase(c));
+            if (node < 0)
+                return -1;
+        }
+        return node;
+    }
+
+    private int child(int node, char c) {
+        int lo = childStart[node];
+        int hi = lo + childCount[node] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = edgeChars[mid];
+            if (m < c) {
+                lo = mid + 1;
+            } else if (m > c) {
+                hi = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isIgnored(char c) {
+        return c == ' ' || c == '.' || c == '\u00A0';
+    }
+
+    /** Mutable trie; {@link #build()} flattens it into the array form above. */
+    public static final class Builder {
+        private static final class Node {
+            char[] chars = new char[0];
+            Node[] children = new Node[0];
+            int value = NOT_FOUND;
+            boolean explicit; // value came from a name as given, not a generated variant
+            long reachLow;
+            long reachHigh;
+
+            Node child(char c, boolean create) {
+                int i = Arrays.binarySearch(chars, c);
+                if (i >= 0)
+                    return children[i];
+                if (!create)
+                    return null;
+                int insert = -i - 1;
+                char[] newChars = new char[chars.length + 1];
+                Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(chars, 0, newChars, 0, insert);
+                System.arraycopy(children, 0, newChildren, 0, insert);
+                newChars[insert] = c;
+                newChildren[insert] = new Node();
+                System.arraycopy(chars, insert, newChars, insert + 1, chars.length - insert);
+                System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+                chars = newChars;
+                children = newChildren;
+                return newChildren[insert];
+            }
+
+            void reach(int ordinal) {
+                if (ordinal < 64) {
+                    reachLow |= 1L << ordinal;
+                } else {
+                    reachHigh |= 1L << (ordinal - 64);
+                }
+            }
+        }
+
+        private final Node root = new Node();
+        private int nodeCount = 1;
+        private int edgeCount = 0;
+
+        /**
+         * Adds a name for a book. A key that ends up naming two different books is
+         * treated as ambiguous and resolves to nothing.
+         */
+        public Builder add(String name, int ordinal) {
+            if (name == null || ordinal < 0 || ordinal >= BibleData.BOOKS.length)
+                return this;
+            addKey(name, ordinal, true);
+
+            // "1 Samuel" is also written "I Samuel", "2 Kings" as "II Kings", etc. These
+            // variants give way to real names, so "I Sa" does not take "Isa" from Isaiah.
+            if (name.length() > 2 && name.charAt(1) == ' ' && name.charAt(0) >= '1' && name.charAt(0) <= '3') {
+                String roman = name.charAt(0) == '1' ? "I" : name.charAt(0) == '2' ? "II" : "III";
+                addKey(roman + name.substring(1), ordinal, false);
+            }
+            return this;
+        }
+
+        private void addKey(String name, int ordinal, boolean explicit) {
+            Node node = root;
+            boolean any = false;
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (isIgnored(c))
+                    continue;
+                Node next = node.child(Character.toLowerCase(c), false);
+                if (next == null) {
+                    next = node.child(Character.toLowerCase(c), true);
+                    nodeCount++;
+                    edgeCount++;
+                }
+                node.reach(ordinal);
+                node = next;
+                any = true;
+            }
+            if (!any)
+                return;
+            node.reach(ordinal);
+            if (node.explicit && !explicit)
+                return;
+            if (node.value == NOT_FOUND || node.value == ordinal || (explicit && !node.explicit)) {
+                node.value = ordinal;
+            } else {
+                node.value = AMBIGUOUS;
+            }
+            node.explicit |= explicit;
+        }
+
+        public BookIndex build() {
+            int[] childStart = new int[nodeCount];
+            int[] childCount = new int[nodeCount];
+            char[] edgeChars = new char[edgeCount];
+            int[] edgeTargets = new int[edgeCount];
+            int[] values = new int[nodeCount];
+            long[] reachLow = new long[nodeCount];
+            long[] reachHigh = new long[nodeCount];
+
+            // Breadth-first numbering keeps each node's edges contiguous
+            List<Node> queue = new ArrayList<>(nodeCount);
+            queue.add(root);
+            int nextEdge = 0;
+            for (int id = 0; id < queue.size(); id++) {
+                Node node = queue.get(id);
+                values[id] = node.value;
+                reachLow[id] = node.reachLow;
+                reachHigh[id] = node.reachHigh;
+                childStart[id] = nextEdge;
+                childCount[id] = node.chars.length;
+                for (int i = 0; i < node.chars.length; i++) {
+                    edgeChars[nextEdge] = node.chars[i];
+                    edgeTargets[nextEdge] = queue.size();
+                    queue.add(node.children[i]);
+                    nextEdge++;
+                }
+            }
+            return new BookIndex(childStart, childCount, edgeChars, edgeTargets, values, reachLow, reachHigh);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.simplenotes;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+/**
+ * A translation's own name for a book (e.g. "Juan" for John), recorded at
+ * download time so references typed in that language resolve offline.
+ */
+@Entity(tableName = "book_names", primaryKeys = { "translationKey", "book" })
+public class BookName {
+    private int translationKey;
+    private int book; // Ordinal in BibleData.BOOKS
+
+    @NonNull
+    private String name;
+
+    public BookName(int translationKey, int book, @NonNull String name) {
+        this.translationKey = translationKey;
+        this.book = book;
+        this.name = name;
+    }
+
+    public int getTranslationKey() {
+        return translationKey;
+    }
+
+    public void setTranslationKey(int translationKey) {
+        this.translationKey = translationKey;
+    }
+
+    public int getBook() {
+        return book;
+    }
+
+    public void setBook(int book) {
+        this.book = book;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    public void setName(@NonNull String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,60 @@
+package com.simplenotes;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Book-name autocomplete for the "@" magic fetch. Suggestions come from
+ * {@link BookIndex}, so "jn", "1 cor" and localized names offer the canonical
+ * book just like typing its full name does.
+ */
+public class BookSuggestionAdapter extends ArrayAdapter<String> {
+    private final List<String> suggestions;
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            List<String> matches = new ArrayList<>();
+            if (constraint == null || constraint.length() == 0) {
+                matches.addAll(Arrays.asList(BibleData.BOOKS));
+            } else {
+                BookIndex.getInstance().complete(constraint, matches);
+            }
+            FilterResults results = new FilterResults();
+            results.values = matches;
+            results.count = matches.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            suggestions.clear();
+            if (results.values != null) {
+                suggestions.addAll((List<String>) results.values);
+            }
+            if (results.count > 0) {
+                notifyDataSetChanged();
+            } else {
+                notifyDataSetInvalidated();
+            }
+        }
+    };
+
+    public BookSuggestionAdapter(Context context, int resource) {
+        this(context, resource, new ArrayList<>());
+    }
+
+    private BookSuggestionAdapter(Context context, int resource, List<String> suggestions) {
+        super(context, resource, suggestions);
+        this.suggestions = suggestions;
+    }
+
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+}
@@ -0,0 +1,204 @@
+package com.simplenotes;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.Spanned;
+
+import java.util.Arrays;
+
+/**
+ * Per-note geometry for the editor's {@link RoundedHighlighterSpan}s: where
+ * each highlight sits, and how wide the text before and under it is.
+ *
+ * Highlight bounds are collected and sorted once, and every width measured
+ * is kept, until {@link #invalidate()} is called (the owner does this
+ * whenever the text or its spans change); widths are also dropped when the
+ * paint's metrics change. Redrawing an unchanged note therefore measures
+ * nothing, and allocates nothing.
+ *
+ * Not thread-safe; use from the main thread only.
+ */
+final class HighlightLayoutCache {
+    private static final int INITIAL_CAPACITY = 256; // Powers of two
+    private static final int MAX_CAPACITY = 1 << 15;
+    private static final long EMPTY = -1L;
+
+    private Spanned text; // The text the state below was built for
+
+    // Highlights drawn through this cache, sorted by start; a span's index is in the span
+    private RoundedHighlighterSpan[] highlights = new RoundedHighlighterSpan[16];
+    private int[] highlightStarts = new int[16];
+    private int[] highlightEnds = new int[16];
+    private int highlightCount = -1; // -1 until collected
+    private int generation = 0; // Bumped on every invalidate, so stale span indexes are ignored
+
+    // Paint metrics the cached widths were measured with
+    private float textSize;
+    private float textScaleX;
+    private float letterSpacing;
+    private Typeface typeface;
+
+    // Open-addressing map from (start << 32 | end) to width
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private float[] widths = new float[INITIAL_CAPACITY];
+    private int cached = 0;
+
+    HighlightLayoutCache() {
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /** Forgets everything measured so far. */
+    void invalidate() {
+        if (highlightCount > 0) {
+            Arrays.fill(highlights, 0, highlightCount, null);
+        }
+        highlightCount = -1;
+        generation++;
+        clearCache();
+    }
+
+    /**
+     * @return the position of {@code span} among the highlights of {@code text}
+     *         in start order, or -1 if it does not draw through this cache
+     */
+    int indexOf(RoundedHighlighterSpan span, Spanned text) {
+        use(text);
+        if (highlightCount < 0) {
+            collectHighlights(text);
+        }
+        return span.cacheGeneration == generation ? span.cacheIndex : -1;
+    }
+
+    int highlightStart(int index) {
+        return highlightStarts[index];
+    }
+
+    int highlightEnd(int index) {
+        return highlightEnds[index];
+    }
+
+    /**
+     * True if highlight {@code index} continues the one before it on the line
+     * {@code [lineStart, lineEnd)}: same color, and nothing between them. The
+     * earlier one then draws both as one rect.
+     */
+    boolean joinsPrevious(int index, int lineStart, int lineEnd) {
+        if (index <= 0 || index >= highlightCount)
+            return false;
+        int previous = index - 1;
+        if (highlights[previous].getBackgroundColor() != highlights[index].getBackgroundColor())
+            return false;
+        if (highlightEnds[previous] <= lineStart || highlightStarts[index] >= lineEnd)
+            return false;
+        return highlightEnds[previous] >= highlightStarts[index];
+    }
+
+    /** @return the index of the last highlight drawn together with {@code index} on the line */
+    int lastJoined(int index, int lineStart, int lineEnd) {
+        int last = index;
+        while (joinsPrevious(last + 1, lineStart, lineEnd)) {
+            last++;
+        }
+        return last;
+    }
+
+    /** @return the width of {@code text[start, end)} */
+    float measure(Paint paint, Spanned text, int start, int end) {
+        if (start >= end)
+            return 0f;
+        use(text);
+        if (paint.getTextSize() != textSize || paint.getTextScaleX() != textScaleX
+                || paint.getLetterSpacing() != letterSpacing || paint.getTypeface() != typeface) {
+            textSize = paint.getTextSize();
+            textScaleX = paint.getTextScaleX();
+            letterSpacing = paint.getLetterSpacing();
+            typeface = paint.getTypeface();
+            clearCache();
+        }
+
+        long key = ((long) start << 32) | end;
+        int slot = find(keys, key);
+        if (keys[slot] == key)
+            return widths[slot];
+
+        float width = paint.measureText(text, start, end);
+        if (cached >= keys.length / 2) {
+            if (keys.length < MAX_CAPACITY) {
+                grow();
+            } else {
+                clearCache(); // Start over rather than hold widths for a whole book
+            }
+            slot = find(keys, key);
+        }
+        keys[slot] = key;
+        widths[slot] = width;
+        cached++;
+        return width;
+    }
+
+    private void use(Spanned text) {
+        if (text != this.text) {
+            this.text = text;
+            invalidate();
+        }
+    }
+
+    private void collectHighlights(Spanned text) {
+        RoundedHighlighterSpan[] spans = text.getSpans(0, text.length(), RoundedHighlighterSpan.class);
+        long[] packed = new long[spans.length];
+        int n = 0;
+        for (int i = 0; i < spans.length; i++) {
+            if (spans[i].getCache() == this) {
+                packed[n++] = ((long) text.getSpanStart(spans[i]) << 32) | i;
+            }
+        }
+        Arrays.sort(packed, 0, n);
+
+        if (highlights.length < n) {
+            highlights = new RoundedHighlighterSpan[n];
+            highlightStarts = new int[n];
+            highlightEnds = new int[n];
+        }
+        for (int k = 0; k < n; k++) {
+            RoundedHighlighterSpan span = spans[(int) packed[k]];
+            highlights[k] = span;
+            highlightStarts[k] = text.getSpanStart(span);
+            highlightEnds[k] = text.getSpanEnd(span);
+            span.cacheIndex = k;
+            span.cacheGeneration = generation;
+        }
+        highlightCount = n;
+    }
+
+    private void clearCache() {
+        if (cached > 0) {
+            Arrays.fill(keys, EMPTY);
+            cached = 0;
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        float[] oldWidths = widths;
+        keys = new long[oldKeys.length * 2];
+        widths = new float[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                widths[slot] = oldWidths[i];
+            }
+        }
+    }
+
+    /** @return the slot holding {@code key}, or the empty slot where it belongs */
+    private static int find(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
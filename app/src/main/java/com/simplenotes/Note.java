@@ -2,10 +2,12 @@ package com.simplenotes;
 
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import java.io.Serializable;
 
-@Entity(tableName = "notes")
+// The note list's order; NoteDao pages through it by key
+@Entity(tableName = "notes", indices = { @Index(value = { "isPinned", "timestamp" }) })
 public class Note implements Serializable {
     @PrimaryKey
     private long id;
@@ -13,6 +15,7 @@ public class Note implements Serializable {
     private String content;
     private long timestamp;
     private boolean isPinned;
+    private String preview; // Plain-text start of the content for the list, set by NoteStore
 
     public Note() {
         this.id = System.currentTimeMillis();
@@ -77,6 +80,14 @@ public class Note implements Serializable {
         isPinned = pinned;
     }
 
+    public String getPreview() {
+        return preview;
+    }
+
+    public void setPreview(String preview) {
+        this.preview = preview;
+    }
+
     @Override
     public String toString() {
         return "Note{" +
@@ -1,5 +1,6 @@
 package com.simplenotes;
 
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
@@ -30,6 +31,9 @@ import android.app.AlertDialog;
 import android.graphics.Color;
 
 public class NoteActivity extends AppCompatActivity {
+    static final String EXTRA_NOTE_ID = "note_id";
+    static final long NO_NOTE = -1;
+
     private TextInputEditText editTextTitle;
     private RichEditText editTextContent;
 
@@ -55,6 +59,15 @@ public class NoteActivity extends AppCompatActivity {
     private boolean isNewNote = true;
 
     private AppDatabase database;
+    private NoteSaver noteSaver;
+
+    // Autosave once typing pauses; onPause saves whatever is left
+    private static final long AUTOSAVE_DELAY_MS = 2000;
+    private final Runnable autosave = this::saveNote;
+    private boolean restorePending = false; // Editor still needs the bundled note (rotation)
+    // A large note is restored from NoteStore: {anchor, selection start, selection end} in the note
+    private int[] largeNotePosition;
+    private boolean loadingNote = false; // Until then the editor is empty, and not saved
 
     // Sticky Formatting State
     private boolean pendingBold = false;
@@ -64,6 +77,9 @@ public class NoteActivity extends AppCompatActivity {
     private Integer pendingHighlightColor = null;
     private boolean isTyping = false; // Prevent recursion
     private boolean isLoading = false; // [NEW] Prevent applying sticky styles during load
+    private final com.simplenotes.utils.ReferenceScanner referenceScanner = new com.simplenotes.utils.ReferenceScanner();
+    private final NoteStyler noteStyler = new NoteStyler(); // Turns markers into spans, owns highlight layout
+    private NoteDocument largeNote; // Set while a large note is edited a window of blocks at a time
 
     // Rich Text Toolbar
     private ImageButton btnBold, btnItalic, btnUnderline, btnTextColor, btnBackendColor;
@@ -83,6 +99,7 @@ public class NoteActivity extends AppCompatActivity {
         setContentView(R.layout.activity_note);
 
         database = AppDatabase.getDatabase(this);
+        noteSaver = new NoteSaver(AppExecutors.getInstance().diskIO(), NoteStore.getInstance(this));
 
         initViews();
         initializeHighlightColors(); // Initialize colors
@@ -90,7 +107,9 @@ public class NoteActivity extends AppCompatActivity {
 
         if (savedInstanceState != null && savedInstanceState.containsKey("current_note")) {
             currentNote = (Note) savedInstanceState.getSerializable("current_note");
+            largeNotePosition = savedInstanceState.getIntArray("large_note_position");
             isNewNote = false; // Restored state means it's not a fresh "new" note
+            restorePending = true;
         } else {
             checkIntentData();
         }
@@ -98,6 +117,10 @@ public class NoteActivity extends AppCompatActivity {
         initializeBibleVersions();
         setupVersionSwitcher();
         setupMagicFetch();
+
+        // Pick up localized book names from downloaded translations
+        AppExecutors.getInstance().diskIO()
+                .execute(() -> BookIndex.setInstance(BookIndex.load(database.bibleDao())));
     }
 
     private void initViews() {
@@ -133,11 +156,12 @@ public class NoteActivity extends AppCompatActivity {
         setupFormattingButtons();
         setupStickyFormatting();
         setupSelectionListener();
+        editTextContent.setOnScrollChangedListener(scrollY -> moveWindowIfNeeded());
 
         // Setup Refer To Listener
         editTextContent.setOnReferToListener((text, start, end) -> {
             pendingReferToReference = text;
-            pendingReferToEnd = end;
+            pendingReferToEnd = toDocument(end); // The window may move before the verse arrives
 
             // Open Version Sheet for Selection
             BibleVersionSheet sheet = new BibleVersionSheet();
@@ -191,6 +215,7 @@ public class NoteActivity extends AppCompatActivity {
     }
 
     private void setupStickyFormatting() {
+        editTextContent.addTextChangedListener(noteStyler);
         editTextContent.addTextChangedListener(new android.text.TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {
@@ -206,8 +231,17 @@ public class NoteActivity extends AppCompatActivity {
 
             @Override
             public void afterTextChanged(android.text.Editable s) {
-                if (isTyping || isLoading)
+                boolean insertedMarkers = noteStyler.takeInsertedMarkers();
+                if (isLoading)
                     return;
+                scheduleAutosave();
+                if (isTyping)
+                    return;
+
+                // Pasted marker text (e.g. from an older note) becomes spans
+                if (insertedMarkers && lastChangeCount > 0) {
+                    lastChangeCount = convertMarkers(lastChangeStart, lastChangeCount);
+                }
 
                 // Apply styles for insertions
                 if (lastChangeCount > 0) {
@@ -218,56 +252,40 @@ public class NoteActivity extends AppCompatActivity {
         });
     }
 
-    private void applyPendingStyles(int start, int count) {
+    /**
+     * Replaces the inserted range with its marker-free form.
+     *
+     * @return the length of the converted range
+     */
+    private int convertMarkers(int start, int count) {
         isTyping = true;
         try {
             android.text.Editable editable = editTextContent.getText();
-            int end = start + count;
-
-            // 1. Highlight is special (Needs markers for persistence)
-            if (pendingHighlightColor != null) {
-                // We must wrap the new text with markers: \u200C{idx} TEXT \u200D
-                // This requires modifying text, which triggers onTextChanged again (recursion
-                // guarded by isTyping)
-                String newText = editable.subSequence(start, end).toString();
-                String wrapped = "\u200C{" + pendingHighlightColor + "}" + newText + "\u200D";
-                editable.replace(start, end, wrapped);
-
-                // Update count to reflect the new length of the inserted text + markers
-                count = wrapped.length();
-            }
-
-            // 2. Standard Styles (Apply to the range)
-            // Note: If we inserted highlights, the range 'start' to 'end' is now
-            // markers+text
-            // But usually we want bold inside the text.
-            // Simplified: Just apply to the whole inserted block (including markers is
-            // fine, they are hidden)
-            // Or better: Re-calculate the range of the *visible* content if highlight
-            // changed it.
+            int end = Math.min(start + count, editable.length());
+            configureStyler();
+            SpannableStringBuilder converted = noteStyler.toSpans(editable.subSequence(start, end));
+            editable.replace(start, end, converted);
+            return converted.length();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return count;
+        } finally {
+            isTyping = false;
+        }
+    }
 
-            // Actually, if we use applyStyling() for highlights, it hides markers.
-            // Let's rely on applyStyling() for highlights and standard spans for others.
+    private void applyPendingStyles(int start, int count) {
+        isTyping = true;
+        try {
+            android.text.Editable editable = editTextContent.getText();
 
+            // Highlight is a plain span now; extend the one we are typing after
             if (pendingHighlightColor != null) {
-                applyStyling(); // This parses markers and applies ResolvedHighlighterSpan
-                // The markers are now hidden. We need to find where our text went?
-                // Complicated.
-                // Alternative: Don't use markers for sticky char-by-char. Use markers only for
-                // block selection?
-                // But user wants persistence.
-
-                // Let's stick to: Apply Pending Highlight = Insert Markers.
-                // Reset flag? No, sticky implies it stays.
+                clearHighlights(editable, start, start + count);
+                setHighlight(editable, highlightColors[pendingHighlightColor], start, start + count);
+                noteStyler.invalidateLayout();
             }
 
-            // Re-get (in case replaced)
-            editable = editTextContent.getText();
-            // If we replaced text, 'end' is stale. But for Bold/Italic, we just span the
-            // range.
-            // If Highlight was applied, the text length changed.
-            // However, typical sticky bold is applied to the typed character.
-
             if (pendingBold)
                 editable.setSpan(new StyleSpan(Typeface.BOLD), start, start + count, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
             else
@@ -369,6 +387,23 @@ public class NoteActivity extends AppCompatActivity {
             btnBackendColor.setColorFilter(inactiveColor);
     }
 
+    /**
+     * Opens an existing note. Only its id travels in the Intent: a large note
+     * would not fit in the Binder transaction (TransactionTooLargeException),
+     * so the note is loaded from NoteStore here.
+     */
+    static Intent editIntent(Context context, long noteId) {
+        Intent intent = new Intent(context, NoteActivity.class);
+        intent.putExtra(EXTRA_NOTE_ID, noteId);
+        intent.putExtra("isNewNote", false);
+        return intent;
+    }
+
+    /** @return the note an {@link #editIntent} opens, or {@link #NO_NOTE} */
+    static long noteIdOf(Intent intent) {
+        return intent.getLongExtra(EXTRA_NOTE_ID, NO_NOTE);
+    }
+
     private void checkIntentData() {
         Intent intent = getIntent();
 
@@ -376,41 +411,17 @@ public class NoteActivity extends AppCompatActivity {
             isNewNote = intent.getBooleanExtra("isNewNote", true);
 
             if (!isNewNote) {
-                currentNote = (Note) intent.getSerializableExtra("note");
-                if (currentNote != null) {
-                    editTextTitle.setText(currentNote.getTitle());
-                    // Load Rich Text from HTML
-                    String content = currentNote.getContent();
-                    if (content != null) {
-                        isLoading = true; // [FIX] Disable sticky logic during load
-                        try {
-                            if (com.simplenotes.utils.RichTextUtils.isJson(content)) {
-                                CharSequence clean = com.simplenotes.utils.RichTextUtils.fromJson(content);
-                                // [FIX] Re-inject markers for editing compatibility
-                                if (clean instanceof android.text.Spannable) {
-                                    editTextContent.setText(reinjectMarkers((android.text.Spannable) clean));
-                                } else {
-                                    editTextContent.setText(clean);
-                                }
-                            } else if (content.contains("<") && content.contains(">")) {
-                                CharSequence styled = Html.fromHtml(content, Html.FROM_HTML_MODE_LEGACY);
-                                editTextContent.setText(trimSpannable(styled));
-                            } else {
-                                editTextContent.setText(content);
-                            }
-                        } finally {
-                            isLoading = false;
-                        }
-                    }
-                    applyVerseStyling();
+                long noteId = noteIdOf(intent);
+                if (noteId != NO_NOTE) {
                     setTitle(R.string.edit_note);
+                    loadNote(noteId, null);
                 }
             } else {
                 setTitle(R.string.new_note);
                 currentNote = new Note();
                 // Immediate save for new notes
                 AppExecutors.getInstance().diskIO().execute(() -> {
-                    database.noteDao().insert(currentNote);
+                    NoteStore.getInstance(this).replace(currentNote);
                 });
             }
         }
@@ -431,6 +442,202 @@ public class NoteActivity extends AppCompatActivity {
         return s.subSequence(start, end);
     }
 
+    /** Shows {@code content} in the editor, a window of blocks at a time if the note is large. */
+    private void setContent(CharSequence content) {
+        if (NoteDocument.isLarge(content)) {
+            largeNote = new NoteDocument(content, noteStyler);
+            editTextContent.setText(largeNote.checkOut(0));
+        } else {
+            largeNote = null;
+            editTextContent.setText(content);
+        }
+        // A large note's window is reloaded from NoteStore rather than kept in the Bundle
+        editTextContent.setSaveEnabled(largeNote == null);
+    }
+
+    /** The whole note, with the editor's window in place for a large note. */
+    private Spanned fullContent() {
+        Spanned window = editTextContent.getText();
+        return largeNote != null ? largeNote.snapshot(window) : window;
+    }
+
+    /** {first visible line, selection start, selection end} of a large note, as note offsets. */
+    private int[] largeNotePosition() {
+        android.text.Layout layout = editTextContent.getLayout();
+        int anchor = layout != null
+                ? toDocument(layout.getLineStart(layout.getLineForVertical(editTextContent.getScrollY())))
+                : largeNote.getWindowStart();
+        int selStart = editTextContent.getSelectionStart();
+        int selEnd = editTextContent.getSelectionEnd();
+        return new int[] { anchor, toDocument(Math.max(0, Math.min(selStart, selEnd))),
+                toDocument(Math.max(0, Math.max(selStart, selEnd))) };
+    }
+
+    /**
+     * Loads a note from NoteStore on diskIO and shows it: when opened from the
+     * list, or, for a large note, after the activity was recreated with its
+     * window and selection at {@code position}. A save queued before (e.g. by
+     * onPause) is read back, as diskIO runs tasks in order.
+     */
+    private void loadNote(long id, int[] position) {
+        loadingNote = true;
+        editTextContent.setEnabled(false); // Nothing to type into until the note is in
+        NoteStore store = NoteStore.getInstance(this);
+        AppExecutors.getInstance().diskIO().execute(() -> {
+            Note stored = store.load(id);
+            AppExecutors.getInstance().mainThread().execute(() -> {
+                if (isDestroyed())
+                    return;
+                loadingNote = false;
+                largeNotePosition = null;
+                editTextContent.setEnabled(true);
+                if (stored == null) {
+                    if (currentNote == null)
+                        finish(); // Deleted meanwhile
+                    return;
+                }
+                if (currentNote == null) {
+                    currentNote = stored;
+                    editTextTitle.setText(stored.getTitle());
+                }
+                showContent(stored.getContent());
+                if (position == null) {
+                    applyStyling();
+                } else {
+                    restorePosition(position);
+                }
+            });
+        });
+    }
+
+    /** Puts saved content in the editor; any markers in older notes become spans. */
+    private void showContent(String content) {
+        if (content == null)
+            return;
+        isLoading = true; // [FIX] Disable sticky logic during load
+        try {
+            configureStyler();
+            if (com.simplenotes.utils.RichTextUtils.isJson(content)) {
+                CharSequence clean = com.simplenotes.utils.RichTextUtils.fromJson(content);
+                setContent(noteStyler.toSpans(clean));
+            } else if (content.contains("<") && content.contains(">")) {
+                CharSequence styled = Html.fromHtml(content, Html.FROM_HTML_MODE_LEGACY);
+                setContent(noteStyler.toSpans(trimSpannable(styled)));
+            } else {
+                setContent(noteStyler.toSpans(content));
+            }
+        } finally {
+            isLoading = false;
+        }
+    }
+
+    /** Moves a large note's window back to {anchor, selection start, selection end} (note offsets). */
+    private void restorePosition(int[] position) {
+        int anchor = position[0];
+        int selStart = position[1];
+        int selEnd = position[2];
+        if (largeNote == null) { // Shortened since, e.g. in another window
+            applyStyling();
+            int length = editTextContent.getText().length();
+            editTextContent.setSelection(Math.min(selStart, length), Math.min(selEnd, length));
+            return;
+        }
+        moveWindow(anchor, selStart, selEnd, 0);
+        int windowStart = largeNote.getWindowStart();
+        if (selStart >= windowStart && selEnd - windowStart <= editTextContent.getText().length()) {
+            editTextContent.setSelection(selStart - windowStart, selEnd - windowStart);
+        }
+    }
+
+    /** An editor offset as an offset in the note. */
+    private int toDocument(int offset) {
+        return largeNote != null ? largeNote.getWindowStart() + offset : offset;
+    }
+
+    /**
+     * A note offset as an editor offset, first moving the window there if
+     * {@code offset..offset + length} is outside it.
+     */
+    private int toEditor(int offset, int length) {
+        if (largeNote == null)
+            return offset;
+        int local = offset - largeNote.getWindowStart();
+        if (local < 0 || local + length > editTextContent.getText().length()) {
+            moveWindow(offset, offset, offset + length, 0);
+            local = offset - largeNote.getWindowStart();
+        }
+        return local;
+    }
+
+    /** Moves a large note's window once scrolling gets within a screen of its edge. */
+    private void moveWindowIfNeeded() {
+        android.text.Layout layout = editTextContent.getLayout();
+        if (largeNote == null || layout == null || isLoading || isTyping)
+            return;
+        int scrollY = editTextContent.getScrollY();
+        int height = editTextContent.getHeight();
+        boolean nearTop = scrollY < height && largeNote.getWindowStart() > 0;
+        boolean nearBottom = scrollY + 2 * height > layout.getHeight() && largeNote.hasTextAfterWindow();
+        if (!nearTop && !nearBottom)
+            return;
+
+        int line = layout.getLineForVertical(scrollY);
+        int anchor = toDocument(layout.getLineStart(line));
+        int selStart = editTextContent.getSelectionStart();
+        int selEnd = editTextContent.getSelectionEnd();
+        if (selStart != selEnd) { // Keep a selection dragged across the edge whole
+            moveWindow(anchor, toDocument(Math.min(selStart, selEnd)), toDocument(Math.max(selStart, selEnd)),
+                    layout.getLineTop(line) - scrollY);
+        } else {
+            moveWindow(anchor, anchor, anchor, layout.getLineTop(line) - scrollY);
+        }
+    }
+
+    /**
+     * Checks the editor's window back in and takes out the blocks around note
+     * offset {@code anchor} and {@code keepStart..keepEnd}, keeping the
+     * selection if it is still in the window and the anchor's line
+     * {@code anchorY} px from the top of the editor.
+     */
+    private void moveWindow(int anchor, int keepStart, int keepEnd, int anchorY) {
+        int selStart = toDocument(Math.max(0, Math.min(editTextContent.getSelectionStart(),
+                editTextContent.getSelectionEnd())));
+        int selEnd = toDocument(Math.max(editTextContent.getSelectionStart(), editTextContent.getSelectionEnd()));
+        selEnd = Math.max(selStart, selEnd);
+        isLoading = true;
+        try {
+            largeNote.checkIn(editTextContent.getText());
+            editTextContent.setText(largeNote.checkOut(anchor, keepStart, keepEnd));
+            int windowStart = largeNote.getWindowStart();
+            int length = editTextContent.getText().length();
+            if (selStart >= windowStart && selEnd - windowStart <= length) {
+                editTextContent.setSelection(selStart - windowStart, selEnd - windowStart);
+            } else {
+                editTextContent.setSelection(anchor - windowStart);
+            }
+            manualOverridePosition = -1;
+        } finally {
+            isLoading = false;
+        }
+        applyStyling();
+
+        // After the editor's own pre-draw pass, which scrolls to the cursor
+        android.view.ViewTreeObserver observer = editTextContent.getViewTreeObserver();
+        observer.addOnPreDrawListener(new android.view.ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                editTextContent.getViewTreeObserver().removeOnPreDrawListener(this);
+                android.text.Layout layout = editTextContent.getLayout();
+                if (layout != null && largeNote != null) {
+                    int offset = Math.min(anchor - largeNote.getWindowStart(), layout.getText().length());
+                    int top = layout.getLineTop(layout.getLineForOffset(Math.max(0, offset)));
+                    editTextContent.scrollTo(0, Math.max(0, top - anchorY));
+                }
+                return true;
+            }
+        });
+    }
+
     private void initializeBibleVersions() {
         bibleVersions = new java.util.LinkedHashMap<>();
         bibleVersions.put("Cherokee New Testament", "cherokee");
@@ -495,9 +702,8 @@ public class NoteActivity extends AppCompatActivity {
 
     private void setupMagicFetch() {
         // Setup Autocomplete
-        android.widget.ArrayAdapter<String> adapter = new android.widget.ArrayAdapter<>(this,
-                R.layout.item_autocomplete, BibleData.BOOKS);
-        editTextContent.setAdapter(adapter);
+        // Suggestions resolve abbreviations and localized names through BookIndex
+        editTextContent.setAdapter(new BookSuggestionAdapter(this, R.layout.item_autocomplete));
         editTextContent.setTokenizer(new BibleTokenizer());
 
         editTextContent.addTextChangedListener(new android.text.TextWatcher() {
@@ -518,8 +724,7 @@ public class NoteActivity extends AppCompatActivity {
                     if (cursorPos > 0) {
                         char lastChar = s.charAt(cursorPos - 1);
                         if (Character.isWhitespace(lastChar)) {
-                            // Check text only up to the cursor
-                            checkForBibleReference(s.subSequence(0, cursorPos).toString(), cursorPos);
+                            checkForBibleReference(s, cursorPos);
                         }
                     }
                 }
@@ -598,106 +803,12 @@ public class NoteActivity extends AppCompatActivity {
         }
     }
 
-    private void checkForBibleReference(String text, int cursorPos) {
+    private void checkForBibleReference(CharSequence text, int cursorPos) {
         try {
-            // Robust Magic Verse Detection that ignores invisible formatting markers
-            // (\u200C, \u200D, {\d+})
-
-            // 1. Limit scope to reasonable window (e.g. last 100 chars) to assume trigger
-            // isn't longer
-            // This avoids processing the entire note for every keystroke.
-            int windowSize = 100;
-            int startOffset = Math.max(0, text.length() - windowSize);
-            String sub = text.substring(startOffset);
-
-            // 2. Build Clean Text and Map
-            // cleanSb holds the text as it appears visually (without markers)
-            // map holds the ORIGINAL raw index for each character in cleanSb
-            StringBuilder cleanSb = new StringBuilder();
-            java.util.List<Integer> map = new java.util.ArrayList<>();
-
-            int i = 0;
-            int len = sub.length();
-            while (i < len) {
-                char c = sub.charAt(i);
-
-                // Check for Start Marker: \u200C optionally followed by {\d+}
-                if (c == '\u200C') {
-                    i++; // Skip \u200C
-                    // Skip potential {digits}
-                    if (i < len && sub.charAt(i) == '{') {
-                        // Fast forward until }
-                        int j = i + 1;
-                        while (j < len && Character.isDigit(sub.charAt(j))) {
-                            j++;
-                        }
-                        if (j < len && sub.charAt(j) == '}') {
-                            i = j + 1; // Skip past }
-                        }
-                        // If pattern didn't match {digits}, we just skipped \u200C.
-                        // The '{' remains as valid text?
-                        // In our strict app logic, \u200C always precedes the color tag or is a legacy
-                        // marker.
-                        // Ideally we should be stricter, but skipping {digits} block after 200C is safe
-                        // for this specific bug.
-                        // If the user typed "\u200C{", they are weird.
-                    }
-                }
-                // Check for End Marker: \u200D
-                else if (c == '\u200D') {
-                    i++;
-                } else {
-                    // Regular character
-                    cleanSb.append(c);
-                    map.add(startOffset + i); // Store absolute index in 'text'
-                    i++;
-                }
-            }
-
-            String cleanText = cleanSb.toString();
-
-            // 3. Regex on Clean Text
-            // Matches "@Book Chapter:Verse" followed by one or more whitespace characters
-            // at the end ($)
-            java.util.regex.Pattern pattern = java.util.regex.Pattern
-                    .compile("(@([a-zA-Z0-9\\s]+ \\d+:\\d+(?:-\\d+)?))\\s+$");
-            java.util.regex.Matcher matcher = pattern.matcher(cleanText);
-
-            if (matcher.find()) {
-                String reference = matcher.group(2).trim(); // "Book Chapter:Verse"
-
-                int cleanStart = matcher.start();
-                int cleanEnd = matcher.end(); // Exclusive
-
-                // 4. Map Clean Indices back to Raw Indices
-                if (cleanStart >= map.size())
-                    return; // Safety
-
-                int rawStart = map.get(cleanStart);
-                int rawEnd;
-
-                if (cleanEnd < map.size()) {
-                    rawEnd = map.get(cleanEnd);
-                } else {
-                    // If match goes to the very end of clean text (which implies end of raw text
-                    // too, mostly)
-                    // We use the full length of the passed text (cursorPos)
-                    if (cleanEnd == cleanText.length()) {
-                        rawEnd = text.length();
-                    } else {
-                        // Should not be reachable given strict mapping,
-                        // unless we stripped trailing markers at the very end?
-                        // If we stripped markers at the end, map.size() < raw text length.
-                        // But cleanEnd == map.size().
-                        // map.get(cleanEnd) is IndexOutOfBounds.
-                        // In that case, we can assume it extends to the end of the processed window...
-                        // but simpler to just say rawEnd = text.length() (cursorPos)
-                        // because the regex is anchored to '$' of the passed text segment.
-                        rawEnd = text.length();
-                    }
-                }
-
-                fetchVerse(reference, rawStart, rawEnd);
+            if (referenceScanner.scan(text, cursorPos)) {
+                // In note offsets: the window may move before the verse arrives
+                fetchVerse(referenceScanner.getReference(), toDocument(referenceScanner.getStart()),
+                        toDocument(referenceScanner.getEnd()));
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -707,6 +818,27 @@ public class NoteActivity extends AppCompatActivity {
         }
     }
 
+    // Offline lookups go through the chapter cache (backed by the verse pack, then the verses table)
+    private List<Verse> lookupVersesInRange(String translationId, String book, int chapter, int startV, int endV) {
+        return VerseRepository.getInstance(this).getVersesInRange(translationId, book, chapter, startV, endV);
+    }
+
+    private Verse lookupVerse(String translationId, String book, int chapter, int verseNum) {
+        return VerseRepository.getInstance(this).getVerse(translationId, book, chapter, verseNum);
+    }
+
+    private void cacheNetworkVerse(String translationId, com.simplenotes.api.BibleResponse.Verse apiVerse) {
+        database.bibleDao().insertVerse(new Verse(translationId, apiVerse.getBookName(),
+                apiVerse.getChapter(), apiVerse.getVerse(), apiVerse.getText()));
+        VerseRepository.getInstance(this).invalidate(translationId, apiVerse.getBookName(), apiVerse.getChapter());
+    }
+
+    /** Canonical name for a typed book token ("Jn", "1 cor"), or the token itself if unknown. */
+    private static String resolveBook(String token) {
+        String canonical = BookIndex.getInstance().canonicalName(token);
+        return canonical != null ? canonical : token.trim();
+    }
+
     private void fetchVerse(String reference, int startIdx, int endIdx) {
         // Parse reference to find Book, Chapter, Verse for DB lookup
         // Ref format: "Book Name Chapter:Verse" or "Book Name Chapter:Start-End"
@@ -714,13 +846,12 @@ public class NoteActivity extends AppCompatActivity {
 
         AppExecutors.getInstance().diskIO().execute(() -> {
             try {
-                // 1. Check Local DB
-                BibleDao dao = database.bibleDao();
+                // 1. Check offline cache / local DB
                 String refTrimmed = reference.trim();
                 int lastSpace = refTrimmed.lastIndexOf(' ');
 
                 if (lastSpace != -1) {
-                    String book = refTrimmed.substring(0, lastSpace).trim();
+                    String book = resolveBook(refTrimmed.substring(0, lastSpace));
                     String versePart = refTrimmed.substring(lastSpace + 1).trim();
                     String[] cv = versePart.split(":");
 
@@ -728,7 +859,7 @@ public class NoteActivity extends AppCompatActivity {
                         int chapter = Integer.parseInt(cv[0]);
                         String verseNumStr = cv[1];
 
-                        StringBuilder sb = new StringBuilder();
+                        SpannableStringBuilder sb = new SpannableStringBuilder();
                         boolean foundLocally = false;
 
                         if (verseNumStr.contains("-")) {
@@ -736,36 +867,35 @@ public class NoteActivity extends AppCompatActivity {
                             String[] range = verseNumStr.split("-");
                             int startV = Integer.parseInt(range[0]);
                             int endV = Integer.parseInt(range[1]);
-                            List<Verse> verses = dao.getVersesInRange(currentTranslation, book, chapter, startV, endV);
+                            List<Verse> verses = lookupVersesInRange(currentTranslation, book, chapter, startV, endV);
 
                             if (verses != null && !verses.isEmpty() && verses.size() == (endV - startV + 1)) {
                                 foundLocally = true;
                                 for (Verse v : verses) {
-                                    sb.append(v.getBook()).append(" ").append(v.getChapter()).append(":")
-                                            .append(v.getVerse()).append("\n");
-                                    sb.append("\u200B\"").append(v.getText()).append("\"\u200B\n\n");
+                                    sb.append(v.getBook()).append(" ").append(String.valueOf(v.getChapter()))
+                                            .append(":").append(String.valueOf(v.getVerse())).append("\n");
+                                    appendVerse(sb, v.getText());
+                                    sb.append("\n\n");
                                 }
                             }
                         } else {
                             // Single verse lookup
                             int verseNum = Integer.parseInt(verseNumStr);
-                            Verse v = dao.getVerse(currentTranslation, book, chapter, verseNum);
+                            Verse v = lookupVerse(currentTranslation, book, chapter, verseNum);
                             if (v != null) {
                                 foundLocally = true;
                                 sb.append(reference).append("\n");
-                                sb.append("\u200B\"").append(v.getText()).append("\"\u200B"); // Single verse format
-                                                                                              // matches existing logic
+                                appendVerse(sb, v.getText());
                             }
                         }
 
                         if (foundLocally) {
                             if (sb.length() > 2 && sb.toString().endsWith("\n\n")) {
-                                sb.setLength(sb.length() - 2);
+                                sb.delete(sb.length() - 2, sb.length());
                             }
-                            String finalInfo = sb.toString();
 
                             AppExecutors.getInstance().mainThread().execute(() -> {
-                                replaceTextWithVerse(startIdx, endIdx, "", finalInfo);
+                                replaceTextWithVerse(startIdx, endIdx, sb);
                             });
                             return; // Done
                         }
@@ -784,8 +914,8 @@ public class NoteActivity extends AppCompatActivity {
     }
 
     private void fetchVerseNetwork(String reference, int startIdx, int endIdx) {
-        com.simplenotes.api.ApiClient.getService().getVerse(reference, currentTranslation)
-                .enqueue(new retrofit2.Callback<com.simplenotes.api.BibleResponse>() {
+        com.simplenotes.api.ApiClient.fetchVerse(this, reference, currentTranslation,
+                new retrofit2.Callback<com.simplenotes.api.BibleResponse>() {
                     @Override
                     public void onResponse(retrofit2.Call<com.simplenotes.api.BibleResponse> call,
                             retrofit2.Response<com.simplenotes.api.BibleResponse> response) {
@@ -796,12 +926,7 @@ public class NoteActivity extends AppCompatActivity {
                             AppExecutors.getInstance().diskIO().execute(() -> {
                                 if (body.getVerses() != null) {
                                     for (com.simplenotes.api.BibleResponse.Verse apiVerse : body.getVerses()) {
-                                        database.bibleDao().insertVerse(new Verse(
-                                                currentTranslation,
-                                                apiVerse.getBookName(),
-                                                apiVerse.getChapter(),
-                                                apiVerse.getVerse(),
-                                                apiVerse.getText()));
+                                        cacheNetworkVerse(currentTranslation, apiVerse);
                                     }
                                 } else if (body.getText() != null) {
                                     // Single verse response might not give broken down details easily if API
@@ -813,20 +938,24 @@ public class NoteActivity extends AppCompatActivity {
 
                             // UI Update
                             if (body.getVerses() != null && !body.getVerses().isEmpty()) {
-                                StringBuilder sb = new StringBuilder();
+                                SpannableStringBuilder sb = new SpannableStringBuilder();
                                 for (com.simplenotes.api.BibleResponse.Verse v : body.getVerses()) {
                                     String ref = v.getBookName() + " " + v.getChapter() + ":" + v.getVerse();
                                     sb.append(ref).append("\n");
-                                    sb.append("\u200B\"").append(v.getText()).append("\"\u200B\n\n");
+                                    appendVerse(sb, v.getText());
+                                    sb.append("\n\n");
                                 }
                                 if (sb.length() > 2)
-                                    sb.setLength(sb.length() - 2);
-                                replaceTextWithVerse(startIdx, endIdx, "", sb.toString());
+                                    sb.delete(sb.length() - 2, sb.length());
+                                replaceTextWithVerse(startIdx, endIdx, sb);
 
                             } else {
                                 String verseText = body.getText();
                                 if (verseText != null) {
-                                    replaceTextWithVerse(startIdx, endIdx, reference, verseText);
+                                    // Format: Reference (Newline) "Verse"
+                                    SpannableStringBuilder sb = new SpannableStringBuilder(reference).append("\n");
+                                    appendVerse(sb, verseText);
+                                    replaceTextWithVerse(startIdx, endIdx, sb);
                                 }
                             }
                         }
@@ -839,7 +968,18 @@ public class NoteActivity extends AppCompatActivity {
                 });
     }
 
-    private void replaceTextWithVerse(int start, int end, String reference, String verseText) {
+    /** Appends {@code text} in quotes, marked as a verse block. */
+    private static void appendVerse(SpannableStringBuilder sb, String text) {
+        int start = sb.length();
+        sb.append("\"").append(text != null ? text : "").append("\"");
+        sb.setSpan(new VerseSpan(), start, sb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+
+    /** Replaces the typed reference with {@code ssb}, fetched verses marked with {@link VerseSpan}s. */
+    private void replaceTextWithVerse(int start, int end, SpannableStringBuilder ssb) {
+        int length = end - start;
+        start = toEditor(start, length);
+        end = start + length;
         isTyping = true;
         try {
             android.text.Editable editable = editTextContent.getText();
@@ -849,21 +989,6 @@ public class NoteActivity extends AppCompatActivity {
                 return;
             }
 
-            SpannableStringBuilder ssb = new SpannableStringBuilder();
-
-            if (!reference.isEmpty()) {
-                // Format: Reference (Newline) "Verse"
-                ssb.append(reference).append("\n");
-
-                // Invisible marker to identify Bible verses for styling persistence
-                String marker = "\u200B";
-                String formattedVerse = marker + "\"" + verseText + "\"" + marker;
-                ssb.append(formattedVerse);
-            } else {
-                // Pre-formatted block (Multi-verse)
-                ssb.append(verseText);
-            }
-
             // Apply Pending Styles to the new content (Sticky Formatting for Magic Fetch)
             if (pendingBold)
                 ssb.setSpan(new android.text.style.StyleSpan(android.graphics.Typeface.BOLD), 0, ssb.length(),
@@ -876,20 +1001,14 @@ public class NoteActivity extends AppCompatActivity {
             if (pendingTextColor != null)
                 ssb.setSpan(new android.text.style.ForegroundColorSpan(pendingTextColor), 0, ssb.length(),
                         Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-            if (pendingHighlightColor != null) {
-                // Highlighting is tricky because it usually involves markers.
-                // For now, let's skip manual marker insertion here and rely on applyStyling if
-                // we set the span?
-                // Actually, sticky highlight inserts markers.
-                // But here we are inserting a VERSE which relies on \u200B markers.
-                // Nesting markers might be complex. Let's just stick to font styles for now.
-            }
+            if (pendingHighlightColor != null)
+                ssb.setSpan(noteStyler.newHighlight(highlightColors[pendingHighlightColor]), 0, ssb.length(),
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
 
-            // Replace the trigger characters
+            // Replace the trigger characters, then color the new verses
             editable.replace(start, end, ssb);
-
-            // Re-apply styling (will handle the new content)
-            applyVerseStyling();
+            configureStyler();
+            noteStyler.styleSpans(editable);
         } finally {
             isTyping = false;
         }
@@ -898,8 +1017,7 @@ public class NoteActivity extends AppCompatActivity {
     private void fetchAndInsertReferTo(String reference, String versionId, int insertPos) {
         // Reuse fetch logic but with specific insertion
         AppExecutors.getInstance().diskIO().execute(() -> {
-            // 1. Try Local DB
-            BibleDao dao = database.bibleDao();
+            // 1. Try offline cache / local DB
             String refTrimmed = reference.trim();
             // Simple parsing (same as magic fetch)
             int lastSpace = refTrimmed.lastIndexOf(' '); // e.g. "Genesis 1:1" -> "Genesis" "1:1"
@@ -909,7 +1027,7 @@ public class NoteActivity extends AppCompatActivity {
 
             if (lastSpace != -1) {
                 try {
-                    String book = refTrimmed.substring(0, lastSpace).trim();
+                    String book = resolveBook(refTrimmed.substring(0, lastSpace));
                     String versePart = refTrimmed.substring(lastSpace + 1).trim();
                     String[] cv = versePart.split(":");
 
@@ -920,7 +1038,7 @@ public class NoteActivity extends AppCompatActivity {
                             String[] range = cv[1].split("-");
                             int startV = Integer.parseInt(range[0]);
                             int endV = Integer.parseInt(range[1]);
-                            List<Verse> verses = dao.getVersesInRange(versionId, book, chapter, startV, endV);
+                            List<Verse> verses = lookupVersesInRange(versionId, book, chapter, startV, endV);
                             if (verses != null && !verses.isEmpty()) {
                                 StringBuilder sb = new StringBuilder();
                                 for (Verse v : verses) {
@@ -931,7 +1049,7 @@ public class NoteActivity extends AppCompatActivity {
                             }
                         } else {
                             int verseNum = Integer.parseInt(cv[1]);
-                            Verse v = dao.getVerse(versionId, book, chapter, verseNum);
+                            Verse v = lookupVerse(versionId, book, chapter, verseNum);
                             if (v != null) {
                                 finalVerseText = v.getText();
                                 found = true;
@@ -958,8 +1076,8 @@ public class NoteActivity extends AppCompatActivity {
     }
 
     private void fetchReferToNetwork(String reference, String versionId, int insertPos) {
-        com.simplenotes.api.ApiClient.getService().getVerse(reference, versionId)
-                .enqueue(new retrofit2.Callback<com.simplenotes.api.BibleResponse>() {
+        com.simplenotes.api.ApiClient.fetchVerse(this, reference, versionId,
+                new retrofit2.Callback<com.simplenotes.api.BibleResponse>() {
                     @Override
                     public void onResponse(retrofit2.Call<com.simplenotes.api.BibleResponse> call,
                             retrofit2.Response<com.simplenotes.api.BibleResponse> response) {
@@ -979,8 +1097,7 @@ public class NoteActivity extends AppCompatActivity {
                                 AppExecutors.getInstance().diskIO().execute(() -> {
                                     if (response.body().getVerses() != null) {
                                         for (com.simplenotes.api.BibleResponse.Verse v : response.body().getVerses()) {
-                                            database.bibleDao().insertVerse(new Verse(versionId, v.getBookName(),
-                                                    v.getChapter(), v.getVerse(), v.getText()));
+                                            cacheNetworkVerse(versionId, v);
                                         }
                                     }
                                 });
@@ -1008,6 +1125,7 @@ public class NoteActivity extends AppCompatActivity {
         ssb.append("\n");
         ssb.append(text);
 
+        position = toEditor(position, 0);
         int len = editTextContent.getText().length();
         int safePos = Math.min(len, Math.max(0, position));
 
@@ -1252,66 +1370,12 @@ public class NoteActivity extends AppCompatActivity {
         isTyping = true;
         try {
             android.text.Editable text = editTextContent.getText();
-            String str = text.toString();
-
-            // Robust Smart Expansion using Regex
-            // 1. Expand START to include preceding OR overlapping marker \u200C{digits}
-            // Scan for all markers. If start falls INSIDE or AT THE END of a marker, expand
-            // to marker start.
-            java.util.regex.Matcher startMatcher = java.util.regex.Pattern.compile("\u200C\\{\\d+\\}").matcher(str);
-            while (startMatcher.find()) {
-                int mStart = startMatcher.start();
-                int mEnd = startMatcher.end();
-                // If selection starts inside the marker (mStart < start < mEnd)
-                // OR exactly at the end (start == mEnd)
-                if (start > mStart && start <= mEnd) {
-                    start = mStart;
-                    break;
-                }
-            }
-
-            // 2. Expand END to include succeeding marker \u200D (or legacy \u200C)
-            // Check immediate char at 'end'
-            if (end < str.length()) {
-                char c = str.charAt(end);
-                if (c == '\u200D' || c == '\u200C') {
-                    end++;
-                }
-            }
-
-            if (start < 0 || end < 0 || start >= end)
+            if (start < 0 || end > text.length() || start >= end)
                 return;
 
-            // Use SpannableStringBuilder to preserve existing spans (Bold, Italic, Color)
-            // while stripping out old markers.
-            android.text.SpannableStringBuilder content = new android.text.SpannableStringBuilder(
-                    text.subSequence(start, end));
-
-            // Remove existing markers patterns from the content
-            java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\u200C|\u200D|\\{\\d+\\}");
-            java.util.regex.Matcher matcher = pattern.matcher(content);
-
-            while (matcher.find()) {
-                content.delete(matcher.start(), matcher.end());
-                matcher.reset(content);
-            }
-
-            // Also remove any existing RoundedHighlighterSpan or HiddenSpan
-            Object[] oldSpans = content.getSpans(0, content.length(), Object.class);
-            for (Object span : oldSpans) {
-                if (span instanceof RoundedHighlighterSpan || span instanceof HiddenSpan) {
-                    content.removeSpan(span);
-                }
-            }
-
-            // Construct final wrapped text
-            android.text.SpannableStringBuilder finalSSB = new android.text.SpannableStringBuilder();
-            finalSSB.append("\u200C{" + colorIndex + "}");
-            finalSSB.append(content);
-            finalSSB.append("\u200D");
-
-            text.replace(start, end, finalSSB);
-            applyStyling();
+            clearHighlights(text, start, end);
+            setHighlight(text, highlightColors[colorIndex], start, end);
+            noteStyler.invalidateLayout();
         } finally {
             isTyping = false;
         }
@@ -1321,177 +1385,60 @@ public class NoteActivity extends AppCompatActivity {
         isTyping = true;
         try {
             android.text.Editable text = editTextContent.getText();
-            String str = text.toString();
-
-            // Mirror START expansion
-            java.util.regex.Matcher startMatcher = java.util.regex.Pattern.compile("\u200C\\{\\d+\\}").matcher(str);
-            while (startMatcher.find()) {
-                int mStart = startMatcher.start();
-                int mEnd = startMatcher.end();
-                if (start > mStart && start <= mEnd) {
-                    start = mStart;
-                    break;
-                }
-            }
-
-            // Mirror END expansion
-            if (end < str.length()) {
-                char c = str.charAt(end);
-                if (c == '\u200D' || c == '\u200C') {
-                    end++;
-                }
-            }
-
-            if (start < 0 || end < 0 || start >= end)
+            if (start < 0 || end > text.length() || start >= end)
                 return;
 
-            // Use SpannableStringBuilder to preserve existing spans (Bold, Italic, Color)
-            // while stripping out old markers.
-            android.text.SpannableStringBuilder content = new android.text.SpannableStringBuilder(
-                    text.subSequence(start, end));
-
-            // Remove existing markers patterns from the content
-            java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\u200C|\u200D|\\{\\d+\\}");
-            java.util.regex.Matcher matcher = pattern.matcher(content);
-
-            while (matcher.find()) {
-                content.delete(matcher.start(), matcher.end());
-                matcher.reset(content);
-            }
-
-            // Also remove any existing RoundedHighlighterSpan or HiddenSpan
-            Object[] oldSpans = content.getSpans(0, content.length(), Object.class);
-            for (Object span : oldSpans) {
-                if (span instanceof RoundedHighlighterSpan || span instanceof HiddenSpan) {
-                    content.removeSpan(span);
-                }
-            }
-
-            text.replace(start, end, content);
-            applyStyling();
+            clearHighlights(text, start, end);
+            noteStyler.invalidateLayout();
         } finally {
             isTyping = false;
         }
     }
 
-    private void applyStyling() {
-        android.text.Editable text = editTextContent.getText();
-        String content = text.toString();
-
-        // 0. AUTO-MIGRATION: Fix Legacy Closers
-        java.util.regex.Matcher migrationMatcher = java.util.regex.Pattern.compile("\u200C(?![{])").matcher(content);
-        if (migrationMatcher.find()) {
-            String cleanContent = migrationMatcher.replaceAll("\u200D");
-            if (!cleanContent.equals(content)) {
-                int selectionStart = editTextContent.getSelectionStart();
-                int selectionEnd = editTextContent.getSelectionEnd();
-
-                editTextContent.setText(cleanContent);
-                try {
-                    int len = editTextContent.length();
-                    editTextContent.setSelection(Math.min(selectionStart, len), Math.min(selectionEnd, len));
-                } catch (Exception e) {
-                }
-                applyStyling();
-                return;
-            }
-        }
-
-        // 1. Clear ONLY Auto Spans (Leave user's Bold/Italic/Color intact)
-        AutoColorSpan[] autoSpans = text.getSpans(0, text.length(), AutoColorSpan.class);
-        for (AutoColorSpan span : autoSpans)
-            text.removeSpan(span);
-
-        RoundedHighlighterSpan[] roundedSpans = text.getSpans(0, text.length(), RoundedHighlighterSpan.class);
-        for (RoundedHighlighterSpan span : roundedSpans)
-            text.removeSpan(span);
-
-        HiddenSpan[] hiddenSpans = text.getSpans(0, text.length(), HiddenSpan.class);
-        for (HiddenSpan span : hiddenSpans)
+    /** Removes highlights from [start, end), keeping the parts outside it. */
+    private void clearHighlights(Spannable text, int start, int end) {
+        RoundedHighlighterSpan[] spans = text.getSpans(start, end, RoundedHighlighterSpan.class);
+        for (RoundedHighlighterSpan span : spans) {
+            int s = text.getSpanStart(span);
+            int e = text.getSpanEnd(span);
+            if (s >= end || e <= start)
+                continue; // Only touches the range
             text.removeSpan(span);
 
-        // 2. Hide ALL Markers Globally (Robustness)
-        java.util.regex.Pattern markerPattern = java.util.regex.Pattern.compile("(\u200C(\\{\\d+\\})?)|\u200D");
-        java.util.regex.Matcher markerMatcher = markerPattern.matcher(content);
-
-        while (markerMatcher.find()) {
-            text.setSpan(new HiddenSpan(), markerMatcher.start(), markerMatcher.end(),
-                    Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-        }
-
-        // 3. Bible Verse Styling
-        java.util.regex.Pattern versePattern = java.util.regex.Pattern.compile("\u200B(.*?)\u200B",
-                java.util.regex.Pattern.DOTALL);
-        java.util.regex.Matcher verseMatcher = versePattern.matcher(content);
-
-        int defaultVerseColor = (styleEnabled && customMagicColor != 0) ? customMagicColor
-                : ContextCompat.getColor(this, R.color.bible_gold); // Default or Custom
-
-        while (verseMatcher.find()) {
-            // Hide the \u200B markers
-            text.setSpan(new HiddenSpan(), verseMatcher.start(), verseMatcher.start(1),
-                    Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            text.setSpan(new HiddenSpan(), verseMatcher.end(1), verseMatcher.end(),
-                    Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-
-            // Check if user has already colored this text
-            ForegroundColorSpan[] userColors = text.getSpans(verseMatcher.start(1), verseMatcher.end(1),
-                    ForegroundColorSpan.class);
-            boolean hasUserColor = false;
-            for (ForegroundColorSpan span : userColors) {
-                if (!(span instanceof AutoColorSpan)) {
-                    hasUserColor = true;
-                    break;
-                }
-            }
-
-            // Only apply default gold if no user color is present
-            if (!hasUserColor) {
-                text.setSpan(new AutoColorSpan(defaultVerseColor), verseMatcher.start(1), verseMatcher.end(1),
-                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            }
-
-            // Apply Custom Background Highlight for Magic Verse
-            // REMOVED
-        }
-
-        // 4. Highlight Coloring
-        // [FIX] Make leading \u200C optional to handle cases where it might be stripped
-        // or missing
-        // This prevents {0} from being visible if \u200C is lost.
-        java.util.regex.Pattern highlightPattern = java.util.regex.Pattern.compile("(?:\u200C)?\\{(\\d+)\\}(.*?)\u200D",
-                java.util.regex.Pattern.DOTALL);
-        java.util.regex.Matcher highlightMatcher = highlightPattern.matcher(content);
-
-        int textColor = ContextCompat.getColor(this, R.color.black);
-
-        while (highlightMatcher.find()) {
-            try {
-                int colorIndex = Integer.parseInt(highlightMatcher.group(1));
-
-                // Explicitly hide markers with HiddenSpan
-                text.setSpan(new HiddenSpan(), highlightMatcher.start(), highlightMatcher.start(2),
+            // Restore parts outside selection
+            if (s < start)
+                text.setSpan(noteStyler.newHighlight(span.getBackgroundColor()), s, start,
                         Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                text.setSpan(new HiddenSpan(), highlightMatcher.end(2), highlightMatcher.end(),
+            if (e > end)
+                text.setSpan(noteStyler.newHighlight(span.getBackgroundColor()), end, e,
                         Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+    }
 
-                if (colorIndex >= 0 && colorIndex < highlightColors.length) {
-                    int bgColor = highlightColors[colorIndex];
-
-                    // Apply Rounded Highlighter
-                    text.setSpan(new RoundedHighlighterSpan(bgColor, 12f),
-                            highlightMatcher.start(2),
-                            highlightMatcher.end(2),
-                            Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-
-                }
-            } catch (Exception e) {
-            }
+    /** Highlights [start, end), joining same-colored highlights that touch it. */
+    private void setHighlight(Spannable text, int color, int start, int end) {
+        RoundedHighlighterSpan[] spans = text.getSpans(start, end, RoundedHighlighterSpan.class);
+        for (RoundedHighlighterSpan span : spans) {
+            if (span.getBackgroundColor() != color)
+                continue;
+            start = Math.min(start, text.getSpanStart(span));
+            end = Math.max(end, text.getSpanEnd(span));
+            text.removeSpan(span);
         }
+        text.setSpan(noteStyler.newHighlight(color), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
     }
 
-    private void applyVerseStyling() {
-        applyStyling();
+    /** Refreshes the colors the styler derives from spans, e.g. after settings changed. */
+    private void applyStyling() {
+        configureStyler();
+        noteStyler.styleSpans(editTextContent.getText());
+    }
+
+    private void configureStyler() {
+        // Verse colors (AutoColorSpan) and new highlights come from the styler
+        noteStyler.setHighlightColors(highlightColors);
+        noteStyler.setVerseColor((styleEnabled && customMagicColor != 0) ? customMagicColor
+                : ContextCompat.getColor(this, R.color.bible_gold)); // Default or Custom
     }
 
     @Override
@@ -1584,9 +1531,14 @@ public class NoteActivity extends AppCompatActivity {
         // Restoration is fine.
 
         // Implementation:
-        if (currentNote != null && editTextContent != null) {
+        // Only once per creation: after a plain pause the editor is newer than
+        // currentNote, whose content is serialized in the background
+        if (restorePending && currentNote != null && editTextContent != null) {
+            restorePending = false;
             String jsonContent = currentNote.getContent();
-            if (com.simplenotes.utils.RichTextUtils.isJson(jsonContent)) {
+            if (largeNotePosition != null) {
+                loadNote(currentNote.getId(), largeNotePosition);
+            } else if (com.simplenotes.utils.RichTextUtils.isJson(jsonContent)) {
                 // Check if editor already matches? (To avoid cursor jump)
                 // Or just force it.
                 // Ideally we check if it's different.
@@ -1598,7 +1550,8 @@ public class NoteActivity extends AppCompatActivity {
                 isLoading = true;
                 try {
                     android.text.Spannable restored = com.simplenotes.utils.RichTextUtils.fromJson(jsonContent);
-                    editTextContent.setText(restored);
+                    configureStyler();
+                    setContent(noteStyler.toSpans(restored));
                 } finally {
                     isLoading = false;
                 }
@@ -1607,7 +1560,7 @@ public class NoteActivity extends AppCompatActivity {
 
         // Post to ensure View state restoration is complete before we mess with spans
         if (editTextContent != null) {
-            editTextContent.post(() -> applyVerseStyling());
+            editTextContent.post(() -> applyStyling());
         }
     }
 
@@ -1617,9 +1570,21 @@ public class NoteActivity extends AppCompatActivity {
         if (currentNote != null) {
             currentNote.setTitle(editTextTitle.getText().toString().trim());
 
+            if (largeNote != null || loadingNote) {
+                // A whole large note would overflow the Binder transaction the Bundle travels in
+                // (TransactionTooLargeException). onPause has already queued it with noteSaver, so
+                // keep only the note without its content and where the editor was
+                Note shell = new Note(currentNote.getId(), currentNote.getTitle(), null, currentNote.getTimestamp());
+                shell.setPinned(currentNote.isPinned());
+                outState.putSerializable("current_note", shell);
+                outState.putIntArray("large_note_position",
+                        loadingNote ? largeNotePosition : largeNotePosition());
+                return;
+            }
+
             // [FIX] Save EXACT JSON state (with markers) to Bundle
             // Do NOT clean markers here, so we can restore exact state on rotation
-            String content = com.simplenotes.utils.RichTextUtils.toJson(editTextContent.getText());
+            String content = com.simplenotes.utils.RichTextUtils.toJson(fullContent());
             currentNote.setContent(content);
 
             outState.putSerializable("current_note", currentNote);
@@ -1632,95 +1597,40 @@ public class NoteActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
+        editTextContent.removeCallbacks(autosave);
         saveNote();
+        if (isFinishing() && currentNote != null) {
+            // Fold this visit's edits into the snapshot (after the save, as diskIO runs in order),
+            // which is the one write the note list reloads for
+            long id = currentNote.getId();
+            AppExecutors.getInstance().diskIO().execute(() -> NoteStore.getInstance(this).compact(id));
+        }
+    }
+
+    private void scheduleAutosave() {
+        editTextContent.removeCallbacks(autosave);
+        editTextContent.postDelayed(autosave, AUTOSAVE_DELAY_MS);
     }
 
     private void saveNote() {
-        if (currentNote == null)
-            return;
+        if (currentNote == null || loadingNote)
+            return; // Not loaded yet; the editor is empty
 
         String title = editTextTitle.getText().toString().trim();
-
-        // 1. Clone the text so we don't mess up the editor state
-        SpannableStringBuilder ssb = new SpannableStringBuilder(editTextContent.getText());
-        SpannableStringBuilder cleanSsb = new SpannableStringBuilder(ssb);
-
-        // 2. Remove text covered by HiddenSpan (Markers)
-        HiddenSpan[] hiddenSpans = cleanSsb.getSpans(0, cleanSsb.length(), HiddenSpan.class);
-        java.util.Arrays.sort(hiddenSpans, (o1, o2) -> {
-            int s1 = cleanSsb.getSpanStart(o1);
-            int s2 = cleanSsb.getSpanStart(o2);
-            return Integer.compare(s2, s1);
-        });
-
-        for (HiddenSpan span : hiddenSpans) {
-            int start = cleanSsb.getSpanStart(span);
-            int end = cleanSsb.getSpanEnd(span);
-            if (start >= 0 && end <= cleanSsb.length() && start < end) {
-                cleanSsb.delete(start, end);
-            }
-            cleanSsb.removeSpan(span);
-        }
-
-        String content = com.simplenotes.utils.RichTextUtils.toJson(cleanSsb);
-
         currentNote.setTitle(title);
-        currentNote.setContent(content);
         currentNote.setTimestamp(System.currentTimeMillis());
 
-        AppExecutors.getInstance().diskIO().execute(() -> {
-            database.noteDao().insert(currentNote);
-        });
-    }
-
-    // [FIX] Re-inject markers into clean text for editing logic compatibility
-    private Spannable reinjectMarkers(Spannable s) {
-        if (s == null)
-            return null;
-        SpannableStringBuilder ssb = new SpannableStringBuilder(s);
-
-        RoundedHighlighterSpan[] spans = ssb.getSpans(0, ssb.length(), RoundedHighlighterSpan.class);
-        // Sort spans? Order might matter if nested, but highlights usually flat.
-        // If we modify text (insert), subsequent spans shift automatically? Yes,
-        // SpannableStringBuilder handles it.
-        // Valid for standard spans. But RoundedHighlighterSpan is attached to the text.
-        // We must iterate backwards to keep indices valid?
-        // Actually, if we insert at 10, a span at 20 moves to 25. Correct.
-        // A span at 5..15 becomes 5..20? Yes.
-
-        // Loop backwards just in case
-        java.util.Arrays.sort(spans, (o1, o2) -> Integer.compare(ssb.getSpanStart(o2), ssb.getSpanStart(o1)));
-
-        for (RoundedHighlighterSpan span : spans) {
-            int start = ssb.getSpanStart(span);
-            int end = ssb.getSpanEnd(span);
-            int color = span.getBackgroundColor();
-
-            // Find color index
-            int colorIndex = -1;
-            for (int i = 0; i < highlightColors.length; i++) {
-                if (highlightColors[i] == color) {
-                    colorIndex = i;
-                    break;
-                }
-            }
-            if (colorIndex == -1)
-                colorIndex = 0; // Default or fallback
-
-            // Insert End Marker first (doesn't shift start)
-            ssb.insert(end, "\u200D");
-            // Insert Start Marker
-            ssb.insert(start, "\u200C{" + colorIndex + "}");
-
-            // Note: The original generic RoundedHighlighterSpan from JSON covers the
-            // "clean" text.
-            // After insertion, it covers "Marker + Clean + Marker"?
-            // Yes, standard behavior is expand-on-insert if strict?
-            // Actually, we rely on applyStyling to RE-PARSE everything.
-            // So we don't care if the span expands. applyStyling will remove old spans and
-            // create new ones.
+        // Only a snapshot is taken here; JSON and the insert happen on diskIO
+        if (largeNote != null) {
+            NoteDocument document = largeNote;
+            noteSaver.saveCopy(currentNote, title, () -> document.snapshot(editTextContent.getText()));
+        } else {
+            noteSaver.save(currentNote, title, editTextContent.getText());
+        }
+        if (noteSaver.getLastUiNanos() > 16_000_000L) {
+            android.util.Log.w("NoteActivity", "Save took " + noteSaver.getLastUiNanos() / 1_000_000
+                    + " ms on the UI thread");
         }
-        return ssb;
     }
 
     private int[] prependZero(int[] original) {
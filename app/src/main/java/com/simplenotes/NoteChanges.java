@@ -0,0 +1,84 @@
+package com.simplenotes;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tells the note list when the notes table changed, so that it reloads then
+ * instead of on every resume.
+ *
+ * Room's {@link InvalidationTracker} reports writes after their transaction
+ * commits. The first report schedules one callback {@link #COALESCE_MS} later
+ * and reports until it runs fold into it, so a burst of writes (a restore, a
+ * pin followed by a compaction) is one reload. Changes while paused are
+ * remembered and delivered, once, on resume.
+ *
+ * Only the notes table is watched: edits go to the op log and reach the list
+ * when the editor compacts them on closing.
+ */
+public class NoteChanges {
+    public static final long COALESCE_MS = 100;
+
+    /** Runs tasks on the main thread, e.g. a main-thread Handler. */
+    public interface Scheduler {
+        void postDelayed(Runnable task, long delayMillis);
+    }
+
+    private final InvalidationTracker tracker;
+    private final Scheduler main;
+    private final Runnable listener;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable deliver = this::deliver;
+    private final InvalidationTracker.Observer observer = new InvalidationTracker.Observer("notes") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            if (scheduled.compareAndSet(false, true)) {
+                main.postDelayed(deliver, COALESCE_MS);
+            }
+        }
+    };
+
+    // Main thread
+    private boolean resumed;
+    private boolean changedWhilePaused;
+
+    public NoteChanges(InvalidationTracker tracker, Scheduler main, Runnable listener) {
+        this.tracker = tracker;
+        this.main = main;
+        this.listener = listener;
+    }
+
+    /** Starts watching; pair with {@link #stop}. */
+    public void start() {
+        tracker.addObserver(observer);
+    }
+
+    public void stop() {
+        tracker.removeObserver(observer);
+    }
+
+    /** Delivers changes as they come, and any made while paused now. */
+    public void resume() {
+        resumed = true;
+        if (changedWhilePaused) {
+            changedWhilePaused = false;
+            listener.run();
+        }
+    }
+
+    public void pause() {
+        resumed = false;
+    }
+
+    private void deliver() {
+        scheduled.set(false);
+        if (resumed) {
+            listener.run();
+        } else {
+            changedWhilePaused = true;
+        }
+    }
+}
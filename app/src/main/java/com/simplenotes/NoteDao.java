@@ -5,14 +5,47 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
+import com.simplenotes.utils.RichTextUtils;
 import java.util.List;
 
 @Dao
 public interface NoteDao {
+    /** Every note matching an FTS query, with matchinfo 'pcnalx' for {@link NoteSearch#rank}. */
+    String MATCH_NOTES = "SELECT rowid AS noteId, matchinfo(notes_fts, 'pcnalx') AS matchinfo FROM notes_fts "
+            + "WHERE notes_fts MATCH :query";
+    /** The given matches as list rows, with the matched words in a snippet between {@code open} and {@code close}. */
+    String SEARCH_RESULTS = "SELECT n.id, n.title, n.timestamp, n.isPinned, n.preview, "
+            + "snippet(notes_fts, :open, :close, '\u2026', -1, 12) AS snippet "
+            + "FROM notes_fts JOIN notes n ON n.id = notes_fts.rowid "
+            + "WHERE notes_fts MATCH :query AND notes_fts.rowid IN (:ids)";
+    /**
+     * The top of the note list. The list is ordered by (isPinned, timestamp, id)
+     * descending; the (isPinned, timestamp) index holds id as the rowid, so
+     * reading in that order is an index scan.
+     */
+    String NOTE_LIST_FIRST = "SELECT id, title, timestamp, isPinned, preview FROM notes "
+            + "ORDER BY isPinned DESC, timestamp DESC, id DESC LIMIT :limit";
+    /**
+     * The notes after a row of the list with the same isPinned. Written as a
+     * range on timestamp (older SQLite has no row values) so that it seeks the
+     * index instead of skipping rows.
+     */
+    String NOTE_LIST_AFTER = "SELECT id, title, timestamp, isPinned, preview FROM notes "
+            + "WHERE isPinned = :isPinned AND timestamp <= :timestamp AND (timestamp < :timestamp OR id < :id) "
+            + "ORDER BY timestamp DESC, id DESC LIMIT :limit";
+
     @Query("SELECT * FROM notes ORDER BY isPinned DESC, timestamp DESC")
     List<Note> getAllNotes();
 
+    // The note list, without content, a page at a time (see NotePager)
+    @Query(NOTE_LIST_FIRST)
+    List<NoteSummary> getFirstNoteSummaries(int limit);
+
+    @Query(NOTE_LIST_AFTER)
+    List<NoteSummary> getNoteSummariesAfter(boolean isPinned, long timestamp, long id, int limit);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(Note note);
 
@@ -21,4 +54,53 @@ public interface NoteDao {
 
     @Delete
     void delete(Note note);
+
+    @Query("SELECT * FROM notes WHERE id = :id")
+    Note getNote(long id);
+
+    // Op log (see NoteStore)
+    @Insert
+    long insertOp(NoteOp op);
+
+    @Query("SELECT * FROM note_ops WHERE noteId = :noteId ORDER BY id")
+    List<NoteOp> getOps(long noteId);
+
+    @Query("SELECT DISTINCT noteId FROM note_ops")
+    List<Long> getNoteIdsWithOps();
+
+    @Query("DELETE FROM note_ops WHERE noteId = :noteId AND id <= :lastOpId")
+    void deleteOps(long noteId, long lastOpId);
+
+    /** Replaces the note's snapshot and drops the ops folded into it, atomically. */
+    @Transaction
+    default void writeSnapshot(Note note, long lastOpId) {
+        insert(note);
+        deleteOps(note.getId(), lastOpId);
+        index(note);
+    }
+
+    @Transaction
+    default void deleteWithOps(Note note) {
+        delete(note);
+        deleteOps(note.getId(), Long.MAX_VALUE);
+        unindex(note.getId());
+    }
+
+    // Search index (see NoteSearch), written along with each snapshot
+    @Insert
+    void insertFts(NoteFts row);
+
+    @Query("DELETE FROM notes_fts WHERE rowid = :noteId")
+    void unindex(long noteId);
+
+    default void index(Note note) {
+        unindex(note.getId());
+        insertFts(new NoteFts(note.getId(), note.getTitle(), RichTextUtils.plainTextOf(note.getContent())));
+    }
+
+    @Query(MATCH_NOTES)
+    List<NoteSearch.Match> matchNotes(String query);
+
+    @Query(SEARCH_RESULTS)
+    List<NoteSearchResult> getSearchResults(String query, List<Long> ids, String open, String close);
 }
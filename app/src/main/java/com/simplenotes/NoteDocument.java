@@ -0,0 +1,265 @@
+package com.simplenotes;
+
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
+import android.text.style.UnderlineSpan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A large note edited a window at a time.
+ *
+ * The note is split into paragraph blocks, and the editor only holds a window
+ * of consecutive blocks around what is on screen ({@link #checkOut}); the rest
+ * stays here, where it is neither laid out nor styled. Moving the window puts
+ * the edited text back ({@link #checkIn}) and takes out another run of blocks.
+ *
+ * A span that crosses a window edge is cut there, with a copy covering the
+ * part inside the window; the pieces are joined again when the window comes
+ * back, unless the edit removed or moved the inside piece.
+ */
+public class NoteDocument {
+    /** Notes at least this long open in block mode. */
+    public static final int LARGE_NOTE_CHARS = 100_000;
+    /** Longest block; a longer paragraph is cut at a space. */
+    static final int BLOCK_CHARS = 2_000;
+    /** Window size, several screens either way of the one shown. */
+    static final int WINDOW_CHARS = 24_000;
+
+    /** Pieces of one span cut at the window edges, outside pieces may be null. */
+    private static final class Seam {
+        final Object before;
+        final Object inside;
+        final Object after;
+
+        Seam(Object before, Object inside, Object after) {
+            this.before = before;
+            this.inside = inside;
+            this.after = after;
+        }
+    }
+
+    private final SpannableStringBuilder outside; // The note without the checked out window
+    private final NoteStyler styler;
+    private final List<Seam> seams = new ArrayList<>();
+    private int windowStart = 0;
+    private boolean checkedOut = false;
+
+    public NoteDocument(CharSequence content, NoteStyler styler) {
+        this.styler = styler;
+        outside = new SpannableStringBuilder(content.toString());
+        if (content instanceof Spanned) {
+            copySpans((Spanned) content, outside, 0);
+        }
+    }
+
+    public static boolean isLarge(CharSequence content) {
+        return content != null && content.length() >= LARGE_NOTE_CHARS;
+    }
+
+    /** Where the checked out window starts in the note. */
+    public int getWindowStart() {
+        return windowStart;
+    }
+
+    /** Whether the note goes on after the checked out window. */
+    public boolean hasTextAfterWindow() {
+        return windowStart < outside.length();
+    }
+
+    /** @see #checkOut(int, int, int) */
+    public Spannable checkOut(int center) {
+        return checkOut(center, center, center);
+    }
+
+    /**
+     * Takes the blocks around {@code center} out of the note, growing the window
+     * to cover {@code keepStart..keepEnd} (e.g. a selection).
+     *
+     * @return the window's text and spans, for the editor
+     */
+    public Spannable checkOut(int center, int keepStart, int keepEnd) {
+        if (checkedOut)
+            throw new IllegalStateException("Window already checked out");
+        int length = outside.length();
+        center = clamp(center, 0, length);
+        int start = blockStart(outside, Math.min(Math.max(0, center - WINDOW_CHARS / 2), clamp(keepStart, 0, length)));
+        int end = start + WINDOW_CHARS < length ? blockStart(outside, start + WINDOW_CHARS) : length;
+        end = Math.max(end, blockEnd(outside, Math.max(center, clamp(keepEnd, 0, length))));
+
+        char[] chars = new char[end - start];
+        outside.getChars(start, end, chars, 0);
+        SpannableStringBuilder window = new SpannableStringBuilder(new String(chars));
+        for (Object span : outside.getSpans(start, end, Object.class)) {
+            int spanStart = outside.getSpanStart(span);
+            int spanEnd = outside.getSpanEnd(span);
+            int flags = outside.getSpanFlags(span);
+            if (spanEnd <= start && spanStart < start || spanStart >= end && spanEnd > end)
+                continue; // Touches the window from outside
+            if (spanStart >= start && spanEnd <= end) {
+                outside.removeSpan(span);
+                window.setSpan(span, spanStart - start, spanEnd - start, flags);
+                continue;
+            }
+            Object inside = copyOf(span);
+            window.setSpan(inside, Math.max(spanStart, start) - start, Math.min(spanEnd, end) - start, flags);
+            Object before = null;
+            Object after = null;
+            if (spanEnd > end) {
+                after = spanStart < start ? copyOf(span) : span;
+                outside.setSpan(after, end, spanEnd, flags);
+            }
+            if (spanStart < start) {
+                before = span;
+                outside.setSpan(before, spanStart, start, flags);
+            }
+            seams.add(new Seam(before, inside, after));
+        }
+        outside.delete(start, end);
+        windowStart = start;
+        checkedOut = true;
+        return window;
+    }
+
+    /** Puts the edited window back into the note. */
+    public void checkIn(Spanned window) {
+        if (!checkedOut)
+            throw new IllegalStateException("No window checked out");
+        insertWindow(outside, window);
+        joinSeams(outside);
+        seams.clear();
+        checkedOut = false;
+    }
+
+    /** A copy of the whole note with {@code window} in place, e.g. to save; the note is unchanged. */
+    public SpannableStringBuilder snapshot(Spanned window) {
+        SpannableStringBuilder copy = new SpannableStringBuilder(outside.toString());
+        copySpans(outside, copy, 0);
+        if (checkedOut) {
+            insertWindow(copy, window);
+            joinSeams(copy);
+        }
+        return copy;
+    }
+
+    private void insertWindow(SpannableStringBuilder target, Spanned window) {
+        int n = window.length();
+        // Spans ending or starting at the window must not grow over it, whatever their flags
+        Object[] touching = target.getSpans(windowStart, windowStart, Object.class);
+        int[] bounds = new int[touching.length * 2];
+        for (int i = 0; i < touching.length; i++) {
+            int start = target.getSpanStart(touching[i]);
+            int end = target.getSpanEnd(touching[i]);
+            bounds[2 * i] = start >= windowStart ? start + n : start;
+            bounds[2 * i + 1] = end > windowStart || start >= windowStart ? end + n : end;
+        }
+        target.insert(windowStart, window.toString());
+        for (int i = 0; i < touching.length; i++) {
+            target.setSpan(touching[i], bounds[2 * i], bounds[2 * i + 1], target.getSpanFlags(touching[i]));
+        }
+        copySpans(window, target, windowStart);
+    }
+
+    /** Joins the pieces of each cut span that still touch in {@code target}. */
+    private void joinSeams(SpannableStringBuilder target) {
+        for (Seam seam : seams) {
+            int start = target.getSpanStart(seam.inside);
+            int end = target.getSpanEnd(seam.inside);
+            if (start < 0)
+                continue; // Removed in the window
+            int flags = target.getSpanFlags(seam.inside);
+            Object joined = seam.inside;
+            if (seam.before != null && target.getSpanEnd(seam.before) == start) {
+                start = target.getSpanStart(seam.before);
+                target.removeSpan(seam.inside);
+                joined = seam.before;
+            }
+            if (seam.after != null && target.getSpanStart(seam.after) == end) {
+                end = target.getSpanEnd(seam.after);
+                target.removeSpan(seam.after);
+            }
+            target.setSpan(joined, start, end, flags);
+        }
+    }
+
+    /** Copies the note's own spans (not e.g. the editor's selection or watchers). */
+    private static void copySpans(Spanned source, Spannable target, int offset) {
+        for (Object span : source.getSpans(0, source.length(), Object.class)) {
+            if (isContentSpan(span)) {
+                target.setSpan(span, source.getSpanStart(span) + offset, source.getSpanEnd(span) + offset,
+                        source.getSpanFlags(span));
+            }
+        }
+    }
+
+    private static boolean isContentSpan(Object span) {
+        return span instanceof StyleSpan || span instanceof UnderlineSpan || span instanceof ForegroundColorSpan
+                || span instanceof RoundedHighlighterSpan || span instanceof VerseSpan;
+    }
+
+    private Object copyOf(Object span) {
+        if (span instanceof StyleSpan)
+            return new StyleSpan(((StyleSpan) span).getStyle());
+        if (span instanceof UnderlineSpan)
+            return new UnderlineSpan();
+        if (span instanceof AutoColorSpan)
+            return new AutoColorSpan(((AutoColorSpan) span).getForegroundColor());
+        if (span instanceof ForegroundColorSpan)
+            return new ForegroundColorSpan(((ForegroundColorSpan) span).getForegroundColor());
+        if (span instanceof RoundedHighlighterSpan)
+            return styler.newHighlight(((RoundedHighlighterSpan) span).getBackgroundColor());
+        return new VerseSpan(); // The last kind isContentSpan lets through
+    }
+
+    /**
+     * The last block boundary at or before {@code offset}: the start of its
+     * paragraph, or for a paragraph longer than {@link #BLOCK_CHARS}, just after
+     * a space (or anywhere but inside a surrogate pair) at most that far back.
+     */
+    static int blockStart(CharSequence text, int offset) {
+        int limit = Math.max(0, offset - BLOCK_CHARS);
+        int space = -1;
+        for (int i = offset; i > limit; i--) {
+            char c = text.charAt(i - 1);
+            if (c == '\n')
+                return i;
+            if (space < 0 && c == ' ') {
+                space = i;
+            }
+        }
+        if (limit == 0)
+            return 0;
+        if (space >= 0)
+            return space;
+        return Character.isLowSurrogate(text.charAt(offset)) ? offset - 1 : offset;
+    }
+
+    /** The first block boundary at or after {@code offset}, the mirror of {@link #blockStart}. */
+    static int blockEnd(CharSequence text, int offset) {
+        if (offset == 0 || text.charAt(offset - 1) == '\n')
+            return offset;
+        int limit = Math.min(text.length(), offset + BLOCK_CHARS);
+        int space = -1;
+        for (int i = offset; i < limit; i++) {
+            char c = text.charAt(i);
+            if (c == '\n')
+                return i + 1;
+            if (space < 0 && c == ' ') {
+                space = i + 1;
+            }
+        }
+        if (limit == text.length())
+            return limit;
+        if (space >= 0)
+            return space;
+        return Character.isLowSurrogate(text.charAt(limit)) ? limit - 1 : limit;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,55 @@
+package com.simplenotes;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * A note in the full-text search index: its title and marker-free text, under
+ * the note's id as rowid. Content is JSON, so the index cannot be an external
+ * content table over notes; NoteDao rewrites the row with every snapshot.
+ *
+ * The 2 and 3 char prefix indexes keep search-as-you-type prefix queries from
+ * scanning the whole term list.
+ */
+@Fts4(tokenizer = FtsOptions.TOKENIZER_UNICODE61, prefix = { 2, 3 })
+@Entity(tableName = "notes_fts")
+public class NoteFts {
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long noteId;
+    private String title;
+    private String body;
+
+    public NoteFts(long noteId, String title, String body) {
+        this.noteId = noteId;
+        this.title = title;
+        this.body = body;
+    }
+
+    public long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(long noteId) {
+        this.noteId = noteId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+}
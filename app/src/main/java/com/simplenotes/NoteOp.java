@@ -0,0 +1,110 @@
+package com.simplenotes;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * One logged save of a note: the text splice since the previous save, plus the
+ * note's packed spans when they changed. Ops are replayed in id order on top of
+ * the note's snapshot until {@link NoteStore} compacts them into it.
+ */
+@Entity(tableName = "note_ops", indices = { @Index(value = { "noteId" }) })
+public class NoteOp {
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+    private long noteId;
+
+    // Replace text[start, start + removed) with inserted
+    private int start;
+    private int removed;
+    private String inserted;
+
+    private String spans; // RichTextUtils.packSpans form; null if unchanged
+    private String title;
+    private long timestamp;
+
+    public NoteOp(long noteId, int start, int removed, String inserted, String spans, String title,
+            long timestamp) {
+        this.noteId = noteId;
+        this.start = start;
+        this.removed = removed;
+        this.inserted = inserted;
+        this.spans = spans;
+        this.title = title;
+        this.timestamp = timestamp;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(long noteId) {
+        this.noteId = noteId;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    public int getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(int removed) {
+        this.removed = removed;
+    }
+
+    public String getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(String inserted) {
+        this.inserted = inserted;
+    }
+
+    public String getSpans() {
+        return spans;
+    }
+
+    public void setSpans(String spans) {
+        this.spans = spans;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /** Approximate bytes this op puts in the database. */
+    public int byteSize() {
+        return 40 + length(inserted) + length(spans) + length(title);
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+}
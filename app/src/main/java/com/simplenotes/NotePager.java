@@ -0,0 +1,131 @@
+package com.simplenotes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the note list a page at a time, so that opening the list reads one
+ * page instead of every note. Pages are read by key, after the last row
+ * loaded rather than at an offset, so a deep page costs the same as the first.
+ *
+ * Scrolling to within {@link #PREFETCH_DISTANCE} rows of the end loads the
+ * next page. A refresh reloads as many rows as are loaded, in one query, and
+ * hands over the whole list; the adapter diffs it against what it shows, so a
+ * pin or a delete only rebinds the rows it changed.
+ *
+ * Used from the main thread; queries run on the background executor, and a
+ * load overtaken by a refresh is dropped.
+ */
+public class NotePager {
+    public static final int PAGE_SIZE = 50;
+    public static final int PREFETCH_DISTANCE = 15;
+
+    /** The page queries. Implemented over {@link NoteDao}. */
+    public interface Source {
+        List<NoteSummary> first(int limit);
+
+        /** Rows after (timestamp, id) among notes with the given isPinned. */
+        List<NoteSummary> after(boolean isPinned, long timestamp, long id, int limit);
+    }
+
+    public interface Callback {
+        void onNotes(List<NoteSummary> notes);
+    }
+
+    private final Source source;
+    private final Executor background;
+    private final Executor main;
+    private final Callback callback;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private List<NoteSummary> loaded = Collections.emptyList();
+    private boolean loading;
+    private boolean endReached;
+
+    public NotePager(NoteDao dao, Executor background, Executor main, Callback callback) {
+        this(new DaoSource(dao), background, main, callback);
+    }
+
+    public NotePager(Source source, Executor background, Executor main, Callback callback) {
+        this.source = source;
+        this.background = background;
+        this.main = main;
+        this.callback = callback;
+    }
+
+    /** Reloads the rows loaded so far (at least a page), dropping any load still running. */
+    public void refresh() {
+        int limit = Math.max(PAGE_SIZE, loaded.size());
+        int mine = generation.incrementAndGet();
+        loading = true;
+        background.execute(() -> {
+            List<NoteSummary> rows = source.first(limit);
+            main.execute(() -> {
+                if (generation.get() != mine)
+                    return;
+                loaded = Collections.unmodifiableList(rows);
+                endReached = rows.size() < limit;
+                loading = false;
+                callback.onNotes(loaded);
+            });
+        });
+    }
+
+    /** Loads the next page if {@code lastVisible} (an adapter position) is near the end of the loaded rows. */
+    public void onScrolled(int lastVisible) {
+        if (loading || endReached || loaded.isEmpty() || lastVisible < loaded.size() - PREFETCH_DISTANCE)
+            return;
+        NoteSummary after = loaded.get(loaded.size() - 1);
+        int mine = generation.get();
+        loading = true;
+        background.execute(() -> {
+            List<NoteSummary> rows = page(source, after, PAGE_SIZE);
+            main.execute(() -> {
+                if (generation.get() != mine)
+                    return;
+                List<NoteSummary> all = new ArrayList<>(loaded.size() + rows.size());
+                all.addAll(loaded);
+                all.addAll(rows);
+                loaded = Collections.unmodifiableList(all);
+                endReached = rows.size() < PAGE_SIZE;
+                loading = false;
+                callback.onNotes(loaded);
+            });
+        });
+    }
+
+    public List<NoteSummary> getLoaded() {
+        return loaded;
+    }
+
+    /** Up to {@code limit} rows of the list after {@code after}. */
+    static List<NoteSummary> page(Source source, NoteSummary after, int limit) {
+        List<NoteSummary> page = source.after(after.isPinned(), after.getTimestamp(), after.getId(), limit);
+        if (after.isPinned() && page.size() < limit) {
+            page = new ArrayList<>(page); // Pinned notes ran out, so go on with the others
+            page.addAll(source.after(false, Long.MAX_VALUE, Long.MAX_VALUE, limit - page.size()));
+        }
+        return page;
+    }
+
+    private static final class DaoSource implements Source {
+        private final NoteDao dao;
+
+        DaoSource(NoteDao dao) {
+            this.dao = dao;
+        }
+
+        @Override
+        public List<NoteSummary> first(int limit) {
+            return dao.getFirstNoteSummaries(limit);
+        }
+
+        @Override
+        public List<NoteSummary> after(boolean isPinned, long timestamp, long id, int limit) {
+            return dao.getNoteSummariesAfter(isPinned, timestamp, id, limit);
+        }
+    }
+}
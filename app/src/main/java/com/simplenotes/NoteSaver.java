@@ -0,0 +1,158 @@
+package com.simplenotes;
+
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+
+import com.simplenotes.utils.RichTextUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Saves notes without serializing them on the UI thread.
+ *
+ * {@link #save} only copies the editor text (a span-preserving snapshot) and
+ * queues it; the spans are packed and written on the worker. Saves of the same
+ * note that arrive before the worker gets to them replace each other, so a
+ * burst of saves writes only the last one.
+ */
+public class NoteSaver {
+
+    /** Persists a save. Runs on the worker. */
+    public interface Store {
+        /**
+         * @param note  the note's id, title, timestamp and pin state; its content is not set
+         * @param text  the content's text
+         * @param spans the content's spans, as {@link RichTextUtils#packSpans}
+         */
+        void write(Note note, String text, String spans);
+    }
+
+    /** Makes a private copy of the content to save. Runs on the calling thread. */
+    public interface Copier {
+        Spanned copy();
+    }
+
+    private static final class Snapshot {
+        final long id;
+        final String title;
+        final Spanned content;
+        final long timestamp;
+        final boolean pinned;
+
+        Snapshot(Note note, String title, Spanned content, long timestamp) {
+            this.id = note.getId();
+            this.title = title;
+            this.content = content;
+            this.timestamp = timestamp;
+            this.pinned = note.isPinned();
+        }
+    }
+
+    private final Executor worker;
+    private final Store store;
+
+    // Latest unwritten snapshot per note id, in arrival order
+    private final Map<Long, Snapshot> pending = new LinkedHashMap<>();
+    private boolean drainQueued = false;
+
+    // Stats (UI-thread cost is measured on the calling thread)
+    private int requestedCount = 0;
+    private int writtenCount = 0;
+    private long lastUiNanos = 0;
+    private long maxUiNanos = 0;
+
+    public NoteSaver(Executor worker, Store store) {
+        this.worker = worker;
+        this.store = store;
+    }
+
+    /**
+     * Snapshots {@code content} and queues it to be saved as {@code note}'s
+     * content. Call on the thread that owns the text.
+     */
+    public void save(Note note, String title, CharSequence content) {
+        long start = System.nanoTime();
+        queue(new Snapshot(note, title, new SpannableStringBuilder(content), System.currentTimeMillis()), start);
+    }
+
+    /**
+     * Like {@link #save}, for content that {@code copier} copies itself (e.g.
+     * {@link NoteDocument#snapshot}); the copy counts towards the UI-thread time.
+     */
+    public void saveCopy(Note note, String title, Copier copier) {
+        long start = System.nanoTime();
+        queue(new Snapshot(note, title, copier.copy(), System.currentTimeMillis()), start);
+    }
+
+    private void queue(Snapshot snapshot, long start) {
+        boolean schedule;
+        synchronized (pending) {
+            pending.remove(snapshot.id); // Keep arrival order for the newest one
+            pending.put(snapshot.id, snapshot);
+            requestedCount++;
+            schedule = !drainQueued;
+            drainQueued = true;
+        }
+        if (schedule) {
+            worker.execute(this::drain);
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (pending) {
+            lastUiNanos = elapsed;
+            maxUiNanos = Math.max(maxUiNanos, elapsed);
+        }
+    }
+
+    private void drain() {
+        List<Snapshot> batch;
+        synchronized (pending) {
+            batch = new ArrayList<>(pending.values());
+            pending.clear();
+            drainQueued = false;
+        }
+        for (Snapshot snapshot : batch) {
+            try {
+                Note note = new Note(snapshot.id, snapshot.title, null, snapshot.timestamp);
+                note.setPinned(snapshot.pinned);
+                store.write(note, snapshot.content.toString(), RichTextUtils.packSpans(snapshot.content));
+                synchronized (pending) {
+                    writtenCount++;
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** Saves requested so far. */
+    public int getRequestedCount() {
+        synchronized (pending) {
+            return requestedCount;
+        }
+    }
+
+    /** Saves actually written; the rest were replaced by a newer save of the same note. */
+    public int getWrittenCount() {
+        synchronized (pending) {
+            return writtenCount;
+        }
+    }
+
+    /** UI-thread time the last {@link #save} took, in nanoseconds. */
+    public long getLastUiNanos() {
+        synchronized (pending) {
+            return lastUiNanos;
+        }
+    }
+
+    /** Longest UI-thread time of any {@link #save}, in nanoseconds. */
+    public long getMaxUiNanos() {
+        synchronized (pending) {
+            return maxUiNanos;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.simplenotes;
+
+import com.simplenotes.utils.FtsRank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Full-text search over notes, backed by the notes_fts table ({@link NoteFts}).
+ *
+ * Every typed word matches as a prefix. Matches are ranked with BM25 over the
+ * FTS matchinfo, title hits counting double, and only the best
+ * {@link #MAX_RESULTS} get a snippet, since snippets cost far more than
+ * ranking.
+ *
+ * The index holds snapshots, so edits still in the op log are found once
+ * NoteStore compacts them (the list compacts before loading).
+ */
+public class NoteSearch {
+    public static final int MAX_RESULTS = 50;
+    /** Marks where a matched word starts and ends in a snippet. */
+    public static final String MATCH_START = "\u0002";
+    public static final String MATCH_END = "\u0003";
+
+    private static final double[] COLUMN_WEIGHTS = { 2.0, 1.0 }; // title, body
+
+    /** A note matching the query, as read by {@link NoteDao#matchNotes}. */
+    public static class Match {
+        public long noteId;
+        public byte[] matchinfo;
+    }
+
+    /** The index queries. Implemented over {@link NoteDao}. */
+    public interface Index {
+        List<Match> match(String query);
+
+        List<NoteSearchResult> results(String query, List<Long> ids);
+    }
+
+    public interface Callback {
+        void onResults(String input, List<NoteSearchResult> results);
+    }
+
+    private final Index index;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    public NoteSearch(NoteDao dao) {
+        this(new DaoIndex(dao));
+    }
+
+    public NoteSearch(Index index) {
+        this.index = index;
+    }
+
+    /** The best matches for what the user typed, best first; empty if it has no words. */
+    public List<NoteSearchResult> search(String input) {
+        String query = matchQuery(input);
+        if (query == null)
+            return Collections.emptyList();
+
+        List<Match> matches = index.match(query);
+        double[] scores = new double[matches.size()];
+        Integer[] order = new Integer[matches.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = rank(matches.get(i).matchinfo);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        int count = Math.min(MAX_RESULTS, order.length);
+        List<Long> ids = new ArrayList<>(count);
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            long id = matches.get(order[i]).noteId;
+            ids.add(id);
+            positions.put(id, i);
+        }
+        List<NoteSearchResult> results = new ArrayList<>(index.results(query, ids));
+        Collections.sort(results, (a, b) -> Integer.compare(positions.get(a.getId()), positions.get(b.getId())));
+        return results;
+    }
+
+    /**
+     * Runs {@link #search} on {@code background} and hands the results to
+     * {@code callback} on {@code main}, unless another search was started (or
+     * {@link #cancel} called) in the meantime. A search superseded before it
+     * starts is skipped.
+     */
+    public void searchLatest(String input, Executor background, Executor main, Callback callback) {
+        int mine = generation.incrementAndGet();
+        background.execute(() -> {
+            if (generation.get() != mine)
+                return;
+            List<NoteSearchResult> results = search(input);
+            main.execute(() -> {
+                if (generation.get() == mine) {
+                    callback.onResults(input, results);
+                }
+            });
+        });
+    }
+
+    /** Drops the results of any search still running. */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * The FTS MATCH expression for typed input: each run of letters and digits
+     * as a prefix term, all of them required; null if there are none. Operators
+     * and quotes the user typed are dropped, so any input is a valid query.
+     */
+    static String matchQuery(String input) {
+        if (input == null)
+            return null;
+        StringBuilder query = new StringBuilder();
+        int termStart = -1;
+        for (int i = 0; i <= input.length();) {
+            int c = i < input.length() ? input.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (termStart < 0) {
+                    termStart = i;
+                }
+            } else if (termStart >= 0) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                // Lower case, so that e.g. "or" is never read as an operator
+                query.append(input.substring(termStart, i).toLowerCase(Locale.ROOT)).append('*');
+                termStart = -1;
+            }
+            i += Character.charCount(c);
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    /** BM25 score of one match from its matchinfo('pcnalx'); higher is better. */
+    static double rank(byte[] matchinfo) {
+        return FtsRank.bm25(matchinfo, true, COLUMN_WEIGHTS);
+    }
+
+    private static final class DaoIndex implements Index {
+        private final NoteDao dao;
+
+        DaoIndex(NoteDao dao) {
+            this.dao = dao;
+        }
+
+        @Override
+        public List<Match> match(String query) {
+            return dao.matchNotes(query);
+        }
+
+        @Override
+        public List<NoteSearchResult> results(String query, List<Long> ids) {
+            return dao.getSearchResults(query, ids, MATCH_START, MATCH_END);
+        }
+    }
+}
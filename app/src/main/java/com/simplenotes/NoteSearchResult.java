@@ -0,0 +1,18 @@
+package com.simplenotes;
+
+/**
+ * A note list row for a search hit: the note's summary plus a snippet of the
+ * matching text, with each matched word between {@link NoteSearch#MATCH_START}
+ * and {@link NoteSearch#MATCH_END}.
+ */
+public class NoteSearchResult extends NoteSummary {
+    private String snippet;
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+}
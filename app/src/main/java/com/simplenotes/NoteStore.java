@@ -0,0 +1,315 @@
+package com.simplenotes;
+
+import android.content.Context;
+
+import com.simplenotes.utils.RichTextUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Note persistence as a snapshot plus an append-only op log.
+ *
+ * A save appends a {@link NoteOp} holding only the text splice since the
+ * previous save (and the spans when they changed) instead of rewriting the
+ * whole content. Once the log outgrows the snapshot, or on {@link #compactAll},
+ * the ops are folded back into the snapshot; that write and the deletion of
+ * the folded ops happen in one transaction, so a crash at any point leaves
+ * either the old snapshot plus its ops or the new snapshot.
+ *
+ * Notes whose snapshot is not in the v2 content format (older notes) get one
+ * full rewrite on their first save.
+ *
+ * Every snapshot write also refreshes the note's list preview, so the preview
+ * (like the title and timestamp) is current once the log is compacted.
+ *
+ * Thread-safe; all calls touch storage and must stay off the main thread.
+ */
+public class NoteStore implements NoteSaver.Store {
+    public static final int MAX_OPS = 100;
+
+    /** Storage for snapshots and ops. Implemented over {@link NoteDao}. */
+    public interface Storage {
+        Note getNote(long id);
+
+        List<NoteOp> getOps(long noteId);
+
+        List<Long> getNoteIdsWithOps();
+
+        /** @return the new op's id */
+        long appendOp(NoteOp op);
+
+        /** Atomically replaces the snapshot and deletes the note's ops up to {@code lastOpId}. */
+        void writeSnapshot(Note note, long lastOpId);
+
+        void delete(Note note);
+    }
+
+    /** A note as snapshot plus replayed ops. */
+    private static final class State {
+        String text;
+        String spans;
+        String title;
+        long timestamp;
+        boolean pinned;
+        long lastOpId = 0; // Last op read, valid or not
+        int opCount = 0;
+        long opBytes = 0;
+        long snapshotBytes;
+    }
+
+    private static NoteStore INSTANCE;
+
+    private final Storage storage;
+    private final Map<Long, State> states = new HashMap<>();
+
+    // Write amplification stats
+    private long bytesWritten = 0;
+    private long fullRewriteBytes = 0; // What rewriting the content on every save would have cost
+    private int opsWritten = 0;
+    private int compactionCount = 0;
+
+    public NoteStore(Storage storage) {
+        this.storage = storage;
+    }
+
+    public static NoteStore getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (NoteStore.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new NoteStore(new DaoStorage(AppDatabase.getDatabase(context).noteDao()));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    @Override
+    public synchronized void write(Note note, String text, String spans) {
+        fullRewriteBytes += text.length() + spans.length();
+        State state = state(note.getId());
+        if (state == null) {
+            writeFull(note, text, spans);
+            return;
+        }
+
+        if (text.equals(state.text) && spans.equals(state.spans) && Objects.equals(note.getTitle(), state.title))
+            return; // Nothing changed; keeping the timestamp keeps the note's place in the list
+
+        // The splice is what differs between the common prefix and suffix
+        String before = state.text;
+        int prefix = 0;
+        int max = Math.min(before.length(), text.length());
+        while (prefix < max && before.charAt(prefix) == text.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+                && before.charAt(before.length() - 1 - suffix) == text.charAt(text.length() - 1 - suffix)) {
+            suffix++;
+        }
+        NoteOp op = new NoteOp(note.getId(), prefix, before.length() - suffix - prefix,
+                text.substring(prefix, text.length() - suffix), spans.equals(state.spans) ? null : spans,
+                note.getTitle(), note.getTimestamp());
+
+        op.setId(storage.appendOp(op));
+        opsWritten++;
+        bytesWritten += op.byteSize();
+        apply(state, op);
+        state.lastOpId = op.getId();
+        state.opCount++;
+        state.opBytes += op.byteSize();
+
+        if (state.opCount >= MAX_OPS || state.opBytes > state.snapshotBytes) {
+            compact(note.getId(), state);
+        }
+    }
+
+    /** The note with its ops applied, or null if it does not exist. */
+    public synchronized Note load(long id) {
+        State state = state(id);
+        if (state == null)
+            return storage.getNote(id); // Not v2, so it has no ops
+        return toNote(id, state);
+    }
+
+    /** Folds the note's logged ops into its snapshot, e.g. when its editor closes. */
+    public synchronized void compact(long id) {
+        State state = state(id);
+        if (state != null) {
+            compact(id, state);
+        }
+    }
+
+    /** Folds every logged op into its note's snapshot. */
+    public synchronized void compactAll() {
+        for (Long id : storage.getNoteIdsWithOps()) {
+            State state = state(id);
+            if (state != null) {
+                compact(id, state);
+            }
+        }
+        states.clear(); // Reloaded on the next save, picking up e.g. pin changes
+    }
+
+    /** Writes {@code note} as its snapshot, dropping any logged ops (e.g. a new or restored note). */
+    public synchronized void replace(Note note) {
+        states.remove(note.getId());
+        note.setPreview(RichTextUtils.previewOf(note.getContent()));
+        storage.writeSnapshot(note, Long.MAX_VALUE);
+        bytesWritten += length(note.getContent());
+    }
+
+    public synchronized void delete(Note note) {
+        states.remove(note.getId());
+        storage.delete(note);
+    }
+
+    private void writeFull(Note note, String text, String spans) {
+        Note full = new Note(note.getId(), note.getTitle(), RichTextUtils.toJson(text, spans), note.getTimestamp());
+        Note stored = storage.getNote(note.getId());
+        full.setPinned(stored != null ? stored.isPinned() : note.isPinned());
+        replace(full);
+    }
+
+    private void compact(long id, State state) {
+        if (state.lastOpId == 0)
+            return; // No ops since the snapshot
+        Note note = toNote(id, state);
+        storage.writeSnapshot(note, state.lastOpId);
+        // Only once committed
+        bytesWritten += length(note.getContent());
+        compactionCount++;
+        state.opCount = 0;
+        state.opBytes = 0;
+        state.lastOpId = 0;
+        state.snapshotBytes = length(note.getContent());
+    }
+
+    private static Note toNote(long id, State state) {
+        Note note = new Note(id, state.title, RichTextUtils.toJson(state.text, state.spans), state.timestamp);
+        note.setPinned(state.pinned);
+        note.setPreview(RichTextUtils.previewOfText(state.text));
+        return note;
+    }
+
+    /** Loads (and caches) the note's current state; null if it is missing or not v2. */
+    private State state(long id) {
+        State state = states.get(id);
+        if (state != null)
+            return state;
+
+        Note note = storage.getNote(id);
+        if (note == null)
+            return null;
+        String spans = RichTextUtils.packedSpansOf(note.getContent());
+        if (spans == null)
+            return null;
+
+        state = new State();
+        state.text = RichTextUtils.textOf(note.getContent());
+        state.spans = spans;
+        state.title = note.getTitle();
+        state.timestamp = note.getTimestamp();
+        state.pinned = note.isPinned();
+        state.snapshotBytes = length(note.getContent());
+
+        boolean valid = true;
+        for (NoteOp op : storage.getOps(id)) {
+            // An op that does not fit (e.g. its predecessor was lost) ends the replay,
+            // and compaction drops it and everything after it
+            valid = valid && fits(state.text, op);
+            if (valid) {
+                apply(state, op);
+                state.opBytes += op.byteSize();
+            }
+            state.lastOpId = op.getId();
+            state.opCount++;
+        }
+        states.put(id, state);
+        if (!valid) {
+            compact(id, state); // New ops must not land behind the broken one
+        }
+        return state;
+    }
+
+    private static boolean fits(String text, NoteOp op) {
+        return op.getStart() >= 0 && op.getRemoved() >= 0 && op.getStart() <= text.length()
+                && op.getRemoved() <= text.length() - op.getStart();
+    }
+
+    private static void apply(State state, NoteOp op) {
+        String inserted = op.getInserted() != null ? op.getInserted() : "";
+        if (op.getRemoved() > 0 || !inserted.isEmpty()) {
+            state.text = state.text.substring(0, op.getStart()) + inserted
+                    + state.text.substring(op.getStart() + op.getRemoved());
+        }
+        if (op.getSpans() != null) {
+            state.spans = op.getSpans();
+        }
+        state.title = op.getTitle();
+        state.timestamp = op.getTimestamp();
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    /** Approximate bytes written to storage (snapshots and ops). */
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /** Bytes the same saves would have written as full content rewrites. */
+    public synchronized long getFullRewriteBytes() {
+        return fullRewriteBytes;
+    }
+
+    public synchronized int getOpsWritten() {
+        return opsWritten;
+    }
+
+    public synchronized int getCompactionCount() {
+        return compactionCount;
+    }
+
+    static final class DaoStorage implements Storage {
+        private final NoteDao dao;
+
+        DaoStorage(NoteDao dao) {
+            this.dao = dao;
+        }
+
+        @Override
+        public Note getNote(long id) {
+            return dao.getNote(id);
+        }
+
+        @Override
+        public List<NoteOp> getOps(long noteId) {
+            return dao.getOps(noteId);
+        }
+
+        @Override
+        public List<Long> getNoteIdsWithOps() {
+            return dao.getNoteIdsWithOps();
+        }
+
+        @Override
+        public long appendOp(NoteOp op) {
+            return dao.insertOp(op);
+        }
+
+        @Override
+        public void writeSnapshot(Note note, long lastOpId) {
+            dao.writeSnapshot(note, lastOpId);
+        }
+
+        @Override
+        public void delete(Note note) {
+            dao.deleteWithOps(note);
+        }
+    }
+}
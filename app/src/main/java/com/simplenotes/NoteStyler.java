@@ -0,0 +1,271 @@
+package com.simplenotes;
+
+import android.text.Editable;
+import android.text.NoCopySpan;
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.TextWatcher;
+import android.text.style.ForegroundColorSpan;
+
+import com.simplenotes.utils.MarkerTokenizer;
+
+/**
+ * Turns the marker text notes used to be saved with into the editor's spans,
+ * and keeps the colors and highlight layout those spans derive up to date.
+ *
+ * The editor holds no markers: {@link #toSpans} converts marker text (older
+ * notes, pasted text) into {@link RoundedHighlighterSpan}s and
+ * {@link VerseSpan}s once, on load or paste, and {@link #styleSpans} refreshes
+ * the verse color and highlight layout after settings change. Attached as a
+ * {@link TextWatcher}, it only drops the highlight layout on every edit and
+ * notes whether the edit inserted marker characters, so that the editor can
+ * convert them ({@link #takeInsertedMarkers}).
+ *
+ * Not thread-safe; use from the main thread only.
+ */
+public class NoteStyler implements TextWatcher {
+    private static final char VERSE_MARKER = '\u200B';
+    private static final char OPENER = '\u200C';
+    private static final char CLOSER = '\u200D';
+
+    // A bare {n} still opens a highlight so that it is never shown if its \u200C gets lost
+    private static final int OPENERS = MarkerTokenizer.OPEN | MarkerTokenizer.TAG;
+    private static final float CORNER_RADIUS = 12f;
+
+    private final MarkerTokenizer tokenizer = new MarkerTokenizer();
+    // Shared by the highlights this styler creates; reset whenever the text or its spans change
+    private final HighlightLayoutCache layoutCache = new HighlightLayoutCache();
+
+    private int[] highlightColors = new int[0];
+    private int verseColor;
+
+    private boolean insertedMarkers = false;
+
+    public void setHighlightColors(int[] highlightColors) {
+        this.highlightColors = highlightColors;
+    }
+
+    public void setVerseColor(int verseColor) {
+        this.verseColor = verseColor;
+    }
+
+    /** True if the text still uses a bare \u200C as the highlight closer. */
+    public static boolean hasLegacyClosers(CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (isLegacyCloser(text, i))
+                return true;
+        }
+        return false;
+    }
+
+    /** A highlight drawn through this styler's layout cache. */
+    public RoundedHighlighterSpan newHighlight(int color) {
+        return new RoundedHighlighterSpan(color, CORNER_RADIUS, layoutCache);
+    }
+
+    /** Call after adding or removing highlight spans without editing the text. */
+    public void invalidateLayout() {
+        layoutCache.invalidate();
+    }
+
+    /** True (once) if text inserted since the last call contained marker characters. */
+    public boolean takeInsertedMarkers() {
+        boolean result = insertedMarkers;
+        insertedMarkers = false;
+        return result;
+    }
+
+    /**
+     * Returns a marker-free copy of {@code text}. Paired highlight markers become
+     * {@link RoundedHighlighterSpan}s and verse pairs become {@link VerseSpan}s;
+     * every marker character is dropped. Spans already on the text keep their
+     * place in it, highlights (e.g. from saved JSON) are rebound to this
+     * styler's layout cache, and verses get their color.
+     */
+    public SpannableStringBuilder toSpans(CharSequence text) {
+        CharSequence source = text;
+        if (hasLegacyClosers(source)) {
+            SpannableStringBuilder migrated = new SpannableStringBuilder(source);
+            for (int i = 0; i < migrated.length(); i++) {
+                if (isLegacyCloser(migrated, i)) {
+                    migrated.replace(i, i + 1, String.valueOf(CLOSER));
+                }
+            }
+            source = migrated;
+        }
+
+        int count = tokenizer.tokenize(source);
+        boolean[] removed = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            removed[i] = (tokenizer.type(i) & (MarkerTokenizer.HIGHLIGHT_MARKERS | MarkerTokenizer.VERSE)) != 0;
+        }
+        // A bare {n} is only a marker if it pairs with a closer
+        int open = tokenizer.next(0, OPENERS);
+        while (open >= 0) {
+            int close = tokenizer.next(open + 1, MarkerTokenizer.CLOSE);
+            if (close < 0)
+                break;
+            removed[open] = true;
+            open = tokenizer.next(close + 1, OPENERS);
+        }
+
+        // removedBefore[k]: marker chars dropped before the k-th cut
+        int dropped = 0;
+        for (int i = 0; i < count; i++) {
+            if (removed[i]) {
+                dropped++;
+            }
+        }
+        int[] cutStarts = new int[dropped];
+        int[] cutEnds = new int[dropped];
+        int[] removedBefore = new int[dropped + 1];
+        StringBuilder visible = new StringBuilder(source.length());
+        int copied = 0;
+        int k = 0;
+        for (int i = 0; i < count; i++) {
+            if (!removed[i])
+                continue;
+            cutStarts[k] = tokenizer.start(i);
+            cutEnds[k] = tokenizer.end(i);
+            removedBefore[k + 1] = removedBefore[k] + cutEnds[k] - cutStarts[k];
+            visible.append(source, copied, cutStarts[k]);
+            copied = cutEnds[k];
+            k++;
+        }
+        visible.append(source, copied, source.length());
+
+        SpannableStringBuilder out = new SpannableStringBuilder(visible);
+        if (source instanceof Spanned) {
+            Spanned spanned = (Spanned) source;
+            for (Object span : spanned.getSpans(0, source.length(), Object.class)) {
+                if (span instanceof AutoColorSpan || span instanceof NoCopySpan
+                        || span instanceof TextWatcher)
+                    continue;
+                int spanStart = spanned.getSpanStart(span);
+                int spanEnd = spanned.getSpanEnd(span);
+                int start = map(spanStart, cutStarts, cutEnds, removedBefore);
+                int end = map(spanEnd, cutStarts, cutEnds, removedBefore);
+                if (start == end && spanStart != spanEnd)
+                    continue; // Covered only markers
+                Object copy = span instanceof RoundedHighlighterSpan
+                        ? newHighlight(((RoundedHighlighterSpan) span).getBackgroundColor())
+                        : span;
+                out.setSpan(copy, start, end, spanned.getSpanFlags(span));
+            }
+        }
+
+        open = tokenizer.next(0, OPENERS);
+        while (open >= 0) {
+            int close = tokenizer.next(open + 1, MarkerTokenizer.CLOSE);
+            if (close < 0)
+                break;
+            int colorIndex = tokenizer.value(open);
+            int start = map(tokenizer.end(open), cutStarts, cutEnds, removedBefore);
+            int end = map(tokenizer.start(close), cutStarts, cutEnds, removedBefore);
+            if (colorIndex >= 0 && colorIndex < highlightColors.length && start < end) {
+                out.setSpan(newHighlight(highlightColors[colorIndex]), start, end,
+                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+            open = tokenizer.next(close + 1, OPENERS);
+        }
+
+        open = tokenizer.next(0, MarkerTokenizer.VERSE);
+        while (open >= 0) {
+            int close = tokenizer.next(open + 1, MarkerTokenizer.VERSE);
+            if (close < 0)
+                break;
+            int start = map(tokenizer.end(open), cutStarts, cutEnds, removedBefore);
+            int end = map(tokenizer.start(close), cutStarts, cutEnds, removedBefore);
+            if (start < end) {
+                out.setSpan(new VerseSpan(), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+            open = tokenizer.next(close + 1, MarkerTokenizer.VERSE);
+        }
+
+        colorVerses(out);
+        return out;
+    }
+
+    /**
+     * Refreshes what marker-free text derives from its spans: the verse color
+     * (e.g. after it changed in settings) and the highlight layout.
+     */
+    public void styleSpans(Spannable text) {
+        for (AutoColorSpan span : text.getSpans(0, text.length(), AutoColorSpan.class)) {
+            text.removeSpan(span);
+        }
+        colorVerses(text);
+        layoutCache.invalidate();
+    }
+
+    /** Colors every verse the user has not colored themselves. */
+    private void colorVerses(Spannable text) {
+        for (VerseSpan verse : text.getSpans(0, text.length(), VerseSpan.class)) {
+            int start = text.getSpanStart(verse);
+            int end = text.getSpanEnd(verse);
+            boolean hasUserColor = false;
+            for (ForegroundColorSpan span : text.getSpans(start, end, ForegroundColorSpan.class)) {
+                if (!(span instanceof AutoColorSpan)) {
+                    hasUserColor = true;
+                    break;
+                }
+            }
+            if (!hasUserColor) {
+                text.setSpan(new AutoColorSpan(verseColor), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+    }
+
+    /** Where {@code position} lands once the cut ranges are removed. */
+    private static int map(int position, int[] cutStarts, int[] cutEnds, int[] removedBefore) {
+        // Last cut starting before position
+        int lo = 0;
+        int hi = cutStarts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cutStarts[mid] < position) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int cut = lo - 1;
+        if (cut < 0)
+            return position;
+        if (position <= cutEnds[cut])
+            return cutStarts[cut] - removedBefore[cut]; // Inside a cut: snap to where it was
+        return position - removedBefore[cut + 1];
+    }
+
+    // TextWatcher
+
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+    }
+
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {
+        insertedMarkers |= hasMarkers(s, start, start + count);
+        layoutCache.invalidate();
+    }
+
+    @Override
+    public void afterTextChanged(Editable s) {
+    }
+
+    private static boolean hasMarkers(CharSequence s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == VERSE_MARKER || c == OPENER || c == CLOSER)
+                return true;
+        }
+        return false;
+    }
+
+    // A \u200C not followed by '{', as the old "\u200C(?![{])" pattern matched
+    private static boolean isLegacyCloser(CharSequence text, int i) {
+        return text.charAt(i) == OPENER && (i + 1 == text.length() || text.charAt(i + 1) != '{');
+    }
+}
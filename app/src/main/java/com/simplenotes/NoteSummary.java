@@ -0,0 +1,54 @@
+package com.simplenotes;
+
+/**
+ * A row of the note list: a note without its content, read a page at a
+ * time by {@link NotePager}. Open or change the note through
+ * {@link NoteStore#load}.
+ */
+public class NoteSummary {
+    private long id;
+    private String title;
+    private long timestamp;
+    private boolean isPinned;
+    private String preview;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public boolean isPinned() {
+        return isPinned;
+    }
+
+    public void setPinned(boolean pinned) {
+        isPinned = pinned;
+    }
+
+    public String getPreview() {
+        return preview;
+    }
+
+    public void setPreview(String preview) {
+        this.preview = preview;
+    }
+}
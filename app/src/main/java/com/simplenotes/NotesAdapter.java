@@ -1,28 +1,56 @@
 package com.simplenotes;
 
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * The note list. New lists are diffed against the shown one on a background
+ * thread, so only rows that were added, removed, moved or changed rebind.
+ */
+public class NotesAdapter extends ListAdapter<NoteSummary, NotesAdapter.NoteViewHolder> {
+    /** Rows are the same note if their ids match, and look the same if everything bound matches. */
+    static final DiffUtil.ItemCallback<NoteSummary> DIFF = new DiffUtil.ItemCallback<NoteSummary>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull NoteSummary oldNote, @NonNull NoteSummary newNote) {
+            return oldNote.getId() == newNote.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull NoteSummary oldNote, @NonNull NoteSummary newNote) {
+            return oldNote.getTimestamp() == newNote.getTimestamp() && oldNote.isPinned() == newNote.isPinned()
+                    && Objects.equals(oldNote.getTitle(), newNote.getTitle())
+                    && Objects.equals(oldNote.getPreview(), newNote.getPreview())
+                    && Objects.equals(snippetOf(oldNote), snippetOf(newNote));
+        }
+    };
 
-public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHolder> {
-    private List<Note> notes;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
     private OnNoteClickListener onNoteClickListener;
     private OnNoteActionListener onNoteActionListener;
 
     public interface OnNoteClickListener {
-        void onNoteClick(Note note);
+        void onNoteClick(NoteSummary note);
     }
 
     public interface OnNoteActionListener {
-        void onAction(Note note, Action action);
+        void onAction(NoteSummary note, Action action);
     }
 
     public enum Action {
@@ -32,8 +60,8 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
         SHARE
     }
 
-    public NotesAdapter(List<Note> notes) {
-        this.notes = notes != null ? notes : new ArrayList<>();
+    public NotesAdapter() {
+        super(DIFF);
     }
 
     public void setOnNoteClickListener(OnNoteClickListener listener) {
@@ -44,12 +72,9 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
         this.onNoteActionListener = listener;
     }
 
-    public void updateNotes(List<Note> newNotes) {
-        this.notes.clear();
-        if (newNotes != null) {
-            this.notes.addAll(newNotes);
-        }
-        notifyDataSetChanged();
+    /** Shows {@code newNotes} once diffed; the list must not be changed afterwards. */
+    public void updateNotes(List<? extends NoteSummary> newNotes) {
+        submitList(newNotes != null ? new ArrayList<>(newNotes) : null);
     }
 
     @NonNull
@@ -61,13 +86,40 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
 
     @Override
     public void onBindViewHolder(@NonNull NoteViewHolder holder, int position) {
-        Note note = notes.get(position);
-        holder.bind(note);
+        holder.bind(getItem(position));
     }
 
-    @Override
-    public int getItemCount() {
-        return notes.size();
+    private static String snippetOf(NoteSummary note) {
+        return note instanceof NoteSearchResult ? ((NoteSearchResult) note).getSnippet() : null;
+    }
+
+    /** A search snippet with its matched words in bold gold instead of between match marks. */
+    private static CharSequence highlightMatches(String snippet) {
+        SpannableStringBuilder sb = new SpannableStringBuilder();
+        int from = 0;
+        while (from < snippet.length()) {
+            int start = snippet.indexOf(NoteSearch.MATCH_START, from);
+            int end = start < 0 ? -1 : snippet.indexOf(NoteSearch.MATCH_END, start);
+            if (end < 0) {
+                sb.append(snippet, from, snippet.length());
+                break;
+            }
+            sb.append(snippet, from, start);
+            int matchStart = sb.length();
+            sb.append(snippet, start + NoteSearch.MATCH_START.length(), end);
+            sb.setSpan(new StyleSpan(Typeface.BOLD), matchStart, sb.length(),
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            sb.setSpan(new ForegroundColorSpan(0xFFD4AF37), matchStart, sb.length(),
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE); // bible_gold
+            from = end + NoteSearch.MATCH_END.length();
+        }
+        // The list shows a few lines; paragraph breaks would waste them
+        for (int i = 0; i < sb.length(); i++) {
+            if (sb.charAt(i) == '\n') {
+                sb.replace(i, i + 1, " ");
+            }
+        }
+        return sb;
     }
 
     class NoteViewHolder extends RecyclerView.ViewHolder {
@@ -87,19 +139,19 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
 
             itemView.setOnClickListener(v -> {
                 if (onNoteClickListener != null && getAdapterPosition() != RecyclerView.NO_POSITION) {
-                    onNoteClickListener.onNoteClick(notes.get(getAdapterPosition()));
+                    onNoteClickListener.onNoteClick(getItem(getAdapterPosition()));
                 }
             });
 
             buttonMore.setOnClickListener(v -> {
                 int pos = getAdapterPosition();
-                if (pos != RecyclerView.NO_POSITION && pos < notes.size()) {
-                    showPopupMenu(v, notes.get(pos));
+                if (pos != RecyclerView.NO_POSITION && pos < getItemCount()) {
+                    showPopupMenu(v, getItem(pos));
                 }
             });
         }
 
-        private void showPopupMenu(View view, Note note) {
+        private void showPopupMenu(View view, NoteSummary note) {
             android.widget.PopupMenu popup = new android.widget.PopupMenu(view.getContext(), view);
             popup.getMenu().add(0, 1, 0, note.isPinned() ? "Unpin" : "Pin");
             popup.getMenu().add(0, 2, 0, "Share");
@@ -126,37 +178,23 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
             popup.show();
         }
 
-        public void bind(Note note) {
+        public void bind(NoteSummary note) {
             if (note == null)
                 return;
 
             String title = note.getTitle();
             textViewTitle.setText(title == null || title.isEmpty() ? "Untitled" : title);
 
-            String content = note.getContent();
-            if (content == null || content.isEmpty()) {
-                textViewContent.setText("No content");
+            // Precomputed at save time, so binding parses nothing
+            String preview = note.getPreview();
+            String snippet = snippetOf(note);
+            if (snippet != null) {
+                textViewContent.setText(highlightMatches(snippet));
             } else {
-                if (content != null && content.trim().startsWith("{")) {
-                    // [FIX] JSON format: Extract raw text for preview
-                    try {
-                        org.json.JSONObject json = new org.json.JSONObject(content);
-                        textViewContent.setText(json.optString("text", ""));
-                    } catch (Exception e) {
-                        textViewContent.setText("Error parsing note");
-                    }
-                } else {
-                    CharSequence styledText = android.text.Html.fromHtml(content,
-                            android.text.Html.FROM_HTML_MODE_LEGACY);
-                    // Strip persistence markers (\u200C{digits} and \u200D) for the preview
-                    String cleanText = styledText.toString().replaceAll("\u200C(\\{\\d+\\})?|\u200D", "");
-                    textViewContent.setText(cleanText);
-                }
+                textViewContent.setText(preview == null || preview.isEmpty() ? "No content" : preview);
             }
 
-            SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
-            String formattedDate = dateFormat.format(new Date(note.getTimestamp()));
-            textViewTimestamp.setText(formattedDate);
+            textViewTimestamp.setText(dateFormat.format(new Date(note.getTimestamp())));
 
             imageViewPin.setVisibility(note.isPinned() ? View.VISIBLE : View.GONE);
         }
@@ -2,45 +2,72 @@ package com.simplenotes;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
+import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.ImageButton;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
-import java.util.ArrayList;
+import com.simplenotes.utils.StartupTrace;
 import java.util.List;
 import android.net.Uri;
 import android.widget.Toast;
 import androidx.core.content.FileProvider;
+import androidx.core.util.Consumer;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 
 public class NotesListActivity extends AppCompatActivity {
+    private static final long SEARCH_DELAY_MS = 150; // Typing pause before a search runs
+
     private RecyclerView recyclerViewNotes;
+    private EditText editTextSearch;
     private FloatingActionButton fabAddNote;
     private TextView textViewEmpty;
     private NotesAdapter notesAdapter;
     private AppDatabase database;
+    private NoteSearch noteSearch;
+    private NotePager notePager;
+    private NoteChanges noteChanges;
+    private final Runnable runSearch = this::search;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_notes_list);
+        StartupTrace.mark("activity created");
+        StartupTrace.beginSection("NotesListActivity.onCreate");
+        // Open the database and queue the first page before inflating, so that both run
+        // alongside it; the page is delivered to the main thread once onCreate returns
+        database = AppDatabase.openEarly(this, AppExecutors.getInstance().diskIO());
+        noteSearch = new NoteSearch(database.noteDao());
+        notePager = new NotePager(database.noteDao(), AppExecutors.getInstance().diskIO(),
+                AppExecutors.getInstance().mainThread(), this::showNotes);
+        noteChanges = new NoteChanges(database.getInvalidationTracker(),
+                new Handler(Looper.getMainLooper())::postDelayed, this::refresh);
+        noteChanges.start();
+        loadNotes();
 
-        database = AppDatabase.getDatabase(this);
+        setContentView(R.layout.activity_notes_list);
+        StartupTrace.mark("content view");
 
         initViews();
         setupRecyclerView();
+        setupSearch();
         setupFab();
-        loadNotes();
+        StartupTrace.endSection();
     }
 
     private void initViews() {
         recyclerViewNotes = findViewById(R.id.recyclerViewNotes);
         fabAddNote = findViewById(R.id.fabAddNote);
+        editTextSearch = findViewById(R.id.editTextSearch);
         textViewEmpty = findViewById(R.id.textViewEmpty);
 
         ImageButton btnSettings = findViewById(R.id.btnSettings);
@@ -49,18 +76,82 @@ public class NotesListActivity extends AppCompatActivity {
 
     private void setupRecyclerView() {
         recyclerViewNotes = findViewById(R.id.recyclerViewNotes);
-        recyclerViewNotes.setLayoutManager(new LinearLayoutManager(this));
-        notesAdapter = new NotesAdapter(null);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerViewNotes.setLayoutManager(layoutManager);
+        notesAdapter = new NotesAdapter();
         notesAdapter.setOnNoteClickListener(this::openNoteActivity);
         notesAdapter.setOnNoteActionListener(this::handleNoteAction);
         recyclerViewNotes.setAdapter(notesAdapter);
+        recyclerViewNotes.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                // Search results come in one go; only the note list pages
+                if (!isSearching()) {
+                    notePager.onScrolled(layoutManager.findLastVisibleItemPosition());
+                }
+            }
+        });
+    }
+
+    private void setupSearch() {
+        editTextSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                // Search once typing pauses; a search still running for older input is dropped
+                editTextSearch.removeCallbacks(runSearch);
+                noteSearch.cancel();
+                if (isSearching()) {
+                    editTextSearch.postDelayed(runSearch, SEARCH_DELAY_MS);
+                } else {
+                    loadNotes();
+                }
+            }
+        });
+    }
+
+    private boolean isSearching() {
+        return editTextSearch.getText().toString().trim().length() > 0;
+    }
+
+    private void search() {
+        noteSearch.searchLatest(editTextSearch.getText().toString(), AppExecutors.getInstance().diskIO(),
+                AppExecutors.getInstance().mainThread(), (input, results) -> {
+                    notesAdapter.updateNotes(results);
+                    updateEmptyState(results);
+                });
     }
 
-    private void openNoteActivity(Note note) {
-        Intent intent = new Intent(this, NoteActivity.class);
-        intent.putExtra("note", note);
-        intent.putExtra("isNewNote", false);
-        startActivity(intent);
+    /** Reloads whatever the list shows: the search results, or all notes. */
+    private void refresh() {
+        if (isSearching()) {
+            // The index holds snapshots, so fold logged edits in first (diskIO runs tasks in order)
+            AppExecutors.getInstance().diskIO().execute(() -> NoteStore.getInstance(this).compactAll());
+            search();
+        } else {
+            loadNotes();
+        }
+    }
+
+    private void openNoteActivity(NoteSummary summary) {
+        startActivity(NoteActivity.editIntent(this, summary.getId())); // It loads the note itself
+    }
+
+    /** Loads the full note behind a list row off the main thread, then hands it to {@code action} on it. */
+    private void withNote(NoteSummary summary, Consumer<Note> action) {
+        AppExecutors.getInstance().diskIO().execute(() -> {
+            Note note = NoteStore.getInstance(this).load(summary.getId());
+            if (note != null) {
+                AppExecutors.getInstance().mainThread().execute(() -> action.accept(note));
+            }
+        });
     }
 
     private void setupFab() {
@@ -71,7 +162,7 @@ public class NotesListActivity extends AppCompatActivity {
         });
     }
 
-    private void handleNoteAction(Note note, NotesAdapter.Action action) {
+    private void handleNoteAction(NoteSummary note, NotesAdapter.Action action) {
         switch (action) {
             case DELETE:
                 deleteNote(note);
@@ -83,7 +174,7 @@ public class NotesListActivity extends AppCompatActivity {
                 togglePin(note, false);
                 break;
             case SHARE:
-                shareNoteAsFile(note);
+                withNote(note, this::shareNoteAsFile);
                 break;
         }
     }
@@ -143,33 +234,48 @@ public class NotesListActivity extends AppCompatActivity {
         }
     }
 
-    private void deleteNote(Note note) {
+    private void deleteNote(NoteSummary summary) {
         AppExecutors.getInstance().diskIO().execute(() -> {
-            database.noteDao().delete(note);
-            loadNotes();
+            NoteStore store = NoteStore.getInstance(this);
+            Note note = store.load(summary.getId());
+            if (note != null) {
+                store.delete(note); // The list reloads through noteChanges
+            }
         });
     }
 
-    private void togglePin(Note note, boolean pin) {
-        note.setPinned(pin);
+    private void togglePin(NoteSummary summary, boolean pin) {
         AppExecutors.getInstance().diskIO().execute(() -> {
-            database.noteDao().update(note);
-            loadNotes();
+            NoteStore store = NoteStore.getInstance(this);
+            Note note = store.load(summary.getId());
+            if (note != null) {
+                note.setPinned(pin);
+                store.replace(note); // The list reloads through noteChanges
+            }
         });
     }
 
+    /** Reloads the pages of the note list already loaded; the adapter rebinds only rows that changed. */
     private void loadNotes() {
-        AppExecutors.getInstance().diskIO().execute(() -> {
-            List<Note> notes = database.noteDao().getAllNotes();
-            AppExecutors.getInstance().mainThread().execute(() -> {
-                notesAdapter.updateNotes(notes);
-                updateEmptyState(notes);
-            });
-        });
+        // Fold logged edits in first, so that previews, titles and timestamps are current
+        // (diskIO runs tasks in order)
+        AppExecutors.getInstance().diskIO().execute(() -> NoteStore.getInstance(this).compactAll());
+        notePager.refresh();
+    }
+
+    private void showNotes(List<NoteSummary> notes) {
+        if (isSearching())
+            return; // Typed while loading; the search shows its own results
+        notesAdapter.updateNotes(notes);
+        updateEmptyState(notes);
+        if (StartupTrace.finish("first note list")) {
+            reportFullyDrawn(); // Time to full display, for "am start -W" and Macrobenchmark
+        }
     }
 
-    private void updateEmptyState(List<Note> notes) {
+    private void updateEmptyState(List<? extends NoteSummary> notes) {
         if (notes.isEmpty()) {
+            textViewEmpty.setText(isSearching() ? R.string.no_search_results : R.string.empty_notes);
             recyclerViewNotes.setVisibility(View.GONE);
             textViewEmpty.setVisibility(View.VISIBLE);
         } else {
@@ -181,7 +287,19 @@ public class NotesListActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        // Reload data every time we come back
-        loadNotes();
+        // Reloads only if notes changed while away, e.g. in the editor
+        noteChanges.resume();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        noteChanges.pause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        noteChanges.stop();
+        super.onDestroy();
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.simplenotes;
 import android.content.Context;
 import android.util.AttributeSet;
 import androidx.appcompat.widget.AppCompatMultiAutoCompleteTextView;
+import com.simplenotes.utils.MarkerTokenizer;
 
 public class RichEditText extends AppCompatMultiAutoCompleteTextView {
 
@@ -10,7 +11,12 @@ public class RichEditText extends AppCompatMultiAutoCompleteTextView {
         void onSelectionChanged(int selStart, int selEnd);
     }
 
+    public interface OnScrollChangedListener {
+        void onScrollChanged(int scrollY);
+    }
+
     private OnSelectionChangedListener selectionListener;
+    private OnScrollChangedListener scrollListener;
 
     public RichEditText(Context context) {
         super(context);
@@ -28,6 +34,18 @@ public class RichEditText extends AppCompatMultiAutoCompleteTextView {
         this.selectionListener = listener;
     }
 
+    public void setOnScrollChangedListener(OnScrollChangedListener listener) {
+        this.scrollListener = listener;
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        if (scrollListener != null && t != oldt) {
+            scrollListener.onScrollChanged(t);
+        }
+    }
+
     @Override
     protected void onSelectionChanged(int selStart, int selEnd) {
         super.onSelectionChanged(selStart, selEnd);
@@ -139,7 +157,7 @@ public class RichEditText extends AppCompatMultiAutoCompleteTextView {
         try {
             if (start >= 0 && end <= text.length() && start <= end) {
                 CharSequence rawToken = text.subSequence(start, end);
-                String cleanToken = rawToken.toString().replaceAll("\u200C|\\{\\d+\\}|\u200D", "");
+                String cleanToken = MarkerTokenizer.strip(rawToken, MarkerTokenizer.HIGHLIGHT_SYNTAX);
                 getFilter().filter(cleanToken, this);
             } else {
                 getFilter().filter("", this);
@@ -14,16 +14,32 @@ public class RoundedHighlighterSpan implements LineBackgroundSpan {
     // Add extra padding for that "widget" feel
     private final float paddingHorizontal = 8f;
     private final float paddingVertical = 2f;
+    // Shared with the other highlights in the same note; null outside the editor
+    private final HighlightLayoutCache cache;
+    // Position in the cache's sorted highlights, valid while the generation matches
+    int cacheIndex;
+    int cacheGeneration = -1;
+
+    private static final RectF RECT = new RectF(); // Drawing only happens on the main thread
 
     public RoundedHighlighterSpan(int backgroundColor, float cornerRadius) {
+        this(backgroundColor, cornerRadius, null);
+    }
+
+    RoundedHighlighterSpan(int backgroundColor, float cornerRadius, HighlightLayoutCache cache) {
         this.backgroundColor = backgroundColor;
         this.cornerRadius = cornerRadius;
+        this.cache = cache;
     }
 
     public int getBackgroundColor() {
         return backgroundColor;
     }
 
+    HighlightLayoutCache getCache() {
+        return cache;
+    }
+
     @Override
     public void drawBackground(@NonNull Canvas c, @NonNull Paint p,
             int left, int right, int top, int baseline, int bottom,
@@ -33,62 +49,42 @@ public class RoundedHighlighterSpan implements LineBackgroundSpan {
             return;
         Spanned spanned = (Spanned) text;
 
-        int spanStart = spanned.getSpanStart(this);
-        int spanEnd = spanned.getSpanEnd(this);
-
-        // Find the intersection of the current line and the span's range
-        int start = Math.max(lineStart, spanStart);
-        int end = Math.min(lineEnd, spanEnd);
+        int index = cache != null ? cache.indexOf(this, spanned) : -1;
+        if (index < 0) {
+            // Find the intersection of the current line and the span's range
+            int start = Math.max(lineStart, spanned.getSpanStart(this));
+            int end = Math.min(lineEnd, spanned.getSpanEnd(this));
+            if (start < end) {
+                drawRect(c, p, left, top, bottom, p.measureText(spanned, lineStart, start),
+                        p.measureText(spanned, start, end));
+            }
+            return;
+        }
 
+        // Same-colored neighbours with nothing between them share one rect,
+        // drawn by the first of them on the line
+        if (cache.joinsPrevious(index, lineStart, lineEnd))
+            return;
+        int start = Math.max(lineStart, cache.highlightStart(index));
+        int end = Math.min(lineEnd, cache.highlightEnd(cache.lastJoined(index, lineStart, lineEnd)));
         if (start < end) {
-            // Use smartMeasure to ignore hidden markers (ScaleXSpan == 0)
-            float textOffset = smartMeasure(p, text, lineStart, start);
-            float textWidth = smartMeasure(p, text, start, end);
-
-            float rectLeft = left + textOffset - paddingHorizontal;
-            float rectRight = rectLeft + textWidth + (paddingHorizontal * 2);
-
-            float rectTop = top - paddingVertical;
-            float rectBottom = bottom + paddingVertical;
-
-            RectF rect = new RectF(rectLeft, rectTop, rectRight, rectBottom);
-
-            int originalColor = p.getColor();
-            p.setColor(backgroundColor);
-            c.drawRoundRect(rect, cornerRadius, cornerRadius, p);
-            p.setColor(originalColor);
+            drawRect(c, p, left, top, bottom, cache.measure(p, spanned, lineStart, start),
+                    cache.measure(p, spanned, start, end));
         }
     }
 
-    private float smartMeasure(@NonNull Paint p, CharSequence text, int start, int end) {
-        if (start >= end)
-            return 0f;
-        if (!(text instanceof Spanned))
-            return p.measureText(text, start, end);
+    private void drawRect(Canvas c, Paint p, int left, int top, int bottom, float textOffset, float textWidth) {
+        float rectLeft = left + textOffset - paddingHorizontal;
+        float rectRight = rectLeft + textWidth + (paddingHorizontal * 2);
 
-        Spanned spanned = (Spanned) text;
-        HiddenSpan[] spans = spanned.getSpans(start, end, HiddenSpan.class);
-
-        // Optimization: if no hidden spans in range, fast path
-        if (spans.length == 0)
-            return p.measureText(text, start, end);
-
-        // Slow path: measure character by character skipping hidden ones
-        float width = 0f;
-        for (int i = start; i < end; i++) {
-            boolean hiddenChar = false;
-            for (HiddenSpan span : spans) {
-                int s = spanned.getSpanStart(span);
-                int e = spanned.getSpanEnd(span);
-                if (i >= s && i < e) {
-                    hiddenChar = true;
-                    break;
-                }
-            }
-            if (!hiddenChar) {
-                width += p.measureText(text, i, i + 1);
-            }
-        }
-        return width;
+        float rectTop = top - paddingVertical;
+        float rectBottom = bottom + paddingVertical;
+
+        RECT.set(rectLeft, rectTop, rectRight, rectBottom);
+
+        int originalColor = p.getColor();
+        p.setColor(backgroundColor);
+        c.drawRoundRect(RECT, cornerRadius, cornerRadius, p);
+        p.setColor(originalColor);
     }
 }
@@ -0,0 +1,40 @@
+package com.simplenotes;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Dimension table mapping a translation code (e.g. "kjv") to the small integer
+ * key stored on every verse row.
+ */
+@Entity(tableName = "translations", indices = { @Index(value = { "code" }, unique = true) })
+public class Translation {
+    @PrimaryKey(autoGenerate = true)
+    private int id;
+
+    @NonNull
+    private String code;
+
+    public Translation(@NonNull String code) {
+        this.code = code;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(@NonNull String code) {
+        this.code = code;
+    }
+}
@@ -1,35 +1,50 @@
 package com.simplenotes;
 
 import androidx.room.Entity;
-import androidx.room.Index;
-import androidx.room.PrimaryKey;
-
-@Entity(tableName = "verses", indices = {
-        @Index(value = { "translationId", "book", "chapter", "verse" }, unique = true) })
+import androidx.room.Ignore;
+
+/**
+ * One verse of one translation. Rows are keyed on two ints, the
+ * {@link Translation} id and a packed {@link VerseKey}, so the primary key
+ * index never stores book names or translation codes.
+ */
+@Entity(tableName = "verses", primaryKeys = { "translationKey", "verseKey" })
 public class Verse {
-    @PrimaryKey(autoGenerate = true)
-    private long id;
+    private int translationKey; // translations.id, resolved by BibleDao on insert
+    private int verseKey; // VerseKey.of(book, chapter, verse)
+    private String text; // Content of the verse
 
+    @Ignore
     private String translationId; // e.g., "kjv"
-    private String book; // e.g., "John"
-    private int chapter; // e.g., 3
-    private int verse; // e.g., 16
-    private String text; // Content of the verse
 
+    // Room
+    public Verse(int translationKey, int verseKey, String text) {
+        this.translationKey = translationKey;
+        this.verseKey = verseKey;
+        this.text = text;
+    }
+
+    @Ignore
     public Verse(String translationId, String book, int chapter, int verse, String text) {
         this.translationId = translationId;
-        this.book = book;
-        this.chapter = chapter;
-        this.verse = verse;
+        this.verseKey = VerseKey.of(book, chapter, verse);
         this.text = text;
     }
 
-    public long getId() {
-        return id;
+    public int getTranslationKey() {
+        return translationKey;
+    }
+
+    public void setTranslationKey(int translationKey) {
+        this.translationKey = translationKey;
+    }
+
+    public int getVerseKey() {
+        return verseKey;
     }
 
-    public void setId(long id) {
-        this.id = id;
+    public void setVerseKey(int verseKey) {
+        this.verseKey = verseKey;
     }
 
     public String getTranslationId() {
@@ -40,28 +55,30 @@ public class Verse {
         this.translationId = translationId;
     }
 
+    /** @return the canonical book name, or null if the book is not in BibleData.BOOKS */
     public String getBook() {
-        return book;
+        int ordinal = VerseKey.bookOrdinal(verseKey);
+        return ordinal >= 0 && ordinal < BibleData.BOOKS.length ? BibleData.BOOKS[ordinal] : null;
     }
 
     public void setBook(String book) {
-        this.book = book;
+        verseKey = VerseKey.of(book, getChapter(), getVerse());
     }
 
     public int getChapter() {
-        return chapter;
+        return VerseKey.chapter(verseKey);
     }
 
     public void setChapter(int chapter) {
-        this.chapter = chapter;
+        verseKey = VerseKey.of(VerseKey.bookOrdinal(verseKey), chapter, getVerse());
     }
 
     public int getVerse() {
-        return verse;
+        return VerseKey.verse(verseKey);
     }
 
     public void setVerse(int verse) {
-        this.verse = verse;
+        verseKey = VerseKey.of(VerseKey.bookOrdinal(verseKey), getChapter(), verse);
     }
 
     public String getText() {
@@ -0,0 +1,153 @@
+package com.simplenotes;
+
+import androidx.sqlite.db.SupportSQLiteStatement;
+import com.simplenotes.utils.SearchTokenizer;
+import java.util.List;
+
+/**
+ * Bulk writer for downloaded translations.
+ *
+ * Rows are bound into a single prepared INSERT that is reused for the whole
+ * load, and committed in fixed-size chunks so that each transaction stays short
+ * (other writers such as note saves can interleave between chunks) while still
+ * avoiding a journal sync per row.
+ *
+ * Each verse is also added to the search index (VerseFts) in the same chunk,
+ * so a translation is searchable as soon as it is downloaded.
+ *
+ * Must be used from a background thread and closed when done.
+ */
+public class VerseBulkLoader implements AutoCloseable {
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private static final String INSERT_SQL = "INSERT OR REPLACE INTO verses "
+            + "(translationKey, verseKey, text) VALUES (?, ?, ?)";
+    private static final String INSERT_FTS_SQL = "INSERT OR REPLACE INTO verses_fts "
+            + "(rowid, translationKey, text) VALUES (?, ?, ?)";
+
+    public interface ProgressListener {
+        void onProgress(int rowsInserted, int rowsPerSecond);
+    }
+
+    private final AppDatabase database;
+    private final SupportSQLiteStatement insert;
+    private final SupportSQLiteStatement insertFts;
+    private final int chunkSize;
+    private final ProgressListener listener;
+
+    private final long startNanos = System.nanoTime();
+    private int rowsInserted = 0;
+    private int rowsInChunk = 0;
+    // Set from beginTransaction, not from rowsInChunk: an insert can throw before its row counts
+    private boolean inTransaction = false;
+
+    // Downloads are one translation at a time, so one cached lookup is enough
+    private String translationId;
+    private int translationKey;
+
+    VerseBulkLoader(AppDatabase database, int chunkSize, ProgressListener listener) {
+        this.database = database;
+        this.insert = database.compileStatement(INSERT_SQL);
+        this.insertFts = database.compileStatement(INSERT_FTS_SQL);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.listener = listener;
+    }
+
+    public void insert(List<Verse> verses) {
+        for (Verse verse : verses) {
+            insert(verse);
+        }
+    }
+
+    /** Verses whose book is not canonical cannot be keyed and are skipped. */
+    public void insert(Verse verse) {
+        if (!VerseKey.isValid(verse.getVerseKey()) || verse.getTranslationId() == null)
+            return;
+        if (!verse.getTranslationId().equals(translationId)) {
+            translationKey = database.bibleDao().getOrCreateTranslationKey(verse.getTranslationId());
+            translationId = verse.getTranslationId();
+        }
+
+        if (!inTransaction) {
+            database.beginTransaction();
+            inTransaction = true;
+        }
+
+        insert.bindLong(1, translationKey);
+        insert.bindLong(2, verse.getVerseKey());
+        bindNullable(3, verse.getText());
+        insert.executeInsert();
+
+        insertFts.bindLong(1, VerseFts.rowidOf(translationKey, verse.getVerseKey()));
+        insertFts.bindLong(2, translationKey);
+        insertFts.bindString(3, SearchTokenizer.normalize(verse.getText() != null ? verse.getText() : ""));
+        insertFts.executeInsert();
+
+        rowsInChunk++;
+        if (rowsInChunk >= chunkSize) {
+            commitChunk();
+        }
+    }
+
+    /** Commits the last partial chunk. Call once all rows have been inserted. */
+    public void finish() {
+        if (inTransaction) {
+            commitChunk();
+        }
+    }
+
+    public int getRowsInserted() {
+        return rowsInserted;
+    }
+
+    public int getRowsPerSecond() {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        return (int) (rowsInserted * 1_000_000_000L / elapsedNanos);
+    }
+
+    /** Rolls back an unfinished chunk (if any) and releases the statement. */
+    @Override
+    public void close() {
+        try {
+            if (inTransaction) {
+                inTransaction = false;
+                rowsInChunk = 0;
+                database.endTransaction();
+            }
+        } finally {
+            closeQuietly(insert);
+            closeQuietly(insertFts);
+        }
+    }
+
+    private void commitChunk() {
+        try {
+            database.setTransactionSuccessful();
+        } finally {
+            inTransaction = false;
+            database.endTransaction();
+        }
+        rowsInserted += rowsInChunk;
+        rowsInChunk = 0;
+
+        if (listener != null) {
+            listener.onProgress(rowsInserted, getRowsPerSecond());
+        }
+    }
+
+    private static void closeQuietly(SupportSQLiteStatement statement) {
+        try {
+            statement.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void bindNullable(int index, String value) {
+        if (value == null) {
+            insert.bindNull(index);
+        } else {
+            insert.bindString(index, value);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.simplenotes;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.PrimaryKey;
+
+/**
+ * A verse in the full-text search index. Each translation is its own FTS4
+ * language (languageid), so a query only ever reads the index of the
+ * translation searched.
+ *
+ * The text is stored as {@link com.simplenotes.utils.SearchTokenizer} tokens
+ * for the simple tokenizer; results show the verse from the verses table.
+ */
+@Fts4(languageId = "translationKey")
+@Entity(tableName = "verses_fts")
+public class VerseFts {
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowid; // rowidOf(translationKey, verseKey)
+    private int translationKey;
+    private String text;
+
+    public VerseFts(long rowid, int translationKey, String text) {
+        this.rowid = rowid;
+        this.translationKey = translationKey;
+        this.text = text;
+    }
+
+    /** Rowids are table-wide, so they combine both keys; the verse key is the low 32 bits. */
+    public static long rowidOf(int translationKey, int verseKey) {
+        return (long) translationKey << 32 | verseKey;
+    }
+
+    public long getRowid() {
+        return rowid;
+    }
+
+    public void setRowid(long rowid) {
+        this.rowid = rowid;
+    }
+
+    public int getTranslationKey() {
+        return translationKey;
+    }
+
+    public void setTranslationKey(int translationKey) {
+        this.translationKey = translationKey;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
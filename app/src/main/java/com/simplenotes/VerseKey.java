@@ -0,0 +1,59 @@
+package com.simplenotes;
+
+/**
+ * Packs a (book, chapter, verse) reference into one int for the verses table:
+ * {@code (bookOrdinal + 1) * 1_000_000 + chapter * 1000 + verse}, with the
+ * ordinal taken from {@link BibleData#BOOKS}. Keys sort in canonical order, so a
+ * chapter or a whole book is one contiguous key range.
+ */
+public final class VerseKey {
+    public static final int BOOK_FACTOR = 1_000_000;
+    public static final int CHAPTER_FACTOR = 1000;
+    public static final int MAX_NUMBER = CHAPTER_FACTOR - 1;
+    public static final int INVALID = -1;
+
+    private VerseKey() {
+    }
+
+    /**
+     * Packs a key. A bookOrdinal of -1 (book not known yet, or not canonical) still
+     * keeps chapter and verse, but {@link #isValid} rejects the key until a book
+     * is set. Numbers outside 0..999 give {@link #INVALID}.
+     */
+    public static int of(int bookOrdinal, int chapter, int verse) {
+        if (bookOrdinal < -1 || bookOrdinal >= BibleData.BOOKS.length
+                || chapter < 0 || chapter > MAX_NUMBER || verse < 0 || verse > MAX_NUMBER)
+            return INVALID;
+        return (bookOrdinal + 1) * BOOK_FACTOR + chapter * CHAPTER_FACTOR + verse;
+    }
+
+    public static int of(String book, int chapter, int verse) {
+        return of(BibleData.indexOf(book), chapter, verse);
+    }
+
+    /** Clamps chapter and verse so range bounds never spill into the next chapter. */
+    public static int clamped(int bookOrdinal, int chapter, int verse) {
+        return of(bookOrdinal, clamp(chapter), clamp(verse));
+    }
+
+    public static boolean isValid(int key) {
+        return key >= BOOK_FACTOR && bookOrdinal(key) < BibleData.BOOKS.length && chapter(key) > 0 && verse(key) > 0;
+    }
+
+    /** @return the book ordinal, or -1 if the key carries no book */
+    public static int bookOrdinal(int key) {
+        return key / BOOK_FACTOR - 1;
+    }
+
+    public static int chapter(int key) {
+        return key % BOOK_FACTOR / CHAPTER_FACTOR;
+    }
+
+    public static int verse(int key) {
+        return key % CHAPTER_FACTOR;
+    }
+
+    private static int clamp(int n) {
+        return Math.max(0, Math.min(MAX_NUMBER, n));
+    }
+}
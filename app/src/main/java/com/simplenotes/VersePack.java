@@ -0,0 +1,130 @@
+package com.simplenotes;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only, memory-mapped view of a per-translation "verse pack".
+ *
+ * Layout (all ints big-endian):
+ *
+ * <pre>
+ * Header      magic, version, bookCount, slotCount,
+ *             chapterTableOffset, slotTableOffset, textOffset, textLength
+ * Book table  bookCount x (firstChapter, chapterCount), indexed by BibleData.BOOKS ordinal
+ * Chapters    (firstSlot, slotCount) per chapter; slot i holds verse i + 1
+ * Slots       slotCount + 1 offsets into the text blob (missing verses are empty)
+ * Text        UTF-8 verse text, back to back
+ * </pre>
+ *
+ * Lookups only do absolute reads on the mapped buffer and decode into a reused
+ * scratch array, so the result String is the only allocation.
+ */
+public class VersePack implements Closeable {
+    static final int MAGIC = 0x534E5650; // "SNVP"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int bookCount;
+    private final int chapterTableOffset;
+    private final int slotTableOffset;
+    private final int textOffset;
+
+    private byte[] scratch = new byte[512];
+
+    private VersePack(RandomAccessFile file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a verse pack");
+        }
+        this.bookCount = buffer.getInt(8);
+        this.chapterTableOffset = buffer.getInt(16);
+        this.slotTableOffset = buffer.getInt(20);
+        this.textOffset = buffer.getInt(24);
+    }
+
+    public static VersePack open(File packFile) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(packFile, "r");
+        try {
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            return new VersePack(raf, buffer);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /** Number of verse slots in a chapter (its highest verse number), or 0. */
+    public int getVerseCount(int bookOrdinal, int chapter) {
+        int chapterEntry = chapterEntry(bookOrdinal, chapter);
+        return chapterEntry < 0 ? 0 : buffer.getInt(chapterEntry + 4);
+    }
+
+    /** @return the verse text, or null if the pack does not contain it */
+    public String getVerse(int bookOrdinal, int chapter, int verse) {
+        int slot = slot(bookOrdinal, chapter, verse);
+        return slot < 0 ? null : decode(slot);
+    }
+
+    /**
+     * Verses {@code startVerse..endVerse} of one chapter. Entries the pack does not
+     * contain are null.
+     */
+    public String[] getVerses(int bookOrdinal, int chapter, int startVerse, int endVerse) {
+        if (endVerse < startVerse)
+            return new String[0];
+        String[] result = new String[endVerse - startVerse + 1];
+        for (int v = startVerse; v <= endVerse; v++) {
+            result[v - startVerse] = getVerse(bookOrdinal, chapter, v);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int chapterEntry(int bookOrdinal, int chapter) {
+        if (bookOrdinal < 0 || bookOrdinal >= bookCount || chapter < 1)
+            return -1;
+        int bookEntry = HEADER_SIZE + bookOrdinal * 8;
+        int chapterCount = buffer.getInt(bookEntry + 4);
+        if (chapter > chapterCount)
+            return -1;
+        return chapterTableOffset + (buffer.getInt(bookEntry) + chapter - 1) * 8;
+    }
+
+    private int slot(int bookOrdinal, int chapter, int verse) {
+        int chapterEntry = chapterEntry(bookOrdinal, chapter);
+        if (chapterEntry < 0 || verse < 1 || verse > buffer.getInt(chapterEntry + 4))
+            return -1;
+        return buffer.getInt(chapterEntry) + verse - 1;
+    }
+
+    private synchronized String decode(int slot) {
+        int start = buffer.getInt(slotTableOffset + slot * 4);
+        int end = buffer.getInt(slotTableOffset + (slot + 1) * 4);
+        int length = end - start;
+        if (length <= 0)
+            return null;
+
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        int base = textOffset + start;
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(base + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
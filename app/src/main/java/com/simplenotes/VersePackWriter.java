@@ -0,0 +1,166 @@
+package com.simplenotes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds a {@link VersePack} file. Verses must be added in ascending
+ * (book, chapter, verse) order; gaps are allowed and read back as missing.
+ *
+ * The text blob is streamed to a side file while the index is collected in
+ * int arrays, so memory stays at a few hundred KB for a full Bible. The pack
+ * is written under a temporary name and renamed into place on
+ * {@link #finish()}.
+ */
+public class VersePackWriter {
+    private final File target;
+    private final File tempPack;
+    private final File tempText;
+    private final OutputStream text;
+
+    private final int[] bookFirstChapter = new int[BibleData.BOOKS.length];
+    private final int[] bookChapterCount = new int[BibleData.BOOKS.length];
+    private int[] chapters = new int[2 * 1024]; // (firstSlot, slotCount) pairs
+    private int chapterEntries = 0;
+    private int[] slots = new int[32 * 1024]; // start offset of each slot
+    private int slotCount = 0;
+    private int textLength = 0;
+
+    private int currentBook = -1;
+    private int currentChapter = 0;
+
+    public VersePackWriter(File target) throws IOException {
+        this.target = target;
+        this.tempPack = new File(target.getPath() + ".tmp");
+        this.tempText = new File(target.getPath() + ".text");
+        this.text = new BufferedOutputStream(new FileOutputStream(tempText));
+    }
+
+    public void add(int bookOrdinal, int chapter, int verse, String verseText) throws IOException {
+        if (bookOrdinal < currentBook || bookOrdinal >= bookFirstChapter.length || chapter < 1 || verse < 1) {
+            throw new IllegalArgumentException("Out of order: " + bookOrdinal + " " + chapter + ":" + verse);
+        }
+
+        if (bookOrdinal != currentBook) {
+            currentBook = bookOrdinal;
+            currentChapter = 0;
+            bookFirstChapter[bookOrdinal] = chapterEntries;
+        }
+        if (chapter < currentChapter) {
+            throw new IllegalArgumentException("Out of order: " + bookOrdinal + " " + chapter + ":" + verse);
+        }
+        while (currentChapter < chapter) {
+            addChapter();
+        }
+
+        int chapterIndex = chapterEntries - 1;
+        int chapterSlots = chapters[chapterIndex * 2 + 1];
+        if (verse <= chapterSlots) {
+            throw new IllegalArgumentException("Out of order: " + bookOrdinal + " " + chapter + ":" + verse);
+        }
+        while (chapterSlots < verse) {
+            addSlot();
+            chapterSlots++;
+        }
+        chapters[chapterIndex * 2 + 1] = chapterSlots;
+
+        if (verseText != null) {
+            byte[] bytes = verseText.getBytes(StandardCharsets.UTF_8);
+            text.write(bytes);
+            textLength += bytes.length;
+        }
+    }
+
+    /** Adds one book's verses, which must already be sorted by chapter and verse. */
+    public void addAll(int bookOrdinal, List<Verse> verses) throws IOException {
+        for (Verse v : verses) {
+            add(bookOrdinal, v.getChapter(), v.getVerse(), v.getText());
+        }
+    }
+
+    public void finish() throws IOException {
+        text.close();
+
+        int bookCount = bookFirstChapter.length;
+        int chapterTableOffset = VersePack.HEADER_SIZE + bookCount * 8;
+        int slotTableOffset = chapterTableOffset + chapterEntries * 8;
+        int textOffset = slotTableOffset + (slotCount + 1) * 4;
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempPack)))) {
+            out.writeInt(VersePack.MAGIC);
+            out.writeInt(VersePack.VERSION);
+            out.writeInt(bookCount);
+            out.writeInt(slotCount);
+            out.writeInt(chapterTableOffset);
+            out.writeInt(slotTableOffset);
+            out.writeInt(textOffset);
+            out.writeInt(textLength);
+
+            for (int b = 0; b < bookCount; b++) {
+                out.writeInt(bookFirstChapter[b]);
+                out.writeInt(bookChapterCount[b]);
+            }
+            for (int i = 0; i < chapterEntries * 2; i++) {
+                out.writeInt(chapters[i]);
+            }
+            for (int i = 0; i < slotCount; i++) {
+                out.writeInt(slots[i]);
+            }
+            out.writeInt(textLength); // Sentinel: end of the last slot
+
+            try (InputStream in = new BufferedInputStream(new FileInputStream(tempText))) {
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) != -1) {
+                    out.write(buf, 0, n);
+                }
+            }
+        } finally {
+            tempText.delete();
+        }
+
+        if (!tempPack.renameTo(target)) {
+            tempPack.delete();
+            throw new IOException("Could not move verse pack into place: " + target);
+        }
+    }
+
+    /** Discards a pack that will not be finished. */
+    public void abort() {
+        try {
+            text.close();
+        } catch (IOException ignored) {
+        }
+        tempText.delete();
+        tempPack.delete();
+    }
+
+    private void addChapter() {
+        if (chapterEntries * 2 == chapters.length) {
+            chapters = Arrays.copyOf(chapters, chapters.length * 2);
+        }
+        chapters[chapterEntries * 2] = slotCount;
+        chapters[chapterEntries * 2 + 1] = 0;
+        chapterEntries++;
+        currentChapter++;
+        bookChapterCount[currentBook] = currentChapter;
+    }
+
+    private void addSlot() {
+        if (slotCount == slots.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+        }
+        slots[slotCount++] = textLength;
+    }
+}
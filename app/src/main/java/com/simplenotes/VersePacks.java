@@ -0,0 +1,113 @@
+package com.simplenotes;
+
+import android.content.Context;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locates, builds and caches the {@link VersePack} for each downloaded
+ * translation. Packs live in {@code filesDir/verse_packs/<translationId>.pack}
+ * and are rebuilt from the verses table after every successful download.
+ */
+public final class VersePacks {
+    private static final String DIR = "verse_packs";
+    private static final Map<String, VersePack> OPEN_PACKS = new HashMap<>();
+
+    private VersePacks() {
+    }
+
+    /** @return the open pack for a translation, or null if none has been built */
+    public static synchronized VersePack get(Context context, String translationId) {
+        VersePack pack = OPEN_PACKS.get(translationId);
+        if (pack != null)
+            return pack;
+
+        File file = packFile(context, translationId);
+        if (!file.exists())
+            return null;
+        try {
+            pack = VersePack.open(file);
+            OPEN_PACKS.put(translationId, pack);
+            return pack;
+        } catch (IOException e) {
+            e.printStackTrace();
+            file.delete(); // Corrupt or from an older format; rebuilt on next download
+            return null;
+        }
+    }
+
+    /**
+     * Verses {@code startVerse..endVerse} from the translation's pack, skipping any
+     * the pack does not contain.
+     *
+     * @return the verses found, or null if the translation has no pack
+     */
+    public static List<Verse> getVersesInRange(Context context, String translationId, String book,
+            int chapter, int startVerse, int endVerse) {
+        int bookOrdinal = BibleData.indexOf(book);
+        if (bookOrdinal < 0)
+            return null;
+        VersePack pack = get(context, translationId);
+        if (pack == null)
+            return null;
+
+        String[] texts = pack.getVerses(bookOrdinal, chapter, startVerse, endVerse);
+        List<Verse> verses = new ArrayList<>(texts.length);
+        for (int i = 0; i < texts.length; i++) {
+            if (texts[i] != null) {
+                verses.add(new Verse(translationId, book, chapter, startVerse + i, texts[i]));
+            }
+        }
+        return verses;
+    }
+
+    /**
+     * Rebuilds the translation's pack from the verses table, one book at a time.
+     * Must be called from a background thread.
+     */
+    public static void build(Context context, AppDatabase db, String translationId) throws IOException {
+        File file = packFile(context, translationId);
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+
+        VersePackWriter writer = new VersePackWriter(file);
+        try {
+            BibleDao dao = db.bibleDao();
+            for (int b = 0; b < BibleData.BOOKS.length; b++) {
+                writer.addAll(b, dao.getBookVerses(translationId, BibleData.BOOKS[b]));
+            }
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+
+        synchronized (VersePacks.class) {
+            // Close the stale reader before the new file replaces it
+            VersePack old = OPEN_PACKS.remove(translationId);
+            if (old != null) {
+                try {
+                    old.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            try {
+                writer.finish();
+            } catch (IOException | RuntimeException e) {
+                // The old file is still in place and reopened by the next get()
+                writer.abort();
+                throw e;
+            }
+        }
+    }
+
+    private static File packFile(Context context, String translationId) {
+        return new File(new File(context.getFilesDir(), DIR), translationId + ".pack");
+    }
+}
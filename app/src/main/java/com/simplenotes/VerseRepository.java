@@ -0,0 +1,223 @@
+package com.simplenotes;
+
+import android.content.Context;
+import com.simplenotes.utils.SingleFlight;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline verse lookups with an in-memory LRU of whole chapters in front of
+ * the verse pack and {@link BibleDao}.
+ *
+ * The first request for any verse of a chapter loads the entire chapter, so
+ * later single-verse and range lookups in the same chapter (the common case
+ * while writing study notes) never touch storage. The cache is bounded by an
+ * approximate byte budget rather than an entry count, since chapters range
+ * from a couple of verses to Psalm 119.
+ *
+ * Thread-safe. Loads run on the calling thread, which must not be the main
+ * thread on a miss.
+ */
+public class VerseRepository {
+    public static final int DEFAULT_BYTE_BUDGET = 512 * 1024;
+
+    // Rough per-verse cost on top of the text: Verse object, String header and array slot
+    private static final int VERSE_OVERHEAD_BYTES = 64;
+
+    public interface ChapterSource {
+        /** @return the chapter's verses in any order; empty if the chapter is not available */
+        List<Verse> loadChapter(String translationId, String book, int chapter);
+    }
+
+    private static final class Chapter {
+        final Verse[] verses; // verses[i] is verse i + 1, null if missing
+        final int bytes;
+
+        Chapter(Verse[] verses, int bytes) {
+            this.verses = verses;
+            this.bytes = bytes;
+        }
+    }
+
+    private static VerseRepository INSTANCE;
+
+    private final ChapterSource source;
+    private final int byteBudget;
+    private final LinkedHashMap<String, Chapter> chapters = new LinkedHashMap<>(16, 0.75f, true);
+    private final SingleFlight<String, Chapter> loads = new SingleFlight<>();
+    private int cachedBytes = 0;
+    private int hitCount = 0;
+    private int missCount = 0;
+    private int evictionCount = 0;
+
+    public VerseRepository(ChapterSource source, int byteBudget) {
+        this.source = source;
+        this.byteBudget = byteBudget;
+    }
+
+    public static VerseRepository getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (VerseRepository.class) {
+                if (INSTANCE == null) {
+                    Context appContext = context.getApplicationContext();
+                    INSTANCE = new VerseRepository(
+                            (translationId, book, chapter) -> loadFromStorage(appContext, translationId, book,
+                                    chapter),
+                            DEFAULT_BYTE_BUDGET);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /** @return the verse, or null if it is not available offline */
+    public Verse getVerse(String translationId, String book, int chapter, int verse) {
+        Chapter c = getChapter(translationId, book, chapter);
+        if (c == null || verse < 1 || verse > c.verses.length)
+            return null;
+        return c.verses[verse - 1];
+    }
+
+    /** Verses {@code startVerse..endVerse} that are available offline, in order. */
+    public List<Verse> getVersesInRange(String translationId, String book, int chapter, int startVerse,
+            int endVerse) {
+        List<Verse> result = new ArrayList<>();
+        Chapter c = getChapter(translationId, book, chapter);
+        if (c == null)
+            return result;
+        int from = Math.max(1, startVerse);
+        int to = Math.min(c.verses.length, endVerse);
+        for (int v = from; v <= to; v++) {
+            if (c.verses[v - 1] != null) {
+                result.add(c.verses[v - 1]);
+            }
+        }
+        return result;
+    }
+
+    /** Drops one chapter, e.g. after a verse in it was fetched from the network. */
+    public synchronized void invalidate(String translationId, String book, int chapter) {
+        Chapter removed = chapters.remove(key(translationId, book, chapter));
+        if (removed != null) {
+            cachedBytes -= removed.bytes;
+        }
+    }
+
+    /** Drops every cached chapter of a translation, e.g. after it was (re)downloaded. */
+    public synchronized void invalidate(String translationId) {
+        String prefix = translationId + '|';
+        Iterator<Map.Entry<String, Chapter>> it = chapters.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Chapter> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                cachedBytes -= entry.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized int getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /** Chapter loads actually issued to the source; concurrent misses share one. */
+    public int getLoadCount() {
+        return loads.getStartedCount();
+    }
+
+    public synchronized int getCachedChapterCount() {
+        return chapters.size();
+    }
+
+    private Chapter getChapter(String translationId, String book, int chapter) {
+        String key = key(translationId, book, chapter);
+        synchronized (this) {
+            Chapter cached = chapters.get(key);
+            if (cached != null) {
+                hitCount++;
+                return cached;
+            }
+            missCount++;
+        }
+
+        // Load outside the lock so a slow miss doesn't stall hits on other threads, and
+        // share one load between concurrent misses for the same chapter
+        Chapter loaded = loads.get(key, () -> toChapter(source.loadChapter(translationId, book, chapter)));
+        if (loaded == null)
+            return null; // Not cached: the chapter may still be downloaded or fetched later
+
+        synchronized (this) {
+            Chapter raced = chapters.get(key);
+            if (raced != null)
+                return raced;
+            if (loaded.bytes <= byteBudget) {
+                chapters.put(key, loaded);
+                cachedBytes += loaded.bytes;
+                trimToBudget();
+            }
+        }
+        return loaded;
+    }
+
+    private void trimToBudget() {
+        Iterator<Chapter> it = chapters.values().iterator();
+        while (cachedBytes > byteBudget && it.hasNext()) {
+            cachedBytes -= it.next().bytes;
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    private static Chapter toChapter(List<Verse> verses) {
+        if (verses == null || verses.isEmpty())
+            return null;
+        int maxVerse = 0;
+        for (Verse v : verses) {
+            maxVerse = Math.max(maxVerse, v.getVerse());
+        }
+        if (maxVerse < 1)
+            return null;
+
+        Verse[] slots = new Verse[maxVerse];
+        int bytes = maxVerse * 4;
+        for (Verse v : verses) {
+            if (v.getVerse() < 1)
+                continue;
+            slots[v.getVerse() - 1] = v;
+            bytes += VERSE_OVERHEAD_BYTES + (v.getText() == null ? 0 : v.getText().length() * 2);
+        }
+        return new Chapter(slots, bytes);
+    }
+
+    private static String key(String translationId, String book, int chapter) {
+        return translationId + '|' + book + '|' + chapter;
+    }
+
+    private static List<Verse> loadFromStorage(Context context, String translationId, String book, int chapter) {
+        VersePack pack = VersePacks.get(context, translationId);
+        int bookOrdinal = BibleData.indexOf(book);
+        if (pack != null && bookOrdinal >= 0) {
+            int count = pack.getVerseCount(bookOrdinal, chapter);
+            if (count > 0) {
+                return VersePacks.getVersesInRange(context, translationId, book, chapter, 1, count);
+            }
+        }
+        return AppDatabase.getDatabase(context).bibleDao()
+                .getVersesInRange(translationId, book, chapter, 1, VerseKey.MAX_NUMBER);
+    }
+}
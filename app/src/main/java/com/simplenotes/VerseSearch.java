@@ -0,0 +1,371 @@
+package com.simplenotes;
+
+import com.simplenotes.utils.FtsRank;
+import com.simplenotes.utils.SearchTokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Full-text search over a downloaded translation, backed by the verses_fts
+ * table ({@link VerseFts}).
+ *
+ * Input is tokenized like the index ({@link SearchTokenizer}) and every word
+ * is required. A quoted part is a phrase, and so is a run of Han characters;
+ * the word still being typed (the last one, with no space after it) matches
+ * as a prefix. Hangul words always match as prefixes, since Korean attaches
+ * particles to the word (God as subject or possessive is one token), so
+ * a finished word would otherwise miss most of its forms.
+ *
+ * Matches are ranked with BM25 and served {@link #PAGE_SIZE} at a time. The
+ * ranking of the last query is kept, so turning pages does not search again.
+ * The index holds tokens, not the verse text, so snippets are built here from
+ * the verses of the page.
+ */
+public class VerseSearch {
+    public static final int PAGE_SIZE = 20;
+    /** Longest snippet; longer verses are cut around the first match. */
+    static final int SNIPPET_CHARS = 160;
+
+    private static final double[] WEIGHTS = { 1.0 };
+
+    /** A verse matching the query, as read by {@link BibleDao#matchVerses}. */
+    public static class Match {
+        public int verseKey;
+        public byte[] matchinfo;
+    }
+
+    /** The queries search needs. Implemented over {@link BibleDao}. */
+    public interface Index {
+        /** @return the translation's key, or null if it was never downloaded */
+        Integer translationKey(String translationId);
+
+        List<Match> match(int translationKey, String query);
+
+        List<Verse> verses(int translationKey, List<Integer> verseKeys);
+    }
+
+    public static final class Hit {
+        private final int verseKey;
+        private final String snippet;
+
+        Hit(int verseKey, String snippet) {
+            this.verseKey = verseKey;
+            this.snippet = snippet;
+        }
+
+        public int getVerseKey() {
+            return verseKey;
+        }
+
+        /** @return the canonical book name */
+        public String getBook() {
+            return BibleData.BOOKS[VerseKey.bookOrdinal(verseKey)];
+        }
+
+        public int getChapter() {
+            return VerseKey.chapter(verseKey);
+        }
+
+        public int getVerse() {
+            return VerseKey.verse(verseKey);
+        }
+
+        /** The verse text, with matched words between {@link NoteSearch#MATCH_START} and {@link NoteSearch#MATCH_END}. */
+        public String getSnippet() {
+            return snippet;
+        }
+    }
+
+    public static final class Page {
+        private final List<Hit> hits;
+        private final int number;
+        private final int total;
+
+        Page(List<Hit> hits, int number, int total) {
+            this.hits = hits;
+            this.number = number;
+            this.total = total;
+        }
+
+        public List<Hit> getHits() {
+            return hits;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        /** Matching verses in all pages. */
+        public int getTotal() {
+            return total;
+        }
+
+        public boolean hasMore() {
+            return (number + 1) * PAGE_SIZE < total;
+        }
+    }
+
+    /** Typed input as an FTS MATCH expression, plus the tokens to highlight. */
+    static final class Query {
+        final String match;
+        final Set<String> words;
+        final List<String> prefixes;
+
+        Query(String match, Set<String> words, List<String> prefixes) {
+            this.match = match;
+            this.words = words;
+            this.prefixes = prefixes;
+        }
+
+        boolean matches(String token) {
+            if (words.contains(token))
+                return true;
+            for (String prefix : prefixes) {
+                if (token.startsWith(prefix))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    private final Index index;
+
+    // Ranking of the last query, best first
+    private int rankedTranslationKey;
+    private String rankedQuery;
+    private int[] ranked;
+
+    public VerseSearch(BibleDao dao) {
+        this(new DaoIndex(dao));
+    }
+
+    public VerseSearch(Index index) {
+        this.index = index;
+    }
+
+    /**
+     * One page (from 0) of the verses of {@code translationId} matching what the
+     * user typed, best first. Empty if the input has no words or the translation
+     * is not downloaded.
+     */
+    public synchronized Page search(String translationId, String input, int page) {
+        Query query = parse(input);
+        Integer translationKey = index.translationKey(translationId);
+        if (query == null || translationKey == null)
+            return new Page(Collections.emptyList(), page, 0);
+
+        if (ranked == null || rankedTranslationKey != translationKey || !query.match.equals(rankedQuery)) {
+            ranked = rank(index.match(translationKey, query.match));
+            rankedTranslationKey = translationKey;
+            rankedQuery = query.match;
+        }
+
+        int from = Math.min(ranked.length, page * PAGE_SIZE);
+        int to = Math.min(ranked.length, from + PAGE_SIZE);
+        List<Integer> keys = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            keys.add(ranked[i]);
+        }
+        Map<Integer, String> texts = new HashMap<>();
+        for (Verse verse : index.verses(translationKey, keys)) {
+            texts.put(verse.getVerseKey(), verse.getText());
+        }
+        List<Hit> hits = new ArrayList<>(keys.size());
+        for (int key : keys) {
+            String text = texts.get(key);
+            if (text != null) {
+                hits.add(new Hit(key, snippet(text, query)));
+            }
+        }
+        return new Page(hits, page, ranked.length);
+    }
+
+    /** Verse keys by BM25 score, best first, ties in canonical order. */
+    private static int[] rank(List<Match> matches) {
+        int n = matches.size();
+        double[] scores = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            scores[i] = rank(matches.get(i).matchinfo);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byScore = Double.compare(scores[b], scores[a]);
+            return byScore != 0 ? byScore : Integer.compare(matches.get(a).verseKey, matches.get(b).verseKey);
+        });
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = matches.get(order[i]).verseKey;
+        }
+        return keys;
+    }
+
+    /** BM25 score of one match from its matchinfo('pcnx'); verses are short, so lengths are left out. */
+    static double rank(byte[] matchinfo) {
+        return FtsRank.bm25(matchinfo, false, WEIGHTS);
+    }
+
+    /** @return null if the input has no words */
+    static Query parse(String input) {
+        if (input == null)
+            return null;
+        List<String> terms = new ArrayList<>();
+        Set<String> words = new HashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        int lastWord = -1; // Index in terms of the last unquoted single-token word
+
+        // Odd segments are quoted (an unclosed quote runs to the end)
+        String[] segments = input.split("\"", -1);
+        for (int s = 0; s < segments.length; s++) {
+            if (s % 2 == 1) {
+                List<String> tokens = tokens(segments[s]);
+                if (!tokens.isEmpty()) {
+                    terms.add(phrase(tokens, words, prefixes));
+                    lastWord = -1;
+                }
+                continue;
+            }
+            for (String word : segments[s].trim().split("\\s+")) {
+                List<String> tokens = tokens(word);
+                if (tokens.isEmpty())
+                    continue;
+                String token = tokens.get(0);
+                if (tokens.size() == 1 && isHangul(token)) {
+                    terms.add(term(token, words, prefixes)); // Already a prefix
+                    lastWord = -1;
+                } else if (tokens.size() == 1 && !SearchTokenizer.isHan(token.codePointAt(0))) {
+                    words.add(token);
+                    lastWord = terms.size();
+                    terms.add(token);
+                } else {
+                    terms.add(phrase(tokens, words, prefixes)); // e.g. a run of Han characters, or "3:16"
+                    lastWord = -1;
+                }
+            }
+        }
+        if (terms.isEmpty())
+            return null;
+
+        boolean stillTyping = segments.length % 2 == 1 && !input.isEmpty()
+                && !Character.isWhitespace(input.charAt(input.length() - 1));
+        if (stillTyping && lastWord == terms.size() - 1) {
+            String prefix = terms.get(lastWord);
+            words.remove(prefix);
+            prefixes.add(prefix);
+            terms.set(lastWord, prefix + "*");
+        }
+        StringBuilder match = new StringBuilder();
+        for (String term : terms) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(term);
+        }
+        return new Query(match.toString(), words, prefixes);
+    }
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        SearchTokenizer.tokenize(text, (start, end, token) -> tokens.add(token));
+        return tokens;
+    }
+
+    private static String phrase(List<String> tokens, Set<String> words, List<String> prefixes) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < tokens.size(); i++) {
+            sb.append(i == 0 ? "" : " ").append(term(tokens.get(i), words, prefixes));
+        }
+        return sb.append('"').toString();
+    }
+
+    /** A token as a query term: a prefix if it is Hangul, else the word itself. */
+    private static String term(String token, Set<String> words, List<String> prefixes) {
+        if (isHangul(token)) {
+            prefixes.add(token);
+            return token + "*";
+        }
+        words.add(token);
+        return token;
+    }
+
+    private static boolean isHangul(String token) {
+        return SearchTokenizer.isHangul(token.codePointAt(0));
+    }
+
+    /** {@code text} with the words {@code query} matches marked, cut around the first of them if long. */
+    static String snippet(String text, Query query) {
+        List<int[]> marks = new ArrayList<>();
+        SearchTokenizer.tokenize(text, (start, end, token) -> {
+            if (query.matches(token)) {
+                marks.add(new int[] { start, end });
+            }
+        });
+
+        int from = 0;
+        int to = text.length();
+        if (to > SNIPPET_CHARS) {
+            int first = marks.isEmpty() ? 0 : marks.get(0)[0];
+            from = Math.max(0, first - SNIPPET_CHARS / 4);
+            int space = text.lastIndexOf(' ', from);
+            if (from > 0 && space >= 0 && first - space < SNIPPET_CHARS / 2) {
+                from = space + 1; // Start on a word
+            }
+            from = Math.min(from, text.length() - SNIPPET_CHARS);
+            to = from + SNIPPET_CHARS;
+            if (Character.isLowSurrogate(text.charAt(from))) {
+                from++;
+            }
+            if (to < text.length() && Character.isLowSurrogate(text.charAt(to))) {
+                to--;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(to - from + 8);
+        if (from > 0) {
+            sb.append('\u2026');
+        }
+        int at = from;
+        for (int[] mark : marks) {
+            if (mark[0] < from || mark[1] > to)
+                continue;
+            sb.append(text, at, mark[0]).append(NoteSearch.MATCH_START).append(text, mark[0], mark[1])
+                    .append(NoteSearch.MATCH_END);
+            at = mark[1];
+        }
+        sb.append(text, at, to);
+        if (to < text.length()) {
+            sb.append('\u2026');
+        }
+        return sb.toString();
+    }
+
+    private static final class DaoIndex implements Index {
+        private final BibleDao dao;
+
+        DaoIndex(BibleDao dao) {
+            this.dao = dao;
+        }
+
+        @Override
+        public Integer translationKey(String translationId) {
+            return dao.findTranslationKey(translationId);
+        }
+
+        @Override
+        public List<Match> match(int translationKey, String query) {
+            return dao.matchVerses(translationKey, query);
+        }
+
+        @Override
+        public List<Verse> verses(int translationKey, List<Integer> verseKeys) {
+            return dao.getVersesByKeys(translationKey, verseKeys);
+        }
+    }
+}
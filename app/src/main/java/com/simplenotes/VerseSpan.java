@@ -0,0 +1,11 @@
+package com.simplenotes;
+
+/**
+ * Marks a fetched Bible verse block in the editor, in place of the
+ * \u200B ... \u200B markers older notes carry in their text.
+ *
+ * It has no appearance of its own; the verse color is an {@link AutoColorSpan}
+ * over the same range, so that a color the user picked still wins.
+ */
+public class VerseSpan {
+}
@@ -1,24 +1,93 @@
 package com.simplenotes.api;
 
+import android.content.Context;
+import com.simplenotes.utils.SingleFlight;
+import java.io.File;
+import okhttp3.OkHttpClient;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 public class ApiClient {
     private static Retrofit retrofit = null;
+    private static OkHttpClient httpClient = null;
+    private static VerseResponseCache verseCache = null;
+    private static final SingleFlight<String, VerseResult> VERSE_FLIGHTS = new SingleFlight<>();
 
-    public static BibleApiService getService() {
-        if (retrofit == null) {
-            okhttp3.OkHttpClient client = new okhttp3.OkHttpClient.Builder()
+    private static final class VerseResult {
+        final Call<BibleResponse> call;
+        final Response<BibleResponse> response;
+
+        VerseResult(Call<BibleResponse> call, Response<BibleResponse> response) {
+            this.call = call;
+            this.response = response;
+        }
+    }
+
+    /**
+     * Shared client so that every caller reuses one connection pool and
+     * dispatcher instead of paying a fresh TLS handshake per request.
+     */
+    public static synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = new OkHttpClient.Builder()
                     .connectTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
                     .readTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
                     .build();
+        }
+        return httpClient;
+    }
 
+    /** Verse lookup cache, persisted under {@code cacheDir/verse-responses}. */
+    public static synchronized VerseResponseCache getVerseCache(Context context) {
+        if (verseCache == null) {
+            verseCache = new VerseResponseCache(getHttpClient(),
+                    new File(context.getApplicationContext().getCacheDir(), "verse-responses"),
+                    VerseResponseCache.DEFAULT_MAX_SIZE);
+        }
+        return verseCache;
+    }
+
+    public static synchronized BibleApiService getService(Context context) {
+        if (retrofit == null) {
             retrofit = new Retrofit.Builder()
                     .baseUrl("https://bible-api.com/")
-                    .client(client)
+                    .client(getVerseCache(context).getClient())
                     .addConverterFactory(GsonConverterFactory.create())
                     .build();
         }
         return retrofit.create(BibleApiService.class);
     }
+
+    /**
+     * Looks up a reference on bible-api.com. Concurrent lookups of the same
+     * normalized reference and translation share one HTTP call, and every caller's
+     * callback is invoked (on the main thread) with the same response.
+     */
+    public static void fetchVerse(Context context, String reference, String translation,
+            Callback<BibleResponse> callback) {
+        String normalized = VerseResponseCache.normalizeReference(reference);
+        BibleApiService service = getService(context);
+        VERSE_FLIGHTS.execute(normalized + '|' + translation,
+                done -> service.getVerse(normalized, translation).enqueue(new Callback<BibleResponse>() {
+                    @Override
+                    public void onResponse(Call<BibleResponse> call, Response<BibleResponse> response) {
+                        done.onComplete(new VerseResult(call, response), null);
+                    }
+
+                    @Override
+                    public void onFailure(Call<BibleResponse> call, Throwable t) {
+                        done.onComplete(new VerseResult(call, null), t);
+                    }
+                }),
+                (result, error) -> {
+                    if (error != null) {
+                        callback.onFailure(result != null ? result.call : null, error);
+                    } else {
+                        callback.onResponse(result.call, result.response);
+                    }
+                });
+    }
 }
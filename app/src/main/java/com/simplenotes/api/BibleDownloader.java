@@ -1,20 +1,23 @@
 package com.simplenotes.api;
 
 import android.content.Context;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import android.util.Log;
 import com.simplenotes.AppDatabase;
 import com.simplenotes.Verse;
+import com.simplenotes.VerseBulkLoader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
 public class BibleDownloader {
+    private static final String TAG = "BibleDownloader";
+    // Base URL for aruljohn/Bible-telugu
+    private static final String TELUGU_BASE_URL = "https://raw.githubusercontent.com/aruljohn/Bible-telugu/master/";
+    private static final int TELUGU_PARALLEL_BOOKS = com.simplenotes.AppExecutors.NETWORK_THREADS;
     private static final Map<String, String> VERSION_URLS = new HashMap<>();
 
     // ... URLs ...
@@ -57,6 +60,10 @@ public class BibleDownloader {
         void onSuccess();
 
         void onFailure(String error);
+
+        /** Called on the main thread after each committed chunk of verses. */
+        default void onProgress(int versesInserted, int versesPerSecond) {
+        }
     }
 
     public static boolean isVersionSupported(String versionId) {
@@ -75,103 +82,44 @@ public class BibleDownloader {
             return;
         }
 
-        com.simplenotes.AppExecutors.getInstance().diskIO().execute(() -> {
-            try {
-                OkHttpClient client = new OkHttpClient();
-                Request request = new Request.Builder().url(url).build();
-                Response response = client.newCall(request).execute();
+        com.simplenotes.AppExecutors.getInstance().downloadIO().execute(() -> {
+            Request request = new Request.Builder().url(url).build();
 
+            try (Response response = ApiClient.getHttpClient().newCall(request).execute()) {
                 if (!response.isSuccessful() || response.body() == null) {
                     throw new IOException("Failed to download file: " + response.code());
                 }
 
-                String jsonData = response.body().string();
-                Gson gson = new Gson();
-                List<Verse> versesToInsert = new ArrayList<>();
-
-                if (versionId.equals("niv") || versionId.equals("nlt")) {
-                    // Handle Map Format (Book -> Chapter -> Verse -> Text)
-                    java.lang.reflect.Type type = new TypeToken<Map<String, Map<String, Map<String, String>>>>() {
-                    }.getType();
-                    Map<String, Map<String, Map<String, String>>> bibleMap = gson.fromJson(jsonData, type);
-
-                    // Use Canonical Order from BibleData
-                    for (String bookName : com.simplenotes.BibleData.BOOKS) {
-                        Map<String, Map<String, String>> bookData = bibleMap.get(bookName);
-                        if (bookData == null)
-                            continue; // Book not found in JSON (or name mismatch)
-
-                        // Iterate Chapters (Keys are "1", "2", etc.)
-                        List<String> chapterKeys = new ArrayList<>(bookData.keySet());
-                        // Sort chapters numerically to be safe
-                        chapterKeys.sort((a, b) -> {
-                            try {
-                                return Integer.compare(Integer.parseInt(a), Integer.parseInt(b));
-                            } catch (NumberFormatException e) {
-                                return a.compareTo(b);
-                            }
-                        });
-
-                        for (String chapterKey : chapterKeys) {
-                            Map<String, String> verseData = bookData.get(chapterKey);
-                            if (verseData == null)
-                                continue;
-
-                            List<String> verseKeys = new ArrayList<>(verseData.keySet());
-                            // Sort verses numerically
-                            verseKeys.sort((a, b) -> {
-                                try {
-                                    return Integer.compare(Integer.parseInt(a), Integer.parseInt(b));
-                                } catch (NumberFormatException e) {
-                                    return a.compareTo(b);
-                                }
-                            });
-
-                            for (String verseKey : verseKeys) {
-                                String text = verseData.get(verseKey);
-                                try {
-                                    int chapter = Integer.parseInt(chapterKey);
-                                    int verse = Integer.parseInt(verseKey);
-                                    versesToInsert.add(new Verse(versionId, bookName, chapter, verse, text));
-                                } catch (NumberFormatException e) {
-                                    // Skip malformed keys
-                                }
-                            }
-                        }
-                    }
-
-                } else {
-                    // Handle List Format (List<BookJson>) - Existing Logic
-                    List<BookJson> books = gson.fromJson(jsonData, new TypeToken<List<BookJson>>() {
-                    }.getType());
-
-                    for (BookJson book : books) {
-                        for (int c = 0; c < book.chapters.size(); c++) {
-                            List<String> verses = book.chapters.get(c);
-                            for (int v = 0; v < verses.size(); v++) {
-                                // c is 0-indexed index, chapter is c+1
-                                // v is 0-indexed index, verse is v+1
-                                versesToInsert.add(new Verse(
-                                        versionId,
-                                        book.name,
-                                        c + 1,
-                                        v + 1,
-                                        verses.get(v)));
-                            }
-                        }
+                // Stream the body straight into the DB in bounded batches instead of
+                // holding the raw JSON, a Gson tree and every Verse in memory at once.
+                AppDatabase db = AppDatabase.getDatabase(context);
+                List<com.simplenotes.BookName> bookNames = new ArrayList<>();
+                try (VerseBulkLoader loader = db.newVerseBulkLoader(progressReporter(callback))) {
+                    VerseStreamParser parser = new VerseStreamParser(versionId,
+                            VerseStreamParser.DEFAULT_BATCH_SIZE, loader::insert);
+                    parser.setBookNameListener((bookOrdinal, name) -> bookNames
+                            .add(new com.simplenotes.BookName(0, bookOrdinal, name)));
+
+                    if (versionId.equals("niv") || versionId.equals("nlt")) {
+                        // Handle Map Format (Book -> Chapter -> Verse -> Text)
+                        parser.parseBookMap(response.body().charStream());
+                    } else {
+                        // Handle List Format (List<BookJson>)
+                        parser.parseBookList(response.body().charStream());
                     }
+                    loader.finish();
+                    logThroughput(versionId, loader);
                 }
 
-                // Insert into DB
-                AppDatabase db = AppDatabase.getDatabase(context);
-                db.bibleDao().insertVerses(versesToInsert);
                 db.bibleDao().markVersionDownloaded(versionId);
+                saveBookNames(db, versionId, bookNames);
+                buildVersePack(context, db, versionId);
 
                 // Notify Main Thread
                 com.simplenotes.AppExecutors.getInstance().mainThread().execute(callback::onSuccess);
 
             } catch (Exception e) {
-                e.printStackTrace();
+                Log.e(TAG, "Failed to download " + versionId, e);
                 com.simplenotes.AppExecutors.getInstance().mainThread()
                         .execute(() -> callback.onFailure(e.getMessage()));
             }
@@ -179,101 +127,89 @@ public class BibleDownloader {
     }
 
     private static void downloadTelugu(Context context, DownloadCallback callback) {
-        com.simplenotes.AppExecutors.getInstance().diskIO().execute(() -> {
+        com.simplenotes.AppExecutors executors = com.simplenotes.AppExecutors.getInstance();
+        executors.downloadIO().execute(() -> {
             try {
-                OkHttpClient client = new OkHttpClient();
-                Gson gson = new Gson();
-                List<Verse> allVerses = new ArrayList<>();
                 AppDatabase db = AppDatabase.getDatabase(context);
-
-                int successCount = 0;
-                // Base URL for aruljohn/Bible-telugu
-                String baseUrl = "https://raw.githubusercontent.com/aruljohn/Bible-telugu/master/";
-
-                for (String bookName : com.simplenotes.BibleData.BOOKS) {
-                    // Handle URL encoding for filenames with spaces (e.g. "1 Samuel" ->
-                    // "1%20Samuel")
-                    // URLEncoder encodes spaces as '+' which might fail on raw.github, so we
-                    // manually swap
-                    String encodedName = bookName.replace(" ", "%20");
-                    String url = baseUrl + encodedName + ".json";
-
-                    Request request = new Request.Builder().url(url).build();
-                    try (Response response = client.newCall(request).execute()) {
-                        if (!response.isSuccessful() || response.body() == null) {
-                            System.err.println("Failed to download book: " + bookName);
-                            continue; // Skip failed book but try others (or could fail hard)
-                        }
-
-                        String jsonData = response.body().string();
-                        // Parse individual book structure
-                        TeluguBookResponse bookData = gson.fromJson(jsonData, TeluguBookResponse.class);
-
-                        if (bookData != null && bookData.chapters != null) {
-                            for (TeluguChapter chap : bookData.chapters) {
-                                if (chap.verses == null)
-                                    continue;
-                                int chapterNum = Integer.parseInt(chap.chapter);
-
-                                for (TeluguVerse v : chap.verses) {
-                                    int verseNum = Integer.parseInt(v.verse);
-                                    allVerses.add(new Verse(
-                                            "tel",
-                                            bookName, // Use canonical name from BibleData
-                                            chapterNum,
-                                            verseNum,
-                                            v.text));
-                                }
-                            }
-                            successCount++;
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
+                BookFetchPipeline pipeline = new BookFetchPipeline(ApiClient.getHttpClient(),
+                        executors.networkIO(), TELUGU_PARALLEL_BOOKS);
+
+                int successCount;
+                try (VerseBulkLoader loader = db.newVerseBulkLoader(progressReporter(callback))) {
+                    // Books download in parallel but are written here one at a time, in
+                    // canonical BibleData.BOOKS order.
+                    successCount = pipeline.run(java.util.Arrays.asList(com.simplenotes.BibleData.BOOKS),
+                            BibleDownloader::teluguBookUrl,
+                            BibleDownloader::parseTeluguBook,
+                            (bookName, verses) -> loader.insert(verses));
+                    loader.finish();
+                    logThroughput("tel", loader);
                 }
 
                 if (successCount == 0) {
                     throw new IOException("Failed to download any Telugu books.");
                 }
-
-                // Insert into DB in one transaction
-                db.bibleDao().insertVerses(allVerses);
                 db.bibleDao().markVersionDownloaded("tel");
+                buildVersePack(context, db, "tel");
 
-                com.simplenotes.AppExecutors.getInstance().mainThread().execute(callback::onSuccess);
+                executors.mainThread().execute(callback::onSuccess);
 
             } catch (Exception e) {
-                e.printStackTrace();
-                com.simplenotes.AppExecutors.getInstance().mainThread()
-                        .execute(() -> callback.onFailure(e.getMessage()));
+                Log.e(TAG, "Failed to download tel", e);
+                executors.mainThread().execute(() -> callback.onFailure(e.getMessage()));
             }
         });
     }
 
-    // --- Telugu JSON Mapping Classes ---
-    private static class TeluguBookResponse {
-        // "book": { "english": "Genesis", ... }
-        // We don't strictly need the book object if we use our loop's bookName,
-        // but removing it might break GSON matching if not careful.
-        // GSON ignores missing fields, so we just match "chapters".
-        List<TeluguChapter> chapters;
+    static String teluguBookUrl(String bookName) {
+        // Handle URL encoding for filenames with spaces (e.g. "1 Samuel" ->
+        // "1%20Samuel")
+        // URLEncoder encodes spaces as '+' which might fail on raw.github, so we
+        // manually swap
+        return TELUGU_BASE_URL + bookName.replace(" ", "%20") + ".json";
+    }
+
+    static List<Verse> parseTeluguBook(String bookName, java.io.Reader body) throws IOException {
+        List<Verse> verses = new ArrayList<>();
+        VerseStreamParser parser = new VerseStreamParser("tel", VerseStreamParser.DEFAULT_BATCH_SIZE,
+                verses::addAll);
+        parser.parseTeluguBook(body, bookName); // Use canonical name from BibleData
+        return verses;
+    }
+
+    private static void saveBookNames(AppDatabase db, String versionId, List<com.simplenotes.BookName> names) {
+        if (names.isEmpty())
+            return;
+        int translationKey = db.bibleDao().getOrCreateTranslationKey(versionId);
+        for (com.simplenotes.BookName name : names) {
+            name.setTranslationKey(translationKey);
+        }
+        db.bibleDao().insertBookNames(names);
+        // Let references typed with this translation's book names resolve offline
+        com.simplenotes.BookIndex.setInstance(com.simplenotes.BookIndex.load(db.bibleDao()));
     }
 
-    private static class TeluguChapter {
-        String chapter;
-        List<TeluguVerse> verses;
+    private static void buildVersePack(Context context, AppDatabase db, String versionId) {
+        // The DB stays the source of truth; lookups just fall back to it if this fails
+        try {
+            long start = System.nanoTime();
+            com.simplenotes.VersePacks.build(context, db, versionId);
+            Log.d(TAG, "Built verse pack for " + versionId + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Failed to build verse pack for " + versionId, e);
+        }
+        // Chapters cached before the download may be partial (network-fetched verses only)
+        com.simplenotes.VerseRepository.getInstance(context).invalidate(versionId);
     }
 
-    private static class TeluguVerse {
-        String verse;
-        String text;
+    private static VerseBulkLoader.ProgressListener progressReporter(DownloadCallback callback) {
+        return (rowsInserted, rowsPerSecond) -> com.simplenotes.AppExecutors.getInstance().mainThread()
+                .execute(() -> callback.onProgress(rowsInserted, rowsPerSecond));
     }
-    // -----------------------------------
 
-    // JSON Mapping Classes
-    private static class BookJson {
-        String abbrev;
-        List<List<String>> chapters;
-        String name;
+    private static void logThroughput(String versionId, VerseBulkLoader loader) {
+        Log.d(TAG, "Inserted " + loader.getRowsInserted() + " verses for " + versionId + " at "
+                + loader.getRowsPerSecond() + " rows/s");
     }
 }
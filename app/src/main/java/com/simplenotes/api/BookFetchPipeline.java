@@ -0,0 +1,112 @@
+package com.simplenotes.api;
+
+import android.util.Log;
+import com.simplenotes.Verse;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Bounded-concurrency fetch -> parse -> insert pipeline for translations that
+ * are published as one file per book.
+ *
+ * Up to {@code maxInFlight} books are downloaded and parsed in parallel on the
+ * network executor, while the calling thread acts as the single writer and
+ * consumes them strictly in the order given. Only the books inside the window
+ * are ever held in memory.
+ */
+public class BookFetchPipeline {
+    private static final String TAG = "BookFetchPipeline";
+
+    public interface UrlResolver {
+        String urlFor(String bookName);
+    }
+
+    public interface BookParser {
+        List<Verse> parse(String bookName, Reader body) throws IOException;
+    }
+
+    public interface BookWriter {
+        void write(String bookName, List<Verse> verses) throws IOException;
+    }
+
+    private final OkHttpClient client;
+    private final Executor networkExecutor;
+    private final int maxInFlight;
+
+    public BookFetchPipeline(OkHttpClient client, Executor networkExecutor, int maxInFlight) {
+        this.client = client;
+        this.networkExecutor = networkExecutor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Runs the pipeline on the calling thread. Books that fail to download or
+     * parse are skipped, as before.
+     *
+     * @return the number of books that were written
+     */
+    public int run(List<String> books, UrlResolver urls, BookParser parser, BookWriter writer)
+            throws IOException, InterruptedException {
+        int count = books.size();
+        @SuppressWarnings("unchecked")
+        FutureTask<List<Verse>>[] window = new FutureTask[count];
+
+        int submitted = 0;
+        while (submitted < Math.min(maxInFlight, count)) {
+            window[submitted] = submit(books.get(submitted), urls, parser);
+            submitted++;
+        }
+
+        int written = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                List<Verse> verses = null;
+                try {
+                    verses = window[i].get();
+                } catch (ExecutionException e) {
+                    Log.e(TAG, "Failed to download book: " + books.get(i), e.getCause());
+                }
+                window[i] = null; // Let the parsed book be collected once written
+
+                // Keep the window full before blocking on the DB
+                if (submitted < count) {
+                    window[submitted] = submit(books.get(submitted), urls, parser);
+                    submitted++;
+                }
+
+                if (verses != null && !verses.isEmpty()) {
+                    writer.write(books.get(i), verses);
+                    written++;
+                }
+            }
+        } finally {
+            for (FutureTask<List<Verse>> task : window) {
+                if (task != null) {
+                    task.cancel(true);
+                }
+            }
+        }
+        return written;
+    }
+
+    private FutureTask<List<Verse>> submit(String bookName, UrlResolver urls, BookParser parser) {
+        FutureTask<List<Verse>> task = new FutureTask<>(() -> {
+            Request request = new Request.Builder().url(urls.urlFor(bookName)).build();
+            try (Response response = client.newCall(request).execute()) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    throw new IOException("HTTP " + response.code() + " for " + bookName);
+                }
+                return parser.parse(bookName, response.body().charStream());
+            }
+        });
+        networkExecutor.execute(task);
+        return task;
+    }
+}
@@ -0,0 +1,128 @@
+package com.simplenotes.api;
+
+import com.simplenotes.BibleData;
+import com.simplenotes.BookIndex;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Persistent, size-capped HTTP cache for bible-api.com verse lookups.
+ *
+ * Entries are keyed on the request URL, so callers should pass references
+ * through {@link #normalizeReference} first. Verse text never changes, so
+ * responses are stored as fresh for {@link #MAX_AGE_DAYS} regardless of the
+ * server's headers, and when the network is unreachable any cached copy is
+ * served even if it is stale.
+ *
+ * Bulk translation downloads deliberately use the plain shared client so they
+ * never churn this cache.
+ */
+public class VerseResponseCache {
+    public static final long DEFAULT_MAX_SIZE = 2L * 1024 * 1024;
+    public static final int MAX_AGE_DAYS = 30;
+
+    private final Cache cache;
+    private final OkHttpClient client;
+    private final AtomicInteger offlineAttemptCount = new AtomicInteger();
+    private final AtomicInteger offlineFallbackCount = new AtomicInteger();
+
+    public VerseResponseCache(OkHttpClient baseClient, File directory, long maxSize) {
+        this.cache = new Cache(directory, maxSize);
+        this.client = baseClient.newBuilder()
+                .cache(cache)
+                .addInterceptor(this::serveStaleWhenOffline)
+                .addNetworkInterceptor(VerseResponseCache::markImmutable)
+                .build();
+    }
+
+    /** Client that shares the base client's connection pool but reads and writes the cache. */
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    /** Requests answered from the cache without any network traffic. */
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    /** Requests that went to the network (including conditional revalidations). */
+    public int getNetworkCount() {
+        return cache.networkCount();
+    }
+
+    public int getRequestCount() {
+        return cache.requestCount();
+    }
+
+    /** Requests that failed on the network and were answered with a stale cached copy. */
+    public int getOfflineFallbackCount() {
+        return offlineFallbackCount.get();
+    }
+
+    /**
+     * Fraction of lookups answered from the cache, including offline fallbacks.
+     * The cache-only retry behind a fallback is not counted as a separate lookup.
+     */
+    public float getHitRate() {
+        int lookups = cache.requestCount() - offlineAttemptCount.get();
+        return lookups <= 0 ? 0f : (float) cache.hitCount() / lookups;
+    }
+
+    /**
+     * Canonical form of a user-typed reference so that "john 3:16", "John  3 : 16"
+     * and "John 3:16" share one cache entry: whitespace collapsed, no spaces around
+     * ':' or '-', and the book name in its {@link BibleData#BOOKS} spelling when
+     * {@link BookIndex} resolves it ("jn", "1 Cor", a downloaded localized name).
+     */
+    public static String normalizeReference(String reference) {
+        String ref = reference.trim().replaceAll("\\s+", " ").replaceAll(" ?([:\\-]) ?", "$1");
+        int lastSpace = ref.lastIndexOf(' ');
+        if (lastSpace <= 0)
+            return ref;
+
+        String book = ref.substring(0, lastSpace);
+        String canonical = BookIndex.getInstance().canonicalName(book);
+        if (canonical != null)
+            return canonical + ref.substring(lastSpace);
+        return book.toLowerCase(Locale.ROOT) + ref.substring(lastSpace);
+    }
+
+    private Response serveStaleWhenOffline(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        try {
+            return chain.proceed(request);
+        } catch (IOException e) {
+            offlineAttemptCount.incrementAndGet();
+            Response cached = chain.proceed(request.newBuilder()
+                    .cacheControl(CacheControl.FORCE_CACHE)
+                    .build());
+            if (cached.code() == 504) { // Not in cache either
+                cached.close();
+                throw e;
+            }
+            offlineFallbackCount.incrementAndGet();
+            return cached;
+        }
+    }
+
+    private static Response markImmutable(Interceptor.Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        if (!response.isSuccessful())
+            return response;
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .header("Cache-Control", new CacheControl.Builder()
+                        .maxAge(MAX_AGE_DAYS, TimeUnit.DAYS)
+                        .build().toString())
+                .build();
+    }
+}
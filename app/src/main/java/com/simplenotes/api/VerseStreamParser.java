@@ -0,0 +1,299 @@
+package com.simplenotes.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.simplenotes.BibleData;
+import com.simplenotes.Verse;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streams a downloaded translation straight from the response body into
+ * fixed-size batches of {@link Verse} rows.
+ *
+ * Neither the raw JSON nor a parsed tree of the whole Bible is ever held in
+ * memory, so peak usage is bounded by the batch size (plus one book when a
+ * book's name arrives after its chapters) regardless of translation size.
+ */
+public class VerseStreamParser {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final Set<String> CANONICAL_BOOKS = new HashSet<>(Arrays.asList(BibleData.BOOKS));
+
+    public interface BatchListener {
+        /**
+         * Called every time a batch fills up. The list is cleared and reused for the
+         * next batch, so it must be consumed before returning.
+         */
+        void onBatch(List<Verse> batch) throws IOException;
+    }
+
+    public interface BookNameListener {
+        /** Called when a book's own name differs from its canonical one. */
+        void onBookName(int bookOrdinal, String name);
+    }
+
+    private final String translationId;
+    private final int batchSize;
+    private final BatchListener listener;
+    private final List<Verse> batch;
+    private BookNameListener bookNameListener;
+    private int verseCount = 0;
+
+    public VerseStreamParser(String translationId, int batchSize, BatchListener listener) {
+        this.translationId = translationId;
+        this.batchSize = Math.max(1, batchSize);
+        this.listener = listener;
+        this.batch = new ArrayList<>(Math.min(this.batchSize, DEFAULT_BATCH_SIZE));
+    }
+
+    public void setBookNameListener(BookNameListener bookNameListener) {
+        this.bookNameListener = bookNameListener;
+    }
+
+    public int getVerseCount() {
+        return verseCount;
+    }
+
+    /**
+     * List Format: [{"abbrev": "gn", "chapters": [["v1", "v2"], ...], "name":
+     * "Genesis"}, ...]
+     * Books are in canonical order, so a localized or variant name falls back to
+     * the {@link BibleData#BOOKS} entry at the same position.
+     */
+    public void parseBookList(Reader in) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        reader.beginArray();
+        int position = 0;
+        while (reader.hasNext()) {
+            readListBook(reader, position++);
+        }
+        reader.endArray();
+        flush();
+    }
+
+    /**
+     * Map Format (NIV/NLT): {"Genesis": {"1": {"1": "text", ...}, ...}, ...}
+     * Books that are not in {@link BibleData#BOOKS} are skipped.
+     */
+    public void parseBookMap(Reader in) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String bookName = reader.nextName();
+            if (!CANONICAL_BOOKS.contains(bookName) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue(); // Book not in canonical list (or name mismatch)
+                continue;
+            }
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                int chapter = parseKey(reader.nextName());
+                if (chapter < 0 || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue(); // Skip malformed keys
+                    continue;
+                }
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    int verse = parseKey(reader.nextName());
+                    if (verse < 0 || reader.peek() != JsonToken.STRING) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    add(new Verse(translationId, bookName, chapter, verse, reader.nextString()));
+                }
+                reader.endObject();
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        flush();
+    }
+
+    /**
+     * Telugu per-book Format: {"book": {...}, "chapters": [{"chapter": "1",
+     * "verses": [{"verse": "1", "text": "..."}, ...]}, ...]}
+     * The file carries no usable book key, so the canonical name is passed in.
+     */
+    public void parseTeluguBook(Reader in, String bookName) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"chapters".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readTeluguChapter(reader, bookName);
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        flush();
+    }
+
+    private void readTeluguChapter(JsonReader reader, String bookName) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        int chapter = -1;
+        // "verses" may come before "chapter", so hold this chapter's rows until both are known
+        List<Verse> verses = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if ("chapter".equals(key) && isScalar(reader.peek())) {
+                chapter = parseKey(reader.nextString());
+            } else if ("verses".equals(key) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readTeluguVerse(reader, bookName, verses);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (chapter < 0)
+            return; // Skip malformed chapter
+        for (Verse v : verses) {
+            v.setChapter(chapter);
+            add(v);
+        }
+    }
+
+    private void readTeluguVerse(JsonReader reader, String bookName, List<Verse> out) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        int verse = -1;
+        String text = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if ("verse".equals(key) && isScalar(reader.peek())) {
+                verse = parseKey(reader.nextString());
+            } else if ("text".equals(key) && reader.peek() == JsonToken.STRING) {
+                text = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (verse >= 0) {
+            out.add(new Verse(translationId, bookName, 0, verse, text));
+        }
+    }
+
+    private void readListBook(JsonReader reader, int position) throws IOException {
+        String name = null;
+        // Only used if "chapters" shows up before "name" in the book object
+        List<Verse> pending = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if ("name".equals(key) && reader.peek() == JsonToken.STRING) {
+                String rawName = reader.nextString();
+                name = canonicalName(rawName, position);
+                if (bookNameListener != null && !rawName.equals(name) && position < BibleData.BOOKS.length) {
+                    bookNameListener.onBookName(position, rawName);
+                }
+            } else if ("chapters".equals(key) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                if (name == null) {
+                    pending = new ArrayList<>();
+                }
+                readChapters(reader, name, pending);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (pending != null) {
+            if (name == null) {
+                name = canonicalName(null, position);
+            }
+            for (Verse v : pending) {
+                v.setBook(name);
+                add(v);
+            }
+        }
+    }
+
+    private void readChapters(JsonReader reader, String bookName, List<Verse> pending) throws IOException {
+        reader.beginArray();
+        int c = 0;
+        while (reader.hasNext()) {
+            c++; // chapter is 1-indexed
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            int v = 0;
+            while (reader.hasNext()) {
+                v++; // verse is 1-indexed
+                if (reader.peek() != JsonToken.STRING) {
+                    reader.skipValue();
+                    continue;
+                }
+                Verse verse = new Verse(translationId, bookName, c, v, reader.nextString());
+                if (pending != null) {
+                    pending.add(verse);
+                } else {
+                    add(verse);
+                }
+            }
+            reader.endArray();
+        }
+        reader.endArray();
+    }
+
+    private void add(Verse verse) throws IOException {
+        batch.add(verse);
+        verseCount++;
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (!batch.isEmpty()) {
+            listener.onBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private static String canonicalName(String name, int position) {
+        if (name != null && CANONICAL_BOOKS.contains(name))
+            return name;
+        return position < BibleData.BOOKS.length ? BibleData.BOOKS[position] : name;
+    }
+
+    private static boolean isScalar(JsonToken token) {
+        return token == JsonToken.STRING || token == JsonToken.NUMBER;
+    }
+
+    private static int parseKey(String key) {
+        try {
+            return Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.simplenotes.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * BM25 relevance from an FTS4 matchinfo blob, for ranking matches in Java
+ * (FTS4 has no rank function of its own).
+ */
+public final class FtsRank {
+    /** matchinfo format with row lengths, for length-normalized scores. */
+    public static final String WITH_LENGTHS = "pcnalx";
+    /**
+     * matchinfo format without row lengths. Reading each row's length is most
+     * of matchinfo's cost, so use this where rows are about the same length.
+     */
+    public static final String WITHOUT_LENGTHS = "pcnx";
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private FtsRank() {
+    }
+
+    /**
+     * @param matchinfo in {@link #WITH_LENGTHS} or {@link #WITHOUT_LENGTHS} format
+     * @param weights per column; missing columns weigh 1
+     * @return the score, higher is better
+     */
+    public static double bm25(byte[] matchinfo, boolean withLengths, double[] weights) {
+        IntBuffer info = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0);
+        int columns = info.get(1);
+        int rows = info.get(2);
+        int hitsAt = withLengths ? 3 + 2 * columns : 3;
+        double score = 0;
+        for (int column = 0; column < columns; column++) {
+            double weight = column < weights.length ? weights[column] : 1.0;
+            double lengthRatio = 1; // Without lengths every row counts as average
+            if (withLengths) {
+                lengthRatio = (double) info.get(3 + columns + column) / Math.max(1, info.get(3 + column));
+            }
+            for (int phrase = 0; phrase < phrases; phrase++) {
+                int hits = hitsAt + 3 * (column + phrase * columns);
+                int inRow = info.get(hits);
+                if (inRow == 0)
+                    continue;
+                int rowsWithHits = info.get(hits + 2);
+                // Floored, so that a word in most rows still counts for a little
+                double idf = Math.max(1e-6, Math.log((rows - rowsWithHits + 0.5) / (rowsWithHits + 0.5)));
+                score += weight * idf * inRow * (K1 + 1) / (inRow + K1 * (1 - B + B * lengthRatio));
+            }
+        }
+        return score;
+    }
+}
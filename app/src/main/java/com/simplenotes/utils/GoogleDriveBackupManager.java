@@ -20,6 +20,7 @@ import com.google.gson.reflect.TypeToken;
 import com.simplenotes.AppDatabase;
 import com.simplenotes.AppExecutors;
 import com.simplenotes.Note;
+import com.simplenotes.NoteStore;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -92,6 +93,7 @@ public class GoogleDriveBackupManager {
         AppExecutors.getInstance().diskIO().execute(() -> {
             try {
                 // 1. Fetch notes from local DB
+                NoteStore.getInstance(context).compactAll(); // Back up full content
                 List<Note> notes = AppDatabase.getDatabase(context).noteDao().getAllNotes();
                 if (notes == null) {
                     notes = Collections.emptyList();
@@ -181,7 +183,7 @@ public class GoogleDriveBackupManager {
 
                 // 4. Upsert notes into Room DB
                 for (Note note : restoredNotes) {
-                    AppDatabase.getDatabase(context).noteDao().insert(note);
+                    NoteStore.getInstance(context).replace(note); // Drops ops logged against the old content
                 }
 
                 int count = restoredNotes.size();
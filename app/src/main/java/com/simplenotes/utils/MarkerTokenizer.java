@@ -0,0 +1,209 @@
+package com.simplenotes.utils;
+
+import android.text.Editable;
+
+/**
+ * Single-pass, regex-free scanner for the invisible markers notes are stored
+ * with:
+ * <ul>
+ * <li>{@link #VERSE}: {@code \u200B}, wrapping a fetched verse on both sides</li>
+ * <li>{@link #OPEN}: {@code \u200C{n}}, starting a highlight in color n</li>
+ * <li>{@link #CLOSE}: {@code \u200D}, ending a highlight</li>
+ * <li>{@link #BARE_OPEN}: a {@code \u200C} without a color tag (the legacy
+ * closer)</li>
+ * <li>{@link #TAG}: a {@code {n}} whose {@code \u200C} was lost, which still
+ * opens a highlight</li>
+ * </ul>
+ * Tokens go into one reusable int array, {@link #STRIDE} ints per token
+ * (type, start, end, value), so scanning allocates nothing once the array has
+ * grown to fit. Types are bit flags so callers can pick several at once.
+ *
+ * Not thread-safe; keep one instance per caller or use the static helpers.
+ */
+public final class MarkerTokenizer {
+    public static final int VERSE = 1;
+    public static final int OPEN = 1 << 1;
+    public static final int BARE_OPEN = 1 << 2;
+    public static final int CLOSE = 1 << 3;
+    public static final int TAG = 1 << 4;
+
+    /** What the editor hides: {@code \u200C}, {@code \u200C{n}} and {@code \u200D}. */
+    public static final int HIGHLIGHT_MARKERS = OPEN | BARE_OPEN | CLOSE;
+    /** Everything that belongs to highlight syntax, including a stray {@code {n}}. */
+    public static final int HIGHLIGHT_SYNTAX = HIGHLIGHT_MARKERS | TAG;
+
+    public static final int STRIDE = 4;
+    private static final int TYPE = 0;
+    private static final int START = 1;
+    private static final int END = 2;
+    private static final int VALUE = 3;
+
+    public static final char VERSE_CHAR = '\u200B';
+    public static final char OPEN_CHAR = '\u200C';
+    public static final char CLOSE_CHAR = '\u200D';
+
+    private int[] tokens = new int[64 * STRIDE];
+    private int count = 0;
+
+    /**
+     * Scans {@code text[start, end)}, replacing the previous result. Offsets are
+     * absolute indexes into {@code text}.
+     *
+     * @return the number of tokens found
+     */
+    public int tokenize(CharSequence text, int start, int end) {
+        count = 0;
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == VERSE_CHAR) {
+                add(VERSE, i, i + 1, -1);
+                i++;
+            } else if (c == CLOSE_CHAR) {
+                add(CLOSE, i, i + 1, -1);
+                i++;
+            } else if (c == OPEN_CHAR) {
+                int tagEnd = tagEnd(text, i + 1, end);
+                if (tagEnd > 0) {
+                    add(OPEN, i, tagEnd, tagValue(text, i + 2, tagEnd - 1));
+                    i = tagEnd;
+                } else {
+                    add(BARE_OPEN, i, i + 1, -1);
+                    i++;
+                }
+            } else if (c == '{') {
+                int tagEnd = tagEnd(text, i, end);
+                if (tagEnd > 0) {
+                    add(TAG, i, tagEnd, tagValue(text, i + 1, tagEnd - 1));
+                    i = tagEnd;
+                } else {
+                    i++;
+                }
+            } else {
+                i++;
+            }
+        }
+        return count;
+    }
+
+    public int tokenize(CharSequence text) {
+        return tokenize(text, 0, text.length());
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /** The backing array; token {@code i} is at {@code [i * STRIDE, (i + 1) * STRIDE)}. */
+    public int[] getTokens() {
+        return tokens;
+    }
+
+    public int type(int token) {
+        return tokens[token * STRIDE + TYPE];
+    }
+
+    public int start(int token) {
+        return tokens[token * STRIDE + START];
+    }
+
+    public int end(int token) {
+        return tokens[token * STRIDE + END];
+    }
+
+    /** Color index of an {@link #OPEN} or {@link #TAG}; -1 for other types or if it overflows an int. */
+    public int value(int token) {
+        return tokens[token * STRIDE + VALUE];
+    }
+
+    /** @return the first token at or after {@code from} whose type is in {@code types}, or -1 */
+    public int next(int from, int types) {
+        for (int i = from; i < count; i++) {
+            if ((tokens[i * STRIDE + TYPE] & types) != 0)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Copies {@code text} without the tokens in {@code types}, in one pass (like
+     * {@code String.replaceAll} with the matching pattern).
+     */
+    public static String strip(CharSequence text, int types) {
+        MarkerTokenizer tokenizer = new MarkerTokenizer();
+        tokenizer.tokenize(text);
+        if (tokenizer.next(0, types) < 0)
+            return text.toString();
+
+        StringBuilder sb = new StringBuilder(text.length());
+        int copied = 0;
+        for (int i = 0; i < tokenizer.count; i++) {
+            if ((tokenizer.type(i) & types) == 0)
+                continue;
+            sb.append(text, copied, tokenizer.start(i));
+            copied = tokenizer.end(i);
+        }
+        sb.append(text, copied, text.length());
+        return sb.toString();
+    }
+
+    /**
+     * Deletes the tokens in {@code types} from {@code text}, keeping the spans on
+     * the rest. Repeats until none are left, since a deletion can join its
+     * neighbours into a new token ("{1\u200D2}" becomes "{12}").
+     */
+    public void removeAll(Editable text, int types) {
+        while (true) {
+            tokenize(text);
+            boolean removed = false;
+            for (int i = count - 1; i >= 0; i--) {
+                if ((type(i) & types) != 0) {
+                    text.delete(start(i), end(i));
+                    removed = true;
+                }
+            }
+            if (!removed)
+                return;
+        }
+    }
+
+    /** @return the index after a complete {digits} tag at {@code i}, or -1 */
+    private static int tagEnd(CharSequence text, int i, int end) {
+        if (i >= end || text.charAt(i) != '{')
+            return -1;
+        int j = i + 1;
+        while (j < end && isDigit(text.charAt(j))) {
+            j++;
+        }
+        if (j == i + 1 || j >= end || text.charAt(j) != '}')
+            return -1;
+        return j + 1;
+    }
+
+    private static int tagValue(CharSequence text, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+            if (value > Integer.MAX_VALUE)
+                return -1;
+        }
+        return (int) value;
+    }
+
+    // java.util.regex \d without UNICODE_CHARACTER_CLASS
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private void add(int type, int start, int end, int value) {
+        int base = count * STRIDE;
+        if (base + STRIDE > tokens.length) {
+            tokens = java.util.Arrays.copyOf(tokens, tokens.length * 2);
+        }
+        tokens[base + TYPE] = type;
+        tokens[base + START] = start;
+        tokens[base + END] = end;
+        tokens[base + VALUE] = value;
+        count++;
+    }
+}
@@ -0,0 +1,214 @@
+package com.simplenotes.utils;
+
+/**
+ * Finds a magic-verse trigger ("@Book Chapter:Verse" or "@Book
+ * Chapter:Start-End" followed by whitespace) that ends at the cursor.
+ *
+ * This is a hand-written replacement for running
+ * {@code (@([a-zA-Z0-9\s]+ \d+:\d+(?:-\d+)?))\s+$} over a marker-stripped copy
+ * of the last {@link #WINDOW_SIZE} characters. It walks backwards from the
+ * cursor over the original {@link CharSequence}, skipping highlight markers
+ * ({@code \u200C}, {@code \u200C{digits}}, {@code \u200D}) in place, and keeps
+ * its result in fields so a scan allocates nothing. Only
+ * {@link #getReference()} builds a String, and only after a match.
+ *
+ * Not thread-safe; keep one instance per editor.
+ */
+public class ReferenceScanner {
+    /** Raw characters before the cursor that are considered, markers included. */
+    public static final int WINDOW_SIZE = 100;
+
+    private static final char MARKER_START = '\u200C';
+    private static final char MARKER_END = '\u200D';
+
+    // Backward states
+    private static final int TRAILING_SPACE = 0;
+    private static final int LAST_NUMBER = 1;
+    private static final int VERSE_START = 2;
+    private static final int CHAPTER = 3;
+    private static final int BOOK = 4;
+
+    private CharSequence text;
+    private int windowStart;
+    private int position; // Raw index of the next character to read, moving backwards
+
+    private int start = -1;
+    private int end = -1;
+    private int referenceStart = -1;
+    private int referenceEnd = -1;
+
+    /**
+     * Scans {@code text[0, cursor)} for a trigger that ends at the cursor.
+     *
+     * @return true if one was found; offsets are then available from the getters
+     */
+    public boolean scan(CharSequence text, int cursor) {
+        this.text = text;
+        this.windowStart = Math.max(0, cursor - WINDOW_SIZE);
+        this.position = cursor;
+        start = end = referenceStart = referenceEnd = -1;
+
+        int matchEnd = cursor;
+        int c = previous();
+        // '$' also matches just before a final line terminator that \s does not cover
+        if (c == '\u0085' || c == '\u2028' || c == '\u2029') {
+            matchEnd = position;
+            c = previous();
+        }
+
+        int state = TRAILING_SPACE;
+        int run = 0;
+        int afterReference = -1;
+        while (c != -1) {
+            switch (state) {
+                case TRAILING_SPACE:
+                    if (isSpace(c)) {
+                        afterReference = position;
+                        run++;
+                        break;
+                    }
+                    if (run == 0 || !isDigit(c))
+                        return false;
+                    state = LAST_NUMBER;
+                    run = 1;
+                    break;
+
+                case LAST_NUMBER:
+                case VERSE_START:
+                    if (isDigit(c)) {
+                        run++;
+                    } else if (c == '-' && state == LAST_NUMBER) {
+                        state = VERSE_START;
+                        run = 0;
+                        c = previous();
+                        if (!isDigit(c))
+                            return false;
+                        run = 1;
+                    } else if (c == ':') {
+                        state = CHAPTER;
+                        run = 0;
+                        c = previous();
+                        if (!isDigit(c))
+                            return false;
+                        run = 1;
+                    } else {
+                        return false;
+                    }
+                    break;
+
+                case CHAPTER:
+                    if (isDigit(c)) {
+                        run++;
+                    } else if (c == ' ') {
+                        state = BOOK;
+                        run = 0;
+                    } else {
+                        return false;
+                    }
+                    break;
+
+                case BOOK:
+                    if (c == '@') {
+                        if (run == 0)
+                            return false;
+                        start = position;
+                        end = matchEnd;
+                        referenceStart = position + 1;
+                        referenceEnd = afterReference;
+                        return true;
+                    }
+                    if (!isBookChar(c))
+                        return false;
+                    run++;
+                    break;
+            }
+            c = previous();
+        }
+        return false;
+    }
+
+    /** Raw offset of the '@'. */
+    public int getStart() {
+        return start;
+    }
+
+    /** Raw offset just past the trailing whitespace (normally the cursor). */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * The reference without the '@', markers or surrounding whitespace, e.g.
+     * "John 3:16". Allocates; call only after a successful {@link #scan}.
+     */
+    public String getReference() {
+        if (referenceStart < 0)
+            return null;
+        StringBuilder sb = new StringBuilder(referenceEnd - referenceStart);
+        int i = referenceStart;
+        while (i < referenceEnd) {
+            char c = text.charAt(i);
+            if (c == MARKER_START) {
+                i = skipColorTag(i + 1, referenceEnd);
+            } else if (c == MARKER_END) {
+                i++;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * Reads backwards, stepping over markers.
+     *
+     * @return the previous visible character, or -1 at the start of the window
+     */
+    private int previous() {
+        while (position > windowStart) {
+            char c = text.charAt(--position);
+            if (c == MARKER_START || c == MARKER_END)
+                continue;
+            if (c == '}') {
+                int open = position - 1;
+                while (open >= windowStart && Character.isDigit(text.charAt(open))) {
+                    open--;
+                }
+                // Only a complete \u200C{digits} inside the window is a marker
+                if (open - 1 >= windowStart && text.charAt(open) == '{' && text.charAt(open - 1) == MARKER_START) {
+                    position = open - 1;
+                    continue;
+                }
+            }
+            return c;
+        }
+        return -1;
+    }
+
+    /** @return the index after a {digits} tag at {@code i}, or {@code i} if there is none */
+    private int skipColorTag(int i, int limit) {
+        if (i < limit && text.charAt(i) == '{') {
+            int j = i + 1;
+            while (j < limit && Character.isDigit(text.charAt(j))) {
+                j++;
+            }
+            if (j < limit && text.charAt(j) == '}')
+                return j + 1;
+        }
+        return i;
+    }
+
+    // java.util.regex \s and \d without UNICODE_CHARACTER_CLASS
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isBookChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || isSpace(c);
+    }
+}
@@ -1,6 +1,7 @@
 package com.simplenotes.utils;
 
 import android.graphics.Typeface;
+import android.text.Html;
 import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.SpannableStringBuilder;
@@ -8,104 +9,204 @@ import android.text.Spanned;
 import android.text.style.ForegroundColorSpan;
 import android.text.style.StyleSpan;
 import android.text.style.UnderlineSpan;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.simplenotes.AutoColorSpan;
 import com.simplenotes.RoundedHighlighterSpan;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.simplenotes.VerseSpan;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
 
+/**
+ * Note content as JSON, read and written with a streaming reader/writer.
+ *
+ * v2 (written): {"v":2,"text":"...","s":[type, startDelta, length, (value), ...]}
+ * with spans sorted by start, each start stored relative to the previous one,
+ * and a value only for the color types.
+ *
+ * v1 (still read): {"text":"...","spans":[{"type":"bold","start":0,"end":5}, ...]}
+ */
 public class RichTextUtils {
 
+    public static final int FORMAT_VERSION = 2;
+    /** Longest note list preview; the list shows three lines at most. */
+    public static final int PREVIEW_CHARS = 200;
+
+    private static final String KEY_VERSION = "v";
     private static final String KEY_TEXT = "text";
-    private static final String KEY_SPANS = "spans";
+    private static final String KEY_PACKED_SPANS = "s";
+    private static final String KEY_SPANS = "spans"; // v1
 
     private static final String TYPE_BOLD = "bold";
     private static final String TYPE_ITALIC = "italic";
     private static final String TYPE_UNDERLINE = "underline";
     private static final String TYPE_COLOR = "color";
     private static final String TYPE_HIGHLIGHT = "highlight";
+    private static final String TYPE_VERSE = "verse";
+
+    // Packed type codes (v2); the order is part of the format
+    private static final int BOLD = 0;
+    private static final int ITALIC = 1;
+    private static final int UNDERLINE = 2;
+    private static final int COLOR = 3;
+    private static final int HIGHLIGHT = 4;
+    private static final int VERSE = 5;
+    private static final String[] TYPE_NAMES = { TYPE_BOLD, TYPE_ITALIC, TYPE_UNDERLINE, TYPE_COLOR, TYPE_HIGHLIGHT,
+            TYPE_VERSE };
+
+    // Span records: type, start, end, value
+    private static final int STRIDE = 4;
+
+    private static boolean hasValue(int type) {
+        return type == COLOR || type == HIGHLIGHT;
+    }
 
     public static String toJson(Spanned text) {
         try {
-            JSONObject json = new JSONObject();
-            json.put(KEY_TEXT, text.toString());
-
-            JSONArray spansArray = new JSONArray();
-
-            // Bold & Italic
-            StyleSpan[] styleSpans = text.getSpans(0, text.length(), StyleSpan.class);
-            for (StyleSpan span : styleSpans) {
-                JSONObject spanJson = new JSONObject();
-                int start = text.getSpanStart(span);
-                int end = text.getSpanEnd(span);
-
-                if (span.getStyle() == Typeface.BOLD) {
-                    spanJson.put("type", TYPE_BOLD);
-                } else if (span.getStyle() == Typeface.ITALIC) {
-                    spanJson.put("type", TYPE_ITALIC);
-                } else if (span.getStyle() == Typeface.BOLD_ITALIC) {
-                    // Split into two? Or handle specific?
-                    // Simplest: Just save as two entries usually, but StyleSpan is one object.
-                    // Actually, if it's BOLD_ITALIC, we can save two entries or one combined.
-                    // Let's simpler: save as "bold" and "italic" separately?
-                    // No, let's just create 2 JSON entries for simplicity in deserializer.
-                    JSONObject s1 = new JSONObject();
-                    s1.put("type", TYPE_BOLD);
-                    s1.put("start", start);
-                    s1.put("end", end);
-                    spansArray.put(s1);
-
-                    JSONObject s2 = new JSONObject();
-                    s2.put("type", TYPE_ITALIC);
-                    s2.put("start", start);
-                    s2.put("end", end);
-                    spansArray.put(s2);
-                    continue;
-                } else {
-                    continue;
-                }
-                spanJson.put("start", start);
-                spanJson.put("end", end);
-                spansArray.put(spanJson);
-            }
+            return toJson(text.toString(), packSpans(text));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return text.toString(); // Fallback to raw text
+        }
+    }
 
-            // Underline
-            UnderlineSpan[] underlineSpans = text.getSpans(0, text.length(), UnderlineSpan.class);
-            for (UnderlineSpan span : underlineSpans) {
-                JSONObject spanJson = new JSONObject();
-                spanJson.put("type", TYPE_UNDERLINE);
-                spanJson.put("start", text.getSpanStart(span));
-                spanJson.put("end", text.getSpanEnd(span));
-                spansArray.put(spanJson);
-            }
+    /** v2 content from {@code text} and its {@link #packSpans packed spans}. */
+    public static String toJson(String text, String packedSpans) {
+        try {
+            StringWriter out = new StringWriter(text.length() + packedSpans.length() + 24);
+            JsonWriter writer = new JsonWriter(out);
+            writer.beginObject();
+            writer.name(KEY_VERSION).value(FORMAT_VERSION);
+            writer.name(KEY_TEXT).value(text);
+            writer.name(KEY_PACKED_SPANS).jsonValue(packedSpans);
+            writer.endObject();
+            writer.close();
+            return out.toString();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return text;
+        }
+    }
 
-            // Text Color
-            ForegroundColorSpan[] colorSpans = text.getSpans(0, text.length(), ForegroundColorSpan.class);
-            for (ForegroundColorSpan span : colorSpans) {
-                JSONObject spanJson = new JSONObject();
-                spanJson.put("type", TYPE_COLOR);
-                spanJson.put("start", text.getSpanStart(span));
-                spanJson.put("end", text.getSpanEnd(span));
-                spanJson.put("value", span.getForegroundColor());
-                spansArray.put(spanJson);
-            }
+    /**
+     * The v2 span array of {@code text}, e.g. "[0,0,5,4,6,5,-256]". Kept apart
+     * from the text so that it can be stored and compared on its own.
+     */
+    public static String packSpans(Spanned text) {
+        int[] records = collect(text);
+        int count = records.length / STRIDE;
 
-            // Highlights
-            RoundedHighlighterSpan[] highlightSpans = text.getSpans(0, text.length(), RoundedHighlighterSpan.class);
-            for (RoundedHighlighterSpan span : highlightSpans) {
-                JSONObject spanJson = new JSONObject();
-                spanJson.put("type", TYPE_HIGHLIGHT);
-                spanJson.put("start", text.getSpanStart(span));
-                spanJson.put("end", text.getSpanEnd(span));
-                spanJson.put("value", span.getBackgroundColor());
-                spansArray.put(spanJson);
-            }
+        // Sort by start so the starts delta-encode small
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) records[i * STRIDE + 1] << 32) | i;
+        }
+        Arrays.sort(order);
 
-            json.put(KEY_SPANS, spansArray);
-            return json.toString();
+        StringBuilder out = new StringBuilder(count * 12 + 2).append('[');
+        int previousStart = 0;
+        for (long packed : order) {
+            int r = (int) packed * STRIDE;
+            int type = records[r];
+            int start = records[r + 1];
+            if (out.length() > 1) {
+                out.append(',');
+            }
+            out.append(type).append(',').append(start - previousStart).append(',').append(records[r + 2] - start);
+            if (hasValue(type)) {
+                out.append(',').append(records[r + 3]);
+            }
+            previousStart = start;
+        }
+        return out.append(']').toString();
+    }
 
+    /**
+     * The packed span array of v2 content, or null if {@code jsonString} is not
+     * v2 (older JSON, HTML, plain text).
+     */
+    public static String packedSpansOf(String jsonString) {
+        if (jsonString == null)
+            return null;
+        try {
+            JsonReader reader = new JsonReader(new StringReader(jsonString));
+            reader.beginObject();
+            int version = 1;
+            String packed = null;
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (KEY_VERSION.equals(name) && reader.peek() == JsonToken.NUMBER) {
+                    version = reader.nextInt();
+                } else if (KEY_PACKED_SPANS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    StringBuilder out = new StringBuilder().append('[');
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        if (out.length() > 1) {
+                            out.append(',');
+                        }
+                        out.append(reader.nextInt());
+                    }
+                    reader.endArray();
+                    packed = out.append(']').toString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return version == FORMAT_VERSION ? (packed != null ? packed : "[]") : null;
         } catch (Exception e) {
-            e.printStackTrace();
-            return text.toString(); // Fallback to raw text
+            return null;
+        }
+    }
+
+    /** The saved spans of {@code text} as records. */
+    private static int[] collect(Spanned text) {
+        Object[] spans = text.getSpans(0, text.length(), Object.class);
+        int[] records = new int[spans.length * 2 * STRIDE]; // BOLD_ITALIC takes two
+        int n = 0;
+        for (Object span : spans) {
+            int type;
+            int value = 0;
+            if (span instanceof StyleSpan) {
+                int style = ((StyleSpan) span).getStyle();
+                if (style == Typeface.BOLD_ITALIC) {
+                    n = put(records, n, BOLD, text.getSpanStart(span), text.getSpanEnd(span), 0);
+                    type = ITALIC;
+                } else if (style == Typeface.BOLD) {
+                    type = BOLD;
+                } else if (style == Typeface.ITALIC) {
+                    type = ITALIC;
+                } else {
+                    continue;
+                }
+            } else if (span instanceof UnderlineSpan) {
+                type = UNDERLINE;
+            } else if (span instanceof ForegroundColorSpan) {
+                if (span instanceof AutoColorSpan)
+                    continue; // Derived from a verse, recolored on load
+                type = COLOR;
+                value = ((ForegroundColorSpan) span).getForegroundColor();
+            } else if (span instanceof RoundedHighlighterSpan) {
+                type = HIGHLIGHT;
+                value = ((RoundedHighlighterSpan) span).getBackgroundColor();
+            } else if (span instanceof VerseSpan) {
+                type = VERSE;
+            } else {
+                continue;
+            }
+            n = put(records, n, type, text.getSpanStart(span), text.getSpanEnd(span), value);
         }
+        return Arrays.copyOf(records, n);
+    }
+
+    private static int put(int[] records, int n, int type, int start, int end, int value) {
+        records[n] = type;
+        records[n + 1] = start;
+        records[n + 2] = end;
+        records[n + 3] = value;
+        return n + STRIDE;
     }
 
     public static Spannable fromJson(String jsonString) {
@@ -113,40 +214,62 @@ public class RichTextUtils {
             return new SpannableString("");
 
         try {
-            JSONObject json = new JSONObject(jsonString);
-            String rawText = json.optString(KEY_TEXT, "");
+            JsonReader reader = new JsonReader(new StringReader(jsonString));
+            String rawText = "";
+            int[] records = new int[0];
+            int count = 0;
+
+            // Spans may come before the text in v1, so they are kept as records first
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (KEY_TEXT.equals(name) && reader.peek() == JsonToken.STRING) {
+                    rawText = reader.nextString();
+                } else if (KEY_PACKED_SPANS.equals(name)) {
+                    records = readPacked(reader);
+                    count = records.length / STRIDE;
+                } else if (KEY_SPANS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    records = readObjects(reader);
+                    count = records.length / STRIDE;
+                } else {
+                    reader.skipValue(); // "v", or anything newer
+                }
+            }
+            reader.endObject();
+
             SpannableStringBuilder ssb = new SpannableStringBuilder(rawText);
+            for (int i = 0; i < count; i++) {
+                int r = i * STRIDE;
+                // Boundary checks
+                int start = Math.max(0, records[r + 1]);
+                int end = Math.min(rawText.length(), records[r + 2]);
+                if (start >= end)
+                    continue;
 
-            JSONArray spansArray = json.optJSONArray(KEY_SPANS);
-            if (spansArray != null) {
-                for (int i = 0; i < spansArray.length(); i++) {
-                    JSONObject spanJson = spansArray.getJSONObject(i);
-                    String type = spanJson.optString("type");
-                    int start = spanJson.optInt("start");
-                    int end = spanJson.optInt("end");
-
-                    // Boundary checks
-                    start = Math.max(0, start);
-                    end = Math.min(rawText.length(), end);
-                    if (start >= end)
-                        continue;
-
-                    Object spanObj = null;
-                    if (TYPE_BOLD.equals(type)) {
+                Object spanObj = null;
+                switch (records[r]) {
+                    case BOLD:
                         spanObj = new StyleSpan(Typeface.BOLD);
-                    } else if (TYPE_ITALIC.equals(type)) {
+                        break;
+                    case ITALIC:
                         spanObj = new StyleSpan(Typeface.ITALIC);
-                    } else if (TYPE_UNDERLINE.equals(type)) {
+                        break;
+                    case UNDERLINE:
                         spanObj = new UnderlineSpan();
-                    } else if (TYPE_COLOR.equals(type)) {
-                        spanObj = new ForegroundColorSpan(spanJson.optInt("value"));
-                    } else if (TYPE_HIGHLIGHT.equals(type)) {
-                        spanObj = new RoundedHighlighterSpan(spanJson.optInt("value"), 12f);
-                    }
+                        break;
+                    case COLOR:
+                        spanObj = new ForegroundColorSpan(records[r + 3]);
+                        break;
+                    case HIGHLIGHT:
+                        spanObj = new RoundedHighlighterSpan(records[r + 3], 12f);
+                        break;
+                    case VERSE:
+                        spanObj = new VerseSpan();
+                        break;
+                }
 
-                    if (spanObj != null) {
-                        ssb.setSpan(spanObj, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                    }
+                if (spanObj != null) {
+                    ssb.setSpan(spanObj, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
                 }
             }
             return ssb;
@@ -159,6 +282,137 @@ public class RichTextUtils {
         }
     }
 
+    /** v2 "s": type, startDelta, length, (value) per span. */
+    private static int[] readPacked(JsonReader reader) throws IOException {
+        int[] records = new int[64];
+        int n = 0;
+        int start = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int type = reader.nextInt();
+            if (type < 0 || type >= TYPE_NAMES.length) {
+                // Unknown type: its length is unknown too, so nothing after it can be trusted
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+                break;
+            }
+            start += reader.nextInt();
+            int end = start + reader.nextInt();
+            int value = hasValue(type) ? reader.nextInt() : 0;
+            if (n == records.length) {
+                records = Arrays.copyOf(records, n * 2);
+            }
+            n = put(records, n, type, start, end, value);
+        }
+        reader.endArray();
+        return Arrays.copyOf(records, n);
+    }
+
+    /** v1 "spans": one object per span, keys in any order. */
+    private static int[] readObjects(JsonReader reader) throws IOException {
+        int[] records = new int[64];
+        int n = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int type = -1;
+            int start = 0;
+            int end = 0;
+            int value = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                JsonToken token = reader.peek();
+                if ("type".equals(name) && token == JsonToken.STRING) {
+                    type = typeCode(reader.nextString());
+                } else if ("start".equals(name) && token == JsonToken.NUMBER) {
+                    start = reader.nextInt();
+                } else if ("end".equals(name) && token == JsonToken.NUMBER) {
+                    end = reader.nextInt();
+                } else if ("value".equals(name) && token == JsonToken.NUMBER) {
+                    value = reader.nextInt();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (type < 0)
+                continue;
+            if (n == records.length) {
+                records = Arrays.copyOf(records, n * 2);
+            }
+            n = put(records, n, type, start, end, value);
+        }
+        reader.endArray();
+        return Arrays.copyOf(records, n);
+    }
+
+    private static int typeCode(String name) {
+        for (int i = 0; i < TYPE_NAMES.length; i++) {
+            if (TYPE_NAMES[i].equals(name))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Just the text of saved content (e.g. for previews), without building spans.
+     * v2 writes the text first, so the rest is never read.
+     *
+     * @return the text, or null if the content is not valid JSON
+     */
+    public static String textOf(String jsonString) {
+        if (jsonString == null)
+            return "";
+        try {
+            JsonReader reader = new JsonReader(new StringReader(jsonString));
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (KEY_TEXT.equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                    return reader.nextString();
+                }
+                reader.skipValue();
+            }
+            return "";
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * The plain-text start of saved content in any format (JSON, legacy HTML or
+     * plain text) for the note list, without markers.
+     */
+    public static String previewOf(String content) {
+        return previewOfText(anyTextOf(content));
+    }
+
+    /** The whole text of saved content in any format, without markers (e.g. for the search index). */
+    public static String plainTextOf(String content) {
+        return MarkerTokenizer.strip(anyTextOf(content), MarkerTokenizer.HIGHLIGHT_MARKERS | MarkerTokenizer.VERSE);
+    }
+
+    private static String anyTextOf(String content) {
+        if (content == null || content.isEmpty())
+            return "";
+        if (content.trim().startsWith("{")) {
+            String text = textOf(content);
+            return text != null ? text : "";
+        }
+        return Html.fromHtml(content, Html.FROM_HTML_MODE_LEGACY).toString();
+    }
+
+    /** @see #previewOf */
+    public static String previewOfText(String text) {
+        // Markers take a few chars each, so a few times the preview still fills it
+        String head = text.length() > PREVIEW_CHARS * 4 ? text.substring(0, PREVIEW_CHARS * 4) : text;
+        String clean = MarkerTokenizer.strip(head, MarkerTokenizer.HIGHLIGHT_MARKERS).trim();
+        if (clean.length() <= PREVIEW_CHARS)
+            return clean;
+        int end = Character.isHighSurrogate(clean.charAt(PREVIEW_CHARS - 1)) ? PREVIEW_CHARS - 1 : PREVIEW_CHARS;
+        return clean.substring(0, end);
+    }
+
     public static boolean isJson(String content) {
         return content != null && content.trim().startsWith("{") && content.trim().endsWith("}");
     }
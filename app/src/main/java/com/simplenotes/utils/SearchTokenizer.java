@@ -0,0 +1,143 @@
+package com.simplenotes.utils;
+
+import java.text.Normalizer;
+
+/**
+ * Splits text into normalized search tokens, the same way for what is indexed
+ * and what is typed, in every script the shipped translations use.
+ *
+ * SQLite's tokenizers either split only on spaces or need ICU, neither of
+ * which fits Chinese (no spaces) or Telugu (vowel signs are marks, not
+ * letters). So text is tokenized here and indexed as tokens joined by spaces
+ * with the simple tokenizer, which keeps every non-ASCII char.
+ * <ul>
+ * <li>A word is a run of letters, digits and combining marks, so Telugu and
+ * Arabic words stay whole</li>
+ * <li>Each Han character is a token of its own; a run of them is searched as
+ * a phrase</li>
+ * <li>Case is folded, Latin diacritics are dropped ("É" is "e"), and so are
+ * Arabic vowel marks and tatweel, with hamza-carrying alefs, alef maqsura and
+ * teh marbuta folded to their plain letters</li>
+ * <li>Russian "ё" is "е", Greek final sigma is sigma</li>
+ * <li>Hangul words are kept whole, particles included; searches match them
+ * by prefix (see VerseSearch)</li>
+ * </ul>
+ */
+public final class SearchTokenizer {
+    public interface TokenListener {
+        /** A token at {@code text[start, end)}, normalized to {@code token}. */
+        void onToken(int start, int end, String token);
+    }
+
+    private static final char[] LATIN_BASES = new char[0x250 - 0xC0];
+
+    static {
+        for (char c = 0xC0; c < 0x250; c++) {
+            LATIN_BASES[c - 0xC0] = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+        }
+    }
+
+    private SearchTokenizer() {
+    }
+
+    /** The tokens of {@code text} joined by single spaces, as indexed. */
+    public static String normalize(CharSequence text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        tokenize(text, (start, end, token) -> {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(token);
+        });
+        return sb.toString();
+    }
+
+    public static void tokenize(CharSequence text, TokenListener listener) {
+        int n = text.length();
+        StringBuilder token = new StringBuilder();
+        int i = 0;
+        while (i < n) {
+            int c = Character.codePointAt(text, i);
+            int next = i + Character.charCount(c);
+            if (isHan(c)) {
+                listener.onToken(i, next, new String(Character.toChars(c)));
+                i = next;
+                continue;
+            }
+            if (!isWordChar(c)) {
+                i = next;
+                continue;
+            }
+            int start = i;
+            token.setLength(0);
+            while (i < n) {
+                c = Character.codePointAt(text, i);
+                if (isHan(c) || !isWordChar(c))
+                    break;
+                fold(c, token);
+                i += Character.charCount(c);
+            }
+            if (token.length() > 0) {
+                listener.onToken(start, i, token.toString());
+            }
+        }
+    }
+
+    public static boolean isHan(int c) {
+        return c >= 0x4E00 && c <= 0x9FFF || c >= 0x3400 && c <= 0x4DBF || c >= 0xF900 && c <= 0xFAFF
+                || c >= 0x20000 && c <= 0x2FFFF;
+    }
+
+    /** Hangul syllables and jamo. */
+    public static boolean isHangul(int c) {
+        return c >= 0xAC00 && c <= 0xD7A3 || c >= 0x1100 && c <= 0x11FF || c >= 0x3130 && c <= 0x318F
+                || c >= 0xA960 && c <= 0xA97F || c >= 0xD7B0 && c <= 0xD7FF;
+    }
+
+    private static boolean isWordChar(int c) {
+        if (Character.isLetterOrDigit(c))
+            return true;
+        switch (Character.getType(c)) {
+            case Character.NON_SPACING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+                return true;
+            default:
+                return c == 0x200C || c == 0x200D; // Joiners inside Indic and Arabic words
+        }
+    }
+
+    private static void fold(int c, StringBuilder out) {
+        if (c >= 0x0300 && c <= 0x036F || c >= 0x064B && c <= 0x065F || c == 0x0670 || c == 0x0640
+                || c == 0x200C || c == 0x200D)
+            return; // Diacritics, Arabic vowel marks and tatweel, joiners
+        if (c >= 0xC0 && c < 0x250) {
+            c = LATIN_BASES[c - 0xC0];
+        }
+        switch (c) {
+            case 0x0622: // Alef with madda, hamza above or below, wasla
+            case 0x0623:
+            case 0x0625:
+            case 0x0671:
+                c = 0x0627;
+                break;
+            case 0x0649: // Alef maqsura
+                c = 0x064A;
+                break;
+            case 0x0629: // Teh marbuta
+                c = 0x0647;
+                break;
+            case 0x0401: // Yo
+            case 0x0451:
+                c = 0x0435;
+                break;
+            case 0x03C2: // Final sigma
+                c = 0x03C3;
+                break;
+            default:
+                c = Character.toLowerCase(c);
+                break;
+        }
+        out.appendCodePoint(c);
+    }
+}
@@ -0,0 +1,161 @@
+package com.simplenotes.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces concurrent requests for the same key into one in-flight operation.
+ *
+ * The first caller for a key starts the operation; anyone asking for the same
+ * key before it completes is attached to that flight instead of starting a new
+ * one, and every waiter is completed with the same result. Once a flight
+ * completes the key is forgotten, so later requests start fresh (caching is
+ * left to the layers below).
+ */
+public class SingleFlight<K, V> {
+
+    public interface Callback<V> {
+        /** Exactly one of value / error is meaningful; error is null on success. */
+        void onComplete(V value, Throwable error);
+    }
+
+    /** An asynchronous operation that must eventually call {@code done} once. */
+    public interface Operation<V> {
+        void start(Callback<V> done);
+    }
+
+    /** A blocking load for {@link #get}. */
+    public interface Loader<V> {
+        V load();
+    }
+
+    private final class Flight implements Callback<V> {
+        final K key;
+        final List<Callback<V>> waiters = new ArrayList<>(2);
+
+        Flight(K key) {
+            this.key = key;
+        }
+
+        @Override
+        public void onComplete(V value, Throwable error) {
+            List<Callback<V>> done;
+            synchronized (flights) {
+                if (flights.get(key) != this)
+                    return; // Already completed
+                flights.remove(key);
+                done = new ArrayList<>(waiters);
+            }
+            for (Callback<V> waiter : done) {
+                waiter.onComplete(value, error);
+            }
+        }
+    }
+
+    private final Map<K, Flight> flights = new HashMap<>();
+    private int startedCount = 0;
+    private int joinedCount = 0;
+
+    /**
+     * Starts {@code operation} for {@code key}, or joins the flight already running
+     * for it. {@code callback} runs on whichever thread completes the operation.
+     *
+     * @return true if this call started a new flight, false if it joined one
+     */
+    public boolean execute(K key, Operation<V> operation, Callback<V> callback) {
+        Flight flight;
+        synchronized (flights) {
+            flight = flights.get(key);
+            if (flight != null) {
+                flight.waiters.add(callback);
+                joinedCount++;
+                return false;
+            }
+            flight = new Flight(key);
+            flight.waiters.add(callback);
+            flights.put(key, flight);
+            startedCount++;
+        }
+
+        try {
+            operation.start(flight);
+        } catch (RuntimeException e) {
+            flight.onComplete(null, e);
+        }
+        return true;
+    }
+
+    /**
+     * Blocking variant: the first caller runs {@code loader} on its own thread and
+     * concurrent callers for the same key wait for and share its result.
+     * Exceptions thrown by the loader are rethrown to every waiter.
+     */
+    public V get(K key, Loader<V> loader) {
+        final Object[] result = new Object[2];
+        final boolean[] done = new boolean[1];
+
+        execute(key, callback -> {
+            V value;
+            try {
+                value = loader.load();
+            } catch (RuntimeException | Error e) {
+                callback.onComplete(null, e);
+                return;
+            }
+            callback.onComplete(value, null);
+        }, (value, error) -> {
+            synchronized (done) {
+                result[0] = value;
+                result[1] = error;
+                done[0] = true;
+                done.notifyAll();
+            }
+        });
+
+        boolean interrupted = false;
+        synchronized (done) {
+            while (!done[0]) {
+                try {
+                    done.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true; // The shared load is not ours to abandon
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (result[1] instanceof RuntimeException)
+            throw (RuntimeException) result[1];
+        if (result[1] instanceof Error)
+            throw (Error) result[1];
+        if (result[1] != null)
+            throw new RuntimeException((Throwable) result[1]);
+        @SuppressWarnings("unchecked")
+        V value = (V) result[0];
+        return value;
+    }
+
+    /** Number of operations actually started. */
+    public int getStartedCount() {
+        synchronized (flights) {
+            return startedCount;
+        }
+    }
+
+    /** Number of requests that were attached to an already running operation. */
+    public int getJoinedCount() {
+        synchronized (flights) {
+            return joinedCount;
+        }
+    }
+
+    public int getInFlightCount() {
+        synchronized (flights) {
+            return flights.size();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.simplenotes.utils;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Markers for measuring cold start up to the first note list.
+ *
+ * Sections show up in system traces (Perfetto, the Android Studio profiler).
+ * Marks record when a startup milestone was reached, in ms since the process
+ * started (since this class loaded before API 24), and are logged once under
+ * {@link #TAG} when startup finishes, e.g.
+ * {@code Startup: activity created 182 ms, content view 240 ms, first note list 263 ms}.
+ */
+public final class StartupTrace {
+    public static final String TAG = "Startup";
+
+    private static final long START = Build.VERSION.SDK_INT >= 24 ? Process.getStartUptimeMillis()
+            : SystemClock.uptimeMillis();
+    private static final Map<String, Long> marks = new LinkedHashMap<>();
+    private static boolean finished;
+
+    private StartupTrace() {
+    }
+
+    /** Starts a trace section on this thread; pair with {@link #endSection} in a finally. */
+    public static void beginSection(String name) {
+        Trace.beginSection(name);
+    }
+
+    public static void endSection() {
+        Trace.endSection();
+    }
+
+    /** Records the first time {@code name} is reached during startup. */
+    public static synchronized void mark(String name) {
+        if (!finished && !marks.containsKey(name)) {
+            marks.put(name, SystemClock.uptimeMillis() - START);
+        }
+    }
+
+    /**
+     * Marks {@code name} as the end of startup and logs the marks. Returns
+     * false if startup already finished in this process, e.g. when the
+     * activity is recreated.
+     */
+    public static synchronized boolean finish(String name) {
+        if (finished)
+            return false;
+        mark(name);
+        finished = true;
+        Log.i(TAG, report());
+        return true;
+    }
+
+    /** The marks so far, in the order they were reached. */
+    public static synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> mark : marks.entrySet()) {
+            if (sb.length() > 0)
+                sb.append(", ");
+            sb.append(mark.getKey()).append(' ').append(mark.getValue()).append(" ms");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,410 @@
+package com.simplenotes;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+
+import com.simplenotes.utils.RichTextUtils;
+import com.simplenotes.utils.SearchTokenizer;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** Runs migrations on databases created by hand with the schema of their start version. */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class AppDatabaseMigrationTest {
+    /** The tables as Room created them for version 3. */
+    private static final String[] VERSION_3 = {
+            "CREATE TABLE IF NOT EXISTS `notes` (`id` INTEGER NOT NULL, `title` TEXT, `content` TEXT, "
+                    + "`timestamp` INTEGER NOT NULL, `isPinned` INTEGER NOT NULL, PRIMARY KEY(`id`))",
+            "CREATE TABLE IF NOT EXISTS `verses` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`translationId` TEXT, `book` TEXT, `chapter` INTEGER NOT NULL, `verse` INTEGER NOT NULL, "
+                    + "`text` TEXT)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS `index_verses_translationId_book_chapter_verse` ON `verses` "
+                    + "(`translationId`, `book`, `chapter`, `verse`)",
+            "CREATE TABLE IF NOT EXISTS `bible_versions` (`id` TEXT NOT NULL, `name` TEXT, "
+                    + "`isDownloaded` INTEGER NOT NULL, PRIMARY KEY(`id`))" };
+
+    /** The notes table as Room created it for version 6, before the preview column. */
+    private static final String[] VERSION_6 = {
+            "CREATE TABLE IF NOT EXISTS `notes` (`id` INTEGER NOT NULL, `title` TEXT, `content` TEXT, "
+                    + "`timestamp` INTEGER NOT NULL, `isPinned` INTEGER NOT NULL, PRIMARY KEY(`id`))" };
+
+    /** The verse tables as Room created them for version 8, before the search index. */
+    private static final String[] VERSION_8 = {
+            "CREATE TABLE IF NOT EXISTS `translations` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`code` TEXT NOT NULL)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS `index_translations_code` ON `translations` (`code`)",
+            "CREATE TABLE IF NOT EXISTS `verses` (`translationKey` INTEGER NOT NULL, "
+                    + "`verseKey` INTEGER NOT NULL, `text` TEXT, PRIMARY KEY(`translationKey`, `verseKey`))" };
+
+    private static final String HIGHLIGHTED = RichTextUtils.toJson(
+            "Grace is \u200C{1}unearned\u200D favour.\n\u200BFor by grace are ye saved", "[]");
+    private static final String LEGACY_HTML =
+            "<p>Point 1: grace is <b>unearned</b> favour \u200C{1}and faith\u200D receives.</p>";
+
+    // Book names as a list-format translation stored them before verse keys
+    private static final String TELUGU_GENESIS = "\u0C06\u0C26\u0C3F\u0C15\u0C3E\u0C02\u0C21\u0C2E\u0C41";
+    private static final String TELUGU_JOHN = "\u0C2F\u0C4B\u0C39\u0C3E\u0C28\u0C41";
+
+    private static final String CHAIN_DB = "migration-chain.db";
+
+    private SupportSQLiteOpenHelper helper;
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.close();
+        }
+        RuntimeEnvironment.getApplication().deleteDatabase(CHAIN_DB);
+    }
+
+    @Test
+    public void testMigrate3To4() {
+        SupportSQLiteDatabase db = create(3, VERSION_3);
+        insertVersion(db, "kjv", true);
+        insertVersion(db, "web", true);
+        insertVersion(db, "asv", true);
+        insertV3(db, "kjv", "Genesis", 1, 1, "In the beginning God created the heaven and the earth.");
+        insertV3(db, "kjv", "John", 3, 16, "For God so loved the world");
+        insertV3(db, "kjv", "Revelation", 22, 21, "The grace of our Lord Jesus Christ be with you all. Amen.");
+        insertV3(db, "web", "Genesis", 1, 1, "In the beginning, God created the heavens and the earth.");
+        insertV3(db, "kjv", "Genesis", 999, 999, "Largest chapter and verse a key holds");
+        // Not keyable: not a canonical book, numbers a key cannot hold, no translation
+        insertV3(db, "asv", "Genesis", 1, 1, "In the beginning God created the heavens and the earth.");
+        insertV3(db, "asv", "Nowhere", 1, 1, "Unknown book");
+        insertV3(db, "asv", "genesis", 1, 2, "Book names are matched exactly");
+        insertV3(db, "asv", "Genesis", 0, 1, "Chapter 0");
+        insertV3(db, "asv", "Genesis", 1, 0, "Verse 0");
+        insertV3(db, "asv", "Genesis", 1000, 1, "Chapter 1000");
+        insertV3(db, "asv", "Genesis", 1, 1000, "Verse 1000");
+        insertV3(db, null, "Genesis", 1, 3, "No translation");
+
+        AppDatabase.MIGRATION_3_4.migrate(db);
+
+        // asv lost rows, so it is removed whole, keyable rows too, to be downloaded again
+        Map<String, Integer> translations = translations(db);
+        assertEquals(2, translations.size());
+        Integer kjv = translations.get("kjv");
+        Integer web = translations.get("web");
+        assertNotNull(kjv);
+        assertNotNull(web);
+        assertNotEquals(kjv, web);
+        assertEquals(Arrays.asList("kjv", "web"), downloaded(db));
+
+        Map<String, String> verses = verses(db);
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put(kjv + ":" + 1_001_001, "In the beginning God created the heaven and the earth.");
+        expected.put(kjv + ":" + 1_999_999, "Largest chapter and verse a key holds");
+        expected.put(kjv + ":" + 43_003_016, "For God so loved the world");
+        expected.put(kjv + ":" + 66_022_021, "The grace of our Lord Jesus Christ be with you all. Amen.");
+        expected.put(web + ":" + 1_001_001, "In the beginning, God created the heavens and the earth.");
+        assertEquals(expected, verses);
+
+        // The keys are the ones VerseKey gives the app
+        assertEquals(1_001_001, VerseKey.of("Genesis", 1, 1));
+        assertEquals(43_003_016, VerseKey.of("John", 3, 16));
+        assertEquals(66_022_021, VerseKey.of("Revelation", 22, 21));
+    }
+
+    @Test
+    public void testMigrate3To4OffersLocalizedTranslationAgain() {
+        SupportSQLiteDatabase db = create(3, VERSION_3);
+        insertVersion(db, "kjv", true);
+        insertVersion(db, "te", true);
+        insertVersion(db, "web", false);
+        insertV3(db, "kjv", "Genesis", 1, 1, "In the beginning God created the heaven and the earth.");
+        // A list-format translation stored under its own book names
+        insertV3(db, "te", TELUGU_GENESIS, 1, 1, "\u0C06\u0C26\u0C3F\u0C2F\u0C02\u0C26\u0C41");
+        insertV3(db, "te", TELUGU_GENESIS, 1, 2, "\u0C2D\u0C42\u0C2E\u0C3F");
+        insertV3(db, "te", TELUGU_JOHN, 3, 16, "\u0C26\u0C47\u0C35\u0C41\u0C21\u0C41");
+
+        AppDatabase.MIGRATION_3_4.migrate(db);
+
+        Map<String, Integer> translations = translations(db);
+        assertEquals(Collections.singleton("kjv"), translations.keySet());
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put(translations.get("kjv") + ":" + 1_001_001,
+                "In the beginning God created the heaven and the earth.");
+        assertEquals(expected, verses(db));
+        // te is listed again as not downloaded, so the version sheet offers it
+        assertEquals(3, count(db, "bible_versions"));
+        assertEquals(Collections.singletonList("kjv"), downloaded(db));
+    }
+
+    /**
+     * Runs every migration on a version 3 file and then opens it with Room,
+     * which checks the result against the entities: the verses primary key,
+     * the note list index, the FTS4 options of both search tables and the
+     * tables added on the way.
+     */
+    @Test
+    public void testMigrate3To10OpensWithRoom() {
+        SupportSQLiteDatabase db = create(CHAIN_DB, 3, VERSION_3);
+        insertVersion(db, "kjv", true);
+        insertVersion(db, "te", true);
+        insertV3(db, "kjv", "Genesis", 1, 1, "In the beginning God created the heaven and the earth.");
+        insertV3(db, "kjv", "John", 3, 16, "For God so loved the world");
+        insertV3(db, "te", TELUGU_GENESIS, 1, 1, "\u0C06\u0C26\u0C3F\u0C2F\u0C02\u0C26\u0C41");
+        insertV6(db, 1, "Sermon on grace", HIGHLIGHTED);
+        insertV6(db, 2, "Legacy", LEGACY_HTML);
+        helper.close();
+        helper = null;
+
+        AppDatabase room = Room.databaseBuilder(RuntimeEnvironment.getApplication(), AppDatabase.class, CHAIN_DB)
+                .addMigrations(AppDatabase.MIGRATIONS)
+                .allowMainThreadQueries()
+                .build();
+        try {
+            // Opening runs the migrations and throws if the schema is not what Room expects
+            SupportSQLiteDatabase migrated = room.getOpenHelper().getWritableDatabase();
+            assertEquals(10, migrated.getVersion());
+            assertEquals(1, count(migrated, "sqlite_master WHERE type = 'index' "
+                    + "AND name = 'index_notes_isPinned_timestamp'"));
+            assertEquals(1, count(migrated, "sqlite_master WHERE type = 'index' AND name = 'index_note_ops_noteId'"));
+
+            NoteDao notes = room.noteDao();
+            assertEquals("Grace is unearned favour.\n\u200BFor by grace are ye saved", notes.getNote(1).getPreview());
+            List<NoteSummary> page = notes.getFirstNoteSummaries(10);
+            assertEquals(2, page.size());
+            assertEquals(2L, page.get(0).getId()); // Newest first
+            List<NoteSearch.Match> matches = notes.matchNotes("unearned");
+            assertEquals(2, matches.size());
+
+            BibleDao bible = room.bibleDao();
+            Verse john = bible.getVerse("kjv", "John", 3, 16);
+            assertNotNull(john);
+            assertEquals("For God so loved the world", john.getText());
+            int kjv = bible.findTranslationKey("kjv");
+            List<VerseSearch.Match> verses = bible.matchVerses(kjv, "loved");
+            assertEquals(1, verses.size());
+            assertEquals(VerseKey.of("John", 3, 16), verses.get(0).verseKey);
+            assertNull(bible.findTranslationKey("te"));
+            assertFalse(bible.getVersion("te").isDownloaded());
+            assertTrue(bible.getVersion("kjv").isDownloaded());
+
+            // The tables added on the way take writes
+            bible.insertBookNames(Collections.singletonList(new BookName(kjv, 0, "Genesis")));
+            assertEquals(1, bible.getAllBookNames().size());
+            NoteOp op = new NoteOp(1, 0, 0, "Amen. ", null, "Sermon on grace", 1_700_000_000_100L);
+            notes.insertOp(op);
+            assertEquals(1, notes.getOps(1).size());
+        } finally {
+            room.close();
+        }
+    }
+
+    @Test
+    public void testMigrate6To7() {
+        SupportSQLiteDatabase db = create(6, VERSION_6);
+        StringBuilder longText = new StringBuilder();
+        while (longText.length() < 10_000) {
+            longText.append("A long sermon note. ");
+        }
+        String longNote = RichTextUtils.toJson(longText.toString(), "[]");
+        insertV6(db, 1, "Highlighted", HIGHLIGHTED);
+        insertV6(db, 2, "Legacy", LEGACY_HTML);
+        insertV6(db, 3, "Long", longNote);
+        insertV6(db, 4, "Empty", "");
+        insertV6(db, 5, "No content", null);
+
+        AppDatabase.MIGRATION_6_7.migrate(db);
+
+        Map<Long, String> previews = new LinkedHashMap<>();
+        try (Cursor cursor = db.query("SELECT id, title, preview FROM notes ORDER BY id")) {
+            while (cursor.moveToNext()) {
+                previews.put(cursor.getLong(0), cursor.getString(2));
+            }
+        }
+        assertEquals(5, previews.size());
+        // Highlight markers are dropped, verse markers kept
+        assertEquals("Grace is unearned favour.\n\u200BFor by grace are ye saved", previews.get(1L));
+        assertEquals("Point 1: grace is unearned favour and faith receives.", previews.get(2L));
+        assertEquals(RichTextUtils.PREVIEW_CHARS, previews.get(3L).length());
+        assertTrue(longText.toString().startsWith(previews.get(3L)));
+        assertEquals("", previews.get(4L));
+        assertEquals("", previews.get(5L));
+        for (long id = 1; id <= 5; id++) {
+            assertEquals(RichTextUtils.previewOf(contentOf(db, id)), previews.get(id));
+        }
+    }
+
+    @Test
+    public void testMigrate7To8() {
+        SupportSQLiteDatabase db = create(6, VERSION_6);
+        insertV6(db, 1, "Sermon on grace", HIGHLIGHTED);
+        insertV6(db, 2, "Legacy", LEGACY_HTML);
+        insertV6(db, 3, "Shopping", RichTextUtils.toJson("Bread, milk", "[]"));
+        insertV6(db, 4, "No content", null);
+        AppDatabase.MIGRATION_6_7.migrate(db);
+
+        AppDatabase.MIGRATION_7_8.migrate(db);
+
+        assertEquals(4, count(db, "notes_fts"));
+        assertEquals(Arrays.asList(1L, 2L), ids(db, "SELECT rowid FROM notes_fts WHERE notes_fts MATCH 'unearned' "
+                + "ORDER BY rowid"));
+        assertEquals(Arrays.asList(1L), ids(db, "SELECT rowid FROM notes_fts WHERE notes_fts MATCH 'title:sermon'"));
+        assertEquals(Arrays.asList(3L), ids(db, "SELECT rowid FROM notes_fts WHERE notes_fts MATCH 'mil*'"));
+        try (Cursor cursor = db.query("SELECT body FROM notes_fts WHERE rowid = 1")) {
+            cursor.moveToFirst();
+            assertEquals("Grace is unearned favour.\nFor by grace are ye saved", cursor.getString(0));
+        }
+    }
+
+    @Test
+    public void testMigrate8To9() {
+        SupportSQLiteDatabase db = create(8, VERSION_8);
+        db.execSQL("INSERT INTO translations (id, code) VALUES (1, 'kjv'), (2, 'web')");
+        int genesis = VerseKey.of("Genesis", 1, 1);
+        int john = VerseKey.of("John", 3, 16);
+        insertV8(db, 1, genesis, "In the beginning God created the heaven and the earth.");
+        insertV8(db, 1, john, "For God so loved the world");
+        insertV8(db, 2, genesis, "In the beginning, God created the heavens and the earth.");
+        insertV8(db, 2, john, null);
+
+        AppDatabase.MIGRATION_8_9.migrate(db);
+
+        assertEquals(4, count(db, "verses_fts"));
+        try (Cursor cursor = db.query("SELECT translationKey, text FROM verses_fts WHERE rowid = ?",
+                new Object[] { VerseFts.rowidOf(2, genesis) })) {
+            cursor.moveToFirst();
+            assertEquals(2, cursor.getInt(0));
+            assertEquals(SearchTokenizer.normalize("In the beginning, God created the heavens and the earth."),
+                    cursor.getString(1));
+        }
+        try (Cursor cursor = db.query("SELECT text FROM verses_fts WHERE rowid = ?",
+                new Object[] { VerseFts.rowidOf(2, john) })) {
+            cursor.moveToFirst();
+            assertEquals("", cursor.getString(0));
+        }
+        // Each translation is searched on its own
+        assertEquals(Arrays.asList(VerseFts.rowidOf(1, genesis)), ids(db,
+                "SELECT rowid FROM verses_fts WHERE verses_fts MATCH 'heaven' AND translationKey = 1"));
+        assertEquals(Arrays.asList(VerseFts.rowidOf(2, genesis)), ids(db,
+                "SELECT rowid FROM verses_fts WHERE verses_fts MATCH 'heavens' AND translationKey = 2"));
+        assertEquals(Arrays.asList(VerseFts.rowidOf(1, john)), ids(db,
+                "SELECT rowid FROM verses_fts WHERE verses_fts MATCH 'loved' AND translationKey = 1"));
+    }
+
+    private SupportSQLiteDatabase create(int version, String[] schema) {
+        return create(null, version, schema); // In memory
+    }
+
+    private SupportSQLiteDatabase create(String name, int version, String[] schema) {
+        helper = new FrameworkSQLiteOpenHelperFactory().create(
+                SupportSQLiteOpenHelper.Configuration.builder(RuntimeEnvironment.getApplication())
+                        .name(name)
+                        .callback(new SupportSQLiteOpenHelper.Callback(version) {
+                            @Override
+                            public void onCreate(SupportSQLiteDatabase db) {
+                                for (String sql : schema) {
+                                    db.execSQL(sql);
+                                }
+                            }
+
+                            @Override
+                            public void onUpgrade(SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+                            }
+                        })
+                        .build());
+        return helper.getWritableDatabase();
+    }
+
+    private static void insertV6(SupportSQLiteDatabase db, long id, String title, String content) {
+        db.execSQL("INSERT INTO notes (id, title, content, timestamp, isPinned) VALUES (?, ?, ?, ?, 0)",
+                new Object[] { id, title, content, 1_700_000_000_000L + id });
+    }
+
+    private static void insertV8(SupportSQLiteDatabase db, int translationKey, int verseKey, String text) {
+        db.execSQL("INSERT INTO verses (translationKey, verseKey, text) VALUES (?, ?, ?)",
+                new Object[] { translationKey, verseKey, text });
+    }
+
+    private static String contentOf(SupportSQLiteDatabase db, long id) {
+        try (Cursor cursor = db.query("SELECT content FROM notes WHERE id = ?", new Object[] { id })) {
+            cursor.moveToFirst();
+            return cursor.getString(0);
+        }
+    }
+
+    private static int count(SupportSQLiteDatabase db, String table) {
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM " + table)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+
+    private static List<Long> ids(SupportSQLiteDatabase db, String sql) {
+        List<Long> ids = new ArrayList<>();
+        try (Cursor cursor = db.query(sql)) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        }
+        return ids;
+    }
+
+    private static void insertVersion(SupportSQLiteDatabase db, String id, boolean downloaded) {
+        db.execSQL("INSERT INTO bible_versions (id, name, isDownloaded) VALUES (?, ?, ?)",
+                new Object[] { id, id.toUpperCase(), downloaded ? 1 : 0 });
+    }
+
+    private static Map<String, Integer> translations(SupportSQLiteDatabase db) {
+        Map<String, Integer> translations = new LinkedHashMap<>();
+        try (Cursor cursor = db.query("SELECT code, id FROM translations ORDER BY code")) {
+            while (cursor.moveToNext()) {
+                translations.put(cursor.getString(0), cursor.getInt(1));
+            }
+        }
+        return translations;
+    }
+
+    private static Map<String, String> verses(SupportSQLiteDatabase db) {
+        Map<String, String> verses = new LinkedHashMap<>();
+        try (Cursor cursor = db.query("SELECT translationKey, verseKey, text FROM verses "
+                + "ORDER BY translationKey, verseKey")) {
+            while (cursor.moveToNext()) {
+                verses.put(cursor.getInt(0) + ":" + cursor.getInt(1), cursor.getString(2));
+            }
+        }
+        return verses;
+    }
+
+    private static List<String> downloaded(SupportSQLiteDatabase db) {
+        List<String> ids = new ArrayList<>();
+        try (Cursor cursor = db.query("SELECT id FROM bible_versions WHERE isDownloaded = 1 ORDER BY id")) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getString(0));
+            }
+        }
+        return ids;
+    }
+
+    private static void insertV3(SupportSQLiteDatabase db, String translationId, String book, int chapter,
+            int verse, String text) {
+        db.execSQL("INSERT INTO verses (translationId, book, chapter, verse, text) VALUES (?, ?, ?, ?, ?)",
+                new Object[] { translationId, book, chapter, verse, text });
+    }
+}
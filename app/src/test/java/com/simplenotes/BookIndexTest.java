@@ -0,0 +1,165 @@
+package com.simplenotes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BookIndexTest {
+
+    @Test
+    public void testCanonicalNamesResolveToTheirOrdinal() {
+        BookIndex index = BookIndex.builderWithDefaults().build();
+        for (int i = 0; i < BibleData.BOOKS.length; i++) {
+            assertEquals(BibleData.BOOKS[i], i, index.resolve(BibleData.BOOKS[i]));
+            assertEquals(i, index.resolve(BibleData.BOOKS[i].toUpperCase()));
+        }
+    }
+
+    @Test
+    public void testEveryAbbreviationResolves() {
+        BookIndex index = BookIndex.builderWithDefaults().build();
+        assertEquals(BibleData.BOOKS.length, BibleData.ABBREVIATIONS.length);
+        for (int i = 0; i < BibleData.ABBREVIATIONS.length; i++) {
+            for (String abbreviation : BibleData.ABBREVIATIONS[i]) {
+                assertEquals(abbreviation, i, index.resolve(abbreviation));
+            }
+        }
+    }
+
+    @Test
+    public void testCommonSpellings() {
+        BookIndex index = BookIndex.getInstance();
+        assertEquals("John", index.canonicalName("Jn"));
+        assertEquals("John", index.canonicalName("jn."));
+        assertEquals("1 Corinthians", index.canonicalName("1 Cor"));
+        assertEquals("1 Corinthians", index.canonicalName("1cor."));
+        assertEquals("1 Corinthians", index.canonicalName("I Corinthians"));
+        assertEquals("2 Kings", index.canonicalName("II Kings"));
+        assertEquals("3 John", index.canonicalName("iii john"));
+        assertEquals("Song of Solomon", index.canonicalName("Song of Songs"));
+        assertEquals("Psalms", index.canonicalName("ps"));
+
+        assertNull(index.canonicalName("Jo")); // Prefix of several books, not a key
+        assertNull(index.canonicalName("Hezekiah"));
+        assertNull(index.canonicalName(""));
+    }
+
+    @Test
+    public void testResolveSubrange() {
+        String reference = "@1 Sam 2:10";
+        assertEquals(BibleData.indexOf("1 Samuel"), BookIndex.getInstance().resolve(reference, 1, 6));
+    }
+
+    @Test
+    public void testLocalizedNamesAndConflicts() {
+        int john = BibleData.indexOf("John");
+        int jonah = BibleData.indexOf("Jonah");
+        BookIndex index = BookIndex.builderWithDefaults()
+                .add("Juan", john)
+                .add("Jonas", jonah)
+                .add("Jonas", john) // Another translation uses the same word for a different book
+                .build();
+
+        assertEquals(john, index.resolve("juan"));
+        assertEquals(BookIndex.NOT_FOUND, index.resolve("Jonas"));
+        assertEquals(BookIndex.NOT_FOUND, BookIndex.builderWithDefaults().build().resolve("Juan"));
+    }
+
+    @Test
+    public void testCompletion() {
+        BookIndex index = BookIndex.builderWithDefaults().add("Juan", BibleData.indexOf("John")).build();
+
+        List<String> out = new ArrayList<>();
+        index.complete("1 co", out);
+        assertEquals(1, out.size());
+        assertEquals("1 Corinthians", out.get(0));
+
+        out.clear();
+        index.complete("ju", out);
+        assertTrue(out.contains("Jude"));
+        assertTrue(out.contains("Judges"));
+        assertTrue(out.contains("John")); // Through "Juan"
+
+        out.clear();
+        index.complete("", out);
+        assertEquals(BibleData.BOOKS.length, out.size());
+        assertEquals("Genesis", out.get(0));
+        assertEquals("Revelation", out.get(out.size() - 1));
+
+        out.clear();
+        index.complete("zz", out);
+        assertTrue(out.isEmpty());
+    }
+
+    /** Resolving a mix of the tokens references are typed with, and building the index with localized names. */
+    @Test
+    public void testResolveThroughput() {
+        String[][] localized = {
+                { "G\u00E9nesis", "Genesis" }, { "\u00C9xodo", "Exodus" }, { "Salmos", "Psalms" },
+                { "Mateo", "Matthew" }, { "Juan", "John" }, { "Hechos", "Acts" }, { "Apocalipsis", "Revelation" },
+                { "\u0C06\u0C26\u0C3F\u0C15\u0C3E\u0C02\u0C21\u0C2E\u0C41", "Genesis" },
+                { "\u0C2F\u0C4B\u0C39\u0C3E\u0C28\u0C41", "John" } };
+        List<String> tokens = new ArrayList<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < BibleData.BOOKS.length; i++) {
+            tokens.add(BibleData.BOOKS[i]);
+            expected.add(i);
+            tokens.add(BibleData.ABBREVIATIONS[i][0]);
+            expected.add(i);
+        }
+        String[][] roman = { { "I Samuel", "1 Samuel" }, { "II Kings", "2 Kings" }, { "iii john", "3 John" },
+                { "II Cor", "2 Corinthians" }, { "I Thess", "1 Thessalonians" } };
+        for (String[] pair : roman) {
+            tokens.add(pair[0]);
+            expected.add(BibleData.indexOf(pair[1]));
+        }
+        for (String[] pair : localized) {
+            tokens.add(pair[0]);
+            expected.add(BibleData.indexOf(pair[1]));
+        }
+        tokens.add("Hezekiah");
+        expected.add(BookIndex.NOT_FOUND);
+
+        int rounds = 20;
+        long build = 0;
+        BookIndex index = null;
+        for (int round = 0; round < rounds + 5; round++) {
+            long t0 = System.nanoTime();
+            BookIndex.Builder builder = BookIndex.builderWithDefaults();
+            for (String[] pair : localized) {
+                builder.add(pair[0], BibleData.indexOf(pair[1]));
+            }
+            index = builder.build();
+            if (round >= 5) { // Warm-up
+                build += System.nanoTime() - t0;
+            }
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(tokens.get(i), (int) expected.get(i), index.resolve(tokens.get(i)));
+        }
+
+        int repeats = 1000;
+        long resolve = 0;
+        int sink = 0;
+        for (int round = 0; round < rounds + 5; round++) {
+            long t0 = System.nanoTime();
+            for (int r = 0; r < repeats; r++) {
+                for (int i = 0; i < tokens.size(); i++) {
+                    sink += index.resolve(tokens.get(i));
+                }
+            }
+            if (round >= 5) {
+                resolve += System.nanoTime() - t0;
+            }
+        }
+        System.out.println("BookIndex over " + tokens.size() + " mixed tokens: "
+                + resolve / ((long) rounds * repeats * tokens.size()) + " ns/resolve; build with "
+                + localized.length + " localized names " + build / rounds / 1000 + " us (" + sink + ")");
+        assertTrue(sink > 0);
+    }
+}
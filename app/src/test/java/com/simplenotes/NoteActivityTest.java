@@ -0,0 +1,79 @@
+package com.simplenotes;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Looper;
+import android.os.Parcel;
+import android.widget.EditText;
+
+import com.simplenotes.utils.RichTextUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/** The editor with the app's manifest and layouts, opened the way the note list opens it. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class NoteActivityTest {
+    /** Binder's transaction buffer, shared by everything the process has in flight. */
+    private static final int BINDER_LIMIT = 1024 * 1024;
+
+    @Test
+    public void testOpensTwoMegabyteNoteFromList() throws InterruptedException {
+        Context context = RuntimeEnvironment.getApplication();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 2 * 1024 * 1024; i++) {
+            text.append("Paragraph ").append(i).append(" of a very long sermon note.\n");
+        }
+        Note note = new Note(4242, "Large", RichTextUtils.toJson(text.toString(), "[]"), 1);
+        NoteStore.getInstance(context).replace(note);
+
+        // What startActivity sends through Binder: the whole note before, the id now
+        Intent intent = NoteActivity.editIntent(context, note.getId());
+        assertTrue(parcelSize(intent) < 4096);
+        Intent whole = new Intent(context, NoteActivity.class).putExtra("note", note);
+        assertTrue(parcelSize(whole) > BINDER_LIMIT);
+
+        ActivityController<NoteActivity> controller = Robolectric.buildActivity(NoteActivity.class, intent);
+        try {
+            NoteActivity activity = controller.setup().get();
+            EditText title = activity.findViewById(R.id.editTextTitle);
+            EditText content = activity.findViewById(R.id.editTextContent);
+            assertFalse(content.isEnabled()); // Until NoteStore has loaded it on diskIO
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!content.isEnabled() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+                shadowOf(Looper.getMainLooper()).idle();
+            }
+            assertTrue(content.isEnabled());
+            assertEquals("Large", title.getText().toString());
+            // Large-note mode: the editor holds a window from the start of the note
+            String window = content.getText().toString();
+            assertTrue(window.length() > 0 && window.length() < text.length());
+            assertTrue(text.toString().startsWith(window));
+        } finally {
+            controller.pause().stop().destroy();
+        }
+    }
+
+    private static int parcelSize(Intent intent) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            intent.writeToParcel(parcel, 0);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
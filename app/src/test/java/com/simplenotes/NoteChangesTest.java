@@ -0,0 +1,131 @@
+package com.simplenotes;
+
+import androidx.room.Room;
+
+import com.simplenotes.utils.RichTextUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class NoteChangesTest {
+    /** How NoteDao's note list queries start. */
+    private static final String LIST_QUERY = "SELECT id, title, timestamp, isPinned, preview FROM notes";
+
+    private AppDatabase db;
+    private NoteStore store;
+    private final AtomicInteger listQueries = new AtomicInteger();
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private NotePager pager;
+    private NoteChanges changes;
+
+    @Before
+    public void setUp() {
+        // Room runs everything inline, so each write's invalidation is reported before it returns
+        db = Room.inMemoryDatabaseBuilder(RuntimeEnvironment.getApplication(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .setQueryExecutor(Runnable::run)
+                .setQueryCallback((sql, args) -> {
+                    if (sql.startsWith(LIST_QUERY)) {
+                        listQueries.incrementAndGet();
+                    }
+                }, Runnable::run)
+                .build();
+        store = new NoteStore(new NoteStore.DaoStorage(db.noteDao()));
+        for (int i = 1; i <= 100; i++) {
+            store.replace(new Note(i, "Note " + i, RichTextUtils.toJson(longText(i), "[]"), i));
+        }
+
+        // The list as NotesListActivity wires it, with a fake main thread
+        pager = new NotePager(db.noteDao(), Runnable::run, Runnable::run, notes -> {
+        });
+        changes = new NoteChanges(db.getInvalidationTracker(), (task, delay) -> scheduled.add(task), pager::refresh);
+        changes.start();
+        pager.refresh();
+        changes.resume();
+    }
+
+    @After
+    public void tearDown() {
+        changes.stop();
+        db.close();
+    }
+
+    @Test
+    public void testListQueriesAcrossOpenEditReturn() {
+        assertEquals(1, listQueries.get()); // Opening the list
+
+        // Open a note and edit it: autosaves go to the op log, which the list does not read
+        changes.pause();
+        Note note = store.load(42);
+        String text = RichTextUtils.textOf(note.getContent());
+        for (int i = 0; i < 5; i++) {
+            text += " edit " + i;
+            store.write(new Note(42, "Note 42", null, 1000 + i), text, "[]");
+        }
+        runScheduled();
+        assertEquals(1, listQueries.get());
+
+        // Close the editor: the compaction is the one change, reloaded on return
+        store.compact(42);
+        runScheduled();
+        changes.resume();
+        assertEquals(2, listQueries.get());
+
+        // Open the note and return without editing: nothing to reload
+        changes.pause();
+        note = store.load(42);
+        store.write(new Note(42, note.getTitle(), null, 2000), RichTextUtils.textOf(note.getContent()), "[]");
+        store.compact(42);
+        runScheduled();
+        changes.resume();
+        assertEquals(2, listQueries.get());
+
+        // Pin from the list
+        note.setPinned(true);
+        store.replace(note);
+        runScheduled();
+        assertEquals(3, listQueries.get());
+
+        // A burst of writes (e.g. a restore) is one reload
+        for (int i = 1; i <= 20; i++) {
+            Note restored = store.load(i);
+            restored.setTitle("Restored " + i);
+            store.replace(restored);
+        }
+        assertEquals(1, scheduled.size());
+        runScheduled();
+        assertEquals(4, listQueries.get());
+
+        System.out.println("Note list queries for open, edit x5, return, open, return, pin, restore x20: "
+                + listQueries.get() + " (reloading on every resume and action: 6)");
+    }
+
+    private void runScheduled() {
+        List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    private static String longText(int seed) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            sb.append("Paragraph ").append(seed).append('.').append(i).append(" of the note.\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,261 @@
+package com.simplenotes;
+
+import android.graphics.Typeface;
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
+
+import com.simplenotes.utils.RichTextUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class NoteDocumentTest {
+
+    private static final int GOLD = 0xFFFFF59D;
+
+    @Test
+    public void testBlocksStartAtParagraphs() {
+        String text = "one\ntwo\n\nthree";
+        assertEquals(0, NoteDocument.blockStart(text, 2));
+        assertEquals(4, NoteDocument.blockStart(text, 4));
+        assertEquals(4, NoteDocument.blockStart(text, 6));
+        assertEquals(9, NoteDocument.blockStart(text, 12));
+        assertEquals(8, NoteDocument.blockEnd(text, 5));
+        assertEquals(8, NoteDocument.blockEnd(text, 8));
+        assertEquals(text.length(), NoteDocument.blockEnd(text, 10));
+
+        // A paragraph longer than a block is cut after a space
+        StringBuilder longParagraph = new StringBuilder();
+        while (longParagraph.length() < 3 * NoteDocument.BLOCK_CHARS) {
+            longParagraph.append("word ");
+        }
+        int start = NoteDocument.blockStart(longParagraph, 2 * NoteDocument.BLOCK_CHARS + 2);
+        assertTrue(start > NoteDocument.BLOCK_CHARS);
+        assertEquals(' ', longParagraph.charAt(start - 1));
+    }
+
+    @Test
+    public void testWindowCoversCenterAndParagraphs() {
+        Spannable note = sermonNote(new Random(1), 2000);
+        NoteDocument document = new NoteDocument(note, new NoteStyler());
+        int center = note.length() / 2;
+        Spannable window = document.checkOut(center);
+
+        int start = document.getWindowStart();
+        assertTrue(start <= center && center <= start + window.length());
+        assertTrue(window.length() <= NoteDocument.WINDOW_CHARS + NoteDocument.BLOCK_CHARS);
+        assertEquals('\n', note.charAt(start - 1));
+        assertEquals('\n', note.charAt(start + window.length() - 1));
+        assertEquals(note.subSequence(start, start + window.length()).toString(), window.toString());
+        assertTrue(document.hasTextAfterWindow());
+    }
+
+    @Test
+    public void testUnchangedWindowRoundTrips() {
+        Random random = new Random(2);
+        Spannable note = sermonNote(random, 1500);
+        NoteDocument document = new NoteDocument(note, new NoteStyler());
+        for (int i = 0; i < 20; i++) {
+            Spannable window = document.checkOut(random.nextInt(note.length()));
+            assertEquals(describe(note), describe(document.snapshot(window)));
+            document.checkIn(window);
+        }
+        assertEquals(describe(note), describe(document.snapshot(null)));
+    }
+
+    @Test
+    public void testSpanAcrossEdgesIsCutAndJoined() {
+        SpannableStringBuilder note = new SpannableStringBuilder(paragraphs(3 * NoteDocument.WINDOW_CHARS));
+        StyleSpan bold = new StyleSpan(Typeface.BOLD);
+        note.setSpan(bold, 0, note.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        int center = note.length() / 2;
+        RoundedHighlighterSpan highlight = new RoundedHighlighterSpan(GOLD, 12f);
+        note.setSpan(highlight, center - NoteDocument.WINDOW_CHARS, center, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        String before = describe(note);
+
+        NoteDocument document = new NoteDocument(note, new NoteStyler());
+        Spannable window = document.checkOut(center);
+        StyleSpan[] windowBold = window.getSpans(0, window.length(), StyleSpan.class);
+        assertEquals(1, windowBold.length);
+        assertEquals(0, window.getSpanStart(windowBold[0]));
+        assertEquals(window.length(), window.getSpanEnd(windowBold[0]));
+        RoundedHighlighterSpan[] windowHighlight = window.getSpans(0, window.length(), RoundedHighlighterSpan.class);
+        assertEquals(1, windowHighlight.length);
+        assertEquals(0, window.getSpanStart(windowHighlight[0]));
+
+        assertEquals(before, describe(document.snapshot(window)));
+        document.checkIn(window);
+        Spanned after = document.snapshot(null);
+        assertEquals(before, describe(after));
+        assertEquals(1, after.getSpans(0, after.length(), StyleSpan.class).length);
+        assertEquals(1, after.getSpans(0, after.length(), RoundedHighlighterSpan.class).length);
+    }
+
+    @Test
+    public void testRemovedPieceLeavesOutsidePieces() {
+        SpannableStringBuilder note = new SpannableStringBuilder(paragraphs(3 * NoteDocument.WINDOW_CHARS));
+        note.setSpan(new StyleSpan(Typeface.ITALIC), 0, note.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        NoteDocument document = new NoteDocument(note, new NoteStyler());
+        Spannable window = document.checkOut(note.length() / 2);
+        int start = document.getWindowStart();
+        int end = start + window.length();
+        for (StyleSpan span : window.getSpans(0, window.length(), StyleSpan.class)) {
+            window.removeSpan(span);
+        }
+        document.checkIn(window);
+
+        Spanned after = document.snapshot(null);
+        List<String> italic = new ArrayList<>();
+        for (StyleSpan span : after.getSpans(0, after.length(), StyleSpan.class)) {
+            italic.add(after.getSpanStart(span) + "-" + after.getSpanEnd(span));
+        }
+        Collections.sort(italic);
+        assertEquals("[0-" + start + ", " + end + "-" + note.length() + "]", italic.toString());
+    }
+
+    @Test
+    public void testEditsInWindowLandInNote() {
+        SpannableStringBuilder note = new SpannableStringBuilder(paragraphs(3 * NoteDocument.WINDOW_CHARS));
+        SpannableStringBuilder expected = new SpannableStringBuilder(note);
+        NoteDocument document = new NoteDocument(note, new NoteStyler());
+
+        // Typed at both edges of the window and highlighted across all of it
+        Spannable checkedOut = document.checkOut(note.length() / 2);
+        int start = document.getWindowStart();
+        SpannableStringBuilder window = new SpannableStringBuilder(checkedOut);
+        window.insert(0, "first ");
+        window.append("last ");
+        window.setSpan(new RoundedHighlighterSpan(GOLD, 12f), 0, window.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        expected.insert(start + checkedOut.length(), "last ");
+        expected.insert(start, "first ");
+        expected.setSpan(new RoundedHighlighterSpan(GOLD, 12f), start, start + window.length(),
+                Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+
+        assertEquals(describe(expected), describe(document.snapshot(window)));
+        document.checkIn(window);
+        assertEquals(describe(expected), describe(document.snapshot(null)));
+
+        // Moving elsewhere and back finds the edit again
+        document.checkIn(document.checkOut(0));
+        Spannable again = document.checkOut(start + 10);
+        int at = start - document.getWindowStart();
+        assertEquals("first ", again.subSequence(at, at + 6).toString());
+    }
+
+    @Test
+    public void testWindowGrowsToKeepSelection() {
+        Spannable note = sermonNote(new Random(3), 3000);
+        NoteDocument document = new NoteDocument(note, new NoteStyler());
+        int selStart = 1000;
+        int selEnd = note.length() - 1000;
+        Spannable window = document.checkOut(note.length() / 2, selStart, selEnd);
+        assertTrue(document.getWindowStart() <= selStart);
+        assertTrue(document.getWindowStart() + window.length() >= selEnd);
+    }
+
+    @Test
+    public void testOpenLargeNote() {
+        Spannable note = sermonNote(new Random(4), 2 * 1024 * 1024 / 100); // About 100 chars a paragraph
+        String json = RichTextUtils.toJson(note);
+        NoteStyler styler = new NoteStyler();
+        styler.setVerseColor(0xFFD4AF37);
+
+        int rounds = 3;
+        long whole = 0;
+        long windowed = 0;
+        int editorChars = 0;
+        for (int round = 0; round < rounds + 1; round++) {
+            long t0 = System.nanoTime();
+            SpannableStringBuilder content = styler.toSpans(RichTextUtils.fromJson(json));
+            SpannableStringBuilder editor = new SpannableStringBuilder(content); // What setText copies
+            styler.styleSpans(editor);
+            long t1 = System.nanoTime();
+            content = styler.toSpans(RichTextUtils.fromJson(json));
+            NoteDocument document = new NoteDocument(content, styler);
+            SpannableStringBuilder window = new SpannableStringBuilder(document.checkOut(0));
+            styler.styleSpans(window);
+            long t2 = System.nanoTime();
+            if (round >= 1) { // Warm-up
+                whole += t1 - t0;
+                windowed += t2 - t1;
+            }
+            editorChars = window.length();
+        }
+        System.out.println("Open " + note.length() / 1024 + " KB note: whole " + whole / rounds / 1_000_000
+                + " ms with " + note.length() + " chars to lay out, blocks " + windowed / rounds / 1_000_000
+                + " ms with " + editorChars + " chars to lay out");
+        assertTrue(editorChars <= NoteDocument.WINDOW_CHARS + NoteDocument.BLOCK_CHARS);
+        assertTrue(windowed < whole);
+    }
+
+    /** Text, then each saved span as type:start-end=value, sorted. */
+    private static String describe(Spanned text) {
+        Spannable saved = RichTextUtils.fromJson(RichTextUtils.toJson(text));
+        List<String> spans = new ArrayList<>();
+        for (Object span : saved.getSpans(0, saved.length(), Object.class)) {
+            String value = span instanceof RoundedHighlighterSpan
+                    ? Integer.toHexString(((RoundedHighlighterSpan) span).getBackgroundColor())
+                    : span instanceof ForegroundColorSpan
+                            ? Integer.toHexString(((ForegroundColorSpan) span).getForegroundColor())
+                            : span instanceof StyleSpan ? String.valueOf(((StyleSpan) span).getStyle()) : "";
+            spans.add(span.getClass().getSimpleName() + ":" + saved.getSpanStart(span) + "-"
+                    + saved.getSpanEnd(span) + "=" + value);
+        }
+        Collections.sort(spans);
+        return saved + "\n" + spans;
+    }
+
+    private static String paragraphs(int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < length; i++) {
+            sb.append("Point ").append(i).append(": grace is unearned favour.\n");
+        }
+        return sb.toString();
+    }
+
+    private static Spannable sermonNote(Random random, int paragraphs) {
+        SpannableStringBuilder sb = new SpannableStringBuilder();
+        int boldFrom = -1;
+        for (int p = 0; p < paragraphs; p++) {
+            int start = sb.length();
+            if (random.nextInt(4) == 0) {
+                sb.append("John 3:").append(String.valueOf(1 + random.nextInt(36))).append('\n');
+                int verse = sb.length();
+                sb.append("\"For God so loved the world, that he gave his only begotten Son.\"");
+                sb.setSpan(new VerseSpan(), verse, sb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            } else {
+                sb.append("Point ").append(String.valueOf(p)).append(": grace is unearned favour, and faith "
+                        + "receives what grace gives. Write it down and read it again.");
+                int word = start + random.nextInt(sb.length() - start - 10);
+                sb.setSpan(new RoundedHighlighterSpan(GOLD, 12f), word, word + 8, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                if (random.nextBoolean()) {
+                    sb.setSpan(new StyleSpan(Typeface.BOLD), start, start + 6, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                }
+            }
+            if (boldFrom >= 0) { // Bold running over a paragraph break
+                sb.setSpan(new StyleSpan(Typeface.BOLD), boldFrom, start + 4, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                boldFrom = -1;
+            }
+            sb.append("\n\n");
+            if (random.nextInt(10) == 0) {
+                boldFrom = sb.length() - 12;
+            }
+        }
+        return sb;
+    }
+}
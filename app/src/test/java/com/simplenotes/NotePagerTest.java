@@ -0,0 +1,260 @@
+package com.simplenotes;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class NotePagerTest {
+    /** The note list's order: pinned first, then newest first, ties by id. */
+    private static final Comparator<NoteSummary> LIST_ORDER = (a, b) -> {
+        if (a.isPinned() != b.isPinned())
+            return a.isPinned() ? -1 : 1;
+        if (a.getTimestamp() != b.getTimestamp())
+            return Long.compare(b.getTimestamp(), a.getTimestamp());
+        return Long.compare(b.getId(), a.getId());
+    };
+
+    /** Answers the page queries from a list, as NoteDao's would. */
+    private static class FakeSource implements NotePager.Source {
+        final List<NoteSummary> notes = new ArrayList<>();
+        final List<Integer> limits = new ArrayList<>();
+
+        @Override
+        public List<NoteSummary> first(int limit) {
+            limits.add(limit);
+            List<NoteSummary> sorted = new ArrayList<>(notes);
+            Collections.sort(sorted, LIST_ORDER);
+            return new ArrayList<>(sorted.subList(0, Math.min(limit, sorted.size())));
+        }
+
+        @Override
+        public List<NoteSummary> after(boolean isPinned, long timestamp, long id, int limit) {
+            limits.add(limit);
+            List<NoteSummary> sorted = new ArrayList<>(notes);
+            Collections.sort(sorted, LIST_ORDER);
+            List<NoteSummary> page = new ArrayList<>();
+            for (NoteSummary note : sorted) {
+                if (note.isPinned() == isPinned && (note.getTimestamp() < timestamp
+                        || note.getTimestamp() == timestamp && note.getId() < id) && page.size() < limit) {
+                    page.add(note);
+                }
+            }
+            return page;
+        }
+    }
+
+    @Test
+    public void testPagesAsTheListScrolls() {
+        FakeSource source = new FakeSource();
+        for (int i = 1; i <= 120; i++) {
+            source.notes.add(summary(i, 1000 + i / 4, i % 2 == 0)); // More than a page pinned, equal timestamps
+        }
+        List<Runnable> tasks = new ArrayList<>();
+        List<List<NoteSummary>> shown = new ArrayList<>();
+        NotePager pager = new NotePager(source, tasks::add, Runnable::run, shown::add);
+
+        pager.refresh();
+        runAll(tasks);
+        assertEquals(1, shown.size());
+        assertEquals(NotePager.PAGE_SIZE, pager.getLoaded().size());
+
+        pager.onScrolled(NotePager.PAGE_SIZE - NotePager.PREFETCH_DISTANCE - 1);
+        assertTrue(tasks.isEmpty()); // Not near the end yet
+        pager.onScrolled(NotePager.PAGE_SIZE - NotePager.PREFETCH_DISTANCE);
+        pager.onScrolled(NotePager.PAGE_SIZE - 1);
+        assertEquals(1, tasks.size()); // One page at a time
+        runAll(tasks);
+        assertEquals(2 * NotePager.PAGE_SIZE, pager.getLoaded().size());
+
+        pager.onScrolled(2 * NotePager.PAGE_SIZE - 1);
+        runAll(tasks);
+        pager.onScrolled(119);
+        assertTrue(tasks.isEmpty()); // All loaded
+
+        // Every note once, in list order, across the pinned/unpinned boundary
+        List<NoteSummary> expected = new ArrayList<>(source.notes);
+        Collections.sort(expected, LIST_ORDER);
+        List<NoteSummary> loaded = shown.get(shown.size() - 1);
+        assertEquals(expected.size(), loaded.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), loaded.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testRefreshReloadsLoadedRowsAndDropsStaleLoads() {
+        FakeSource source = new FakeSource();
+        for (int i = 1; i <= 200; i++) {
+            source.notes.add(summary(i, i, false));
+        }
+        List<Runnable> tasks = new ArrayList<>();
+        List<List<NoteSummary>> shown = new ArrayList<>();
+        NotePager pager = new NotePager(source, tasks::add, Runnable::run, shown::add);
+        pager.refresh();
+        runAll(tasks);
+        pager.onScrolled(NotePager.PAGE_SIZE - 1);
+        runAll(tasks);
+        assertEquals(2 * NotePager.PAGE_SIZE, pager.getLoaded().size());
+
+        // A refresh reloads what was loaded, in one query
+        pager.refresh();
+        source.limits.clear();
+        source.notes.remove(0);
+        runAll(tasks);
+        assertEquals(1, source.limits.size());
+        assertEquals(2 * NotePager.PAGE_SIZE, (int) source.limits.get(0));
+        assertEquals(3, shown.size());
+        assertEquals(2 * NotePager.PAGE_SIZE, pager.getLoaded().size());
+
+        // A page still loading when the list refreshes is dropped
+        pager.onScrolled(2 * NotePager.PAGE_SIZE - 1);
+        List<Runnable> stale = new ArrayList<>(tasks);
+        tasks.clear();
+        pager.refresh();
+        runAll(stale);
+        assertEquals(3, shown.size());
+        runAll(tasks);
+        assertEquals(4, shown.size());
+    }
+
+    /**
+     * Loading the list with 10,000 notes in SQLite: everything at once as
+     * before, the first page, and pages deep into the list by key and by
+     * offset.
+     */
+    @Test
+    public void testPageLatency() {
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        db.execSQL("CREATE TABLE notes (id INTEGER PRIMARY KEY NOT NULL, title TEXT, content TEXT, "
+                + "timestamp INTEGER NOT NULL, isPinned INTEGER NOT NULL, preview TEXT)");
+        // As Room creates it for Note
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_isPinned_timestamp` ON `notes` "
+                + "(`isPinned`, `timestamp`)");
+        Random random = new Random(23);
+        int count = 10_000;
+        StringBuilder preview = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            preview.append("lorem ipsum ");
+        }
+        db.beginTransaction();
+        try {
+            for (int i = 1; i <= count; i++) {
+                db.execSQL("INSERT INTO notes (id, title, content, timestamp, isPinned, preview) "
+                        + "VALUES (?, ?, '', ?, ?, ?)", new Object[] { i, "Note " + i,
+                                1_700_000_000_000L + random.nextInt(1_000_000) * 1000L,
+                                random.nextInt(50) == 0 ? 1 : 0, preview.toString() });
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        SqlSource source = new SqlSource(db);
+
+        // Paging by key visits every note once, in list order
+        List<NoteSummary> all = source.query("SELECT id, title, timestamp, isPinned, preview FROM notes "
+                + "ORDER BY isPinned DESC, timestamp DESC, id DESC", new String[0]);
+        List<NoteSummary> paged = new ArrayList<>(source.first(NotePager.PAGE_SIZE));
+        while (paged.size() < count) {
+            paged.addAll(NotePager.page(source, paged.get(paged.size() - 1), NotePager.PAGE_SIZE));
+        }
+        for (int i = 0; i < count; i++) {
+            assertEquals(all.get(i).getId(), paged.get(i).getId());
+        }
+
+        int rounds = 20;
+        NoteSummary deep = all.get(count - NotePager.PAGE_SIZE - 1);
+        long[] times = new long[4];
+        for (int round = 0; round < rounds; round++) {
+            long t0 = System.nanoTime();
+            source.query("SELECT id, title, timestamp, isPinned, preview FROM notes "
+                    + "ORDER BY isPinned DESC, timestamp DESC, id DESC", new String[0]);
+            long t1 = System.nanoTime();
+            source.first(NotePager.PAGE_SIZE);
+            long t2 = System.nanoTime();
+            NotePager.page(source, deep, NotePager.PAGE_SIZE);
+            long t3 = System.nanoTime();
+            source.query("SELECT id, title, timestamp, isPinned, preview FROM notes "
+                    + "ORDER BY isPinned DESC, timestamp DESC, id DESC LIMIT ? OFFSET ?",
+                    new String[] { String.valueOf(NotePager.PAGE_SIZE), String.valueOf(count - NotePager.PAGE_SIZE) });
+            long t4 = System.nanoTime();
+            times[0] += t1 - t0;
+            times[1] += t2 - t1;
+            times[2] += t3 - t2;
+            times[3] += t4 - t3;
+        }
+        System.out.println("Note list with " + count + " notes: all at once " + times[0] / rounds / 1000
+                + " us, first page " + times[1] / rounds / 1000 + " us, last page by key "
+                + times[2] / rounds / 1000 + " us, by offset " + times[3] / rounds / 1000 + " us");
+        assertTrue(times[1] < times[0]);
+        db.close();
+    }
+
+    /** NoteDao's page queries run directly, with Room's named parameters bound by hand. */
+    private static class SqlSource implements NotePager.Source {
+        private final SQLiteDatabase db;
+
+        SqlSource(SQLiteDatabase db) {
+            this.db = db;
+        }
+
+        @Override
+        public List<NoteSummary> first(int limit) {
+            return query(NoteDao.NOTE_LIST_FIRST.replace(":limit", "?"), new String[] { String.valueOf(limit) });
+        }
+
+        @Override
+        public List<NoteSummary> after(boolean isPinned, long timestamp, long id, int limit) {
+            String sql = NoteDao.NOTE_LIST_AFTER.replace(":isPinned", "?1").replace(":timestamp", "?2")
+                    .replace(":id", "?3").replace(":limit", "?4");
+            return query(sql, new String[] { isPinned ? "1" : "0", String.valueOf(timestamp), String.valueOf(id),
+                    String.valueOf(limit) });
+        }
+
+        List<NoteSummary> query(String sql, String[] args) {
+            List<NoteSummary> notes = new ArrayList<>();
+            try (Cursor cursor = db.rawQuery(sql, args)) {
+                while (cursor.moveToNext()) {
+                    NoteSummary note = summary(cursor.getLong(0), cursor.getLong(2), cursor.getInt(3) != 0);
+                    note.setTitle(cursor.getString(1));
+                    note.setPreview(cursor.getString(4));
+                    notes.add(note);
+                }
+            }
+            return notes;
+        }
+    }
+
+    private static NoteSummary summary(long id, long timestamp, boolean pinned) {
+        NoteSummary note = new NoteSummary();
+        note.setId(id);
+        note.setTitle("Note " + id);
+        note.setTimestamp(timestamp);
+        note.setPinned(pinned);
+        return note;
+    }
+
+    private static void runAll(List<Runnable> tasks) {
+        while (!tasks.isEmpty()) {
+            List<Runnable> pending = new ArrayList<>(tasks);
+            tasks.clear();
+            for (Runnable task : pending) {
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.simplenotes;
+
+import android.graphics.Typeface;
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.style.StyleSpan;
+
+import com.simplenotes.utils.RichTextUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class NoteSaverTest {
+
+    /** Runs queued tasks only when asked, like a busy diskIO thread. */
+    private static final class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyLastOfRapidSavesIsWritten() {
+        ManualExecutor worker = new ManualExecutor();
+        List<Note> written = new ArrayList<>();
+        NoteSaver saver = new NoteSaver(worker, (note, text, spans) -> {
+            note.setContent(RichTextUtils.toJson(text, spans));
+            written.add(note);
+        });
+        Note note = new Note(7, "", "", 0);
+
+        SpannableStringBuilder editor = new SpannableStringBuilder();
+        for (int i = 0; i < 50; i++) {
+            editor.append("word ").append(String.valueOf(i)).append('\n');
+            saver.save(note, "Title " + i, editor);
+        }
+        assertEquals(1, worker.tasks.size());
+        worker.runAll();
+
+        assertEquals(1, written.size());
+        assertEquals(7, written.get(0).getId());
+        assertEquals("Title 49", written.get(0).getTitle());
+        assertEquals(editor.toString(), RichTextUtils.fromJson(written.get(0).getContent()).toString());
+        assertEquals(50, saver.getRequestedCount());
+        assertEquals(1, saver.getWrittenCount());
+    }
+
+    @Test
+    public void testSavesOfOtherNotesAndLaterSavesAreKept() {
+        ManualExecutor worker = new ManualExecutor();
+        List<Note> written = new ArrayList<>();
+        NoteSaver saver = new NoteSaver(worker, (note, text, spans) -> {
+            note.setContent(RichTextUtils.toJson(text, spans));
+            written.add(note);
+        });
+        Note first = new Note(1, "", "", 0);
+        Note second = new Note(2, "", "", 0);
+
+        saver.save(first, "a", "one");
+        saver.save(second, "b", "two");
+        saver.save(first, "a", "three");
+        worker.runAll();
+        assertEquals(2, written.size());
+        assertEquals(2, written.get(0).getId()); // first's newest save came last
+        assertEquals(1, written.get(1).getId());
+        assertEquals("three", RichTextUtils.fromJson(written.get(1).getContent()).toString());
+
+        // A save after the worker ran is written again
+        saver.save(first, "a", "four");
+        worker.runAll();
+        assertEquals(3, written.size());
+        assertEquals("four", RichTextUtils.fromJson(written.get(2).getContent()).toString());
+    }
+
+    @Test
+    public void testSnapshotIgnoresLaterEdits() {
+        ManualExecutor worker = new ManualExecutor();
+        List<Note> written = new ArrayList<>();
+        NoteSaver saver = new NoteSaver(worker, (note, text, spans) -> {
+            note.setContent(RichTextUtils.toJson(text, spans));
+            written.add(note);
+        });
+
+        SpannableStringBuilder editor = new SpannableStringBuilder("Hello World");
+        editor.setSpan(new StyleSpan(Typeface.BOLD), 0, 5, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        saver.save(new Note(3, "", "", 0), "t", editor);
+        editor.replace(0, 5, "Bye");
+        worker.runAll();
+
+        Spannable saved = RichTextUtils.fromJson(written.get(0).getContent());
+        assertEquals("Hello World", saved.toString());
+        StyleSpan[] bold = saved.getSpans(0, saved.length(), StyleSpan.class);
+        assertEquals(1, bold.length);
+        assertEquals(5, saved.getSpanEnd(bold[0]));
+    }
+
+    @Test
+    public void testCopyCountsTowardsUiThreadTime() {
+        ManualExecutor worker = new ManualExecutor();
+        List<Note> written = new ArrayList<>();
+        NoteSaver saver = new NoteSaver(worker, (note, text, spans) -> {
+            note.setContent(RichTextUtils.toJson(text, spans));
+            written.add(note);
+        });
+
+        saver.saveCopy(new Note(4, "", "", 0), "t", () -> {
+            long until = System.nanoTime() + 20_000_000L; // A slow snapshot of a large note
+            while (System.nanoTime() < until) {
+                // Busy, as copying spans is
+            }
+            return new SpannableStringBuilder("Copied");
+        });
+        assertTrue(saver.getLastUiNanos() >= 20_000_000L);
+        worker.runAll();
+        assertEquals("Copied", RichTextUtils.fromJson(written.get(0).getContent()).toString());
+    }
+
+    @Test
+    public void testUiThreadCostPerSave() {
+        SpannableStringBuilder editor = new SpannableStringBuilder();
+        for (int i = 0; editor.length() < 200 * 1024; i++) {
+            int start = editor.length();
+            editor.append("Notes on chapter ").append(String.valueOf(i)).append(" with highlighted words.\n");
+            if (i % 4 == 0) {
+                editor.setSpan(new RoundedHighlighterSpan(0xFFFFF59D, 12f), start, start + 5,
+                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+        ManualExecutor worker = new ManualExecutor();
+        NoteSaver saver = new NoteSaver(worker, (note, text, spans) -> {
+        });
+        Note note = new Note(1, "", "", 0);
+
+        int rounds = 10;
+        long inline = 0;
+        long snapshot = 0;
+        int sink = 0;
+        for (int round = 0; round < rounds + 3; round++) {
+            long t0 = System.nanoTime();
+            sink += RichTextUtils.toJson(editor).length(); // What onPause used to do
+            long t1 = System.nanoTime();
+            saver.save(note, "t", editor);
+            long t2 = System.nanoTime();
+            worker.runAll();
+            if (round >= 3) { // Warm-up
+                inline += t1 - t0;
+                snapshot += t2 - t1;
+            }
+        }
+        System.out.println("Save of 200 KB on the UI thread: serialize " + inline / rounds / 1000
+                + " us, snapshot " + snapshot / rounds / 1000 + " us (max " + saver.getMaxUiNanos() / 1000
+                + " us) (" + sink + ")");
+        assertTrue(snapshot < inline);
+    }
+}
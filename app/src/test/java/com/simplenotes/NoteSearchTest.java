@@ -0,0 +1,304 @@
+package com.simplenotes;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.simplenotes.utils.RichTextUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class NoteSearchTest {
+
+    /** Returns canned matches, and results in id order (as SQLite would, not ranked). */
+    private static class FakeIndex implements NoteSearch.Index {
+        final List<NoteSearch.Match> matches = new ArrayList<>();
+        final List<String> queries = new ArrayList<>();
+        List<Long> requestedIds;
+
+        void add(long id, byte[] matchinfo) {
+            NoteSearch.Match match = new NoteSearch.Match();
+            match.noteId = id;
+            match.matchinfo = matchinfo;
+            matches.add(match);
+        }
+
+        @Override
+        public List<NoteSearch.Match> match(String query) {
+            queries.add(query);
+            return matches;
+        }
+
+        @Override
+        public List<NoteSearchResult> results(String query, List<Long> ids) {
+            requestedIds = ids;
+            List<Long> sorted = new ArrayList<>(ids);
+            sorted.sort(null);
+            List<NoteSearchResult> results = new ArrayList<>();
+            for (long id : sorted) {
+                NoteSearchResult result = new NoteSearchResult();
+                result.setId(id);
+                result.setSnippet("snippet " + id);
+                results.add(result);
+            }
+            return results;
+        }
+    }
+
+    @Test
+    public void testMatchQuery() {
+        assertEquals("grace* faith*", NoteSearch.matchQuery("Grace faith"));
+        assertEquals("john* 3* 16*", NoteSearch.matchQuery("John 3:16"));
+        assertEquals("caf\u00E9*", NoteSearch.matchQuery("\"CAF\u00C9\""));
+        assertEquals("love* or* hope*", NoteSearch.matchQuery("love OR -hope*")); // No operators
+        assertNull(NoteSearch.matchQuery("  \"*- "));
+        assertNull(NoteSearch.matchQuery(null));
+    }
+
+    @Test
+    public void testRank() {
+        // One word, title and body; 1000 notes averaging 4 title and 200 body words
+        byte[] inTitle = matchinfo(1000, new int[] { 4, 200 }, new int[] { 4, 200 }, new int[][] { { 1, 0 } },
+                new int[][] { { 50, 300 } });
+        byte[] inBody = matchinfo(1000, new int[] { 4, 200 }, new int[] { 4, 200 }, new int[][] { { 0, 1 } },
+                new int[][] { { 50, 300 } });
+        byte[] manyInBody = matchinfo(1000, new int[] { 4, 200 }, new int[] { 4, 200 }, new int[][] { { 0, 6 } },
+                new int[][] { { 50, 300 } });
+        byte[] manyInLongBody = matchinfo(1000, new int[] { 4, 200 }, new int[] { 4, 2000 }, new int[][] { { 0, 6 } },
+                new int[][] { { 50, 300 } });
+        assertTrue(NoteSearch.rank(inTitle) > NoteSearch.rank(inBody));
+        assertTrue(NoteSearch.rank(manyInBody) > NoteSearch.rank(inBody));
+        assertTrue(NoteSearch.rank(manyInBody) > NoteSearch.rank(manyInLongBody));
+
+        // A rare word outweighs a common one
+        byte[] rare = matchinfo(1000, new int[] { 4, 200 }, new int[] { 4, 200 }, new int[][] { { 0, 1 }, { 0, 0 } },
+                new int[][] { { 1, 3 }, { 900, 2000 } });
+        byte[] common = matchinfo(1000, new int[] { 4, 200 }, new int[] { 4, 200 }, new int[][] { { 0, 0 }, { 0, 1 } },
+                new int[][] { { 1, 3 }, { 900, 2000 } });
+        assertTrue(NoteSearch.rank(rare) > NoteSearch.rank(common));
+        assertTrue(NoteSearch.rank(common) > 0);
+    }
+
+    @Test
+    public void testSearchReturnsBestFirst() {
+        FakeIndex index = new FakeIndex();
+        for (int i = 1; i <= NoteSearch.MAX_RESULTS + 20; i++) {
+            // Later ids have more hits
+            index.add(i, matchinfo(1000, new int[] { 4, 200 }, new int[] { 4, 200 }, new int[][] { { 0, i } },
+                    new int[][] { { 1, 100 } }));
+        }
+        NoteSearch search = new NoteSearch(index);
+
+        List<NoteSearchResult> results = search.search("  Grace ");
+        assertEquals(Arrays.asList("grace*"), index.queries);
+        assertEquals(NoteSearch.MAX_RESULTS, index.requestedIds.size());
+        assertEquals(NoteSearch.MAX_RESULTS, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(NoteSearch.MAX_RESULTS + 20 - i, results.get(i).getId());
+        }
+
+        assertTrue(search.search(" ... ").isEmpty());
+        assertEquals(1, index.queries.size()); // Nothing to search for, so no query
+    }
+
+    @Test
+    public void testSearchLatestDropsStaleQueries() {
+        FakeIndex index = new FakeIndex();
+        index.add(1, matchinfo(10, new int[] { 4, 20 }, new int[] { 4, 20 }, new int[][] { { 1, 1 } },
+                new int[][] { { 1, 1 } }));
+        NoteSearch search = new NoteSearch(index);
+        List<Runnable> background = new ArrayList<>();
+        List<Runnable> main = new ArrayList<>();
+        Executor backgroundExecutor = background::add;
+        Executor mainExecutor = main::add;
+        List<String> delivered = new ArrayList<>();
+
+        // "g" is superseded before it starts, so it never queries
+        search.searchLatest("g", backgroundExecutor, mainExecutor, (input, results) -> delivered.add(input));
+        search.searchLatest("gr", backgroundExecutor, mainExecutor, (input, results) -> delivered.add(input));
+        runAll(background);
+        assertEquals(Arrays.asList("gr*"), index.queries);
+
+        // "gra" finishes after "grac" was typed, so its results are dropped
+        search.searchLatest("gra", backgroundExecutor, mainExecutor, (input, results) -> delivered.add(input));
+        runAll(background);
+        search.searchLatest("grac", backgroundExecutor, mainExecutor, (input, results) -> delivered.add(input));
+        runAll(background);
+        runAll(main);
+        assertEquals(Arrays.asList("grac"), delivered);
+
+        search.searchLatest("grace", backgroundExecutor, mainExecutor, (input, results) -> delivered.add(input));
+        runAll(background);
+        search.cancel();
+        runAll(main);
+        assertEquals(Arrays.asList("grac"), delivered);
+    }
+
+    /**
+     * Query latency over 10,000 notes in SQLite, for what people type while
+     * searching: short prefixes matching most notes, and rarer words.
+     */
+    @Test
+    public void testQueryLatency() {
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        db.execSQL("CREATE TABLE notes (id INTEGER PRIMARY KEY NOT NULL, title TEXT, content TEXT, "
+                + "timestamp INTEGER NOT NULL, isPinned INTEGER NOT NULL, preview TEXT)");
+        // As Room creates it for NoteFts
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notes_fts` USING FTS4(`title` TEXT, `body` TEXT, "
+                + "tokenize=unicode61, prefix=`2,3`)");
+
+        Random random = new Random(21);
+        String[] words = { "grace", "faith", "hope", "love", "mercy", "covenant", "spirit", "kingdom", "prayer",
+                "wisdom", "shepherd", "light", "bread", "water", "vine", "temple", "prophet", "psalm", "gospel",
+                "resurrection", "repentance", "forgiveness", "baptism", "sabbath", "glory", "salvation" };
+        String[] filler = { "the", "and", "of", "to", "in", "that", "is", "was", "he", "for", "it", "with", "as" };
+        int count = 10_000;
+        long t0 = System.nanoTime();
+        db.beginTransaction();
+        try {
+            for (int i = 1; i <= count; i++) {
+                StringBuilder text = new StringBuilder();
+                int paragraphs = 3 + random.nextInt(38);
+                for (int p = 0; p < paragraphs; p++) {
+                    for (int w = 0; w < 20; w++) {
+                        text.append(random.nextInt(10) < 3 ? words[random.nextInt(words.length)]
+                                : filler[random.nextInt(filler.length)]).append(' ');
+                    }
+                    text.append("\n\n");
+                }
+                String title = "Sermon " + i + " on " + words[random.nextInt(words.length)];
+                String content = RichTextUtils.toJson(text.toString(), "[]");
+                db.execSQL("INSERT INTO notes (id, title, content, timestamp, isPinned, preview) VALUES (?, ?, ?, ?, 0, ?)",
+                        new Object[] { i, title, content, i, RichTextUtils.previewOf(content) });
+                db.execSQL("INSERT INTO notes_fts (rowid, title, body) VALUES (?, ?, ?)",
+                        new Object[] { i, title, RichTextUtils.plainTextOf(content) });
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        long indexing = System.nanoTime() - t0;
+
+        NoteSearch search = new NoteSearch(new SqlIndex(db));
+        String[] inputs = { "g", "gr", "grace", "grace fa", "resurr", "sermon 12", "shepherd bread cov", "zzz" };
+        StringBuilder report = new StringBuilder();
+        for (String input : inputs) {
+            search.search(input); // Warm-up
+            int rounds = 5;
+            long start = System.nanoTime();
+            List<NoteSearchResult> results = null;
+            for (int round = 0; round < rounds; round++) {
+                results = search.search(input);
+            }
+            long perQuery = (System.nanoTime() - start) / rounds;
+            report.append("\n  \"").append(input).append("\": ").append(perQuery / 1000).append(" us, ")
+                    .append(results.size()).append(" results");
+            if (!input.equals("zzz")) {
+                assertTrue(input, !results.isEmpty());
+                assertTrue(input, results.get(0).getSnippet().contains(NoteSearch.MATCH_START));
+            }
+        }
+        for (NoteSearchResult result : search.search("sermon 12")) {
+            assertTrue(result.getTitle(), result.getTitle().startsWith("Sermon 12"));
+        }
+        System.out.println("Search over " + count + " notes (indexed in " + indexing / 1_000_000 + " ms):" + report);
+        db.close();
+    }
+
+    /** NoteDao's search queries run directly, with Room's named parameters bound by hand. */
+    private static class SqlIndex implements NoteSearch.Index {
+        private final SQLiteDatabase db;
+
+        SqlIndex(SQLiteDatabase db) {
+            this.db = db;
+        }
+
+        @Override
+        public List<NoteSearch.Match> match(String query) {
+            List<NoteSearch.Match> matches = new ArrayList<>();
+            try (Cursor cursor = db.rawQuery(NoteDao.MATCH_NOTES.replace(":query", "?"), new String[] { query })) {
+                while (cursor.moveToNext()) {
+                    NoteSearch.Match match = new NoteSearch.Match();
+                    match.noteId = cursor.getLong(0);
+                    match.matchinfo = cursor.getBlob(1);
+                    matches.add(match);
+                }
+            }
+            return matches;
+        }
+
+        @Override
+        public List<NoteSearchResult> results(String query, List<Long> ids) {
+            StringBuilder in = new StringBuilder();
+            for (Long id : ids) {
+                in.append(in.length() == 0 ? "" : ", ").append(id);
+            }
+            String sql = NoteDao.SEARCH_RESULTS.replace(":open", "?").replace(":close", "?")
+                    .replace(":query", "?").replace(":ids", in.length() == 0 ? "NULL" : in.toString());
+            List<NoteSearchResult> results = new ArrayList<>();
+            try (Cursor cursor = db.rawQuery(sql,
+                    new String[] { NoteSearch.MATCH_START, NoteSearch.MATCH_END, query })) {
+                while (cursor.moveToNext()) {
+                    NoteSearchResult result = new NoteSearchResult();
+                    result.setId(cursor.getLong(0));
+                    result.setTitle(cursor.getString(1));
+                    result.setTimestamp(cursor.getLong(2));
+                    result.setPinned(cursor.getInt(3) != 0);
+                    result.setPreview(cursor.getString(4));
+                    result.setSnippet(cursor.getString(5));
+                    results.add(result);
+                }
+            }
+            return results;
+        }
+    }
+
+    private static void runAll(List<Runnable> tasks) {
+        List<Runnable> pending = new ArrayList<>(tasks);
+        tasks.clear();
+        for (Runnable task : pending) {
+            task.run();
+        }
+    }
+
+    /**
+     * matchinfo('pcnalx') for two columns: rows, average and row lengths per
+     * column, and per phrase the hits in this row per column and, per column,
+     * {rows with hits, hits in all rows}.
+     */
+    private static byte[] matchinfo(int rows, int[] average, int[] length, int[][] hitsInRow, int[][] totals) {
+        int phrases = hitsInRow.length;
+        int columns = average.length;
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (3 + 2 * columns + 3 * phrases * columns))
+                .order(ByteOrder.nativeOrder());
+        buffer.putInt(phrases).putInt(columns).putInt(rows);
+        for (int a : average) {
+            buffer.putInt(a);
+        }
+        for (int l : length) {
+            buffer.putInt(l);
+        }
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                buffer.putInt(hitsInRow[phrase][column]).putInt(totals[phrase][1]).putInt(totals[phrase][0]);
+            }
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,356 @@
+package com.simplenotes;
+
+import com.simplenotes.utils.RichTextUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NoteStoreTest {
+
+    /**
+     * In-memory tables. Like a transaction that rolls back, a failing write
+     * leaves nothing behind.
+     */
+    private static class FakeStorage implements NoteStore.Storage {
+        final Map<Long, Note> notes = new HashMap<>();
+        final List<NoteOp> ops = new ArrayList<>();
+        long nextOpId = 1;
+        boolean failAppend = false;
+        boolean failSnapshot = false;
+
+        @Override
+        public Note getNote(long id) {
+            Note note = notes.get(id);
+            return note == null ? null : copy(note);
+        }
+
+        @Override
+        public List<NoteOp> getOps(long noteId) {
+            List<NoteOp> out = new ArrayList<>();
+            for (NoteOp op : ops) {
+                if (op.getNoteId() == noteId) {
+                    out.add(op);
+                }
+            }
+            return out;
+        }
+
+        @Override
+        public List<Long> getNoteIdsWithOps() {
+            TreeSet<Long> ids = new TreeSet<>();
+            for (NoteOp op : ops) {
+                ids.add(op.getNoteId());
+            }
+            return new ArrayList<>(ids);
+        }
+
+        @Override
+        public long appendOp(NoteOp op) {
+            if (failAppend)
+                throw new IllegalStateException("Crash before the op was committed");
+            NoteOp stored = new NoteOp(op.getNoteId(), op.getStart(), op.getRemoved(), op.getInserted(),
+                    op.getSpans(), op.getTitle(), op.getTimestamp());
+            stored.setId(nextOpId++);
+            ops.add(stored);
+            return stored.getId();
+        }
+
+        @Override
+        public void writeSnapshot(Note note, long lastOpId) {
+            if (failSnapshot)
+                throw new IllegalStateException("Crash before the compaction was committed");
+            notes.put(note.getId(), copy(note));
+            for (Iterator<NoteOp> it = ops.iterator(); it.hasNext();) {
+                NoteOp op = it.next();
+                if (op.getNoteId() == note.getId() && op.getId() <= lastOpId) {
+                    it.remove();
+                }
+            }
+        }
+
+        @Override
+        public void delete(Note note) {
+            notes.remove(note.getId());
+            ops.removeIf(op -> op.getNoteId() == note.getId());
+        }
+
+        int opsOf(long noteId) {
+            return getOps(noteId).size();
+        }
+
+        private static Note copy(Note note) {
+            Note copy = new Note(note.getId(), note.getTitle(), note.getContent(), note.getTimestamp());
+            copy.setPinned(note.isPinned());
+            copy.setPreview(note.getPreview());
+            return copy;
+        }
+    }
+
+    private static final String NO_SPANS = "[]";
+
+    @Test
+    public void testSavesAreLoggedAndReplayed() {
+        String body = longText(1000);
+        FakeStorage storage = storageWith(1, body + "Hello world");
+        NoteStore store = new NoteStore(storage);
+
+        save(store, 1, "T", body + "Hello brave world", NO_SPANS);
+        save(store, 1, "T2", body + "Hello brave new world", "[4,6,5,-256]");
+        save(store, 1, "T2", body + "Hello new world", "[4,6,3,-256]");
+
+        assertEquals(3, storage.opsOf(1));
+        assertEquals(body + "Hello world", RichTextUtils.textOf(storage.notes.get(1L).getContent())); // Untouched
+        NoteOp last = storage.getOps(1).get(2);
+        assertEquals(body.length() + 6, last.getStart());
+        assertEquals(6, last.getRemoved());
+        assertEquals("", last.getInserted());
+
+        // A fresh store (e.g. after a restart) replays the log
+        Note loaded = new NoteStore(storage).load(1);
+        assertEquals(body + "Hello new world", RichTextUtils.textOf(loaded.getContent()));
+        assertEquals("[4,6,3,-256]", RichTextUtils.packedSpansOf(loaded.getContent()));
+        assertEquals("T2", loaded.getTitle());
+    }
+
+    @Test
+    public void testUnchangedSpansAreNotLoggedAgain() {
+        String body = longText(1000);
+        FakeStorage storage = storageWith(1, body);
+        NoteStore store = new NoteStore(storage);
+        save(store, 1, "", body + "d", "[0,0,1]");
+        save(store, 1, "", body + "de", "[0,0,1]");
+        assertEquals("[0,0,1]", storage.getOps(1).get(0).getSpans());
+        assertEquals(null, storage.getOps(1).get(1).getSpans());
+        assertEquals("[0,0,1]", RichTextUtils.packedSpansOf(new NoteStore(storage).load(1).getContent()));
+    }
+
+    @Test
+    public void testUnchangedSaveIsNotLogged() {
+        String body = longText(1000);
+        FakeStorage storage = storageWith(1, body);
+        NoteStore store = new NoteStore(storage);
+        save(store, 1, "T", body + "d", NO_SPANS);
+        store.write(new Note(1, "T", null, 99), body + "d", NO_SPANS); // Opened and closed again
+        assertEquals(1, storage.ops.size());
+        assertEquals(0, new NoteStore(storage).load(1).getTimestamp());
+
+        store.compact(1);
+        assertEquals(0, storage.ops.size());
+        store.compact(1); // Nothing left to fold
+        assertEquals(body + "d", RichTextUtils.textOf(storage.notes.get(1L).getContent()));
+    }
+
+    @Test
+    public void testOlderContentIsRewrittenOnce() {
+        String body = longText(1000);
+        FakeStorage storage = new FakeStorage();
+        Note legacy = new Note(1, "", "{\"text\":\"" + body.replace("\n", "\\n") + "\",\"spans\":[]}", 0);
+        legacy.setPinned(true);
+        storage.notes.put(1L, legacy);
+        NoteStore store = new NoteStore(storage);
+
+        save(store, 1, "", body + "d", NO_SPANS);
+        assertEquals(0, storage.opsOf(1));
+        assertEquals(body + "d", RichTextUtils.textOf(storage.notes.get(1L).getContent()));
+        assertNotNull(RichTextUtils.packedSpansOf(storage.notes.get(1L).getContent()));
+        assertTrue(storage.notes.get(1L).isPinned());
+
+        save(store, 1, "", body + "de", NO_SPANS);
+        assertEquals(1, storage.opsOf(1));
+    }
+
+    @Test
+    public void testSmallNoteIsRewrittenInsteadOfLogged() {
+        FakeStorage storage = storageWith(1, "abc");
+        NoteStore store = new NoteStore(storage);
+        save(store, 1, "", "abcd", NO_SPANS); // The op would outweigh the snapshot
+        assertEquals(0, storage.opsOf(1));
+        assertEquals("abcd", RichTextUtils.textOf(storage.notes.get(1L).getContent()));
+    }
+
+    @Test
+    public void testCompactionFoldsOpsIntoSnapshot() {
+        FakeStorage storage = storageWith(1, longText(20_000));
+        NoteStore store = new NoteStore(storage);
+        String text = storage.notes.get(1L).getContent();
+        text = RichTextUtils.textOf(text);
+        for (int i = 0; i < NoteStore.MAX_OPS; i++) {
+            text = text + i;
+            save(store, 1, "", text, NO_SPANS);
+        }
+        assertEquals(0, storage.opsOf(1));
+        assertEquals(1, store.getCompactionCount());
+        assertEquals(text, RichTextUtils.textOf(storage.notes.get(1L).getContent()));
+
+        save(store, 1, "", text + "!", NO_SPANS);
+        store.compactAll();
+        assertEquals(0, storage.opsOf(1));
+        assertEquals(text + "!", RichTextUtils.textOf(storage.notes.get(1L).getContent()));
+    }
+
+    @Test
+    public void testCrashDuringCompactionKeepsSnapshotAndOps() {
+        FakeStorage storage = storageWith(1, "x");
+        NoteStore store = new NoteStore(storage);
+        storage.failSnapshot = true;
+        String text = "x";
+        try {
+            for (int i = 0; i < NoteStore.MAX_OPS; i++) {
+                text += "y";
+                save(store, 1, "", text, NO_SPANS);
+            }
+            fail(); // The ops outgrew the snapshot long before
+        } catch (IllegalStateException expected) {
+        }
+        // Each op was committed before compaction failed, so nothing is lost
+        assertTrue(storage.opsOf(1) > 0);
+        assertEquals("x", RichTextUtils.textOf(storage.notes.get(1L).getContent()));
+        assertEquals(text, RichTextUtils.textOf(new NoteStore(storage).load(1).getContent()));
+
+        storage.failSnapshot = false;
+        NoteStore restarted = new NoteStore(storage);
+        restarted.compactAll();
+        assertEquals(0, storage.opsOf(1));
+        assertEquals(text, RichTextUtils.textOf(storage.notes.get(1L).getContent()));
+    }
+
+    @Test
+    public void testCrashBeforeOpIsCommitted() {
+        FakeStorage storage = storageWith(1, longText(1000));
+        NoteStore store = new NoteStore(storage);
+        String base = RichTextUtils.textOf(storage.notes.get(1L).getContent());
+        save(store, 1, "", base + "a", NO_SPANS);
+
+        storage.failAppend = true;
+        try {
+            save(store, 1, "", base + "ab", NO_SPANS);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(base + "a", RichTextUtils.textOf(new NoteStore(storage).load(1).getContent()));
+
+        // The next save is diffed against what was committed, not what was attempted
+        storage.failAppend = false;
+        save(store, 1, "", "z" + base + "abc", NO_SPANS);
+        assertEquals("z" + base + "abc", RichTextUtils.textOf(new NoteStore(storage).load(1).getContent()));
+    }
+
+    @Test
+    public void testBrokenOpEndsReplayAndIsDropped() {
+        FakeStorage storage = storageWith(1, "abc");
+        NoteStore store = new NoteStore(storage);
+        save(store, 1, "", "abcd", NO_SPANS);
+        storage.appendOp(new NoteOp(1, 50, 1, "?", null, "", 0)); // Beyond the text
+        storage.appendOp(new NoteOp(1, 0, 0, "lost ", null, "", 0));
+
+        NoteStore restarted = new NoteStore(storage);
+        assertEquals("abcd", RichTextUtils.textOf(restarted.load(1).getContent()));
+        assertEquals(0, storage.opsOf(1)); // Compacted past the broken tail
+
+        save(restarted, 1, "", "abcde", NO_SPANS);
+        assertEquals("abcde", RichTextUtils.textOf(new NoteStore(storage).load(1).getContent()));
+    }
+
+    @Test
+    public void testRandomEditsMatchLastSave() {
+        Random random = new Random(3);
+        FakeStorage storage = storageWith(1, longText(3000));
+        NoteStore store = new NoteStore(storage);
+        String text = RichTextUtils.textOf(storage.notes.get(1L).getContent());
+        for (int i = 0; i < 1000; i++) {
+            text = randomEdit(random, text);
+            String spans = "[4," + random.nextInt(5) + ",1,-256]";
+            save(store, 1, "T" + i, text, spans);
+            if (random.nextInt(50) == 0) {
+                store = new NoteStore(storage); // Restart
+            }
+            Note loaded = new NoteStore(storage).load(1);
+            assertEquals(text, RichTextUtils.textOf(loaded.getContent()));
+            assertEquals(spans, RichTextUtils.packedSpansOf(loaded.getContent()));
+            assertEquals("T" + i, loaded.getTitle());
+        }
+    }
+
+    @Test
+    public void testSnapshotsRefreshPreview() {
+        String body = longText(1000);
+        FakeStorage storage = storageWith(1, body);
+        NoteStore store = new NoteStore(storage);
+
+        store.replace(new Note(2, "Legacy", "<p>Old <b>html</b> note</p>", 0));
+        assertEquals("Old html note", storage.notes.get(2L).getPreview());
+
+        save(store, 1, "T", "Opening \u200C{2}line\u200D. " + body, NO_SPANS);
+        store.compactAll();
+        String preview = storage.notes.get(1L).getPreview();
+        assertTrue(preview.startsWith("Opening line. Point 0"));
+        assertEquals(RichTextUtils.PREVIEW_CHARS, preview.length());
+    }
+
+    @Test
+    public void testWriteAmplification() {
+        Random random = new Random(9);
+        FakeStorage storage = storageWith(1, longText(200 * 1024));
+        NoteStore store = new NoteStore(storage);
+        String text = RichTextUtils.textOf(storage.notes.get(1L).getContent());
+
+        StringBuilder spans = new StringBuilder("[");
+        for (int i = 0; i < 500; i++) {
+            spans.append(i == 0 ? "" : ",").append("4,").append(300).append(",8,-256");
+        }
+        String packed = spans.append(']').toString();
+
+        int saves = 500;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < saves; i++) {
+            int at = random.nextInt(text.length());
+            text = text.substring(0, at) + (char) ('a' + random.nextInt(26)) + text.substring(at);
+            save(store, 1, "Sermon", text, i % 20 == 0 ? packed + " " : packed);
+        }
+        long elapsed = System.nanoTime() - t0;
+        assertEquals(text, RichTextUtils.textOf(new NoteStore(storage).load(1).getContent()));
+
+        System.out.println("200 KB note, " + saves + " one-char saves: op log wrote " + store.getBytesWritten() / 1024
+                + " KB (" + store.getOpsWritten() + " ops, " + store.getCompactionCount()
+                + " compactions), full rewrites " + store.getFullRewriteBytes() / 1024 + " KB; "
+                + elapsed / saves / 1000 + " us per save");
+        assertTrue(store.getBytesWritten() * 10 < store.getFullRewriteBytes());
+    }
+
+    private static void save(NoteStore store, long id, String title, String text, String spans) {
+        store.write(new Note(id, title, null, 0), text, spans);
+    }
+
+    private static FakeStorage storageWith(long id, String text) {
+        FakeStorage storage = new FakeStorage();
+        storage.notes.put(id, new Note(id, "", RichTextUtils.toJson(text, NO_SPANS), 0));
+        return storage;
+    }
+
+    private static String longText(int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < length; i++) {
+            sb.append("Point ").append(i).append(": grace is unearned favour.\n");
+        }
+        return sb.substring(0, length);
+    }
+
+    private static String randomEdit(Random random, String text) {
+        int at = random.nextInt(text.length() + 1);
+        int removed = random.nextInt(4) == 0 ? Math.min(text.length() - at, random.nextInt(30)) : 0;
+        String inserted = random.nextInt(3) == 0 ? "" : "word" + random.nextInt(100) + "\n";
+        return text.substring(0, at) + inserted + text.substring(at + removed);
+    }
+}
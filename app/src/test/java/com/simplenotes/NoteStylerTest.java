@@ -0,0 +1,156 @@
+package com.simplenotes;
+
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class NoteStylerTest {
+
+    private static final int[] COLORS = { 0xFFFFF59D, 0xFFA5D6A7, 0xFF90CAF9 };
+    private static final int VERSE_COLOR = 0xFFD4AF37;
+
+    @Test
+    public void testToSpansDropsMarkers() {
+        SpannableStringBuilder text = new SpannableStringBuilder(
+                "John 3:16\n\u200B\"For God so loved\"\u200B\nand \u200C{1}grace\u200D here \u200C{7}x\u200D {2}");
+        text.setSpan(new StyleSpan(android.graphics.Typeface.BOLD), text.toString().indexOf("and"), text.length(),
+                Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        NoteStyler styler = new NoteStyler();
+        styler.setHighlightColors(COLORS);
+        styler.setVerseColor(VERSE_COLOR);
+
+        SpannableStringBuilder spans = styler.toSpans(text);
+        String s = spans.toString();
+        // Unknown color indexes lose their markers but stay unhighlighted; a lone {2} is text
+        assertEquals("John 3:16\n\"For God so loved\"\nand grace here x {2}", s);
+
+        RoundedHighlighterSpan[] highlights = spans.getSpans(0, spans.length(), RoundedHighlighterSpan.class);
+        assertEquals(1, highlights.length);
+        assertEquals(COLORS[1], highlights[0].getBackgroundColor());
+        assertEquals(s.indexOf("grace"), spans.getSpanStart(highlights[0]));
+        assertEquals(s.indexOf("grace") + 5, spans.getSpanEnd(highlights[0]));
+
+        VerseSpan[] verses = spans.getSpans(0, spans.length(), VerseSpan.class);
+        assertEquals(1, verses.length);
+        assertEquals(s.indexOf('"'), spans.getSpanStart(verses[0]));
+        assertEquals(s.lastIndexOf('"') + 1, spans.getSpanEnd(verses[0]));
+        AutoColorSpan[] verseColors = spans.getSpans(0, spans.length(), AutoColorSpan.class);
+        assertEquals(1, verseColors.length);
+        assertEquals(VERSE_COLOR, verseColors[0].getForegroundColor());
+
+        StyleSpan[] bold = spans.getSpans(0, spans.length(), StyleSpan.class);
+        assertEquals(1, bold.length);
+        assertEquals(s.indexOf("and"), spans.getSpanStart(bold[0]));
+        assertEquals(s.length(), spans.getSpanEnd(bold[0]));
+
+        // A new verse color only needs the spans
+        styler.setVerseColor(0xFF000000);
+        styler.styleSpans(spans);
+        verseColors = spans.getSpans(0, spans.length(), AutoColorSpan.class);
+        assertEquals(1, verseColors.length);
+        assertEquals(0xFF000000, verseColors[0].getForegroundColor());
+    }
+
+    @Test
+    public void testToSpansMigratesLegacyClosers() {
+        NoteStyler styler = new NoteStyler();
+        styler.setHighlightColors(COLORS);
+
+        // A bare \u200C closed highlights once; an opener that never closes is dropped
+        SpannableStringBuilder spans = styler.toSpans(
+                "a legacy \u200C{0}closer\u200C and an \u200C{1}unclosed opener");
+        String s = spans.toString();
+        assertEquals("a legacy closer and an unclosed opener", s);
+        RoundedHighlighterSpan[] highlights = spans.getSpans(0, spans.length(), RoundedHighlighterSpan.class);
+        assertEquals(1, highlights.length);
+        assertEquals(COLORS[0], highlights[0].getBackgroundColor());
+        assertEquals(s.indexOf("closer"), spans.getSpanStart(highlights[0]));
+        assertEquals(s.indexOf("closer") + 6, spans.getSpanEnd(highlights[0]));
+    }
+
+    @Test
+    public void testReportsInsertedMarkersOnce() {
+        NoteStyler styler = new NoteStyler();
+        SpannableStringBuilder editor = new SpannableStringBuilder("Some text");
+        editor.setSpan(styler, 0, editor.length(), Spannable.SPAN_INCLUSIVE_INCLUSIVE);
+
+        editor.append(" typed");
+        assertFalse(styler.takeInsertedMarkers());
+
+        editor.insert(4, " \u200C{1}pasted\u200D");
+        assertTrue(styler.takeInsertedMarkers());
+        assertFalse(styler.takeInsertedMarkers());
+
+        editor.delete(4, 8); // Removing markers is not inserting them
+        assertFalse(styler.takeInsertedMarkers());
+    }
+
+    /**
+     * Edit-to-styled latency on 10 KB, 100 KB and 1 MB notes. The styled text
+     * is built once on load; after that a keystroke only runs the styler's
+     * watcher, and a paste converts just the pasted range.
+     */
+    @Test
+    public void testEditToStyledLatency() {
+        String pasted = " \u200C{1}pasted\u200D and \u200B\"a verse\"\u200B ";
+        int rounds = 5;
+        for (int size : new int[] { 10 * 1024, 100 * 1024, 1024 * 1024 }) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; sb.length() < size; i++) {
+                sb.append("Point ").append(i).append(": \u200C{").append(i % 3).append("}highlighted\u200D then ")
+                        .append("\u200B\"For God so loved the world\"\u200B plain text.\n");
+            }
+            String marked = sb.toString();
+            NoteStyler styler = new NoteStyler();
+            styler.setHighlightColors(COLORS);
+            styler.setVerseColor(VERSE_COLOR);
+
+            long load = 0;
+            long keystroke = 0;
+            long paste = 0;
+            for (int round = 0; round < rounds + 2; round++) {
+                long t0 = System.nanoTime();
+                SpannableStringBuilder editor = styler.toSpans(marked);
+                styler.styleSpans(editor);
+                long t1 = System.nanoTime();
+                editor.setSpan(styler, 0, editor.length(), Spannable.SPAN_INCLUSIVE_INCLUSIVE);
+                int middle = editor.length() / 2;
+
+                long t2 = System.nanoTime();
+                editor.insert(middle, "x");
+                assertFalse(styler.takeInsertedMarkers());
+                long t3 = System.nanoTime();
+
+                long t4 = System.nanoTime();
+                editor.insert(middle, pasted);
+                assertTrue(styler.takeInsertedMarkers());
+                SpannableStringBuilder range = new SpannableStringBuilder(editor, middle, middle + pasted.length());
+                range.removeSpan(styler); // Watches the editor, not the pasted range
+                SpannableStringBuilder converted = styler.toSpans(range);
+                editor.replace(middle, middle + pasted.length(), converted);
+                long t5 = System.nanoTime();
+
+                assertEquals(-1, editor.toString().indexOf('\u200C'));
+                if (round >= 2) { // Warm-up
+                    load += t1 - t0;
+                    keystroke += t3 - t2;
+                    paste += t5 - t4;
+                }
+            }
+            System.out.println("Edit to styled, " + size / 1024 + " KB: load " + load / rounds / 1_000_000
+                    + " ms, keystroke " + keystroke / rounds / 1000 + " us, paste " + paste / rounds / 1000 + " us");
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.simplenotes;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.simplenotes.utils.MarkerTokenizer;
+import com.simplenotes.utils.RichTextUtils;
+import com.simplenotes.utils.RichTextUtilsTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class NotesAdapterTest {
+    /** Rows on screen, plus RecyclerView's cache, that notifyDataSetChanged rebinds. */
+    private static final int ATTACHED_ROWS = 14;
+
+    /** What the adapter is told after a diff. Moved rows keep their views, so only inserted and changed ones bind. */
+    private static class Updates implements ListUpdateCallback {
+        int inserted;
+        int removed;
+        int moved;
+        int changed;
+
+        @Override
+        public void onInserted(int position, int count) {
+            inserted += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            removed += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            moved++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            changed += count;
+        }
+
+        int binds() {
+            return inserted + changed;
+        }
+    }
+
+    @Test
+    public void testDiff() {
+        NoteSummary note = summary(1, 100, false);
+        NoteSearchResult result = new NoteSearchResult();
+        result.setId(1);
+        result.setTimestamp(100);
+        result.setTitle(note.getTitle());
+        result.setPreview(note.getPreview());
+
+        assertTrue(NotesAdapter.DIFF.areItemsTheSame(note, summary(1, 200, true)));
+        assertTrue(NotesAdapter.DIFF.areContentsTheSame(note, summary(1, 100, false)));
+        assertTrue(NotesAdapter.DIFF.areContentsTheSame(note, result));
+        assertFalse(NotesAdapter.DIFF.areContentsTheSame(note, summary(1, 100, true)));
+        NoteSummary edited = summary(1, 100, false);
+        edited.setPreview("Edited");
+        assertFalse(NotesAdapter.DIFF.areContentsTheSame(note, edited));
+        result.setSnippet("a " + NoteSearch.MATCH_START + "match" + NoteSearch.MATCH_END);
+        assertFalse(NotesAdapter.DIFF.areContentsTheSame(note, result));
+    }
+
+    /**
+     * What each kind of list update costs with 10,000 notes loaded: the diff
+     * (off the main thread), dispatching it (on it) and the rows rebound,
+     * against notifyDataSetChanged rebinding every attached row.
+     */
+    @Test
+    public void testUpdateCost() {
+        int count = 10_000;
+        List<NoteSummary> notes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            notes.add(summary(count - i, 1_000_000 - i, i < 20));
+        }
+        StringBuilder report = new StringBuilder();
+
+        // Pin: the note moves to the top and shows its pin
+        List<NoteSummary> pinned = copy(notes);
+        NoteSummary pin = pinned.remove(5000);
+        pin.setPinned(true);
+        pinned.add(0, pin);
+        Updates updates = measure("pin", notes, pinned, report);
+        assertEquals(1, updates.moved);
+        assertEquals(1, updates.binds());
+
+        // Delete
+        List<NoteSummary> deleted = copy(notes);
+        deleted.remove(42);
+        updates = measure("delete", notes, deleted, report);
+        assertEquals(1, updates.removed);
+        assertEquals(0, updates.binds());
+
+        // Edit: newest now, with a new preview
+        List<NoteSummary> edited = copy(notes);
+        NoteSummary edit = edited.remove(300);
+        edit.setTimestamp(2_000_000);
+        edit.setPreview("Edited");
+        edited.add(20, edit);
+        updates = measure("edit", notes, edited, report);
+        assertEquals(1, updates.binds());
+
+        // Back from a note without changing it: a reload that diffs to nothing
+        updates = measure("reload", notes, copy(notes), report);
+        assertEquals(0, updates.binds() + updates.moved + updates.removed);
+
+        System.out.println("List updates with " + count + " notes (notifyDataSetChanged rebinds "
+                + ATTACHED_ROWS + " rows):" + report);
+    }
+
+    /**
+     * The note list with 5,000 notes: what the rows carry, and what binding them
+     * costs, when each bind parses the content (as before) against showing the
+     * stored preview.
+     */
+    @Test
+    public void testNoteListWithPreviews() {
+        Random random = new Random(13);
+        int count = 5000;
+        List<String> contents = new ArrayList<>();
+        List<String> previews = new ArrayList<>();
+        long contentBytes = 0;
+        long previewBytes = 0;
+        for (int i = 0; i < count; i++) {
+            String content = i % 10 == 0
+                    ? "<p>Point " + i + ": grace is <b>unearned</b> favour \u200C{1}and faith\u200D receives.</p>"
+                    : RichTextUtils.toJson(RichTextUtilsTest.sermonNote(random, 3 + random.nextInt(40)));
+            contents.add(content);
+            previews.add(RichTextUtils.previewOf(content));
+            contentBytes += content.length();
+            previewBytes += previews.get(i).length();
+        }
+
+        int rounds = 3;
+        long parsing = 0, stored = 0, worstParse = 0, worstStored = 0;
+        int sink = 0;
+        for (int round = 0; round < rounds + 1; round++) {
+            long t0 = System.nanoTime();
+            for (String content : contents) {
+                long b = System.nanoTime();
+                sink += legacyBind(content).length();
+                worstParse = Math.max(worstParse, round > 0 ? System.nanoTime() - b : 0);
+            }
+            long t1 = System.nanoTime();
+            for (String preview : previews) {
+                long b = System.nanoTime();
+                sink += (preview.isEmpty() ? "No content" : preview).length();
+                worstStored = Math.max(worstStored, round > 0 ? System.nanoTime() - b : 0);
+            }
+            long t2 = System.nanoTime();
+            if (round > 0) { // Warm-up
+                parsing += t1 - t0;
+                stored += t2 - t1;
+            }
+        }
+        System.out.println(count + " notes: rows carry " + contentBytes / 1024 + " KB of content or "
+                + previewBytes / 1024 + " KB of previews; binding every row " + parsing / rounds / 1_000_000
+                + " ms parsing (worst row " + worstParse / 1000 + " us) vs " + stored / rounds / 1_000_000
+                + " ms stored (worst row " + worstStored / 1000 + " us) (" + sink + ")");
+        assertTrue(previewBytes * 5 < contentBytes);
+        for (int i = 0; i < count; i += 97) {
+            assertTrue(legacyBind(contents.get(i)).trim().startsWith(previews.get(i)));
+        }
+    }
+
+    /** NotesAdapter's text before the preview column: the content parsed on every bind. */
+    private static String legacyBind(String content) {
+        if (content.trim().startsWith("{")) {
+            return MarkerTokenizer.strip(RichTextUtils.textOf(content), MarkerTokenizer.HIGHLIGHT_MARKERS);
+        }
+        CharSequence styled = android.text.Html.fromHtml(content, android.text.Html.FROM_HTML_MODE_LEGACY);
+        return MarkerTokenizer.strip(styled, MarkerTokenizer.HIGHLIGHT_MARKERS);
+    }
+
+    private static Updates measure(String name, List<NoteSummary> oldList, List<NoteSummary> newList,
+            StringBuilder report) {
+        DiffUtil.Callback callback = new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return NotesAdapter.DIFF.areItemsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return NotesAdapter.DIFF.areContentsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+            }
+        };
+        DiffUtil.calculateDiff(callback); // Warm-up
+        long t0 = System.nanoTime();
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(callback); // As ListAdapter does, detecting moves
+        long t1 = System.nanoTime();
+        Updates updates = new Updates();
+        diff.dispatchUpdatesTo(updates);
+        long t2 = System.nanoTime();
+        report.append("\n  ").append(name).append(": diff ").append((t1 - t0) / 1000).append(" us, dispatch ")
+                .append((t2 - t1) / 1000).append(" us, ").append(updates.binds()).append(" binds (")
+                .append(updates.inserted).append(" inserted, ").append(updates.removed).append(" removed, ")
+                .append(updates.moved).append(" moved, ").append(updates.changed).append(" changed)");
+        return updates;
+    }
+
+    private static List<NoteSummary> copy(List<NoteSummary> notes) {
+        List<NoteSummary> copy = new ArrayList<>(notes.size());
+        for (NoteSummary note : notes) {
+            NoteSummary row = summary(note.getId(), note.getTimestamp(), note.isPinned());
+            row.setPreview(note.getPreview());
+            copy.add(row);
+        }
+        return copy;
+    }
+
+    private static NoteSummary summary(long id, long timestamp, boolean pinned) {
+        NoteSummary note = new NoteSummary();
+        note.setId(id);
+        note.setTitle("Note " + id);
+        note.setTimestamp(timestamp);
+        note.setPinned(pinned);
+        note.setPreview("Preview of note " + id);
+        return note;
+    }
+}
@@ -0,0 +1,316 @@
+package com.simplenotes;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class RoundedHighlighterSpanTest {
+
+    private static final int[] COLORS = { 0xFFFFF59D, 0xFFA5D6A7, 0xFF90CAF9 };
+
+    /**
+     * Deterministic widths, additive like a monospace font, counting the calls.
+     * Keeps its own state so that drawing never reaches the framework's Paint.
+     */
+    private static final class CountingPaint extends Paint {
+        int calls;
+        private int color;
+        private float textSize = 40f;
+
+        @Override
+        public int getColor() {
+            return color;
+        }
+
+        @Override
+        public void setColor(int color) {
+            this.color = color;
+        }
+
+        @Override
+        public float getTextSize() {
+            return textSize;
+        }
+
+        @Override
+        public void setTextSize(float textSize) {
+            this.textSize = textSize;
+        }
+
+        @Override
+        public float getTextScaleX() {
+            return 1f;
+        }
+
+        @Override
+        public float getLetterSpacing() {
+            return 0f;
+        }
+
+        @Override
+        public Typeface getTypeface() {
+            return null;
+        }
+
+        @Override
+        public float measureText(CharSequence text, int start, int end) {
+            calls++;
+            float width = 0f;
+            for (int i = start; i < end; i++) {
+                width += 5 + text.charAt(i) % 7;
+            }
+            return width;
+        }
+    }
+
+    private static final class RecordingCanvas extends Canvas {
+        final List<RectF> rects = new ArrayList<>();
+
+        @Override
+        public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+            rects.add(new RectF(rect)); // The span reuses its RectF
+        }
+    }
+
+    @Test
+    public void testMatchesUncachedMeasurement() {
+        SpannableStringBuilder text = styledNote(200);
+        CountingPaint paint = new CountingPaint();
+
+        List<RectF> expected = drawUncached(text, paint);
+        List<RectF> actual = draw(text, paint);
+        assertEquals(expected.size(), actual.size());
+        assertTrue(actual.size() > 200);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+
+        // Redrawing an unchanged note is served from the cache
+        paint.calls = 0;
+        draw(text, paint);
+        assertEquals(0, paint.calls);
+    }
+
+    @Test
+    public void testEditsInvalidateCachedOffsets() {
+        SpannableStringBuilder text = styledNote(20);
+        CountingPaint paint = new CountingPaint();
+        draw(text, paint);
+
+        text.insert(text.toString().indexOf("with") + 4, " many more words");
+        assertEquals(drawUncached(text, paint).toString(), draw(text, paint).toString());
+
+        text.delete(0, text.toString().indexOf('\n') + 1); // Shifts every line
+        assertEquals(drawUncached(text, paint).toString(), draw(text, paint).toString());
+
+        paint.setTextSize(paint.getTextSize() * 2); // Metrics change
+        paint.calls = 0;
+        draw(text, paint);
+        assertTrue(paint.calls > 0);
+    }
+
+    @Test
+    public void testAdjacentSameColorHighlightsShareOneRect() {
+        NoteStyler styler = new NoteStyler();
+        styler.setHighlightColors(COLORS);
+        SpannableStringBuilder text = styler.toSpans(
+                "\u200C{1}one\u200D\u200C{1}two\u200D\u200C{2}three\u200D \u200C{2}four\u200D\n"
+                        + "\u200C{0}five\u200D\u200C{0}six\u200D");
+        text.setSpan(styler, 0, text.length(), Spannable.SPAN_INCLUSIVE_INCLUSIVE);
+        CountingPaint paint = new CountingPaint();
+
+        List<RectF> rects = draw(text, paint);
+        // one+two touch and merge; three differs in color; four has a space before it; five+six merge
+        assertEquals(4, rects.size());
+        float oneTwo = paint.measureText("onetwo", 0, 6);
+        assertEquals(-8f, rects.get(0).left, 0f);
+        assertEquals(oneTwo + 8f, rects.get(0).right, 0f);
+        assertEquals(oneTwo - 8f, rects.get(1).left, 0f);
+        assertEquals(paint.measureText("fivesix", 0, 7) + 8f, rects.get(3).right, 0f);
+    }
+
+    @Test
+    public void testSteadyStateDrawingAllocatesNothing() {
+        java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported());
+
+        SpannableStringBuilder text = styledNote(300);
+        CountingPaint paint = new CountingPaint();
+        Canvas canvas = new Canvas() {
+            @Override
+            public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+            }
+        };
+
+        // What the layout hands each span per frame, prepared up front so only drawing is counted
+        int[][] lineBounds = lineBounds(text);
+        RoundedHighlighterSpan[][] spans = lineSpans(text, lineBounds);
+
+        drawFrames(canvas, paint, text, lineBounds, spans, 20); // Fill the caches and warm up
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        drawFrames(canvas, paint, text, lineBounds, spans, 1000);
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        System.out.println("Highlight draw: " + allocated + " bytes allocated over 1000 frames");
+        // A few bytes of slack for the measurement itself, far below one RectF per frame
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1000);
+    }
+
+    /**
+     * Frame time on a heavily highlighted note, drawn through the note's
+     * layout cache and with plain spans that measure on every draw.
+     */
+    @Test
+    public void testDrawLoopTiming() {
+        SpannableStringBuilder text = styledNote(1000);
+        SpannableStringBuilder uncached = new SpannableStringBuilder(text);
+        for (RoundedHighlighterSpan span : uncached.getSpans(0, uncached.length(), RoundedHighlighterSpan.class)) {
+            int start = uncached.getSpanStart(span);
+            int end = uncached.getSpanEnd(span);
+            uncached.removeSpan(span);
+            uncached.setSpan(new RoundedHighlighterSpan(span.getBackgroundColor(), 12f), start, end,
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        int[][] lines = lineBounds(text);
+        RoundedHighlighterSpan[][] cachedSpans = lineSpans(text, lines);
+        RoundedHighlighterSpan[][] uncachedSpans = lineSpans(uncached, lines);
+        Canvas canvas = new Canvas() {
+            @Override
+            public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+            }
+        };
+        CountingPaint paint = new CountingPaint();
+
+        int frames = 50;
+        drawFrames(canvas, paint, text, lines, cachedSpans, 5); // Warm-up
+        drawFrames(canvas, paint, uncached, lines, uncachedSpans, 5);
+        paint.calls = 0;
+        long t0 = System.nanoTime();
+        drawFrames(canvas, paint, text, lines, cachedSpans, frames);
+        long t1 = System.nanoTime();
+        int cachedCalls = paint.calls;
+        drawFrames(canvas, paint, uncached, lines, uncachedSpans, frames);
+        long t2 = System.nanoTime();
+        int uncachedCalls = paint.calls - cachedCalls;
+
+        System.out.println("Highlight draw of " + lines.length + " lines: cached " + (t1 - t0) / frames / 1000
+                + " us/frame (" + cachedCalls / frames + " measures), uncached " + (t2 - t1) / frames / 1000
+                + " us/frame (" + uncachedCalls / frames + " measures)");
+        assertEquals(0, cachedCalls);
+        assertTrue(uncachedCalls > 0);
+    }
+
+    private static int[][] lineBounds(Spanned text) {
+        String s = text.toString();
+        List<int[]> lines = new ArrayList<>();
+        int lineStart = 0;
+        while (lineStart < s.length()) {
+            int lineEnd = s.indexOf('\n', lineStart) + 1;
+            lines.add(new int[] { lineStart, lineEnd });
+            lineStart = lineEnd;
+        }
+        return lines.toArray(new int[0][]);
+    }
+
+    private static RoundedHighlighterSpan[][] lineSpans(Spanned text, int[][] lines) {
+        RoundedHighlighterSpan[][] spans = new RoundedHighlighterSpan[lines.length][];
+        for (int line = 0; line < lines.length; line++) {
+            spans[line] = text.getSpans(lines[line][0], lines[line][1], RoundedHighlighterSpan.class);
+        }
+        return spans;
+    }
+
+    private static void drawFrames(Canvas canvas, Paint paint, Spanned text, int[][] lines,
+            RoundedHighlighterSpan[][] spans, int frames) {
+        for (int frame = 0; frame < frames; frame++) {
+            for (int line = 0; line < lines.length; line++) {
+                for (RoundedHighlighterSpan span : spans[line]) {
+                    span.drawBackground(canvas, paint, 0, 1000, line * 20, line * 20 + 15, line * 20 + 18, text,
+                            lines[line][0], lines[line][1], line);
+                }
+            }
+        }
+    }
+
+    private static SpannableStringBuilder styledNote(int paragraphs) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < paragraphs; i++) {
+            sb.append("Line ").append(i).append(" with \u200C{").append(i % 3).append("}several\u200D highlighted ")
+                    .append("\u200C{").append((i + 1) % 3).append("}words\u200D and a \u200B\"verse\"\u200B ")
+                    .append("\u200C{0}across\nlines\u200D.\n");
+        }
+        NoteStyler styler = new NoteStyler();
+        styler.setHighlightColors(COLORS);
+        SpannableStringBuilder text = styler.toSpans(sb);
+        text.setSpan(styler, 0, text.length(), Spannable.SPAN_INCLUSIVE_INCLUSIVE);
+        return text;
+    }
+
+    /** Draws every highlight on every line the way a layout would, one line per paragraph. */
+    private static List<RectF> draw(Spanned text, Paint paint) {
+        RecordingCanvas canvas = new RecordingCanvas();
+        String s = text.toString();
+        int lineStart = 0;
+        int lnum = 0;
+        while (lineStart < s.length()) {
+            int lineEnd = s.indexOf('\n', lineStart) + 1;
+            if (lineEnd == 0) {
+                lineEnd = s.length();
+            }
+            for (RoundedHighlighterSpan span : text.getSpans(lineStart, lineEnd, RoundedHighlighterSpan.class)) {
+                span.drawBackground(canvas, paint, 0, 1000, lnum * 20, lnum * 20 + 15, lnum * 20 + 18, text,
+                        lineStart, lineEnd, lnum);
+            }
+            lineStart = lineEnd;
+            lnum++;
+        }
+        return canvas.rects;
+    }
+
+    /** {@link #draw} measuring every span on every line, as spans outside the editor do. */
+    private static List<RectF> drawUncached(Spanned text, Paint paint) {
+        List<RectF> out = new ArrayList<>();
+        String s = text.toString();
+        int lineStart = 0;
+        int lnum = 0;
+        while (lineStart < s.length()) {
+            int lineEnd = s.indexOf('\n', lineStart) + 1;
+            if (lineEnd == 0) {
+                lineEnd = s.length();
+            }
+            for (RoundedHighlighterSpan span : text.getSpans(lineStart, lineEnd, RoundedHighlighterSpan.class)) {
+                int start = Math.max(lineStart, text.getSpanStart(span));
+                int end = Math.min(lineEnd, text.getSpanEnd(span));
+                if (start < end) {
+                    float left = paint.measureText(text, lineStart, start) - 8f;
+                    float right = left + paint.measureText(text, start, end) + 16f;
+                    out.add(new RectF(left, lnum * 20 - 2f, right, lnum * 20 + 18 + 2f));
+                }
+            }
+            lineStart = lineEnd;
+            lnum++;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,164 @@
+package com.simplenotes;
+
+import android.content.Context;
+
+import androidx.room.Room;
+
+import com.simplenotes.utils.RichTextUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class StartupTest {
+    /**
+     * Stands in for inflating the note list screen on the main thread, which
+     * Robolectric does without the real layout costs.
+     */
+    private static final long INFLATE_MS = 60;
+
+    private static final int ROUNDS = 10;
+
+    /** Seeding the Bible versions as the version sheet did (a lookup and an insert each) and batched. */
+    @Test
+    public void testVersionSeeding() {
+        Context context = RuntimeEnvironment.getApplication();
+        List<BibleVersion> known = BibleVersionSheet.knownVersions();
+        long[] times = new long[4];
+        for (int round = 0; round <= ROUNDS; round++) {
+            context.deleteDatabase("seed-before.db");
+            context.deleteDatabase("seed-after.db");
+            AppDatabase before = newDatabase(context, "seed-before.db");
+            AppDatabase after = newDatabase(context, "seed-after.db");
+            before.getOpenHelper().getWritableDatabase(); // Created outside the timings
+            after.getOpenHelper().getWritableDatabase();
+
+            long t0 = System.nanoTime();
+            seedOneByOne(before.bibleDao(), known);
+            long t1 = System.nanoTime();
+            after.bibleDao().insertVersionsIfMissing(known);
+            long t2 = System.nanoTime();
+            seedOneByOne(before.bibleDao(), known); // Already seeded, as on every later sheet opening
+            long t3 = System.nanoTime();
+            after.bibleDao().insertVersionsIfMissing(known);
+            long t4 = System.nanoTime();
+            if (round > 0) { // The first round warms up
+                times[0] += t1 - t0;
+                times[1] += t2 - t1;
+                times[2] += t3 - t2;
+                times[3] += t4 - t3;
+            }
+
+            assertEquals(known.size(), after.bibleDao().getAllVersions().size());
+            after.bibleDao().markVersionDownloaded("kjv");
+            after.bibleDao().insertVersionsIfMissing(known);
+            assertTrue(after.bibleDao().getVersion("kjv").isDownloaded()); // Not reset by seeding
+            assertFalse(after.bibleDao().getVersion("web").isDownloaded());
+            before.close();
+            after.close();
+        }
+        System.out.println("Seeding " + known.size() + " Bible versions: one by one " + times[0] / ROUNDS / 1000
+                + " us, batched " + times[1] / ROUNDS / 1000 + " us; already seeded: one by one "
+                + times[2] / ROUNDS / 1000 + " us, batched " + times[3] / ROUNDS / 1000 + " us");
+        assertTrue(times[1] < times[0]);
+    }
+
+    /**
+     * Time from onCreate to the first page of 2,000 notes: opening the
+     * database lazily after inflating, as NotesListActivity did, and opening
+     * it and queuing the page before inflating, as it does now.
+     */
+    @Test
+    public void testTimeToFirstNoteList() throws Exception {
+        Context context = RuntimeEnvironment.getApplication();
+        String name = "startup-notes.db";
+        context.deleteDatabase(name);
+        AppDatabase db = newDatabase(context, name);
+        for (int i = 1; i <= 2000; i++) {
+            Note note = new Note(i, "Note " + i, RichTextUtils.toJson("Paragraph " + i + " of the note.\n", "[]"), i);
+            note.setPreview(RichTextUtils.previewOf(note.getContent()));
+            db.noteDao().insert(note);
+        }
+        db.close();
+
+        ExecutorService diskIO = Executors.newSingleThreadExecutor();
+        long[] times = new long[3];
+        try {
+            for (int round = 0; round <= ROUNDS; round++) {
+                long lazy = firstNoteList(context, name, diskIO, false);
+                long early = firstNoteList(context, name, diskIO, true);
+                AppDatabase open = newDatabase(context, name);
+                long t0 = System.nanoTime();
+                open.getOpenHelper().getWritableDatabase();
+                long openTime = System.nanoTime() - t0;
+                open.close();
+                if (round > 0) {
+                    times[0] += lazy;
+                    times[1] += early;
+                    times[2] += openTime;
+                }
+            }
+        } finally {
+            diskIO.shutdown();
+        }
+        System.out.println("Time to first note list (inflation stood in by " + INFLATE_MS + " ms): before "
+                + times[0] / ROUNDS / 1000 + " us (opening after inflation), after " + times[1] / ROUNDS / 1000
+                + " us (opening during it); opening alone " + times[2] / ROUNDS / 1000 + " us");
+        assertTrue(times[1] < times[0]);
+    }
+
+    private static long firstNoteList(Context context, String name, ExecutorService diskIO, boolean openEarly)
+            throws InterruptedException {
+        CountDownLatch shown = new CountDownLatch(1);
+        List<NoteSummary> page = new ArrayList<>();
+        long t0 = System.nanoTime();
+        AppDatabase db = newDatabase(context, name);
+        Runnable loadFirstPage = () -> {
+            page.addAll(db.noteDao().getFirstNoteSummaries(NotePager.PAGE_SIZE));
+            shown.countDown();
+        };
+        if (openEarly) {
+            diskIO.execute(() -> db.getOpenHelper().getWritableDatabase());
+            diskIO.execute(loadFirstPage);
+            Thread.sleep(INFLATE_MS);
+        } else {
+            Thread.sleep(INFLATE_MS);
+            diskIO.execute(loadFirstPage);
+        }
+        assertTrue(shown.await(10, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - t0;
+        assertEquals(NotePager.PAGE_SIZE, page.size());
+        db.close();
+        return elapsed;
+    }
+
+    /** The sheet's old seeding, kept here as the baseline. */
+    private static void seedOneByOne(BibleDao dao, List<BibleVersion> versions) {
+        for (BibleVersion version : versions) {
+            if (dao.getVersion(version.getId()) == null) {
+                dao.insertVersion(version);
+            }
+        }
+    }
+
+    private static AppDatabase newDatabase(Context context, String name) {
+        return Room.databaseBuilder(context, AppDatabase.class, name)
+                .allowMainThreadQueries()
+                .build();
+    }
+}
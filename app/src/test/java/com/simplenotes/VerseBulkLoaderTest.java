@@ -0,0 +1,242 @@
+package com.simplenotes;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.simplenotes.utils.SearchTokenizer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class VerseBulkLoaderTest {
+    private static final int CHUNK = 10;
+    /** Verses in a whole Protestant Bible. */
+    private static final int VERSES = 31_102;
+    private static final int BENCHMARK_ROUNDS = 3;
+
+    private AppDatabase db;
+    private final List<Integer> progress = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        db = Room.inMemoryDatabaseBuilder(RuntimeEnvironment.getApplication(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void testCommitsInChunks() {
+        try (VerseBulkLoader loader = newLoader()) {
+            for (int verse = 1; verse <= 25; verse++) {
+                loader.insert(genesis(verse));
+                // Everything up to the last full chunk is committed while loading
+                assertEquals(verse / CHUNK * CHUNK, count("verses"));
+            }
+            loader.finish();
+            assertEquals(25, loader.getRowsInserted());
+        }
+        assertEquals(25, count("verses"));
+        assertEquals(25, count("verses_fts"));
+        assertEquals(3, progress.size());
+        assertEquals(10, (int) progress.get(0));
+        assertEquals(20, (int) progress.get(1));
+        assertEquals(25, (int) progress.get(2));
+        assertFalse(db.inTransaction());
+    }
+
+    @Test
+    public void testCloseWithoutFinishRollsBackPartialChunk() {
+        try (VerseBulkLoader loader = newLoader()) {
+            for (int verse = 1; verse <= 25; verse++) {
+                loader.insert(genesis(verse));
+            }
+        }
+        assertFalse(db.inTransaction());
+        assertEquals(20, count("verses"));
+        assertEquals(20, count("verses_fts"));
+        assertEquals(0, count("verses WHERE verseKey > " + VerseKey.of("Genesis", 1, 20)));
+    }
+
+    @Test
+    public void testFailedFirstRowOfChunkIsRolledBack() {
+        // The first row of the second chunk fails after beginTransaction
+        int failing = VerseKey.of("Genesis", 1, CHUNK + 1);
+        writable().execSQL("CREATE TEMP TRIGGER fail_insert BEFORE INSERT ON verses WHEN NEW.verseKey = "
+                + failing + " BEGIN SELECT RAISE(ABORT, 'failing insert'); END");
+        try (VerseBulkLoader loader = newLoader()) {
+            for (int verse = 1; verse <= 25; verse++) {
+                loader.insert(genesis(verse));
+            }
+            fail("Expected the insert to fail");
+        } catch (RuntimeException expected) {
+            // close() still ran
+        }
+        assertFalse(db.inTransaction());
+        assertEquals(CHUNK, count("verses"));
+
+        // The connection is usable again, e.g. for a note save
+        writable().execSQL("DROP TRIGGER fail_insert");
+        try (VerseBulkLoader loader = newLoader()) {
+            loader.insert(genesis(CHUNK + 1));
+            loader.finish();
+        }
+        assertEquals(CHUNK + 1, count("verses"));
+    }
+
+    @Test
+    public void testIndexesVersesInTheSameChunk() {
+        try (VerseBulkLoader loader = newLoader()) {
+            loader.insert(new Verse("kjv", "Genesis", 1, 3, "And God said, Let there be light: and there was light."));
+            loader.insert(new Verse("kjv", "Nowhere", 1, 1, "Not a canonical book")); // Skipped
+            loader.finish();
+        }
+        int translationKey = db.bibleDao().getOrCreateTranslationKey("kjv");
+        int verseKey = VerseKey.of("Genesis", 1, 3);
+        try (Cursor cursor = writable().query("SELECT translationKey, text FROM verses_fts WHERE rowid = ?",
+                new Object[] { VerseFts.rowidOf(translationKey, verseKey) })) {
+            assertEquals(1, cursor.getCount());
+            cursor.moveToFirst();
+            assertEquals(translationKey, cursor.getInt(0));
+            assertEquals(SearchTokenizer.normalize("And God said, Let there be light: and there was light."),
+                    cursor.getString(1));
+        }
+        assertEquals(1, count("verses"));
+        assertEquals(1, count("verses_fts"));
+    }
+
+    @Test
+    public void testTranslationKeys() {
+        BibleDao dao = db.bibleDao();
+        int kjv = dao.getOrCreateTranslationKey("kjv");
+        assertEquals(kjv, dao.getOrCreateTranslationKey("kjv"));
+        assertNotEquals(kjv, dao.getOrCreateTranslationKey("web"));
+        assertEquals(Integer.valueOf(kjv), dao.findTranslationKey("kjv"));
+        try {
+            dao.getOrCreateTranslationKey(null);
+            fail("Expected no key for a missing code");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * A whole translation through the bulk loader and through the per-book
+     * {@link BibleDao#insertVerses} calls it replaces, both into a database
+     * file so each commit pays for its journal writes.
+     */
+    @Test
+    public void testBulkLoadAgainstInsertVersesBatches() {
+        Context context = RuntimeEnvironment.getApplication();
+        List<List<Verse>> books = translation();
+        long[] times = new long[2];
+        for (int round = 0; round <= BENCHMARK_ROUNDS; round++) {
+            context.deleteDatabase("bulk-before.db");
+            context.deleteDatabase("bulk-after.db");
+            AppDatabase before = Room.databaseBuilder(context, AppDatabase.class, "bulk-before.db")
+                    .allowMainThreadQueries().build();
+            AppDatabase after = Room.databaseBuilder(context, AppDatabase.class, "bulk-after.db")
+                    .allowMainThreadQueries().build();
+            try {
+                before.getOpenHelper().getWritableDatabase(); // Created outside the timings
+                after.getOpenHelper().getWritableDatabase();
+
+                long t0 = System.nanoTime();
+                for (List<Verse> book : books) {
+                    before.bibleDao().insertVerses(book);
+                }
+                long t1 = System.nanoTime();
+                try (VerseBulkLoader loader = after.newVerseBulkLoader(null)) {
+                    for (List<Verse> book : books) {
+                        for (Verse verse : book) {
+                            loader.insert(verse);
+                        }
+                    }
+                    loader.finish();
+                }
+                long t2 = System.nanoTime();
+                if (round > 0) { // The first round warms up
+                    times[0] += t1 - t0;
+                    times[1] += t2 - t1;
+                }
+
+                assertEquals(VERSES, count(before, "verses"));
+                assertEquals(VERSES, count(after, "verses"));
+                assertEquals(VERSES, count(after, "verses_fts"));
+            } finally {
+                before.close();
+                after.close();
+            }
+        }
+        context.deleteDatabase("bulk-before.db");
+        context.deleteDatabase("bulk-after.db");
+        System.out.println("Loading " + VERSES + " verses: insertVerses per book "
+                + rowsPerSecond(times[0]) + " rows/s (" + times[0] / BENCHMARK_ROUNDS / 1_000_000 + " ms), "
+                + "VerseBulkLoader " + rowsPerSecond(times[1]) + " rows/s ("
+                + times[1] / BENCHMARK_ROUNDS / 1_000_000 + " ms)");
+    }
+
+    /** {@link #VERSES} verses spread over the canonical books, one list per book. */
+    private static List<List<Verse>> translation() {
+        List<List<Verse>> books = new ArrayList<>();
+        int perBook = VERSES / BibleData.BOOKS.length;
+        for (int book = 0; book < BibleData.BOOKS.length; book++) {
+            int verses = book == BibleData.BOOKS.length - 1 ? VERSES - perBook * book : perBook;
+            List<Verse> rows = new ArrayList<>(verses);
+            for (int i = 0; i < verses; i++) {
+                rows.add(new Verse("kjv", BibleData.BOOKS[book], i / 30 + 1, i % 30 + 1,
+                        "And God said, Let there be light: and there was light. " + i));
+            }
+            books.add(rows);
+        }
+        return books;
+    }
+
+    private static long rowsPerSecond(long totalNanos) {
+        return VERSES * 1_000_000_000L * BENCHMARK_ROUNDS / Math.max(1, totalNanos);
+    }
+
+    private VerseBulkLoader newLoader() {
+        return new VerseBulkLoader(db, CHUNK, (rowsInserted, rowsPerSecond) -> progress.add(rowsInserted));
+    }
+
+    private static Verse genesis(int verse) {
+        return new Verse("kjv", "Genesis", 1, verse, "Verse " + verse);
+    }
+
+    private SupportSQLiteDatabase writable() {
+        return db.getOpenHelper().getWritableDatabase();
+    }
+
+    private int count(String table) {
+        return count(db, table);
+    }
+
+    private static int count(AppDatabase db, String table) {
+        try (Cursor cursor = db.getOpenHelper().getWritableDatabase().query("SELECT COUNT(*) FROM " + table)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+}
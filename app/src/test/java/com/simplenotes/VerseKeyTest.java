@@ -0,0 +1,69 @@
+package com.simplenotes;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VerseKeyTest {
+
+    @Test
+    public void testRoundTrip() {
+        for (int book = 0; book < BibleData.BOOKS.length; book++) {
+            for (int[] reference : new int[][] { { 1, 1 }, { 3, 16 }, { 150, 176 }, { 999, 999 } }) {
+                int key = VerseKey.of(book, reference[0], reference[1]);
+                assertTrue(VerseKey.isValid(key));
+                assertEquals(book, VerseKey.bookOrdinal(key));
+                assertEquals(reference[0], VerseKey.chapter(key));
+                assertEquals(reference[1], VerseKey.verse(key));
+            }
+            assertEquals(VerseKey.of(book, 3, 16), VerseKey.of(BibleData.BOOKS[book], 3, 16));
+        }
+        assertEquals(1_001_001, VerseKey.of("Genesis", 1, 1));
+        assertEquals(66_022_021, VerseKey.of("Revelation", 22, 21));
+    }
+
+    @Test
+    public void testKeysSortInCanonicalOrder() {
+        assertTrue(VerseKey.of(0, 1, 999) < VerseKey.of(0, 2, 1));
+        assertTrue(VerseKey.of(0, 999, 999) < VerseKey.of(1, 1, 1));
+        assertTrue(VerseKey.of("Malachi", 4, 6) < VerseKey.of("Matthew", 1, 1));
+    }
+
+    @Test
+    public void testBounds() {
+        int last = BibleData.BOOKS.length - 1;
+        assertEquals(VerseKey.INVALID, VerseKey.of(-2, 1, 1));
+        assertEquals(VerseKey.INVALID, VerseKey.of(last + 1, 1, 1));
+        assertEquals(VerseKey.INVALID, VerseKey.of(0, -1, 1));
+        assertEquals(VerseKey.INVALID, VerseKey.of(0, 1, -1));
+        assertEquals(VerseKey.INVALID, VerseKey.of(0, VerseKey.MAX_NUMBER + 1, 1));
+        assertEquals(VerseKey.INVALID, VerseKey.of(0, 1, VerseKey.MAX_NUMBER + 1));
+        assertFalse(VerseKey.isValid(VerseKey.INVALID));
+        assertTrue(VerseKey.isValid(VerseKey.of(last, VerseKey.MAX_NUMBER, VerseKey.MAX_NUMBER)));
+
+        // Chapter or verse 0 works as a range bound but is not a verse
+        assertFalse(VerseKey.isValid(VerseKey.of(0, 0, 1)));
+        assertFalse(VerseKey.isValid(VerseKey.of(0, 1, 0)));
+        assertEquals(VerseKey.of(0, 1, 0) + 1, VerseKey.of(0, 1, 1));
+    }
+
+    @Test
+    public void testKeyWithoutBook() {
+        int key = VerseKey.of(-1, 3, 16);
+        assertFalse(VerseKey.isValid(key));
+        assertEquals(-1, VerseKey.bookOrdinal(key));
+        assertEquals(3, VerseKey.chapter(key));
+        assertEquals(16, VerseKey.verse(key));
+        assertEquals(key, VerseKey.of("Nowhere", 3, 16));
+        assertEquals(key, VerseKey.of((String) null, 3, 16));
+    }
+
+    @Test
+    public void testClamped() {
+        assertEquals(VerseKey.of(0, VerseKey.MAX_NUMBER, 0), VerseKey.clamped(0, 5000, -3));
+        assertEquals(VerseKey.of(42, 3, VerseKey.MAX_NUMBER), VerseKey.clamped(42, 3, Integer.MAX_VALUE));
+        assertEquals(VerseKey.INVALID, VerseKey.clamped(BibleData.BOOKS.length, 1, 1));
+    }
+}
@@ -0,0 +1,247 @@
+package com.simplenotes;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class VersePackTest {
+
+    private File dir;
+    private File packFile;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("versepack", "");
+        dir.delete();
+        dir.mkdirs();
+        packFile = new File(dir, "kjv.pack");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testRoundTripWithGaps() throws IOException {
+        int genesis = BibleData.indexOf("Genesis");
+        int john = BibleData.indexOf("John");
+
+        VersePackWriter writer = new VersePackWriter(packFile);
+        writer.add(genesis, 1, 1, "In the beginning");
+        writer.add(genesis, 1, 2, "And the earth");
+        writer.add(genesis, 3, 1, "Now the serpent"); // Chapter 2 missing
+        writer.add(john, 3, 16, "For God so loved the world"); // Verses 1-15 missing
+        writer.add(john, 3, 17, "ఆదియందు"); // Multi-byte UTF-8
+        writer.finish();
+
+        assertFalse(new File(packFile.getPath() + ".tmp").exists());
+        assertFalse(new File(packFile.getPath() + ".text").exists());
+
+        try (VersePack pack = VersePack.open(packFile)) {
+            assertEquals("In the beginning", pack.getVerse(genesis, 1, 1));
+            assertEquals("And the earth", pack.getVerse(genesis, 1, 2));
+            assertEquals("Now the serpent", pack.getVerse(genesis, 3, 1));
+            assertEquals("ఆదియందు", pack.getVerse(john, 3, 17));
+
+            assertNull(pack.getVerse(genesis, 2, 1));
+            assertNull(pack.getVerse(genesis, 1, 3));
+            assertNull(pack.getVerse(genesis, 4, 1));
+            assertNull(pack.getVerse(john, 3, 15));
+            assertNull(pack.getVerse(BibleData.indexOf("Exodus"), 1, 1));
+            assertNull(pack.getVerse(-1, 1, 1));
+
+            assertEquals(2, pack.getVerseCount(genesis, 1));
+            assertEquals(0, pack.getVerseCount(genesis, 2));
+            assertEquals(17, pack.getVerseCount(john, 3));
+
+            assertArrayEquals(new String[] { null, "For God so loved the world",
+                    "ఆదియందు", null },
+                    pack.getVerses(john, 3, 15, 18));
+        }
+    }
+
+    @Test
+    public void testFullSizedPack() throws IOException {
+        // Roughly the shape of a full Bible: 66 books, 1189 chapters, ~31k verses
+        VersePackWriter writer = new VersePackWriter(packFile);
+        int verses = 0;
+        for (int b = 0; b < BibleData.BOOKS.length; b++) {
+            for (int c = 1; c <= 18; c++) {
+                for (int v = 1; v <= 26; v++) {
+                    writer.add(b, c, v, BibleData.BOOKS[b] + " " + c + ":" + v);
+                    verses++;
+                }
+            }
+        }
+        writer.finish();
+
+        try (VersePack pack = VersePack.open(packFile)) {
+            for (int b = 0; b < BibleData.BOOKS.length; b++) {
+                assertEquals(BibleData.BOOKS[b] + " 18:26", pack.getVerse(b, 18, 26));
+                assertEquals(BibleData.BOOKS[b] + " 1:1", pack.getVerse(b, 1, 1));
+            }
+        }
+        assertEquals(66 * 18 * 26, verses);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsOutOfOrderVerses() throws IOException {
+        VersePackWriter writer = new VersePackWriter(packFile);
+        try {
+            writer.add(0, 1, 2, "b");
+            writer.add(0, 1, 1, "a");
+        } finally {
+            writer.abort();
+        }
+    }
+
+    @Test
+    public void testAbortAfterFailedFinish() throws IOException {
+        // A directory in the pack's place makes the final rename fail
+        File blocked = new File(dir, "blocked.pack");
+        assertTrue(new File(blocked, "child").mkdirs());
+        VersePackWriter writer = new VersePackWriter(blocked);
+        writer.add(0, 1, 1, "In the beginning");
+        try {
+            writer.finish();
+            fail("Expected the rename to fail");
+        } catch (IOException expected) {
+            writer.abort();
+        }
+        assertFalse(new File(blocked.getPath() + ".tmp").exists());
+        assertFalse(new File(blocked.getPath() + ".text").exists());
+        new File(blocked, "child").delete();
+        blocked.delete();
+    }
+
+    /**
+     * A chapter's verses from a Bible-sized translation (31,102 verses of
+     * about 130 chars) in the pack and in the verses table as Room keeps it
+     * (the verses_fts index excluded), and the size of each on disk.
+     */
+    @Test
+    public void testLatencyAndSizeAgainstSqlite() throws IOException {
+        String[] words = { "and", "the", "of", "unto", "lord", "shall", "he", "they", "god", "said", "people",
+                "land", "king", "house", "children", "israel", "heaven", "earth", "grace", "light" };
+        Random random = new Random(4);
+        int[] chapters = new int[BibleData.BOOKS.length];
+        File dbFile = new File(dir, "verses.db");
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(dbFile, null);
+        db.execSQL("CREATE TABLE IF NOT EXISTS `translations` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                + "`code` TEXT NOT NULL)");
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_translations_code` ON `translations` (`code`)");
+        db.execSQL("CREATE TABLE IF NOT EXISTS `verses` (`translationKey` INTEGER NOT NULL, "
+                + "`verseKey` INTEGER NOT NULL, `text` TEXT, PRIMARY KEY(`translationKey`, `verseKey`))");
+        db.execSQL("INSERT INTO translations (id, code) VALUES (1, 'kjv')");
+
+        VersePackWriter writer = new VersePackWriter(packFile);
+        int verses = 0;
+        db.beginTransaction();
+        try {
+            for (int b = 0; b < BibleData.BOOKS.length && verses < 31_102; b++) {
+                chapters[b] = 19;
+                for (int c = 1; c <= chapters[b]; c++) {
+                    for (int v = 1; v <= 26 && verses < 31_102; v++) {
+                        StringBuilder text = new StringBuilder();
+                        while (text.length() < 100 + random.nextInt(60)) {
+                            text.append(text.length() == 0 ? "" : " ").append(words[random.nextInt(words.length)]);
+                        }
+                        text.append('.');
+                        writer.add(b, c, v, text.toString());
+                        db.execSQL("INSERT INTO verses (translationKey, verseKey, text) VALUES (1, ?, ?)",
+                                new Object[] { VerseKey.of(b, c, v), text.toString() });
+                        verses++;
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        writer.finish();
+
+        int lookups = 500;
+        int rounds = 5;
+        long packTime = 0;
+        long sqlTime = 0;
+        int sink = 0;
+        try (VersePack pack = VersePack.open(packFile)) {
+            for (int round = 0; round <= rounds; round++) {
+                Random lookup = new Random(round);
+                long t0 = System.nanoTime();
+                for (int i = 0; i < lookups; i++) {
+                    int b = lookup.nextInt(BibleData.BOOKS.length);
+                    int c = 1 + lookup.nextInt(chapters[b]);
+                    for (String text : pack.getVerses(b, c, 1, 26)) {
+                        sink += text != null ? text.length() : 0;
+                    }
+                }
+                long t1 = System.nanoTime();
+                lookup = new Random(round);
+                for (int i = 0; i < lookups; i++) {
+                    int b = lookup.nextInt(BibleData.BOOKS.length);
+                    int c = 1 + lookup.nextInt(chapters[b]);
+                    // As BibleDao.getVersesByKeyRange
+                    try (Cursor cursor = db.rawQuery("SELECT v.* FROM verses v JOIN translations t "
+                            + "ON t.id = v.translationKey WHERE t.code = ? AND v.verseKey BETWEEN ? AND ? "
+                            + "ORDER BY v.verseKey", new String[] { "kjv", String.valueOf(VerseKey.of(b, c, 1)),
+                                    String.valueOf(VerseKey.of(b, c, 26)) })) {
+                        int text = cursor.getColumnIndexOrThrow("text");
+                        while (cursor.moveToNext()) {
+                            sink -= cursor.getString(text).length();
+                        }
+                    }
+                }
+                long t2 = System.nanoTime();
+                if (round > 0) { // Warm-up
+                    packTime += t1 - t0;
+                    sqlTime += t2 - t1;
+                }
+            }
+        } finally {
+            db.close();
+        }
+        long packSize = packFile.length();
+        long dbSize = dbFile.length();
+        System.out.println(verses + " verses, a chapter at a time: pack " + packTime / rounds / lookups / 1000
+                + " us, SQLite " + sqlTime / rounds / lookups / 1000 + " us; on disk: pack " + packSize / 1024
+                + " KB, verses table " + dbSize / 1024 + " KB");
+        assertEquals(0, sink); // Both read the same text
+        assertTrue(packTime < sqlTime);
+        assertTrue(packSize < dbSize);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsForeignFile() throws IOException {
+        java.io.FileOutputStream out = new java.io.FileOutputStream(packFile);
+        out.write(new byte[64]);
+        out.close();
+        VersePack.open(packFile);
+    }
+}
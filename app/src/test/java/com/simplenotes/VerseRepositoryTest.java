@@ -0,0 +1,177 @@
+package com.simplenotes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VerseRepositoryTest {
+
+    /** Serves 20 verses of 100 chars for every chapter and counts loads per chapter. */
+    private static class FakeSource implements VerseRepository.ChapterSource {
+        final Map<String, Integer> loads = new HashMap<>();
+
+        @Override
+        public List<Verse> loadChapter(String translationId, String book, int chapter) {
+            String key = translationId + " " + book + " " + chapter;
+            Integer n = loads.get(key);
+            loads.put(key, n == null ? 1 : n + 1);
+
+            List<Verse> verses = new ArrayList<>();
+            if (chapter > 50)
+                return verses; // Not available offline
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 100) {
+                text.append(book).append(' ').append(chapter).append(' ');
+            }
+            for (int v = 1; v <= 20; v++) {
+                verses.add(new Verse(translationId, book, chapter, v, text.substring(0, 100)));
+            }
+            return verses;
+        }
+
+        int loadsOf(String translationId, String book, int chapter) {
+            Integer n = loads.get(translationId + " " + book + " " + chapter);
+            return n == null ? 0 : n;
+        }
+    }
+
+    @Test
+    public void testChapterIsLoadedOnceAndServesRanges() {
+        FakeSource source = new FakeSource();
+        VerseRepository repo = new VerseRepository(source, VerseRepository.DEFAULT_BYTE_BUDGET);
+
+        assertEquals(100, repo.getVerse("kjv", "John", 3, 16).getText().length());
+        assertEquals(3, repo.getVersesInRange("kjv", "John", 3, 16, 18).size());
+        assertEquals(5, repo.getVersesInRange("kjv", "John", 3, 16, 40).size());
+        assertNull(repo.getVerse("kjv", "John", 3, 21));
+
+        assertEquals(1, source.loadsOf("kjv", "John", 3));
+        assertEquals(1, repo.getMissCount());
+        assertEquals(3, repo.getHitCount());
+    }
+
+    @Test
+    public void testUnavailableChaptersAreNotCached() {
+        FakeSource source = new FakeSource();
+        VerseRepository repo = new VerseRepository(source, VerseRepository.DEFAULT_BYTE_BUDGET);
+
+        assertNull(repo.getVerse("kjv", "Psalms", 119, 1));
+        assertNull(repo.getVerse("kjv", "Psalms", 119, 1));
+
+        assertEquals(2, source.loadsOf("kjv", "Psalms", 119));
+        assertEquals(0, repo.getCachedChapterCount());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedUnderByteBudget() {
+        FakeSource source = new FakeSource();
+        VerseRepository probe = new VerseRepository(source, Integer.MAX_VALUE);
+        probe.getVerse("kjv", "Genesis", 1, 1);
+        int chapterBytes = probe.getCachedBytes();
+
+        // Room for three chapters, not four
+        int budget = chapterBytes * 3 + chapterBytes / 2;
+        VerseRepository repo = new VerseRepository(source, budget);
+
+        repo.getVerse("kjv", "Genesis", 1, 1);
+        repo.getVerse("kjv", "Genesis", 2, 1);
+        repo.getVerse("kjv", "Genesis", 3, 1);
+        repo.getVerse("kjv", "Genesis", 1, 2); // Touch chapter 1 so chapter 2 is now eldest
+        repo.getVerse("kjv", "Genesis", 4, 1); // Evicts chapter 2
+
+        assertEquals(1, repo.getEvictionCount());
+        assertEquals(3, repo.getCachedChapterCount());
+        assertTrue(repo.getCachedBytes() <= budget);
+
+        repo.getVerse("kjv", "Genesis", 1, 3);
+        assertEquals(2, source.loadsOf("kjv", "Genesis", 1)); // Probe + repo, never reloaded
+        repo.getVerse("kjv", "Genesis", 2, 1);
+        assertEquals(2, source.loadsOf("kjv", "Genesis", 2));
+
+        for (int c = 1; c <= 50; c++) {
+            repo.getVerse("niv", "Psalms", c, 1);
+            assertTrue(repo.getCachedBytes() <= budget);
+        }
+        assertEquals(3, repo.getCachedChapterCount());
+    }
+
+    @Test
+    public void testChapterLargerThanBudgetIsServedButNotCached() {
+        FakeSource source = new FakeSource();
+        VerseRepository repo = new VerseRepository(source, 100);
+
+        assertEquals(20, repo.getVersesInRange("kjv", "John", 1, 1, 20).size());
+        assertEquals(0, repo.getCachedChapterCount());
+        assertEquals(0, repo.getCachedBytes());
+    }
+
+    @Test
+    public void testInvalidate() {
+        FakeSource source = new FakeSource();
+        VerseRepository repo = new VerseRepository(source, VerseRepository.DEFAULT_BYTE_BUDGET);
+
+        repo.getVerse("kjv", "John", 1, 1);
+        repo.getVerse("kjv", "John", 2, 1);
+        repo.getVerse("niv", "John", 1, 1);
+
+        repo.invalidate("kjv", "John", 1);
+        assertEquals(2, repo.getCachedChapterCount());
+
+        repo.invalidate("kjv");
+        assertEquals(1, repo.getCachedChapterCount());
+
+        repo.getVerse("kjv", "John", 2, 1);
+        assertEquals(2, source.loadsOf("kjv", "John", 2));
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        int callers = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        VerseRepository repo = new VerseRepository((translationId, book, chapter) -> {
+            loads.incrementAndGet();
+            try {
+                Thread.sleep(200); // Slow enough for every caller to miss
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<Verse> verses = new ArrayList<>();
+            verses.add(new Verse(translationId, book, chapter, 16, "For God so loved the world"));
+            return verses;
+        }, VerseRepository.DEFAULT_BYTE_BUDGET);
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Verse>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return repo.getVerse("kjv", "John", 3, 16);
+                }));
+            }
+            start.countDown();
+            for (Future<Verse> result : results) {
+                assertEquals("For God so loved the world", result.get(5, TimeUnit.SECONDS).getText());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, repo.getLoadCount());
+    }
+}
@@ -0,0 +1,333 @@
+package com.simplenotes;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.simplenotes.utils.SearchTokenizer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class VerseSearchTest {
+    private static final String M = NoteSearch.MATCH_START;
+    private static final String E = NoteSearch.MATCH_END;
+
+    /** One translation ("kjv", key 1), matching the verses added in the order added. */
+    private static class FakeIndex implements VerseSearch.Index {
+        final List<VerseSearch.Match> matches = new ArrayList<>();
+        final List<String> queries = new ArrayList<>();
+
+        void add(int verseKey, int hits) {
+            VerseSearch.Match match = new VerseSearch.Match();
+            match.verseKey = verseKey;
+            match.matchinfo = matchinfo(31_000, new int[] { hits }, new int[] { 3000 });
+            matches.add(match);
+        }
+
+        @Override
+        public Integer translationKey(String translationId) {
+            return translationId.equals("kjv") ? 1 : null;
+        }
+
+        @Override
+        public List<VerseSearch.Match> match(int translationKey, String query) {
+            queries.add(query);
+            return matches;
+        }
+
+        @Override
+        public List<Verse> verses(int translationKey, List<Integer> verseKeys) {
+            List<Verse> verses = new ArrayList<>();
+            for (int key : verseKeys) {
+                verses.add(new Verse(translationKey, key, "And God said, Let there be light " + key));
+            }
+            return verses;
+        }
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals("grace*", VerseSearch.parse("Grace").match);
+        assertEquals("grace", VerseSearch.parse("Grace ").match);
+        assertEquals("let there be light*", VerseSearch.parse("let THERE be* light").match);
+        assertEquals("\"in the beginning\" god*", VerseSearch.parse("\"In the beginning\" God").match);
+        assertEquals("\"let there be\"", VerseSearch.parse("\"let there be").match); // Unclosed quote
+        assertEquals("john \"3 16\"", VerseSearch.parse("John 3:16").match);
+        assertEquals("or and*", VerseSearch.parse("OR -and").match); // No operators
+        // A run of Han characters is a phrase, never a prefix
+        assertEquals("\"\u592A \u521D\"", VerseSearch.parse("\u592A\u521D").match);
+        assertEquals("\u0645\u0648\u0633\u064A*", VerseSearch.parse("\u0645\u064F\u0648\u0633\u064E\u0649").match);
+        assertNull(VerseSearch.parse("  \"*- "));
+        assertNull(VerseSearch.parse(null));
+    }
+
+    @Test
+    public void testSnippet() {
+        VerseSearch.Query query = VerseSearch.parse("god LIG");
+        assertEquals("And " + M + "God" + E + " said, Let there be " + M + "light" + E + ": and there was "
+                + M + "light" + E + ".",
+                VerseSearch.snippet("And God said, Let there be light: and there was light.", query));
+
+        // Long verses are cut around the first match, on a word
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            text.append("word").append(i).append(' ');
+        }
+        text.append("shepherd");
+        for (int i = 0; i < 60; i++) {
+            text.append(' ').append("word").append(i);
+        }
+        String snippet = VerseSearch.snippet(text.toString(), VerseSearch.parse("shepherd "));
+        assertTrue(snippet, snippet.startsWith("\u2026word"));
+        assertTrue(snippet, snippet.endsWith("\u2026"));
+        assertTrue(snippet, snippet.contains(M + "shepherd" + E));
+        assertTrue(snippet, snippet.length() <= VerseSearch.SNIPPET_CHARS + 6);
+
+        // Highlights land on the original text, whatever its script and marks
+        String arabic = "\u0648\u064E\u0642\u064E\u0627\u0644\u064E \u0645\u064F\u0648\u0633\u064E\u0649";
+        assertEquals("\u0648\u064E\u0642\u064E\u0627\u0644\u064E " + M
+                + "\u0645\u064F\u0648\u0633\u064E\u0649" + E,
+                VerseSearch.snippet(arabic, VerseSearch.parse("\u0645\u0648\u0633\u064A")));
+    }
+
+    @Test
+    public void testSearchPagesBestFirst() {
+        FakeIndex index = new FakeIndex();
+        int count = 2 * VerseSearch.PAGE_SIZE + 5;
+        for (int verse = 1; verse <= count; verse++) {
+            index.add(VerseKey.of(0, 1, verse), verse % 10); // Ties broken in canonical order
+        }
+        VerseSearch search = new VerseSearch(index);
+
+        VerseSearch.Page first = search.search("kjv", "light", 0);
+        assertEquals(Arrays.asList("light*"), index.queries);
+        assertEquals(count, first.getTotal());
+        assertEquals(VerseSearch.PAGE_SIZE, first.getHits().size());
+        assertTrue(first.hasMore());
+        VerseSearch.Hit best = first.getHits().get(0);
+        assertEquals("Genesis", best.getBook());
+        assertEquals(1, best.getChapter());
+        assertEquals(9, best.getVerse());
+        assertEquals(19, first.getHits().get(1).getVerse());
+        assertTrue(best.getSnippet(), best.getSnippet().contains(M + "light" + E));
+
+        // Turning pages reuses the ranking
+        VerseSearch.Page last = search.search("kjv", "light", 2);
+        assertEquals(Arrays.asList("light*"), index.queries);
+        assertEquals(5, last.getHits().size());
+        assertFalse(last.hasMore());
+        assertTrue(search.search("kjv", "light", 3).getHits().isEmpty());
+
+        search.search("kjv", "light ", 0);
+        assertEquals(Arrays.asList("light*", "light"), index.queries);
+        assertEquals(0, search.search("web", "light", 0).getTotal()); // Not downloaded
+        assertEquals(0, search.search("kjv", " - ", 0).getTotal());
+        assertEquals(2, index.queries.size());
+    }
+
+    /** Korean attaches particles to words, so each Hangul word matches as a prefix. */
+    @Test
+    public void testKoreanWordsMatchWithParticles() {
+        String god = "\uD558\uB098\uB2D8";
+        String word = "\uB9D0\uC500";
+        assertEquals(god + "*", VerseSearch.parse(god + " ").match); // Finished, still a prefix
+        assertEquals(god + "* " + word + "*", VerseSearch.parse(god + " " + word).match);
+        assertEquals("\"" + god + "\uC758* " + word + "*\"",
+                VerseSearch.parse("\"" + god + "\uC758 " + word + "\"").match);
+        assertEquals("light " + god + "*", VerseSearch.parse("light " + god).match);
+
+        String genesis1 = "\uD0DC\uCD08\uC5D0 \uD558\uB098\uB2D8\uC774 \uCC9C\uC9C0\uB97C "
+                + "\uCC3D\uC870\uD558\uC2DC\uB2C8\uB77C";
+        String genesis2 = "\uD558\uB098\uB2D8\uC758 \uC2E0\uC740 \uC218\uBA74\uC5D0 "
+                + "\uC6B4\uD589\uD558\uC2DC\uB2C8\uB77C";
+        String genesis3 = "\uBE5B\uC774 \uC788\uC73C\uB77C \uD558\uC2DC\uB9E4 \uBE5B\uC774 "
+                + "\uC788\uC5C8\uACE0";
+        assertEquals("\uD0DC\uCD08\uC5D0 " + M + "\uD558\uB098\uB2D8\uC774" + E
+                + " \uCC9C\uC9C0\uB97C \uCC3D\uC870\uD558\uC2DC\uB2C8\uB77C",
+                VerseSearch.snippet(genesis1, VerseSearch.parse(god + " ")));
+
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        db.execSQL("CREATE TABLE IF NOT EXISTS `translations` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                + "`code` TEXT NOT NULL)");
+        db.execSQL("CREATE TABLE IF NOT EXISTS `verses` (`translationKey` INTEGER NOT NULL, "
+                + "`verseKey` INTEGER NOT NULL, `text` TEXT, PRIMARY KEY(`translationKey`, `verseKey`))");
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `verses_fts` USING FTS4(`text` TEXT, "
+                + "languageid=`translationKey`)");
+        db.execSQL("INSERT INTO translations (id, code) VALUES (1, 'ko_ko')");
+        String[] verses = { genesis1, genesis2, genesis3 };
+        for (int v = 0; v < verses.length; v++) {
+            int verseKey = VerseKey.of("Genesis", 1, v + 1);
+            db.execSQL("INSERT INTO verses (translationKey, verseKey, text) VALUES (1, ?, ?)",
+                    new Object[] { verseKey, verses[v] });
+            db.execSQL("INSERT INTO verses_fts (rowid, translationKey, text) VALUES (?, 1, ?)",
+                    new Object[] { VerseFts.rowidOf(1, verseKey), SearchTokenizer.normalize(verses[v]) });
+        }
+        VerseSearch search = new VerseSearch(new SqlIndex(db));
+        VerseSearch.Page page = search.search("ko_ko", god + " ", 0);
+        assertEquals(2, page.getTotal()); // God as subject and as possessive
+        assertEquals(VerseKey.of("Genesis", 1, 1), page.getHits().get(0).getVerseKey());
+        assertEquals(1, search.search("ko_ko", "\uBE5B ", 0).getTotal()); // Light
+        db.close();
+    }
+
+    /**
+     * Query latency for common and rarer words with five translations loaded,
+     * each the size of a Bible (31,102 verses), in SQLite.
+     */
+    @Test
+    public void testQueryLatency() {
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        // As Room creates them for Translation, Verse and VerseFts
+        db.execSQL("CREATE TABLE IF NOT EXISTS `translations` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                + "`code` TEXT NOT NULL)");
+        db.execSQL("CREATE TABLE IF NOT EXISTS `verses` (`translationKey` INTEGER NOT NULL, "
+                + "`verseKey` INTEGER NOT NULL, `text` TEXT, PRIMARY KEY(`translationKey`, `verseKey`))");
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `verses_fts` USING FTS4(`text` TEXT, "
+                + "languageid=`translationKey`)");
+
+        String[] codes = { "kjv", "web", "asv", "bbe", "ylt" };
+        String[] common = { "the", "and", "of", "to", "that", "in", "he", "shall", "unto", "for", "i", "his",
+                "a", "lord", "they", "be", "is", "him", "not", "them" };
+        String[] rarer = { "grace", "faith", "hope", "mercy", "covenant", "spirit", "kingdom", "prayer", "wisdom",
+                "shepherd", "light", "bread", "water", "vine", "temple", "prophet", "glory", "salvation",
+                "righteousness", "jerusalem" };
+        int verses = 31_102;
+        Random random = new Random(22);
+        long t0 = System.nanoTime();
+        for (int t = 0; t < codes.length; t++) {
+            int translationKey = t + 1;
+            db.execSQL("INSERT INTO translations (id, code) VALUES (?, ?)", new Object[] { translationKey, codes[t] });
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < verses; i++) {
+                    int verseKey = VerseKey.of(i / 800, 1 + i % 800 / 40, 1 + i % 40);
+                    StringBuilder text = new StringBuilder();
+                    int words = 10 + random.nextInt(30);
+                    for (int w = 0; w < words; w++) {
+                        text.append(w == 0 ? "" : " ").append(random.nextInt(10) < 8
+                                ? common[random.nextInt(common.length)] : rarer[random.nextInt(rarer.length)]);
+                    }
+                    text.append('.');
+                    db.execSQL("INSERT INTO verses (translationKey, verseKey, text) VALUES (?, ?, ?)",
+                            new Object[] { translationKey, verseKey, text.toString() });
+                    db.execSQL("INSERT OR REPLACE INTO verses_fts (rowid, translationKey, text) VALUES (?, ?, ?)",
+                            new Object[] { VerseFts.rowidOf(translationKey, verseKey), translationKey,
+                                    SearchTokenizer.normalize(text) });
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        long indexing = System.nanoTime() - t0;
+
+        VerseSearch search = new VerseSearch(new SqlIndex(db));
+        String[] inputs = { "the", "lord", "the lord ", "\"unto the lord\"", "sh", "shepherd", "grace faith", "zzz" };
+        StringBuilder report = new StringBuilder();
+        for (String input : inputs) {
+            int rounds = 5;
+            long firstPage = 0;
+            long nextPage = 0;
+            VerseSearch.Page page = null;
+            for (int round = 0; round < rounds; round++) {
+                search.search("asv", "warm up " + round, 0); // Forget the last ranking
+                long start = System.nanoTime();
+                page = search.search("asv", input, 0);
+                long middle = System.nanoTime();
+                search.search("asv", input, 1);
+                firstPage += middle - start;
+                nextPage += System.nanoTime() - middle;
+            }
+            report.append("\n  \"").append(input).append("\": ").append(firstPage / rounds / 1000)
+                    .append(" us, next page ").append(nextPage / rounds / 1000).append(" us, ")
+                    .append(page.getTotal()).append(" verses");
+            if (!input.equals("zzz")) {
+                assertTrue(input, page.getTotal() > 0);
+                assertTrue(input, page.getHits().get(0).getSnippet().contains(M));
+            }
+        }
+        assertTrue(search.search("asv", "the", 0).getTotal() <= verses); // Only this translation
+        System.out.println("Search over " + codes.length + " x " + verses + " verses (indexed in "
+                + indexing / 1_000_000 + " ms):" + report);
+        db.close();
+    }
+
+    /** BibleDao's search queries run directly, with Room's named parameters bound by hand. */
+    private static class SqlIndex implements VerseSearch.Index {
+        private final SQLiteDatabase db;
+
+        SqlIndex(SQLiteDatabase db) {
+            this.db = db;
+        }
+
+        @Override
+        public Integer translationKey(String translationId) {
+            try (Cursor cursor = db.rawQuery("SELECT id FROM translations WHERE code = ? LIMIT 1",
+                    new String[] { translationId })) {
+                return cursor.moveToFirst() ? cursor.getInt(0) : null;
+            }
+        }
+
+        @Override
+        public List<VerseSearch.Match> match(int translationKey, String query) {
+            List<VerseSearch.Match> matches = new ArrayList<>();
+            String sql = BibleDao.MATCH_VERSES.replace(":query", "?").replace(":translationKey", "?");
+            try (Cursor cursor = db.rawQuery(sql, new String[] { query, String.valueOf(translationKey) })) {
+                while (cursor.moveToNext()) {
+                    VerseSearch.Match match = new VerseSearch.Match();
+                    match.verseKey = cursor.getInt(0);
+                    match.matchinfo = cursor.getBlob(1);
+                    matches.add(match);
+                }
+            }
+            return matches;
+        }
+
+        @Override
+        public List<Verse> verses(int translationKey, List<Integer> verseKeys) {
+            StringBuilder in = new StringBuilder();
+            for (Integer key : verseKeys) {
+                in.append(in.length() == 0 ? "" : ", ").append(key);
+            }
+            List<Verse> verses = new ArrayList<>();
+            try (Cursor cursor = db.rawQuery("SELECT translationKey, verseKey, text FROM verses "
+                    + "WHERE translationKey = ? AND verseKey IN (" + (in.length() == 0 ? "NULL" : in) + ")",
+                    new String[] { String.valueOf(translationKey) })) {
+                while (cursor.moveToNext()) {
+                    verses.add(new Verse(cursor.getInt(0), cursor.getInt(1), cursor.getString(2)));
+                }
+            }
+            return verses;
+        }
+    }
+
+    /**
+     * matchinfo('pcnx') for one column: rows, and per phrase the hits in this
+     * row and {hits in all rows, rows with hits}.
+     */
+    private static byte[] matchinfo(int rows, int[] hitsInRow, int[] rowsWithHits) {
+        int phrases = hitsInRow.length;
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (3 + 3 * phrases)).order(ByteOrder.nativeOrder());
+        buffer.putInt(phrases).putInt(1).putInt(rows);
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            buffer.putInt(hitsInRow[phrase]).putInt(2 * rowsWithHits[phrase]).putInt(rowsWithHits[phrase]);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,155 @@
+package com.simplenotes.api;
+
+import com.simplenotes.AppExecutors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class BookFetchPipelineTest {
+
+    private static final List<String> BOOKS = Arrays.asList("Genesis", "Exodus", "Leviticus", "Numbers",
+            "Deuteronomy", "Joshua", "Judges", "Ruth", "1 Samuel", "2 Samuel", "1 Kings", "2 Kings");
+    private static final long BOOK_DELAY_MS = 150;
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private ExecutorService network;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                // Each request is served on its own thread; count how many overlap
+                int now = inFlight.incrementAndGet();
+                maxInFlight.accumulateAndGet(now, Math::max);
+                try {
+                    Thread.sleep(BOOK_DELAY_MS);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                String path = request.getPath();
+                if (path.contains("Ruth")) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                String body = "{\"book\":{\"english\":\"x\"},\"chapters\":[{\"chapter\":\"1\",\"verses\":["
+                        + "{\"verse\":\"1\",\"text\":\"one\"},{\"verse\":\"2\",\"text\":\"two\"}]}]}";
+                return new MockResponse().setBody(body);
+            }
+        });
+        server.start();
+        client = new OkHttpClient();
+        network = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        network.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void testWritesInCanonicalOrderAndSkipsFailedBooks() throws Exception {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        int count = new BookFetchPipeline(client, network, 4).run(BOOKS, this::url,
+                BibleDownloader::parseTeluguBook, (book, verses) -> {
+                    assertEquals(2, verses.size());
+                    assertEquals(book, verses.get(0).getBook());
+                    written.add(book);
+                });
+
+        List<String> expected = new ArrayList<>(BOOKS);
+        expected.remove("Ruth");
+        assertEquals(expected.size(), count);
+        assertEquals(expected, written);
+    }
+
+    @Test
+    public void testFetchesUpToMaxInFlightBooksAtOnce() throws Exception {
+        assertEquals(1, maxInFlightOf(1));
+
+        int parallel = maxInFlightOf(4);
+        assertTrue("expected overlapping requests, got " + parallel, parallel > 1);
+        assertTrue("expected at most 4 requests at once, got " + parallel, parallel <= 4);
+    }
+
+    @Test
+    public void testDiskWorkIsNotBlockedByDownload() throws Exception {
+        // The pools BibleDownloader and note saves really use
+        AppExecutors executors = AppExecutors.getInstance();
+        CountDownLatch writerStarted = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        FutureTask<Integer> run = new FutureTask<>(() -> new BookFetchPipeline(client, executors.networkIO(), 4)
+                .run(BOOKS, this::url, BibleDownloader::parseTeluguBook, (book, verses) -> {
+                    writerStarted.countDown();
+                    try {
+                        releaseWriter.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        // A second download queued behind the first keeps downloadIO saturated
+        FutureTask<Void> queued = new FutureTask<>(() -> {
+        }, null);
+        try {
+            executors.downloadIO().execute(run);
+            executors.downloadIO().execute(queued);
+            assertTrue(writerStarted.await(5, TimeUnit.SECONDS));
+
+            // A note save runs while the writer is still blocked, rather than after it
+            FutureTask<Boolean> save = new FutureTask<>(() -> releaseWriter.getCount() > 0 && !run.isDone());
+            executors.diskIO().execute(save);
+            assertTrue("disk task ran after the writer was released", save.get(5, TimeUnit.SECONDS));
+            assertFalse(queued.isDone()); // The download thread was still busy
+
+            releaseWriter.countDown();
+            assertEquals(BOOKS.size() - 1, (int) run.get(10, TimeUnit.SECONDS));
+            queued.get(1, TimeUnit.SECONDS);
+        } finally {
+            releaseWriter.countDown();
+        }
+    }
+
+    /** @return the most requests the server saw at once during a run */
+    private int maxInFlightOf(int window) throws Exception {
+        maxInFlight.set(0);
+        new BookFetchPipeline(client, network, window).run(BOOKS, this::url,
+                BibleDownloader::parseTeluguBook, (book, verses) -> {
+                });
+        return maxInFlight.get();
+    }
+
+    private String url(String bookName) {
+        return server.url("/" + bookName.replace(" ", "%20") + ".json").toString();
+    }
+}
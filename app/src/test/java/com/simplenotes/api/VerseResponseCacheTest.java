@@ -0,0 +1,115 @@
+package com.simplenotes.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class VerseResponseCacheTest {
+
+    private MockWebServer server;
+    private File cacheDir;
+    private VerseResponseCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        cacheDir = File.createTempFile("verse-cache", "");
+        cacheDir.delete();
+        cache = new VerseResponseCache(new OkHttpClient(), cacheDir, VerseResponseCache.DEFAULT_MAX_SIZE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
+    @Test
+    public void testRepeatedLookupIsServedFromCache() throws IOException {
+        // Server says not to cache; verse text is immutable so the cache keeps it anyway
+        server.enqueue(new MockResponse().setBody("{\"text\":\"For God so loved\"}")
+                .setHeader("Cache-Control", "no-store"));
+
+        assertEquals("{\"text\":\"For God so loved\"}", get("john  3 : 16", "kjv", null));
+        assertEquals("{\"text\":\"For God so loved\"}", get("John 3:16", "kjv", null));
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getNetworkCount());
+        assertEquals(0.5f, cache.getHitRate(), 0.001f);
+    }
+
+    @Test
+    public void testTranslationIsPartOfTheKey() throws IOException {
+        server.enqueue(new MockResponse().setBody("kjv"));
+        server.enqueue(new MockResponse().setBody("web"));
+
+        assertEquals("kjv", get("John 3:16", "kjv", null));
+        assertEquals("web", get("John 3:16", "web", null));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testStaleEntryIsServedWhenOffline() throws IOException {
+        server.enqueue(new MockResponse().setBody("cached verse"));
+        assertEquals("cached verse", get("Ruth 1:16", "kjv", null));
+        server.shutdown();
+
+        // Forcing a network round-trip, which now fails
+        assertEquals("cached verse", get("Ruth 1:16", "kjv", CacheControl.FORCE_NETWORK));
+        assertEquals(1, cache.getOfflineFallbackCount());
+    }
+
+    @Test
+    public void testUncachedLookupStillFailsWhenOffline() throws IOException {
+        server.shutdown();
+        try {
+            get("Jude 1:1", "kjv", null);
+            fail("Expected the network error to surface");
+        } catch (IOException expected) {
+        }
+        assertEquals(0, cache.getOfflineFallbackCount());
+    }
+
+    @Test
+    public void testNormalizeReference() {
+        assertEquals("John 3:16", VerseResponseCache.normalizeReference("  john   3 : 16 "));
+        assertEquals("1 Samuel 2:1-10", VerseResponseCache.normalizeReference("1 SAMUEL 2:1 - 10"));
+        assertEquals("Song of Solomon 1:1", VerseResponseCache.normalizeReference("song  of solomon 1:1"));
+        assertEquals("John 3:16", VerseResponseCache.normalizeReference("Jn 3:16"));
+        assertEquals("1 Corinthians 13:4", VerseResponseCache.normalizeReference("1 cor. 13:4"));
+        assertEquals("xyz 3:16", VerseResponseCache.normalizeReference("XYZ 3:16"));
+    }
+
+    private String get(String reference, String translation, CacheControl cacheControl) throws IOException {
+        Request.Builder builder = new Request.Builder()
+                .url(server.url("/" + VerseResponseCache.normalizeReference(reference) + "?translation="
+                        + translation));
+        if (cacheControl != null) {
+            builder.cacheControl(cacheControl);
+        }
+        try (Response response = cache.getClient().newCall(builder.build()).execute()) {
+            return response.body().string();
+        }
+    }
+}
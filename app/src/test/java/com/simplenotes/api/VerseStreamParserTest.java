@@ -0,0 +1,221 @@
+package com.simplenotes.api;
+
+import com.simplenotes.Verse;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VerseStreamParserTest {
+
+    private static final long SYNTHETIC_SIZE = 40L * 1024 * 1024;
+
+    @Test
+    public void testBookList_NameAfterChapters() throws IOException {
+        String json = "[{\"abbrev\":\"gn\",\"chapters\":[[\"In the beginning\",\"And the earth\"],[\"Thus\"]],"
+                + "\"name\":\"Genesis\"},"
+                + "{\"name\":\"Exodus\",\"chapters\":[[\"Now these\"]]}]";
+
+        List<Verse> out = new ArrayList<>();
+        VerseStreamParser parser = new VerseStreamParser("kjv", 2, batch -> out.addAll(batch));
+        parser.parseBookList(new StringReader(json));
+
+        assertEquals(4, parser.getVerseCount());
+        assertEquals(4, out.size());
+        assertEquals("Genesis", out.get(0).getBook());
+        assertEquals(2, out.get(1).getVerse());
+        assertEquals(2, out.get(2).getChapter());
+        assertEquals("Exodus", out.get(3).getBook());
+        assertEquals("Now these", out.get(3).getText());
+        assertEquals("kjv", out.get(3).getTranslationId());
+    }
+
+    @Test
+    public void testBookList_LocalizedNamesUseCanonicalPosition() throws IOException {
+        String json = "[{\"name\":\"G\u00e9nesis\",\"chapters\":[[\"En el principio\"]]},"
+                + "{\"chapters\":[[\"Estos son\"]],\"name\":\"\u00c9xodo\"}]";
+
+        List<Verse> out = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        VerseStreamParser parser = new VerseStreamParser("es_rvr", 10, batch -> out.addAll(batch));
+        parser.setBookNameListener((bookOrdinal, name) -> names.add(bookOrdinal + "=" + name));
+        parser.parseBookList(new StringReader(json));
+
+        assertEquals(2, out.size());
+        assertEquals(2, names.size());
+        assertEquals("0=G\u00e9nesis", names.get(0));
+        assertEquals("1=\u00c9xodo", names.get(1));
+        assertEquals("Genesis", out.get(0).getBook());
+        assertEquals("Exodus", out.get(1).getBook());
+        assertEquals(1, out.get(1).getChapter());
+        assertEquals(1, out.get(1).getVerse());
+    }
+
+    @Test
+    public void testBookMap_SkipsUnknownBooksAndMalformedKeys() throws IOException {
+        String json = "{\"John\":{\"3\":{\"16\":\"For God\",\"x\":\"bad\"},\"intro\":{\"1\":\"skip\"}},"
+                + "\"Preface\":{\"1\":{\"1\":\"skip\"}}}";
+
+        List<Verse> out = new ArrayList<>();
+        VerseStreamParser parser = new VerseStreamParser("niv", 10, batch -> out.addAll(batch));
+        parser.parseBookMap(new StringReader(json));
+
+        assertEquals(1, out.size());
+        assertEquals("John", out.get(0).getBook());
+        assertEquals(3, out.get(0).getChapter());
+        assertEquals(16, out.get(0).getVerse());
+        assertEquals("For God", out.get(0).getText());
+    }
+
+    @Test
+    public void testBatchesNeverExceedBatchSize() throws IOException {
+        int[] maxBatch = new int[1];
+        VerseStreamParser parser = new VerseStreamParser("kjv", 64,
+                batch -> maxBatch[0] = Math.max(maxBatch[0], batch.size()));
+        parser.parseBookList(new SyntheticBibleReader(2L * 1024 * 1024));
+
+        assertTrue(parser.getVerseCount() > 64);
+        assertEquals(64, maxBatch[0]);
+    }
+
+    @Test
+    public void testLargeTranslation_SmallHeap() throws Exception {
+        // Ingest a synthetic 40 MB translation in a child JVM whose heap is smaller
+        // than the document itself. Buffering the whole body would OOM here.
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder pb = new ProcessBuilder(java, "-Xmx24m",
+                "-cp", System.getProperty("java.class.path"),
+                VerseStreamParserTest.class.getName());
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+
+        String output;
+        try (Scanner scanner = new Scanner(process.getInputStream(), "UTF-8").useDelimiter("\\A")) {
+            output = scanner.hasNext() ? scanner.next().trim() : "";
+        }
+        assertEquals(output, 0, process.waitFor());
+        assertEquals(String.valueOf(SyntheticBibleReader.versesFor(SYNTHETIC_SIZE)), output);
+    }
+
+    @Test
+    public void testSyntheticReader_VerseCountMatchesPrediction() throws IOException {
+        long size = 512 * 1024;
+        VerseStreamParser parser = new VerseStreamParser("kjv", 500, batch -> {
+        });
+        parser.parseBookList(new SyntheticBibleReader(size));
+        assertEquals(SyntheticBibleReader.versesFor(size), parser.getVerseCount());
+    }
+
+    /** Entry point for the small-heap child JVM. */
+    public static void main(String[] args) throws IOException {
+        VerseStreamParser parser = new VerseStreamParser("kjv", VerseStreamParser.DEFAULT_BATCH_SIZE, batch -> {
+        });
+        parser.parseBookList(new SyntheticBibleReader(SYNTHETIC_SIZE));
+        System.out.println(parser.getVerseCount());
+    }
+
+    /**
+     * Generates a List Format translation of roughly the requested size on the fly,
+     * so the test itself never holds the document in memory.
+     */
+    private static class SyntheticBibleReader extends Reader {
+        private static final int VERSES_PER_CHAPTER = 30;
+        private static final int CHAPTERS_PER_BOOK = 50;
+        private static final String VERSE_TEXT;
+
+        static {
+            StringBuilder sb = new StringBuilder();
+            while (sb.length() < 200) {
+                sb.append("And the word went out over all the earth. ");
+            }
+            VERSE_TEXT = sb.toString();
+        }
+
+        private final long verseLimit;
+        private long versesWritten = 0;
+        private int chapterVerse = 0;
+        private int bookChapter = 0;
+        private int book = 0;
+        private boolean started = false;
+        private boolean finished = false;
+        private String chunk = "";
+        private int chunkPos = 0;
+
+        SyntheticBibleReader(long approxBytes) {
+            this.verseLimit = versesFor(approxBytes);
+        }
+
+        static long versesFor(long approxBytes) {
+            return approxBytes / (VERSE_TEXT.length() + 3);
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) {
+            int written = 0;
+            while (written < len) {
+                if (chunkPos >= chunk.length() && !nextChunk()) {
+                    break;
+                }
+                int n = Math.min(len - written, chunk.length() - chunkPos);
+                chunk.getChars(chunkPos, chunkPos + n, buf, off + written);
+                chunkPos += n;
+                written += n;
+            }
+            return written == 0 ? -1 : written;
+        }
+
+        private boolean nextChunk() {
+            if (finished) {
+                return false;
+            }
+            StringBuilder sb = new StringBuilder();
+            if (!started) {
+                sb.append('[');
+                started = true;
+            }
+            if (versesWritten == verseLimit) {
+                if (book > 0) {
+                    sb.append("]],\"name\":\"Book ").append(book).append("\"}");
+                }
+                sb.append(']');
+                finished = true;
+            } else {
+                if (chapterVerse == 0 && bookChapter == 0) {
+                    if (book > 0) {
+                        sb.append("]],\"name\":\"Book ").append(book).append("\"},");
+                    }
+                    book++;
+                    sb.append("{\"abbrev\":\"b").append(book).append("\",\"chapters\":[[");
+                } else if (chapterVerse == 0) {
+                    sb.append("],[");
+                } else {
+                    sb.append(',');
+                }
+                sb.append('"').append(VERSE_TEXT).append('"');
+                versesWritten++;
+                if (++chapterVerse == VERSES_PER_CHAPTER) {
+                    chapterVerse = 0;
+                    if (++bookChapter == CHAPTERS_PER_BOOK) {
+                        bookChapter = 0;
+                    }
+                }
+            }
+            chunk = sb.toString();
+            chunkPos = 0;
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
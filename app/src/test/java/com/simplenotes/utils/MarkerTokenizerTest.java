@@ -0,0 +1,236 @@
+package com.simplenotes.utils;
+
+import android.text.SpannableStringBuilder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class MarkerTokenizerTest {
+
+    // The patterns the tokenizer replaced
+    private static final Pattern MARKER_PATTERN = Pattern.compile("(\u200C(\\{\\d+\\})?)|\u200D");
+    private static final Pattern VERSE_PATTERN = Pattern.compile("\u200B(.*?)\u200B", Pattern.DOTALL);
+    private static final Pattern HIGHLIGHT_PATTERN = Pattern.compile("(?:\u200C)?\\{(\\d+)\\}(.*?)\u200D",
+            Pattern.DOTALL);
+    private static final Pattern SYNTAX_PATTERN = Pattern.compile("\u200C|\\{\\d+\\}|\u200D");
+    private static final Pattern PREVIEW_PATTERN = Pattern.compile("\u200C(\\{\\d+\\})?|\u200D");
+
+    private static final int OPENERS = MarkerTokenizer.OPEN | MarkerTokenizer.TAG;
+
+    @Test
+    public void testKnownTokens() {
+        MarkerTokenizer tokenizer = new MarkerTokenizer();
+        String text = "a\u200C{12}b\u200D \u200Bv\u200B {3} \u200C{x} {99999999999}";
+        assertEquals(7, tokenizer.tokenize(text));
+
+        assertToken(tokenizer, 0, MarkerTokenizer.OPEN, 1, 6, 12);
+        assertToken(tokenizer, 1, MarkerTokenizer.CLOSE, 7, 8, -1);
+        assertToken(tokenizer, 2, MarkerTokenizer.VERSE, 9, 10, -1);
+        assertToken(tokenizer, 3, MarkerTokenizer.VERSE, 11, 12, -1);
+        assertToken(tokenizer, 4, MarkerTokenizer.TAG, 13, 16, 3);
+        assertToken(tokenizer, 5, MarkerTokenizer.BARE_OPEN, 17, 18, -1);
+        assertToken(tokenizer, 6, MarkerTokenizer.TAG, 22, 35, -1); // Overflows an int
+        assertEquals(MarkerTokenizer.CLOSE, tokenizer.type(tokenizer.next(0, MarkerTokenizer.CLOSE)));
+        assertEquals(-1, tokenizer.next(0, 0));
+
+        // A range cuts the tag off, so the opener becomes a bare one
+        assertEquals(1, tokenizer.tokenize(text, 1, 4));
+        assertToken(tokenizer, 0, MarkerTokenizer.BARE_OPEN, 1, 2, -1);
+
+        assertEquals("ab \u200Bv\u200B {3} {x} {99999999999}",
+                MarkerTokenizer.strip(text, MarkerTokenizer.HIGHLIGHT_MARKERS));
+    }
+
+    @Test
+    public void testRemoveAllRepeatsUntilClean() {
+        SpannableStringBuilder text = new SpannableStringBuilder("x{1\u200D2}y\u200C{3}z");
+        new MarkerTokenizer().removeAll(text, MarkerTokenizer.HIGHLIGHT_SYNTAX);
+        assertEquals("xyz", text.toString());
+    }
+
+    @Test
+    public void testRandomizedParity() {
+        String[] pieces = { "word ", "\n", "\u200B", "\u200C", "\u200D", "\u200C{", "{", "}", "1", "12", "{0}",
+                "\u200C{2}", "\u200C{12}", "{99999999999}", "\u200C{x}", "x" };
+        Random random = new Random(11);
+        MarkerTokenizer tokenizer = new MarkerTokenizer();
+
+        for (int iteration = 0; iteration < 100_000; iteration++) {
+            StringBuilder sb = new StringBuilder();
+            int n = random.nextInt(30);
+            for (int i = 0; i < n; i++) {
+                sb.append(pieces[random.nextInt(pieces.length)]);
+            }
+            String text = sb.toString();
+            String message = "Mismatch for \"" + escape(text) + "\"";
+
+            int start = random.nextInt(text.length() + 1);
+            int end = start + random.nextInt(text.length() - start + 1);
+            String region = text.substring(start, end);
+            tokenizer.tokenize(text, start, end);
+
+            assertEquals(message, legacyMarkers(region, start), markers(tokenizer));
+            assertEquals(message, legacyBlocks(VERSE_PATTERN, region, start), verses(tokenizer));
+            assertEquals(message, legacyBlocks(HIGHLIGHT_PATTERN, region, start), highlights(tokenizer));
+
+            assertEquals(message, SYNTAX_PATTERN.matcher(text).replaceAll(""),
+                    MarkerTokenizer.strip(text, MarkerTokenizer.HIGHLIGHT_SYNTAX));
+            assertEquals(message, PREVIEW_PATTERN.matcher(text).replaceAll(""),
+                    MarkerTokenizer.strip(text, MarkerTokenizer.HIGHLIGHT_MARKERS));
+
+            SpannableStringBuilder content = new SpannableStringBuilder(text);
+            tokenizer.removeAll(content, MarkerTokenizer.HIGHLIGHT_SYNTAX);
+            assertEquals(message, legacyRemove(text), content.toString());
+        }
+    }
+
+    @Test
+    public void testTokenizerVersusRegexSet() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 100 * 1024; i++) {
+            sb.append("Notes ").append(i).append(" \u200C{").append(i % 3).append("}highlighted\u200D and ")
+                    .append("\u200B\"For God so loved the world\"\u200B plain text, {not a tag}.\n");
+        }
+        String text = sb.toString();
+        MarkerTokenizer tokenizer = new MarkerTokenizer();
+
+        int rounds = 20;
+        long regex = 0;
+        long tokens = 0;
+        int sink = 0;
+        for (int round = 0; round < rounds + 5; round++) {
+            long t0 = System.nanoTime();
+            // What styling, highlighting and the previews each used to run over a note
+            sink += legacyMarkers(text, 0).size() + legacyBlocks(VERSE_PATTERN, text, 0).size()
+                    + legacyBlocks(HIGHLIGHT_PATTERN, text, 0).size();
+            sink += Pattern.compile("\u200C\\{\\d+\\}").matcher(text).find() ? 1 : 0;
+            sink += SYNTAX_PATTERN.matcher(text).replaceAll("").length();
+            sink += PREVIEW_PATTERN.matcher(text).replaceAll("").length();
+            long t1 = System.nanoTime();
+            tokenizer.tokenize(text);
+            sink += markers(tokenizer).size() + verses(tokenizer).size() + highlights(tokenizer).size();
+            sink += MarkerTokenizer.strip(text, MarkerTokenizer.HIGHLIGHT_SYNTAX).length();
+            sink += MarkerTokenizer.strip(text, MarkerTokenizer.HIGHLIGHT_MARKERS).length();
+            long t2 = System.nanoTime();
+            if (round >= 5) { // Warm-up
+                regex += t1 - t0;
+                tokens += t2 - t1;
+            }
+        }
+        System.out.println("Markers in 100 KB: regex set " + regex / rounds / 1000 + " us, tokenizer "
+                + tokens / rounds / 1000 + " us (" + sink + ")");
+        assertTrue(sink > 0);
+    }
+
+    private static void assertToken(MarkerTokenizer tokenizer, int i, int type, int start, int end, int value) {
+        assertEquals(type, tokenizer.type(i));
+        assertEquals(start, tokenizer.start(i));
+        assertEquals(end, tokenizer.end(i));
+        assertEquals(value, tokenizer.value(i));
+    }
+
+    private static List<String> markers(MarkerTokenizer tokenizer) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < tokenizer.getCount(); i++) {
+            if ((tokenizer.type(i) & MarkerTokenizer.HIGHLIGHT_MARKERS) != 0) {
+                out.add(tokenizer.start(i) + "-" + tokenizer.end(i));
+            }
+        }
+        return out;
+    }
+
+    private static List<String> verses(MarkerTokenizer tokenizer) {
+        List<String> out = new ArrayList<>();
+        int open = tokenizer.next(0, MarkerTokenizer.VERSE);
+        while (open >= 0) {
+            int close = tokenizer.next(open + 1, MarkerTokenizer.VERSE);
+            if (close < 0)
+                break;
+            out.add(tokenizer.start(open) + "-" + tokenizer.end(open) + "-" + tokenizer.start(close) + "-"
+                    + tokenizer.end(close));
+            open = tokenizer.next(close + 1, MarkerTokenizer.VERSE);
+        }
+        return out;
+    }
+
+    /** The pairing NoteStyler does, plus the color index. */
+    private static List<String> highlights(MarkerTokenizer tokenizer) {
+        List<String> out = new ArrayList<>();
+        int open = tokenizer.next(0, OPENERS);
+        while (open >= 0) {
+            int close = tokenizer.next(open + 1, MarkerTokenizer.CLOSE);
+            if (close < 0)
+                break;
+            out.add(tokenizer.start(open) + "-" + tokenizer.end(open) + "-" + tokenizer.start(close) + "-"
+                    + tokenizer.end(close) + " " + tokenizer.value(open));
+            open = tokenizer.next(close + 1, OPENERS);
+        }
+        return out;
+    }
+
+    private static List<String> legacyMarkers(String region, int offset) {
+        List<String> out = new ArrayList<>();
+        Matcher m = MARKER_PATTERN.matcher(region);
+        while (m.find()) {
+            out.add((offset + m.start()) + "-" + (offset + m.end()));
+        }
+        return out;
+    }
+
+    private static List<String> legacyBlocks(Pattern pattern, String region, int offset) {
+        List<String> out = new ArrayList<>();
+        Matcher m = pattern.matcher(region);
+        int inner = m.groupCount();
+        while (m.find()) {
+            String block = (offset + m.start()) + "-" + (offset + m.start(inner)) + "-" + (offset + m.end(inner))
+                    + "-" + (offset + m.end());
+            if (inner == 2) {
+                int colorIndex;
+                try {
+                    colorIndex = Integer.parseInt(m.group(1));
+                } catch (NumberFormatException e) {
+                    colorIndex = -1;
+                }
+                block += " " + colorIndex;
+            }
+            out.add(block);
+        }
+        return out;
+    }
+
+    /** The marker removal loop applyHighlight and removeHighlight used to run. */
+    private static String legacyRemove(String text) {
+        StringBuilder content = new StringBuilder(text);
+        Matcher matcher = SYNTAX_PATTERN.matcher(content);
+        while (matcher.find()) {
+            content.delete(matcher.start(), matcher.end());
+            matcher.reset(content);
+        }
+        return content.toString();
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if (c < 0x20 || c > 0x7E) {
+                sb.append(String.format("\\u%04X", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
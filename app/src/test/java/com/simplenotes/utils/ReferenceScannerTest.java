@@ -0,0 +1,247 @@
+package com.simplenotes.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReferenceScannerTest {
+
+    private static final Pattern LEGACY_PATTERN = Pattern.compile("(@([a-zA-Z0-9\\s]+ \\d+:\\d+(?:-\\d+)?))\\s+$");
+
+    private static final String[] CORPUS = {
+            "@John 3:16 ",
+            "@John 3:16\n",
+            "Read @John 3:16-18 \t",
+            "@1 Samuel 2:10 ",
+            "@Song of Solomon 1:1  ",
+            "see @john 3:16 and @Romans 8:28 ",
+            "@John 3:16 and more ",
+            "@John 3 16 ",
+            "@John3:16 ",
+            "@ 3:16 ",
+            "@John 3:16",
+            "@John 3:16- ",
+            "@John 3:16-17-18 ",
+            "@John :16 ",
+            "@Jöhn 3:16 ",
+            "email@example.com 3:16 ",
+            "@\u200C{3}John\u200D 3:16 ",
+            "@John \u200C{12}3:16\u200D ",
+            "\u200C{5}@John 3:16\u200D ",
+            "@John 3:1\u200C6 ",
+            "@John 3:16 \u200D",
+            "@John 3:16 \u200C{4}",
+            "@John\u200C{x} 3:16 ",
+            "@John {12} 3:16 ",
+            "@John \u200C{} 3:16 ",
+            "@John 3:16 \u2028",
+            "@John 3:16\u2028",
+            "@John 3:16 \r\n",
+            "@Psalms 119:105 \u200B",
+            "@John 3:16\u00A0",
+            "@@John 3:16 ",
+            "@John 3:16 @ ",
+    };
+
+    @Test
+    public void testCorpusMatchesLegacyRegex() {
+        ReferenceScanner scanner = new ReferenceScanner();
+        for (String text : CORPUS) {
+            assertParity(scanner, text);
+            assertParity(scanner, padding(90) + text); // Window cuts into the padding
+            assertParity(scanner, padding(120) + text); // Reference near the window edge
+        }
+    }
+
+    @Test
+    public void testKnownResults() {
+        ReferenceScanner scanner = new ReferenceScanner();
+
+        String text = "Read \u200C{2}@1 Corinthians 13:4-7\u200D ";
+        assertTrue(scanner.scan(text, text.length()));
+        assertEquals("1 Corinthians 13:4-7", scanner.getReference());
+        assertEquals(text.indexOf('@'), scanner.getStart());
+        assertEquals(text.length(), scanner.getEnd());
+
+        String partial = "@John 3:16 more";
+        assertTrue(scanner.scan(partial, 11)); // Cursor right after the space
+        assertEquals("John 3:16", scanner.getReference());
+
+        assertFalse(scanner.scan("@John 3:16", 10));
+        assertFalse(scanner.scan("", 0));
+    }
+
+    @Test
+    public void testMarkerCutByWindowEdge() {
+        ReferenceScanner scanner = new ReferenceScanner();
+        // The \u200C falls outside the window, so "{7}" is plain text there
+        String head = "\u200C{7}@John 3:16 ";
+        String text = head;
+        while (text.length() - 1 < ReferenceScanner.WINDOW_SIZE) {
+            text = text.replace("@John", "@John x");
+        }
+        assertParity(scanner, text);
+    }
+
+    @Test
+    public void testRandomizedParity() {
+        String[] pieces = { "@", "John", "1 Samuel", " ", "  ", "\t", "\n", "3", "16", "119", ":", "-", "x",
+                "\u200C", "\u200D", "\u200C{", "}", "{", "\u200C{12}", "\u200C{3}", "\u200B", "\u2028", "é",
+                ".", "@Ruth 1:16 ", "@Ps 23:1-6 " };
+        Random random = new Random(42);
+        ReferenceScanner scanner = new ReferenceScanner();
+        int matches = 0;
+
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int n = random.nextInt(40);
+            for (int j = 0; j < n; j++) {
+                sb.append(pieces[random.nextInt(pieces.length)]);
+            }
+            if (random.nextBoolean()) {
+                sb.append(random.nextBoolean() ? ' ' : '\n');
+            }
+            if (assertParity(scanner, sb.toString())) {
+                matches++;
+            }
+        }
+        assertTrue("Corpus should exercise the match path too", matches > 1000);
+    }
+
+    /**
+     * Typing a reference at the end of a 10 KB note, a scan per keystroke as
+     * the editor's text watcher runs it. The old path copied the text up to
+     * the cursor before scanning its last window.
+     */
+    @Test
+    public void testScannerVersusLegacyPerKeystroke() {
+        StringBuilder text = new StringBuilder(padding(10 * 1024));
+        int typedFrom = text.length();
+        text.append(" Read \u200C{2}@1 Corinthians 13:4-7\u200D then @John 3:16 and @Psalms 119:105 ");
+        ReferenceScanner scanner = new ReferenceScanner();
+
+        int rounds = 50;
+        long legacy = 0;
+        long scanned = 0;
+        int sink = 0;
+        for (int round = 0; round < rounds + 5; round++) {
+            long t0 = System.nanoTime();
+            for (int cursor = typedFrom; cursor <= text.length(); cursor++) {
+                if (legacy(text.subSequence(0, cursor).toString()) != null) {
+                    sink++;
+                }
+            }
+            long t1 = System.nanoTime();
+            for (int cursor = typedFrom; cursor <= text.length(); cursor++) {
+                if (scanner.scan(text, cursor)) {
+                    sink++;
+                }
+            }
+            long t2 = System.nanoTime();
+            if (round >= 5) { // Warm-up
+                legacy += t1 - t0;
+                scanned += t2 - t1;
+            }
+        }
+        int keystrokes = text.length() - typedFrom + 1;
+        System.out.println("Reference scan per keystroke in a 10 KB note: legacy "
+                + legacy / rounds / keystrokes + " ns, scanner " + scanned / rounds / keystrokes + " ns (" + sink
+                + ")");
+        assertEquals(2 * 3 * (rounds + 5), sink); // Each reference matches right after its trailing space
+    }
+
+    private static boolean assertParity(ReferenceScanner scanner, String text) {
+        List<Object> expected = legacy(text);
+        boolean found = scanner.scan(text, text.length());
+        String message = "Mismatch for \"" + escape(text) + "\"";
+        assertEquals(message, expected != null, found);
+        if (found) {
+            assertEquals(message, expected.get(0), scanner.getStart());
+            assertEquals(message, expected.get(1), scanner.getEnd());
+            assertEquals(message, expected.get(2), scanner.getReference());
+        }
+        return found;
+    }
+
+    /** The previous NoteActivity.checkForBibleReference, returning [rawStart, rawEnd, reference]. */
+    private static List<Object> legacy(String text) {
+        int windowSize = 100;
+        int startOffset = Math.max(0, text.length() - windowSize);
+        String sub = text.substring(startOffset);
+
+        StringBuilder cleanSb = new StringBuilder();
+        List<Integer> map = new ArrayList<>();
+
+        int i = 0;
+        int len = sub.length();
+        while (i < len) {
+            char c = sub.charAt(i);
+            if (c == '\u200C') {
+                i++;
+                if (i < len && sub.charAt(i) == '{') {
+                    int j = i + 1;
+                    while (j < len && Character.isDigit(sub.charAt(j))) {
+                        j++;
+                    }
+                    if (j < len && sub.charAt(j) == '}') {
+                        i = j + 1;
+                    }
+                }
+            } else if (c == '\u200D') {
+                i++;
+            } else {
+                cleanSb.append(c);
+                map.add(startOffset + i);
+                i++;
+            }
+        }
+
+        String cleanText = cleanSb.toString();
+        Matcher matcher = LEGACY_PATTERN.matcher(cleanText);
+        if (!matcher.find())
+            return null;
+
+        String reference = matcher.group(2).trim();
+        int cleanStart = matcher.start();
+        int cleanEnd = matcher.end();
+        if (cleanStart >= map.size())
+            return null;
+
+        int rawStart = map.get(cleanStart);
+        int rawEnd = cleanEnd < map.size() ? map.get(cleanEnd) : text.length();
+
+        List<Object> result = new ArrayList<>();
+        result.add(rawStart);
+        result.add(rawEnd);
+        result.add(reference);
+        return result;
+    }
+
+    private static String padding(int length) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) {
+            sb.append("Lorem @ipsum \u200C{1}dolor\u200D ");
+        }
+        return sb.substring(0, length);
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if (c < 0x20 || c > 0x7E) {
+                sb.append(String.format("\\u%04X", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -6,12 +6,29 @@ import android.text.SpannableString;
 import android.text.style.ForegroundColorSpan;
 import android.text.style.StyleSpan;
 
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.UnderlineSpan;
+
+import com.simplenotes.AutoColorSpan;
+import com.simplenotes.RoundedHighlighterSpan;
+import com.simplenotes.VerseSpan;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
@@ -62,4 +79,296 @@ public class RichTextUtilsTest {
         StyleSpan[] spans = output.getSpans(0, output.length(), StyleSpan.class);
         assertEquals(2, spans.length); // Bold + Italic
     }
+
+    @Test
+    public void testRoundTrip_VerseKeepsSpanNotDerivedColor() {
+        SpannableString input = new SpannableString("John 3:16\n\"For God so loved\"");
+        input.setSpan(new VerseSpan(), 10, 27, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        input.setSpan(new AutoColorSpan(0xFFC9A227), 10, 27, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+
+        String json = RichTextUtils.toJson(input);
+        Spannable output = RichTextUtils.fromJson(json);
+
+        VerseSpan[] verses = output.getSpans(0, output.length(), VerseSpan.class);
+        assertEquals(1, verses.length);
+        assertEquals(10, output.getSpanStart(verses[0]));
+        assertEquals(27, output.getSpanEnd(verses[0]));
+        // The verse color follows settings, so it is not saved as a user color
+        assertEquals(0, output.getSpans(0, output.length(), ForegroundColorSpan.class).length);
+    }
+
+    @Test
+    public void testWritesPackedV2() {
+        SpannableString input = new SpannableString("Hello World");
+        input.setSpan(new UnderlineSpan(), 6, 11, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        input.setSpan(new StyleSpan(Typeface.BOLD_ITALIC), 0, 5, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        input.setSpan(new ForegroundColorSpan(0xFFFF0000), 6, 8, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+
+        // Sorted by start: bold, italic at 0; then underline and color at +6
+        String json = RichTextUtils.toJson(input);
+        assertTrue(json, json.equals("{\"v\":2,\"text\":\"Hello World\",\"s\":[0,0,5,1,0,5,2,6,5,3,0,2,-65536]}")
+                || json.equals("{\"v\":2,\"text\":\"Hello World\",\"s\":[0,0,5,1,0,5,3,6,2,-65536,2,0,5]}"));
+        assertEquals("Hello World", RichTextUtils.textOf(json));
+    }
+
+    @Test
+    public void testReadsV1InAnyKeyOrder() {
+        String json = "{\"spans\":[{\"end\":5,\"type\":\"bold\",\"start\":0},"
+                + "{\"type\":\"highlight\",\"value\":-256,\"start\":6,\"end\":11},"
+                + "{\"type\":\"strike\",\"start\":0,\"end\":3},"
+                + "{\"type\":\"underline\",\"start\":4,\"end\":99}],\"text\":\"Hello World\"}";
+        Spannable output = RichTextUtils.fromJson(json);
+
+        assertEquals("Hello World", output.toString());
+        assertEquals(3, output.getSpans(0, output.length(), Object.class).length);
+        RoundedHighlighterSpan[] highlights = output.getSpans(0, output.length(), RoundedHighlighterSpan.class);
+        assertEquals(-256, highlights[0].getBackgroundColor());
+        UnderlineSpan[] underlines = output.getSpans(0, output.length(), UnderlineSpan.class);
+        assertEquals(11, output.getSpanEnd(underlines[0])); // Clamped
+        assertEquals("Hello World", RichTextUtils.textOf(json));
+    }
+
+    @Test
+    public void testUnknownPackedTypeDropsTheRest() {
+        Spannable output = RichTextUtils.fromJson("{\"v\":3,\"text\":\"abcdef\",\"s\":[0,0,2,9,1,1,1,2,0,2]}");
+        assertEquals("abcdef", output.toString());
+        assertEquals(1, output.getSpans(0, output.length(), Object.class).length);
+    }
+
+    @Test
+    public void testMalformedContent() {
+        assertEquals("{not json", RichTextUtils.fromJson("{not json").toString());
+        assertNull(RichTextUtils.textOf("{not json"));
+    }
+
+    @Test
+    public void testRandomRoundTripParityWithV1() {
+        Random random = new Random(17);
+        for (int iteration = 0; iteration < 2000; iteration++) {
+            Spannable input = randomNote(random, 1 + random.nextInt(200), random.nextInt(20));
+
+            String v2 = RichTextUtils.toJson(input);
+            String v1 = legacyToJson(input);
+            assertEquals(describe(input), describe(RichTextUtils.fromJson(v2)));
+            assertEquals(describe(input), describe(RichTextUtils.fromJson(v1)));
+            assertEquals(input.toString(), RichTextUtils.textOf(v2));
+        }
+    }
+
+    @Test
+    public void testSizeAndSpeedAgainstV1() {
+        Random random = new Random(5);
+        List<Spannable> corpus = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            corpus.add(sermonNote(random, 5 + random.nextInt(60)));
+        }
+
+        long v1Bytes = 0;
+        long v2Bytes = 0;
+        List<String> v1 = new ArrayList<>();
+        List<String> v2 = new ArrayList<>();
+        for (Spannable note : corpus) {
+            v1.add(legacyToJson(note));
+            v2.add(RichTextUtils.toJson(note));
+            v1Bytes += v1.get(v1.size() - 1).length();
+            v2Bytes += v2.get(v2.size() - 1).length();
+        }
+
+        int rounds = 10;
+        long legacyWrite = 0, legacyRead = 0, write = 0, read = 0;
+        int sink = 0;
+        for (int round = 0; round < rounds + 3; round++) {
+            long t0 = System.nanoTime();
+            for (Spannable note : corpus) {
+                sink += legacyToJson(note).length();
+            }
+            long t1 = System.nanoTime();
+            for (String json : v1) {
+                sink += legacyFromJson(json).length();
+            }
+            long t2 = System.nanoTime();
+            for (Spannable note : corpus) {
+                sink += RichTextUtils.toJson(note).length();
+            }
+            long t3 = System.nanoTime();
+            for (String json : v2) {
+                sink += RichTextUtils.fromJson(json).length();
+            }
+            long t4 = System.nanoTime();
+            if (round >= 3) { // Warm-up
+                legacyWrite += t1 - t0;
+                legacyRead += t2 - t1;
+                write += t3 - t2;
+                read += t4 - t3;
+            }
+        }
+        System.out.println("Content of " + corpus.size() + " notes: v1 " + v1Bytes / 1024 + " KB, v2 "
+                + v2Bytes / 1024 + " KB; write " + write / rounds / 1000 + " us (v1 " + legacyWrite / rounds / 1000
+                + " us), read " + read / rounds / 1000 + " us (v1 " + legacyRead / rounds / 1000 + " us) ("
+                + sink + ")");
+        assertTrue(v2Bytes < v1Bytes);
+    }
+
+    @Test
+    public void testPreviewOf() {
+        assertEquals("", RichTextUtils.previewOf(null));
+        assertEquals("", RichTextUtils.previewOf("{broken"));
+        assertEquals("Plain text", RichTextUtils.previewOf("Plain text"));
+        assertEquals("Old html", RichTextUtils.previewOf("<p>Old <i>html</i></p>"));
+        assertEquals("Marked text", RichTextUtils.previewOf(RichTextUtils.toJson(
+                new SpannableString("\u200C{3}Marked\u200D text\n"))));
+
+        StringBuilder longText = new StringBuilder();
+        while (longText.length() < RichTextUtils.PREVIEW_CHARS - 1) {
+            longText.append('a');
+        }
+        longText.append("\uD83D\uDE00 and more"); // An emoji across the cut
+        String preview = RichTextUtils.previewOfText(longText.toString());
+        assertEquals(RichTextUtils.PREVIEW_CHARS - 1, preview.length());
+    }
+
+    /** Notes like the app's users write: prose, fetched verses, highlights and some formatting. */
+    public static Spannable sermonNote(Random random, int paragraphs) {
+        SpannableStringBuilder sb = new SpannableStringBuilder();
+        for (int p = 0; p < paragraphs; p++) {
+            int start = sb.length();
+            if (random.nextInt(4) == 0) {
+                sb.append("John 3:").append(String.valueOf(1 + random.nextInt(36))).append('\n');
+                int verse = sb.length();
+                sb.append("\"For God so loved the world, that he gave his only begotten Son.\"");
+                sb.setSpan(new VerseSpan(), verse, sb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            } else {
+                sb.append("Point ").append(String.valueOf(p)).append(": grace is unearned favour, and faith "
+                        + "receives what grace gives. Write it down and read it again.");
+                int word = start + random.nextInt(sb.length() - start - 10);
+                sb.setSpan(new RoundedHighlighterSpan(0xFFFFF59D, 12f), word, word + 8,
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                if (random.nextBoolean()) {
+                    sb.setSpan(new StyleSpan(Typeface.BOLD), start, start + 6, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                }
+                if (random.nextInt(5) == 0) {
+                    sb.setSpan(new ForegroundColorSpan(0xFF1565C0), word, word + 5, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                }
+            }
+            sb.append("\n\n");
+        }
+        return sb;
+    }
+
+    private static Spannable randomNote(Random random, int length, int spans) {
+        String alphabet = "ab \n\"\\/\u00E9\u200B\u200C{}";
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        SpannableStringBuilder sb = new SpannableStringBuilder(text);
+        for (int i = 0; i < spans; i++) {
+            int start = random.nextInt(length);
+            int end = start + 1 + random.nextInt(length - start);
+            Object span;
+            switch (random.nextInt(6)) {
+                case 0:
+                    span = new StyleSpan(Typeface.BOLD);
+                    break;
+                case 1:
+                    span = new StyleSpan(Typeface.ITALIC);
+                    break;
+                case 2:
+                    span = new UnderlineSpan();
+                    break;
+                case 3:
+                    span = new ForegroundColorSpan(random.nextInt());
+                    break;
+                case 4:
+                    span = new RoundedHighlighterSpan(random.nextInt(), 12f);
+                    break;
+                default:
+                    span = new VerseSpan();
+                    break;
+            }
+            sb.setSpan(span, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        return sb;
+    }
+
+    private static List<String> describe(Spanned text) {
+        List<String> out = new ArrayList<>();
+        for (Object span : text.getSpans(0, text.length(), Object.class)) {
+            String kind;
+            if (span instanceof StyleSpan) {
+                kind = "style " + ((StyleSpan) span).getStyle();
+            } else if (span instanceof UnderlineSpan) {
+                kind = "underline";
+            } else if (span instanceof ForegroundColorSpan) {
+                kind = "color " + ((ForegroundColorSpan) span).getForegroundColor();
+            } else if (span instanceof RoundedHighlighterSpan) {
+                kind = "highlight " + ((RoundedHighlighterSpan) span).getBackgroundColor();
+            } else if (span instanceof VerseSpan) {
+                kind = "verse";
+            } else {
+                continue;
+            }
+            out.add(kind + " " + text.getSpanStart(span) + "-" + text.getSpanEnd(span));
+        }
+        Collections.sort(out);
+        return out;
+    }
+
+    /** The v1 writer: one org.json object per span. */
+    private static String legacyToJson(Spanned text) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("text", text.toString());
+            JSONArray spansArray = new JSONArray();
+            for (Object span : text.getSpans(0, text.length(), Object.class)) {
+                JSONObject spanJson = new JSONObject();
+                if (span instanceof StyleSpan) {
+                    spanJson.put("type", ((StyleSpan) span).getStyle() == Typeface.BOLD ? "bold" : "italic");
+                } else if (span instanceof UnderlineSpan) {
+                    spanJson.put("type", "underline");
+                } else if (span instanceof ForegroundColorSpan) {
+                    spanJson.put("type", "color");
+                    spanJson.put("value", ((ForegroundColorSpan) span).getForegroundColor());
+                } else if (span instanceof RoundedHighlighterSpan) {
+                    spanJson.put("type", "highlight");
+                    spanJson.put("value", ((RoundedHighlighterSpan) span).getBackgroundColor());
+                } else if (span instanceof VerseSpan) {
+                    spanJson.put("type", "verse");
+                } else {
+                    continue;
+                }
+                spanJson.put("start", text.getSpanStart(span));
+                spanJson.put("end", text.getSpanEnd(span));
+                spansArray.put(spanJson);
+            }
+            json.put("spans", spansArray);
+            return json.toString();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /** The v1 reader: the org.json DOM. */
+    private static Spannable legacyFromJson(String jsonString) {
+        try {
+            JSONObject json = new JSONObject(jsonString);
+            String rawText = json.optString("text", "");
+            SpannableStringBuilder ssb = new SpannableStringBuilder(rawText);
+            JSONArray spansArray = json.optJSONArray("spans");
+            for (int i = 0; i < spansArray.length(); i++) {
+                JSONObject spanJson = spansArray.getJSONObject(i);
+                String type = spanJson.optString("type");
+                int start = Math.max(0, spanJson.optInt("start"));
+                int end = Math.min(rawText.length(), spanJson.optInt("end"));
+                if (start >= end)
+                    continue;
+                Object span = "highlight".equals(type) ? new RoundedHighlighterSpan(spanJson.optInt("value"), 12f)
+                        : new StyleSpan(Typeface.BOLD);
+                ssb.setSpan(span, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+            return ssb;
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
 }
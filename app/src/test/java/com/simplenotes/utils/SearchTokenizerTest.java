@@ -0,0 +1,84 @@
+package com.simplenotes.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 33)
+public class SearchTokenizerTest {
+
+    @Test
+    public void testOffsets() {
+        List<String> tokens = new ArrayList<>();
+        SearchTokenizer.tokenize("Hi, W\u00F6rld! 3:16",
+                (start, end, token) -> tokens.add(start + "-" + end + " " + token));
+        assertEquals(Arrays.asList("0-2 hi", "4-9 world", "11-12 3", "13-15 16"), tokens);
+        assertEquals("", SearchTokenizer.normalize(" \"*-, "));
+    }
+
+    @Test
+    public void testLatin() {
+        assertEquals("cafe naive resume", SearchTokenizer.normalize("Caf\u00E9, NA\u00CFVE r\u00E9sum\u00E9"));
+        // Decomposed accents fold the same
+        assertEquals("cafe", SearchTokenizer.normalize("Cafe\u0301"));
+    }
+
+    @Test
+    public void testArabic() {
+        // Genesis 1:1 (ar_svd) with and without vowel marks, alef wasla and hamza seats
+        String voweled = "\u0641\u0650\u064A \u0671\u0644\u0652\u0628\u064E\u062F\u0652\u0621\u0650 "
+                + "\u062E\u064E\u0644\u064E\u0642\u064E \u0671\u0644\u0644\u0647\u064F "
+                + "\u0671\u0644\u0633\u064E\u0651\u0645\u064E\u0627\u0648\u064E\u0627\u062A\u0650 "
+                + "\u0648\u064E\u0671\u0644\u0652\u0623\u064E\u0631\u0652\u0636\u064E";
+        String plain = "\u0641\u064A \u0627\u0644\u0628\u062F\u0621 \u062E\u0644\u0642 \u0627\u0644\u0644\u0647 "
+                + "\u0627\u0644\u0633\u0645\u0627\u0648\u0627\u062A \u0648\u0627\u0644\u0623\u0631\u0636";
+        assertEquals(SearchTokenizer.normalize(plain), SearchTokenizer.normalize(voweled));
+        assertEquals(6, SearchTokenizer.normalize(voweled).split(" ").length);
+        // Alef maqsura is yeh, tatweel is dropped
+        assertEquals(SearchTokenizer.normalize("\u0645\u0648\u0633\u064A"),
+                SearchTokenizer.normalize("\u0645\u0648\u0640\u0633\u0649"));
+    }
+
+    @Test
+    public void testChinese() {
+        // John 1:1 (zh_cuv), one token per character
+        List<String> tokens = new ArrayList<>();
+        SearchTokenizer.tokenize("\u592A\u521D\u6709\u9053\uFF0C\u9053\u4E0E\u795E\u540C\u5728\u3002",
+                (start, end, token) -> tokens.add(start + " " + token));
+        assertEquals(Arrays.asList("0 \u592A", "1 \u521D", "2 \u6709", "3 \u9053", "5 \u9053", "6 \u4E0E",
+                "7 \u795E", "8 \u540C", "9 \u5728"), tokens);
+        // Mixed with Latin
+        assertEquals("abc \u9053 x", SearchTokenizer.normalize("ABC\u9053x"));
+    }
+
+    @Test
+    public void testKoreanAndTelugu() {
+        // Genesis 1:1 (ko_ko): words split on spaces only
+        assertEquals(4, SearchTokenizer.normalize(
+                "\uD0DC\uCD08\uC5D0 \uD558\uB098\uB2D8\uC774 \uCC9C\uC9C0\uB97C \uCC3D\uC870\uD558\uC2DC\uB2C8\uB77C")
+                .split(" ").length);
+        // Genesis 1:1 (tel): vowel signs and virama are marks, and stay inside their words
+        String telugu = "\u0C06\u0C26\u0C3F\u0C2F\u0C02\u0C26\u0C41 \u0C26\u0C47\u0C35\u0C41\u0C21\u0C41 "
+                + "\u0C2D\u0C42\u0C2E\u0C4D\u0C2F\u0C3E\u0C15\u0C3E\u0C36\u0C2E\u0C41\u0C32\u0C28\u0C41 "
+                + "\u0C38\u0C43\u0C1C\u0C3F\u0C02\u0C1A\u0C46\u0C28\u0C41";
+        assertEquals(telugu, SearchTokenizer.normalize(telugu));
+    }
+
+    @Test
+    public void testCyrillicAndGreek() {
+        // Yo is ye
+        assertEquals("\u0435\u043B\u043A\u0430 \u0438 \u0435\u0436",
+                SearchTokenizer.normalize("\u0401\u043B\u043A\u0430 \u0438 \u0401\u0416"));
+        // Upper case and final sigma
+        assertEquals(SearchTokenizer.normalize("\u03BB\u03BF\u03B3\u03BF\u03C2"),
+                SearchTokenizer.normalize("\u039B\u039F\u0393\u039F\u03A3"));
+    }
+}
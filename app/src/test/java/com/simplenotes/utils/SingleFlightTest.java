@@ -0,0 +1,152 @@
+package com.simplenotes.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    public void testConcurrentBlockingCallsShareOneLoad() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch allWaiting = new CountDownLatch(CALLERS);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(pool.submit(() -> {
+                    allWaiting.countDown();
+                    return flights.get("John 3:16|kjv", () -> {
+                        loads.incrementAndGet();
+                        awaitQuietly(release);
+                        return "For God so loved the world";
+                    });
+                }));
+            }
+
+            assertTrue(allWaiting.await(5, TimeUnit.SECONDS));
+            // Give the joiners time to attach to the first caller's flight
+            long deadline = System.currentTimeMillis() + 5000;
+            while (flights.getJoinedCount() < CALLERS - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            String first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<String> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, flights.getStartedCount());
+        assertEquals(CALLERS - 1, flights.getJoinedCount());
+        assertEquals(0, flights.getInFlightCount());
+    }
+
+    @Test
+    public void testAsyncWaitersCompleteTogether() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        List<SingleFlight.Callback<String>> started = new ArrayList<>();
+        List<String> completed = new ArrayList<>();
+
+        for (int i = 0; i < CALLERS; i++) {
+            boolean leader = flights.execute("Ruth 1:16|kjv", started::add,
+                    (value, error) -> completed.add(value));
+            assertEquals(i == 0, leader);
+        }
+        assertEquals(1, started.size());
+        assertTrue(completed.isEmpty());
+
+        started.get(0).onComplete("Whither thou goest", null);
+        assertEquals(CALLERS, completed.size());
+        for (String value : completed) {
+            assertEquals("Whither thou goest", value);
+        }
+
+        // A late duplicate completion must not touch a newer flight for the same key
+        flights.execute("Ruth 1:16|kjv", started::add, (value, error) -> completed.add(value));
+        started.get(0).onComplete("stale", null);
+        assertEquals(CALLERS, completed.size());
+        assertEquals(1, flights.getInFlightCount());
+    }
+
+    @Test
+    public void testDifferentKeysDoNotShare() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        AtomicInteger starts = new AtomicInteger();
+
+        flights.execute("John 3:16|kjv", done -> starts.incrementAndGet(), (value, error) -> {
+        });
+        flights.execute("John 3:16|web", done -> starts.incrementAndGet(), (value, error) -> {
+        });
+        assertEquals(2, starts.get());
+    }
+
+    @Test
+    public void testErrorsReachEveryWaiter() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        List<SingleFlight.Callback<String>> started = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+
+        flights.execute("k", started::add, (value, error) -> errors.add(error));
+        flights.execute("k", started::add, (value, error) -> errors.add(error));
+        started.get(0).onComplete(null, new java.io.IOException("offline"));
+
+        assertEquals(2, errors.size());
+        assertEquals("offline", errors.get(1).getMessage());
+
+        try {
+            flights.get("k", () -> {
+                throw new IllegalStateException("boom");
+            });
+            fail("Expected the loader's exception");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(0, flights.getInFlightCount());
+    }
+
+    @Test
+    public void testOperationThatThrowsCompletesTheFlight() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        Throwable[] error = new Throwable[1];
+
+        assertTrue(flights.execute("k", done -> {
+            throw new IllegalArgumentException("bad reference");
+        }, (value, e) -> error[0] = e));
+
+        assertTrue(error[0] instanceof IllegalArgumentException);
+        assertEquals(0, flights.getInFlightCount());
+        assertFalse(flights.getStartedCount() == 0);
+        assertNull(flights.get("k", () -> null));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}